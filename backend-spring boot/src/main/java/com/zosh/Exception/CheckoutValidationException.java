@@ -0,0 +1,22 @@
+package com.zosh.Exception;
+
+import java.util.stream.Collectors;
+
+import com.zosh.response.CheckoutValidationResponse;
+
+public class CheckoutValidationException extends CartException {
+
+	private final CheckoutValidationResponse validation;
+
+	public CheckoutValidationException(CheckoutValidationResponse validation) {
+		super("Cart cannot be checked out: " + validation.getFailures().stream()
+				.map(failure -> failure.getMessage())
+				.collect(Collectors.joining(", ")));
+		this.validation = validation;
+	}
+
+	public CheckoutValidationResponse getValidation() {
+		return validation;
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.zosh.Exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the password hashing queue is full. Unchecked because it comes
+ * out of {@link org.springframework.security.crypto.password.PasswordEncoder}.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Too many sign-in requests, please retry")
+public class PasswordHashingBusyException extends RuntimeException {
+
+	public PasswordHashingBusyException(String message) {
+		super(message);
+	}
+
+}
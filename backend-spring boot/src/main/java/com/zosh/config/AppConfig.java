@@ -3,18 +3,18 @@ package com.zosh.config;
 import java.util.Arrays;
 import java.util.Collections;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 
 @Configuration
@@ -22,7 +22,8 @@ import jakarta.servlet.http.HttpServletRequest;
 public class AppConfig {
 
     @Bean
-    SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    SecurityFilterChain securityFilterChain(HttpSecurity http, JwtProvider jwtProvider, RateLimiter rateLimiter)
+            throws Exception {
 
         http.sessionManagement(management -> management.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(Authorize -> Authorize
@@ -30,8 +31,11 @@ public class AppConfig {
                         .requestMatchers("/api/workers/login").permitAll()
                         .requestMatchers("/api/shifts/worker/**").permitAll()
                         .requestMatchers("/api/**").authenticated()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().permitAll())
-                .addFilterBefore(new JwtTokenValidator(), BasicAuthenticationFilter.class)
+                .addFilterBefore(new JwtTokenValidator(jwtProvider), BasicAuthenticationFilter.class)
+                .addFilterAfter(new RateLimitFilter(rateLimiter), JwtTokenValidator.class)
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()));
 
@@ -59,9 +63,13 @@ public class AppConfig {
         };
     }
 
-    @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Bean(destroyMethod = "shutdown")
+    BoundedPasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${password.bcrypt.cost:10}") int cost,
+            @Value("${password.hashing.threads:0}") int threads,
+            @Value("${password.hashing.queue-capacity:64}") int queueCapacity) {
+        return new BoundedPasswordEncoder(cost, threads, queueCapacity, meterRegistry);
     }
 
 }
@@ -0,0 +1,127 @@
+package com.zosh.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.zosh.Exception.PasswordHashingBusyException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * BCrypt on a fixed pool sized to the CPUs, so a burst of sign-ins cannot
+ * spend every request thread on hashing. Callers still wait for their own
+ * hash, but once the queue is full new work is rejected at once with
+ * {@link PasswordHashingBusyException} (503) instead of piling up.
+ *
+ * {@link #upgradeEncoding(String)} is true for any hash made with a different
+ * cost, so logins can rehash when password.bcrypt.cost changes.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+	private final BCryptPasswordEncoder bcrypt;
+	private final int cost;
+	private final ThreadPoolExecutor executor;
+
+	private final Counter rejected;
+	private final Timer wait;
+
+	public BoundedPasswordEncoder(int cost, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+		this.bcrypt = new BCryptPasswordEncoder(cost);
+		this.cost = cost;
+		int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(),
+				new ThreadPoolExecutor.AbortPolicy());
+
+		this.rejected = Counter.builder("password.hashing.rejected")
+				.description("Password hashes refused because the queue was full").register(meterRegistry);
+		this.wait = Timer.builder("password.hashing.wait")
+				.description("Time from submitting a password hash to starting it").register(meterRegistry);
+		Gauge.builder("password.hashing.queue", executor, e -> e.getQueue().size())
+				.description("Password hashes waiting for a thread").register(meterRegistry);
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return run(() -> bcrypt.encode(rawPassword));
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return run(() -> bcrypt.matches(rawPassword, encodedPassword));
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return encodedPassword != null && costOf(encodedPassword) != cost;
+	}
+
+	// "$2a$10$..." -> 10, or -1 when the hash is not bcrypt
+	private static int costOf(String encodedPassword) {
+		if (encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$' || encodedPassword.charAt(6) != '$') {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(encodedPassword.substring(4, 6));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private <T> T run(Callable<T> task) {
+		long submitted = System.nanoTime();
+		Future<T> future;
+		try {
+			future = executor.submit(() -> {
+				wait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+				return task.call();
+			});
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			throw new PasswordHashingBusyException("password hashing queue is full");
+		}
+
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while hashing a password", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private static final class HashingThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "password-hash-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
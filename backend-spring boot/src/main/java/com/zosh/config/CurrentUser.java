@@ -0,0 +1,19 @@
+package com.zosh.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a controller parameter of type {@link com.zosh.model.User} to the
+ * caller identified by the request's JWT. The user is looked up once per
+ * request; later lookups in the same request, including the services'
+ * findUserProfileByJwt calls, get the same instance.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
@@ -0,0 +1,45 @@
+package com.zosh.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import com.zosh.Exception.UserException;
+import com.zosh.model.User;
+import com.zosh.service.UserService;
+
+/**
+ * Resolves {@link CurrentUser} parameters through
+ * {@link UserService#findUserProfileByJwt(String)}, which keeps the user for
+ * the rest of the request.
+ */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+	private final UserService userService;
+
+	public CurrentUserArgumentResolver(UserService userService) {
+		this.userService = userService;
+	}
+
+	@Override
+	public boolean supportsParameter(MethodParameter parameter) {
+		return parameter.hasParameterAnnotation(CurrentUser.class)
+				&& User.class.isAssignableFrom(parameter.getParameterType());
+	}
+
+	@Override
+	public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+			NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+		String jwt = webRequest.getHeader(HttpHeaders.AUTHORIZATION);
+		if (jwt == null) {
+			throw new UserException("Authorization header is required");
+		}
+		return userService.findUserProfileByJwt(jwt);
+	}
+
+}
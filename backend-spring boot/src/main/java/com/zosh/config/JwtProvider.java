@@ -1,24 +1,58 @@
 package com.zosh.config;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.crypto.SecretKey;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
+/**
+ * Issues and verifies tokens. The key and parser are built once and shared;
+ * verified claims are kept in a bounded cache keyed by the token's SHA-256
+ * digest until the token's exp, so a token seen again skips the HMAC check.
+ * Lookups never lock. When an insert takes the cache over its bound, one
+ * thread sweeps out expired tokens and then the least recently used ones.
+ */
 @Service
 public class JwtProvider {
 	
-	private SecretKey key=Keys.hmacShaKeyFor(JwtConstant.SECRET_KEY.getBytes());
+	private final SecretKey key=Keys.hmacShaKeyFor(JwtConstant.SECRET_KEY.getBytes());
+
+	// immutable and thread-safe
+	private final JwtParser parser=Jwts.parserBuilder().setSigningKey(key).build();
+
+	private final int maxCachedTokens;
+
+	private final Map<String, VerifiedToken> verified = new ConcurrentHashMap<>();
+	// stamps each use, orders entries for eviction
+	private final AtomicLong uses = new AtomicLong();
+	private final AtomicBoolean sweeping = new AtomicBoolean();
+
+	public JwtProvider(@Value("${jwt.claims-cache.max-entries:10000}") int maxCachedTokens) {
+		this.maxCachedTokens = maxCachedTokens;
+	}
 	
 	public String generateToken(Authentication auth) {
 		Collection<? extends GrantedAuthority> authorities = auth.getAuthorities();
@@ -34,11 +68,67 @@ public class JwtProvider {
 		return jwt;
 		
 	}
+
+	/**
+	 * Claims of a signed, unexpired token (without the "Bearer " prefix).
+	 * Throws a JwtException when the token does not verify.
+	 */
+	public Claims verify(String jwt) {
+		String digest = digest(jwt);
+		VerifiedToken cached = verified.get(digest);
+		if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+			cached.lastUse = uses.incrementAndGet();
+			return cached.claims;
+		}
+
+		Claims claims=parser.parseClaimsJws(jwt).getBody();
+		if (claims.getExpiration() != null) {
+			verified.put(digest, new VerifiedToken(claims, claims.getExpiration().getTime(), uses.incrementAndGet()));
+			if (verified.size() > maxCachedTokens) {
+				sweep(System.currentTimeMillis());
+			}
+		}
+		return claims;
+	}
+
+	int cachedTokens() {
+		return verified.size();
+	}
+
+	// drops expired tokens, then the least recently used down to a tenth under the bound,
+	// so a full cache is not swept again on every insert; concurrent inserts skip it
+	private void sweep(long now) {
+		if (!sweeping.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			verified.values().removeIf(token -> token.expiresAt <= now);
+			int excess = verified.size() - (maxCachedTokens - maxCachedTokens / 10);
+			if (excess <= 0) {
+				return;
+			}
+			// last uses are copied first, a lookup may stamp an entry while they are sorted
+			List<Map.Entry<Long, String>> byLastUse = new ArrayList<>(verified.size());
+			verified.forEach((digest, token) -> byLastUse.add(Map.entry(token.lastUse, digest)));
+			byLastUse.sort(Map.Entry.comparingByKey());
+			for (int i = 0; i < excess && i < byLastUse.size(); i++) {
+				verified.remove(byLastUse.get(i).getValue());
+			}
+		} finally {
+			sweeping.set(false);
+		}
+	}
 	
 	public String getEmailFromJwtToken(String jwt) {
 		jwt=jwt.substring(7);
+
+		// JwtTokenValidator already verified this request's token
+		Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+		if (auth != null && auth.getDetails() instanceof Claims claims && jwt.equals(auth.getCredentials())) {
+			return String.valueOf(claims.get("email"));
+		}
 		
-		Claims claims=Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(jwt).getBody();
+		Claims claims=verify(jwt);
 		String email=String.valueOf(claims.get("email"));
 		
 		return email;
@@ -53,4 +143,26 @@ public class JwtProvider {
 		return String.join(",",auths);
 	}
 
+	private static String digest(String jwt) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(jwt.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class VerifiedToken {
+
+		private final Claims claims;
+		private final long expiresAt;
+		private volatile long lastUse;
+
+		VerifiedToken(Claims claims, long expiresAt, long lastUse) {
+			this.claims = claims;
+			this.expiresAt = expiresAt;
+			this.lastUse = lastUse;
+		}
+	}
+
 }
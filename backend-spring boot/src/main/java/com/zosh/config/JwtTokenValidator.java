@@ -3,19 +3,14 @@ package com.zosh.config;
 import java.io.IOException;
 import java.util.List;
 
-import javax.crypto.SecretKey;
-
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -25,6 +20,18 @@ import jakarta.servlet.http.HttpServletResponse;
 
 public class JwtTokenValidator extends OncePerRequestFilter {
 
+	private final JwtProvider jwtProvider;
+
+	public JwtTokenValidator(JwtProvider jwtProvider) {
+		this.jwtProvider = jwtProvider;
+	}
+
+	// DeferredResult and SSE responses finish on an async dispatch, which is
+	// authorized again and needs the token applied to that thread too
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
 	
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -37,18 +44,16 @@ public class JwtTokenValidator extends OncePerRequestFilter {
 			
 			try {
 				
-				SecretKey key= Keys.hmacShaKeyFor(JwtConstant.SECRET_KEY.getBytes());
-				
-				Claims claims=Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(jwt).getBody();
+				Claims claims=jwtProvider.verify(jwt);
 				
 				String email=String.valueOf(claims.get("email"));
 				
 				String authorities=String.valueOf(claims.get("authorities"));
 				
-				System.out.println("authorities -------- "+authorities);
-				
 				List<GrantedAuthority> auths=AuthorityUtils.commaSeparatedStringToAuthorityList(authorities);
-				Authentication athentication=new UsernamePasswordAuthenticationToken(email,null, auths);
+				UsernamePasswordAuthenticationToken athentication=new UsernamePasswordAuthenticationToken(email,jwt, auths);
+				// JwtProvider.getEmailFromJwtToken reads the verified claims from here
+				athentication.setDetails(claims);
 				
 				SecurityContextHolder.getContext().setAuthentication(athentication);
 				
@@ -0,0 +1,79 @@
+package com.zosh.config;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.zosh.config.RateLimiter.Group;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Applies {@link RateLimiter} to /api/** requests. Runs after
+ * {@link JwtTokenValidator}, so signed-in callers are limited by email and
+ * everyone else by remote address. Over the limit answers 429, shed load 503,
+ * both with Retry-After.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	private final RateLimiter rateLimiter;
+
+	public RateLimitFilter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !request.getRequestURI().startsWith("/api/");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		long wait = rateLimiter.acquire(group(request.getRequestURI()), caller(request));
+		if (wait == RateLimiter.SHED) {
+			response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+			response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server busy, please retry");
+			return;
+		}
+		if (wait > 0) {
+			response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfterSeconds(wait)));
+			response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests");
+			return;
+		}
+		filterChain.doFilter(request, response);
+	}
+
+	static Group group(String uri) {
+		if (uri.startsWith("/api/admin/")) {
+			return Group.ADMIN;
+		}
+		if (uri.startsWith("/api/food/search") || uri.startsWith("/api/restaurants/search")
+				|| uri.startsWith("/api/restaurants/nearby")) {
+			return Group.SEARCH;
+		}
+		if (uri.startsWith("/api/cart")) {
+			return Group.CART;
+		}
+		if (uri.startsWith("/api/order")) {
+			return Group.ORDER;
+		}
+		return Group.DEFAULT;
+	}
+
+	private static String caller(HttpServletRequest request) {
+		Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+		if (auth != null && auth.isAuthenticated() && auth.getName() != null) {
+			return "user:" + auth.getName();
+		}
+		return "ip:" + request.getRemoteAddr();
+	}
+
+}
@@ -0,0 +1,245 @@
+package com.zosh.config;
+
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-caller token buckets for each route group, plus load shedding while the
+ * connection pool's wait queue has stayed long for a sustained period. A queue
+ * of shed.queue-ratio times the pool's maximum size must last shed.sustain-ms
+ * before requests are shed, so a short burst that the pool drains on its own
+ * is let through.
+ *
+ * A bucket is one AtomicLong holding the time at which it will be full again
+ * (the GCRA form of a token bucket), so taking a token is a single CAS and no
+ * lock is held. A bucket past that time is indistinguishable from a new one,
+ * which is what lets the sweeper drop idle buckets without losing state. When
+ * the map is full, new callers of a group share one overflow bucket until the
+ * scheduled sweep has made room, so memory stays bounded and a request never
+ * pays for more than one map lookup, even under a flood of distinct keys.
+ */
+@Component
+public class RateLimiter {
+
+	public enum Group {
+		SEARCH(20, 5, true),
+		CART(30, 10, false),
+		ORDER(10, 2, false),
+		ADMIN(60, 20, false),
+		DEFAULT(60, 20, true);
+
+		private final int capacity;
+		private final double refillPerSecond;
+		private final boolean shed;
+
+		Group(int capacity, double refillPerSecond, boolean shed) {
+			this.capacity = capacity;
+			this.refillPerSecond = refillPerSecond;
+			this.shed = shed;
+		}
+
+		String key() {
+			return name().toLowerCase();
+		}
+	}
+
+	/** Returned by {@link RateLimiter#acquire} while load is being shed. */
+	public static final long SHED = -1;
+
+	private final Map<Group, Limit> limits = new EnumMap<>(Group.class);
+	private final Map<Group, TokenBucket> overflow = new EnumMap<>(Group.class);
+	private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+	private final DataSource dataSource;
+	private final int maxBuckets;
+	private final double shedQueueRatio;
+	private final long shedSustainNanos;
+	private volatile HikariDataSource pool;
+	// when the wait queue last became long, 0 while it is short
+	private final AtomicLong saturatedSince = new AtomicLong();
+
+	private final Map<Group, Counter> allowed = new EnumMap<>(Group.class);
+	private final Map<Group, Counter> limited = new EnumMap<>(Group.class);
+	private final Map<Group, Counter> shed = new EnumMap<>(Group.class);
+
+	public RateLimiter(
+			DataSource dataSource,
+			Environment environment,
+			MeterRegistry meterRegistry,
+			@Value("${rate-limit.max-buckets:100000}") int maxBuckets,
+			@Value("${rate-limit.shed.queue-ratio:1.0}") double shedQueueRatio,
+			@Value("${rate-limit.shed.sustain-ms:1000}") long shedSustainMs) {
+		this.dataSource = dataSource;
+		this.maxBuckets = maxBuckets;
+		this.shedQueueRatio = shedQueueRatio;
+		this.shedSustainNanos = TimeUnit.MILLISECONDS.toNanos(shedSustainMs);
+
+		for (Group group : Group.values()) {
+			String prefix = "rate-limit." + group.key() + ".";
+			Limit limit = new Limit(
+					environment.getProperty(prefix + "capacity", Integer.class, group.capacity),
+					environment.getProperty(prefix + "refill-per-second", Double.class, group.refillPerSecond),
+					environment.getProperty(prefix + "shed", Boolean.class, group.shed));
+			limits.put(group, limit);
+			overflow.put(group, new TokenBucket(System.nanoTime()));
+
+			allowed.put(group, counter(meterRegistry, group, "allowed"));
+			limited.put(group, counter(meterRegistry, group, "limited"));
+			shed.put(group, counter(meterRegistry, group, "shed"));
+		}
+		Gauge.builder("rate.limit.buckets", buckets, Map::size)
+				.description("Token buckets held for callers").register(meterRegistry);
+	}
+
+	private static Counter counter(MeterRegistry meterRegistry, Group group, String result) {
+		return Counter.builder("rate.limit.requests").tag("group", group.key()).tag("result", result)
+				.description("API requests by rate limit outcome").register(meterRegistry);
+	}
+
+	/**
+	 * Takes a token from the caller's bucket for the group. Returns 0 if the
+	 * request may go ahead, the nanos until the caller's next token if it is
+	 * over its limit, or {@link #SHED} while the group's load is being shed.
+	 */
+	public long acquire(Group group, String caller) {
+		return acquire(group, caller, System.nanoTime());
+	}
+
+	long acquire(Group group, String caller, long now) {
+		Limit limit = limits.get(group);
+		if (limit.shed && poolSaturated(now)) {
+			shed.get(group).increment();
+			return SHED;
+		}
+
+		long wait = bucket(group, caller, now).tryAcquire(now, limit);
+		(wait == 0 ? allowed : limited).get(group).increment();
+		return wait;
+	}
+
+	public static long retryAfterSeconds(long retryAfterNanos) {
+		return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+	}
+
+	private TokenBucket bucket(Group group, String caller, long now) {
+		String key = group.key() + ":" + caller;
+		TokenBucket bucket = buckets.get(key);
+		if (bucket != null) {
+			return bucket;
+		}
+		// no sweep on the request thread: under a flood of new keys every request would pay for a full pass
+		if (buckets.size() >= maxBuckets) {
+			return overflow.get(group);
+		}
+		return buckets.computeIfAbsent(key, k -> new TokenBucket(now));
+	}
+
+	// drops buckets that have refilled completely, they carry no state
+	@Scheduled(fixedDelayString = "${rate-limit.sweep-interval-ms:60000}")
+	public void evictIdle() {
+		evictIdle(System.nanoTime());
+	}
+
+	void evictIdle(long now) {
+		Iterator<TokenBucket> it = buckets.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().idle(now)) {
+				it.remove();
+			}
+		}
+	}
+
+	private boolean poolSaturated(long now) {
+		HikariDataSource hikari = pool();
+		HikariPoolMXBean mxBean = hikari == null ? null : hikari.getHikariPoolMXBean();
+		if (mxBean == null) {
+			return false;
+		}
+		long threshold = Math.max(1, (long) Math.ceil(shedQueueRatio * hikari.getMaximumPoolSize()));
+		if (mxBean.getThreadsAwaitingConnection() < threshold) {
+			saturatedSince.set(0);
+			return false;
+		}
+		// 0 means not saturated, so a clock reading of exactly 0 is taken as 1
+		saturatedSince.compareAndSet(0, now == 0 ? 1 : now);
+		return now - saturatedSince.get() >= shedSustainNanos;
+	}
+
+	// the pool MXBean only exists once the pool has started
+	private HikariDataSource pool() {
+		HikariDataSource hikari = pool;
+		if (hikari == null) {
+			try {
+				if (dataSource.isWrapperFor(HikariDataSource.class)) {
+					hikari = dataSource.unwrap(HikariDataSource.class);
+					pool = hikari;
+				}
+			} catch (SQLException e) {
+				return null;
+			}
+		}
+		return hikari;
+	}
+
+	static final class Limit {
+
+		private final long intervalNanos;
+		private final long burstNanos;
+		private final boolean shed;
+
+		Limit(int capacity, double refillPerSecond, boolean shed) {
+			this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+			this.burstNanos = intervalNanos * capacity;
+			this.shed = shed;
+		}
+	}
+
+	static final class TokenBucket {
+
+		// the time at which the bucket is full again; at or before now it is full
+		private final AtomicLong fullAt;
+
+		TokenBucket(long now) {
+			this.fullAt = new AtomicLong(now);
+		}
+
+		// returns 0 when a token was taken, otherwise the nanos until one is available
+		long tryAcquire(long now, Limit limit) {
+			while (true) {
+				long current = fullAt.get();
+				long next = Math.max(current, now) + limit.intervalNanos;
+				long ahead = next - now;
+				if (ahead > limit.burstNanos) {
+					return ahead - limit.burstNanos;
+				}
+				if (fullAt.compareAndSet(current, next)) {
+					return 0;
+				}
+			}
+		}
+
+		boolean idle(long now) {
+			return fullAt.get() - now <= 0;
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.zosh.config;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+	private final CurrentUserArgumentResolver currentUserArgumentResolver;
+
+	public WebConfig(CurrentUserArgumentResolver currentUserArgumentResolver) {
+		this.currentUserArgumentResolver = currentUserArgumentResolver;
+	}
+
+	@Override
+	public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+		resolvers.add(currentUserArgumentResolver);
+	}
+
+}
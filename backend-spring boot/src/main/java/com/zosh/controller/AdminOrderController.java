@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,6 +16,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.stripe.exception.StripeException;
 import com.zosh.Exception.CartException;
@@ -24,7 +26,11 @@ import com.zosh.Exception.UserException;
 import com.zosh.model.Order;
 import com.zosh.model.PaymentResponse;
 import com.zosh.model.User;
+import com.zosh.request.BulkOrderStatusRequest;
 import com.zosh.request.CreateOrderRequest;
+import com.zosh.response.BulkOrderStatusResponse;
+import com.zosh.response.OrderPageResponse;
+import com.zosh.service.OrderEventService;
 import com.zosh.service.OrderService;
 import com.zosh.service.UserService;
 
@@ -38,6 +44,9 @@ public class AdminOrderController {
 	@Autowired
 	private UserService userService;
 	
+	@Autowired
+	private OrderEventService orderEventService;
+	
 	
     @DeleteMapping("/order/{orderId}")
     public ResponseEntity<String> deleteOrder(@PathVariable Long orderId) throws OrderException{
@@ -51,10 +60,11 @@ public class AdminOrderController {
     @GetMapping("/order/restaurant/{restaurantId}")
     public ResponseEntity<List<Order>> getAllRestaurantOrders(
     		@PathVariable Long restaurantId,
-    		@RequestParam(required = false) String order_status) throws OrderException, RestaurantException{
+    		@RequestParam(required = false) String order_status,
+    		@RequestParam(defaultValue = "false") boolean includeArchived) throws OrderException, RestaurantException{
     	
     		List<Order> orders = orderService.
-    				getOrdersOfRestaurant(restaurantId,order_status);
+    				getOrdersOfRestaurant(restaurantId,order_status,includeArchived);
     		
 //    		System.out.println("ORDER STATUS----- "+orderStatus);
     		return ResponseEntity.ok(orders);
@@ -63,10 +73,40 @@ public class AdminOrderController {
     	
     }
     
+    @GetMapping("/order/restaurant/{restaurantId}/page")
+    public ResponseEntity<OrderPageResponse> getRestaurantOrdersPage(
+    		@PathVariable Long restaurantId,
+    		@RequestParam(required = false) String order_status,
+    		@RequestParam(required = false) String cursor,
+    		@RequestParam(defaultValue = "20") int size) throws OrderException{
+    	
+    		OrderPageResponse page = orderService.getOrdersOfRestaurant(restaurantId,order_status,cursor,size);
+    		return ResponseEntity.ok(page);
+    }
+    
+    // live feed of new orders and status changes; replaces polling the list endpoint
+    @GetMapping(path = "/order/restaurant/{restaurantId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRestaurantOrders(
+    		@PathVariable Long restaurantId,
+    		@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+    	
+    		return orderEventService.subscribe(restaurantId, lastEventId);
+    }
+    
+    // move many orders to one status; reports success or failure per order
+    @PutMapping("/orders/status")
+    public ResponseEntity<BulkOrderStatusResponse> updateOrdersStatus(
+    		@RequestBody BulkOrderStatusRequest req) throws OrderException{
+    	
+    		BulkOrderStatusResponse res = orderService.updateOrders(req.getOrderIds(), req.getOrderStatus());
+    		return ResponseEntity.ok(res);
+    }
+    
     @PutMapping("/orders/{orderId}/{orderStatus}")
-    public ResponseEntity<Order> updateOrders(@PathVariable Long orderId,@PathVariable String orderStatus) throws OrderException, RestaurantException{
+    public ResponseEntity<Order> updateOrders(@PathVariable Long orderId,@PathVariable String orderStatus,
+    		@RequestParam(required = false) String expected) throws OrderException, RestaurantException{
     	
-    		Order orders = orderService.updateOrder(orderId, orderStatus);
+    		Order orders = orderService.updateOrder(orderId, orderStatus, expected);
     		return ResponseEntity.ok(orders);
     		
     }
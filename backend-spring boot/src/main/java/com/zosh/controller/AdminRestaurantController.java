@@ -1,8 +1,10 @@
 package com.zosh.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,15 +14,19 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.zosh.Exception.RestaurantException;
 import com.zosh.Exception.UserException;
+import com.zosh.domain.RollupGranularity;
 import com.zosh.model.Restaurant;
 import com.zosh.model.User;
 import com.zosh.request.CreateRestaurantRequest;
 import com.zosh.response.ApiResponse;
+import com.zosh.response.RestaurantAnalyticsResponse;
 import com.zosh.service.RestaurantService;
+import com.zosh.service.RevenueRollupService;
 import com.zosh.service.UserService;
 
 @RestController
@@ -31,6 +37,17 @@ public class AdminRestaurantController {
 	
 	@Autowired
 	private UserService userService;
+	
+	@Autowired
+	private RevenueRollupService revenueRollupService;
+
+	// full restaurant entities for the admin restaurant table
+	@GetMapping()
+	public ResponseEntity<List<Restaurant>> getAllRestaurants() {
+		
+		List<Restaurant> restaurants = restaurantService.getAllRestaurant();
+		return ResponseEntity.ok(restaurants);
+	}
 
 	@PostMapping()
 	public ResponseEntity<Restaurant> createRestaurant(
@@ -67,6 +84,19 @@ public class AdminRestaurantController {
 	}
 
 	
+	// orders, revenue and average ticket from the rollup tables, [from, to) in whole days
+	@GetMapping("/{id}/analytics")
+	public ResponseEntity<RestaurantAnalyticsResponse> getRestaurantAnalytics(
+			@PathVariable Long id,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+			@RequestParam(defaultValue = "DAY") RollupGranularity granularity) throws RestaurantException {
+		
+			RestaurantAnalyticsResponse res = revenueRollupService.getAnalytics(id, from, to, granularity);
+			return ResponseEntity.ok(res);
+	}
+
+	
 	@PutMapping("/{id}/status")
 	public ResponseEntity<Restaurant> updateStataurantStatus(
 			@RequestHeader("Authorization") String jwt,
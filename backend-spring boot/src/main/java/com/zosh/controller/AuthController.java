@@ -162,6 +162,11 @@ public class AuthController {
 			throw new BadCredentialsException("Invalid role for this user");
 		}
 
+		// stored with a different bcrypt cost, hash again with the configured one
+		if (user != null && passwordEncoder.upgradeEncoding(userDetails.getPassword())) {
+			userService.updatePassword(user, password);
+		}
+
 		return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
 	}
 
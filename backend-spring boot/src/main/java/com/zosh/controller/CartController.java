@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -17,22 +18,23 @@ import com.zosh.Exception.CartException;
 import com.zosh.Exception.CartItemException;
 import com.zosh.Exception.FoodException;
 import com.zosh.Exception.UserException;
+import com.zosh.config.CurrentUser;
 import com.zosh.model.Cart;
 import com.zosh.model.CartItem;
 import com.zosh.model.Food;
 import com.zosh.model.User;
 import com.zosh.request.AddCartItemRequest;
 import com.zosh.request.UpdateCartItemRequest;
+import com.zosh.request.UpdateCartRequest;
+import com.zosh.response.CartResponse;
+import com.zosh.response.CheckoutValidationResponse;
 import com.zosh.service.CartSerive;
-import com.zosh.service.UserService;
 
 @RestController
 @RequestMapping("/api")
 public class CartController {
 	@Autowired
 	private CartSerive cartService;
-	@Autowired
-	private UserService userService;
 
 	@PutMapping("/cart/add")
 	public ResponseEntity<CartItem> addItemToCart(@RequestBody AddCartItemRequest req,
@@ -45,11 +47,18 @@ public class CartController {
 	@PutMapping("/cart-item/update")
 	public ResponseEntity<CartItem> updateCartItemQuantity(
 			@RequestBody UpdateCartItemRequest req, 
-			@RequestHeader("Authorization") String jwt) throws CartItemException {
-		CartItem cart = cartService.updateCartItemQuantity(req.getCartItemId(), req.getQuantity());
+			@RequestHeader("Authorization") String jwt) throws UserException, CartException, CartItemException {
+		CartItem cart = cartService.updateCartItemQuantity(req.getCartItemId(), req.getQuantity(), jwt);
 		return ResponseEntity.ok(cart);
 	}
 
+	@PatchMapping("/cart")
+	public ResponseEntity<CartResponse> updateCart(@RequestBody UpdateCartRequest req,
+			@RequestHeader("Authorization") String jwt) throws UserException, FoodException, CartException, CartItemException {
+		CartResponse res = cartService.updateCart(req.getOperations(), jwt);
+		return ResponseEntity.ok(res);
+	}
+
 	@DeleteMapping("/cart-item/{id}/remove")
 	public ResponseEntity<Cart> removeItemFromCart(@PathVariable Long id,
 			@RequestHeader("Authorization") String jwt) throws UserException, CartException, CartItemException {
@@ -61,11 +70,8 @@ public class CartController {
 
 	@GetMapping("/cart/total")
 	public ResponseEntity<Double> calculateCartTotals(@RequestParam Long cartId,
-			@RequestHeader("Authorization") String jwt) throws UserException, CartException {
+			@CurrentUser User user) throws UserException, CartException {
 
-		
-		User user = userService.findUserProfileByJwt(jwt);
-		
 		Cart cart =cartService.findCartByUserId(user.getId());
 		double total = cartService.calculateCartTotals(cart);
 		return ResponseEntity.ok(total);
@@ -73,16 +79,21 @@ public class CartController {
 	
 	@GetMapping("/cart/")
 	public ResponseEntity<Cart> findUserCart(
-			@RequestHeader("Authorization") String jwt) throws UserException, CartException {
-User user=userService.findUserProfileByJwt(jwt);
+			@CurrentUser User user) throws UserException, CartException {
 		Cart cart = cartService.findCartByUserId(user.getId());
 		return ResponseEntity.ok(cart);
 	}
 	
+	@GetMapping("/cart/validate")
+	public ResponseEntity<CheckoutValidationResponse> validateCart(
+			@CurrentUser User user) throws UserException, CartException {
+		CheckoutValidationResponse res = cartService.validateCart(user.getId());
+		return ResponseEntity.ok(res);
+	}
+
 	@PutMapping("/cart/clear")
 	public ResponseEntity<Cart> cleareCart(
-			@RequestHeader("Authorization") String jwt) throws UserException, CartException {
-User user=userService.findUserProfileByJwt(jwt);
+			@CurrentUser User user) throws UserException, CartException {
 		Cart cart = cartService.clearCart(user.getId());
 		return ResponseEntity.ok(cart);
 	}
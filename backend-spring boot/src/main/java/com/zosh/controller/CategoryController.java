@@ -6,9 +6,11 @@ import com.zosh.Exception.UserException;
 import com.zosh.model.User;
 import com.zosh.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import com.zosh.Exception.RestaurantException;
 import com.zosh.model.Category;
@@ -37,10 +39,14 @@ public class CategoryController {
 	@GetMapping("/category/restaurant/{id}")
 	public ResponseEntity<List<Category>> getRestaurantsCategory(
 			@PathVariable Long id,
-			@RequestHeader("Authorization")String jwt) throws RestaurantException, UserException {
+			@RequestHeader("Authorization")String jwt,
+			WebRequest request) throws RestaurantException, UserException {
+		if (request.checkNotModified(categoryService.getCategoriesETag(id))) {
+			return null;
+		}
 		User user=userService.findUserProfileByJwt(jwt);
 		List<Category> categories=categoryService.findCategoryByRestaurantId(id);
-		return new ResponseEntity<>(categories,HttpStatus.OK);
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(categories);
 	}
 
 }
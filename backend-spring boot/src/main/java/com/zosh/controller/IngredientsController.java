@@ -6,9 +6,11 @@ import com.zosh.request.CreateIngredientCategoryRequest;
 import com.zosh.request.CreateIngredientRequest;
 import com.zosh.request.Ingredient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import com.zosh.model.IngredientCategory;
 import com.zosh.model.IngredientsItem;
@@ -44,16 +46,24 @@ public class IngredientsController {
 	
 	@GetMapping("/restaurant/{id}")
 	public ResponseEntity<List<IngredientsItem>> restaurantsIngredient(
-			@PathVariable Long id) throws Exception{
+			@PathVariable Long id,
+			WebRequest request) throws Exception{
+		if (request.checkNotModified(ingredientService.getIngredientsETag(id))) {
+			return null;
+		}
 		List<IngredientsItem> items=ingredientService.findRestaurantsIngredients(id);
-		return new ResponseEntity<>(items,HttpStatus.OK);
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(items);
 	}
 
 	@GetMapping("/restaurant/{id}/category")
 	public ResponseEntity<List<IngredientCategory>> restaurantsIngredientCategory(
-			@PathVariable Long id) throws Exception{
+			@PathVariable Long id,
+			WebRequest request) throws Exception{
+		if (request.checkNotModified(ingredientService.getIngredientsETag(id))) {
+			return null;
+		}
 		List<IngredientCategory> items=ingredientService.findIngredientsCategoryByRestaurantId(id);
-		return new ResponseEntity<>(items,HttpStatus.OK);
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(items);
 	}
 
 }
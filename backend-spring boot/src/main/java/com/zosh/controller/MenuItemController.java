@@ -3,6 +3,7 @@ package com.zosh.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,6 +15,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.zosh.Exception.FoodException;
 import com.zosh.Exception.RestaurantException;
@@ -40,16 +42,22 @@ public class MenuItemController {
 		List<Food> menuItem = menuItemService.searchFood(name);
 		return ResponseEntity.ok(menuItem);
 	}
+	// answers If-None-Match with 304 before the menu is looked at
 	@GetMapping("/restaurant/{restaurantId}")
 	public ResponseEntity<List<Food>> getMenuItemByRestaurantId(
 			@PathVariable Long restaurantId,
 			@RequestParam boolean vegetarian,
 			@RequestParam boolean seasonal,
 			@RequestParam boolean nonveg,
-			@RequestParam(required = false) String food_category) throws FoodException {
+			@RequestParam(defaultValue = "false") boolean available,
+			@RequestParam(required = false) String food_category,
+			WebRequest request) throws FoodException {
+		if (request.checkNotModified(menuItemService.getMenuETag(restaurantId))) {
+			return null;
+		}
 		List<Food> menuItems= menuItemService.getRestaurantsFood(
-				restaurantId,vegetarian,nonveg,seasonal,food_category);
-		return ResponseEntity.ok(menuItems);
+				restaurantId,vegetarian,nonveg,seasonal,available,food_category);
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(menuItems);
 	}
 	
 
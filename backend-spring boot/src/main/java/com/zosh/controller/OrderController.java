@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -14,19 +15,27 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import com.stripe.exception.StripeException;
 import com.zosh.Exception.CartException;
+import com.zosh.Exception.CheckoutValidationException;
 import com.zosh.Exception.OrderException;
 import com.zosh.Exception.RestaurantException;
 import com.zosh.Exception.UserException;
+import com.zosh.config.CurrentUser;
+import com.zosh.domain.PaymentLinkStatus;
 import com.zosh.model.Order;
 import com.zosh.model.PaymentResponse;
 import com.zosh.model.User;
 import com.zosh.request.CreateOrderRequest;
+import com.zosh.response.CheckoutValidationResponse;
+import com.zosh.response.OrderHistoryPageResponse;
+import com.zosh.service.OrderHistoryService;
 import com.zosh.service.OrderService;
-import com.zosh.service.UserService;
+import com.zosh.service.PaymentLinkService;
 
 @RestController
 @RequestMapping("/api")
@@ -34,41 +43,88 @@ public class OrderController {
 	@Autowired
 	private OrderService orderService;
 	@Autowired
-	private UserService userService;
+	private PaymentLinkService paymentLinkService;
+	@Autowired
+	private OrderHistoryService orderHistoryService;
+	
+	private static final long MAX_PAYMENT_WAIT_SECONDS = 30;
 	
     @PostMapping("/order")
 	public ResponseEntity<PaymentResponse>  createOrder(@RequestBody CreateOrderRequest order,
-			@RequestHeader("Authorization") String jwt)
+			@RequestParam(defaultValue = "false") boolean asyncPayment,
+			@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+			@CurrentUser User user)
             throws UserException, RestaurantException,
             CartException,
             StripeException,
             OrderException, RazorpayException {
-		User user=userService.findUserProfileByJwt(jwt);
 		System.out.println("req user "+user.getEmail());
     	if(order!=null) {
-			PaymentResponse res = orderService.createOrder(order,user);
+			PaymentResponse res = orderService.createOrder(order,user,asyncPayment,idempotencyKey);
 			return ResponseEntity.ok(res);
 			
     	}else throw new OrderException("Please provide valid request body");
 		
     }
     
- 
+    @GetMapping("/order/{orderId}/payment")
+    public DeferredResult<ResponseEntity<PaymentResponse>> getPaymentLink(@PathVariable Long orderId,
+    		@RequestParam(defaultValue = "0") long waitSeconds,
+    		@CurrentUser User user) throws OrderException, UserException {
+    	
+    	if(waitSeconds<=0) {
+    		DeferredResult<ResponseEntity<PaymentResponse>> result = new DeferredResult<>();
+    		result.setResult(paymentLinkResponse(paymentLinkService.getPaymentLink(orderId, user.getId())));
+    		return result;
+    	}
+    	
+    	// long-poll: hold the request without a servlet thread until the link is ready
+    	long timeout = Math.min(waitSeconds, MAX_PAYMENT_WAIT_SECONDS) * 1000;
+    	PaymentResponse pending = new PaymentResponse();
+    	pending.setOrderId(orderId);
+    	pending.setStatus(PaymentLinkStatus.PENDING);
+    	
+    	DeferredResult<ResponseEntity<PaymentResponse>> result =
+    			new DeferredResult<>(timeout, paymentLinkResponse(pending));
+    	paymentLinkService.awaitPaymentLink(orderId, user.getId())
+    			.thenAccept(res -> result.setResult(paymentLinkResponse(res)));
+    	return result;
+    }
+    
+    private ResponseEntity<PaymentResponse> paymentLinkResponse(PaymentResponse res) {
+    	if(res.getStatus()==PaymentLinkStatus.PENDING) {
+    		return new ResponseEntity<>(res, HttpStatus.ACCEPTED);
+    	}
+    	return ResponseEntity.ok(res);
+    }
     
     @GetMapping("/order/user")
-    public ResponseEntity<List<Order>> getAllUserOrders(	@RequestHeader("Authorization") String jwt) throws OrderException, UserException{
+    public ResponseEntity<List<Order>> getAllUserOrders(	@CurrentUser User user,
+    		@RequestParam(defaultValue = "false") boolean includeArchived) throws OrderException, UserException{
     
-    	User user=userService.findUserProfileByJwt(jwt);
-    	
     	if(user.getId()!=null) {
-    	List<Order> userOrders = orderService.getUserOrders(user.getId());
+    	List<Order> userOrders = orderService.getUserOrders(user.getId(),includeArchived);
     	return ResponseEntity.ok(userOrders);
     	}else {
     		return new ResponseEntity<List<Order>>(HttpStatus.BAD_REQUEST);
     	}
     }
     
-
+    @GetMapping("/order/user/history")
+    public ResponseEntity<OrderHistoryPageResponse> getUserOrderHistory(
+    		@RequestParam(required = false) String cursor,
+    		@RequestParam(defaultValue = "20") int size,
+    		@CurrentUser User user) throws OrderException, UserException{
+    	
+    	OrderHistoryPageResponse page = orderHistoryService.getUserOrderHistory(user.getId(), cursor, size);
+    	return ResponseEntity.ok(page);
+    }
+    
+    // checkout rejected by cart validation, the body lists every failure
+    @ExceptionHandler(CheckoutValidationException.class)
+    public ResponseEntity<CheckoutValidationResponse> checkoutRejected(CheckoutValidationException e) {
+    	return new ResponseEntity<>(e.getValidation(), HttpStatus.CONFLICT);
+    }
     
 
 	
@@ -3,16 +3,21 @@ package com.zosh.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import com.zosh.Exception.RestaurantException;
 import com.zosh.Exception.UserException;
+import com.zosh.config.CurrentUser;
+import com.zosh.domain.RestaurantSort;
 import com.zosh.dto.RestaurantDto;
 import com.zosh.model.Restaurant;
 import com.zosh.model.User;
+import com.zosh.response.NearbyRestaurantResponse;
+import com.zosh.response.RestaurantSummaryPageResponse;
 import com.zosh.service.RestaurantService;
-import com.zosh.service.UserService;
 
 @RestController
 @RequestMapping("/api/restaurants")
@@ -20,9 +25,6 @@ public class RestaurantController {
 	
 	@Autowired
 	private RestaurantService restaurantService;
-	
-	@Autowired
-	private UserService userService;
 
 
 	@GetMapping("/search")
@@ -34,31 +36,50 @@ public class RestaurantController {
 	}
 
 
+	@GetMapping("/nearby")
+	public ResponseEntity<List<NearbyRestaurantResponse>> findNearbyRestaurants(
+			@RequestParam double lat,
+			@RequestParam double lng,
+			@RequestParam(defaultValue = "5") double radiusKm,
+			@RequestParam(defaultValue = "10") int limit) throws RestaurantException {
+		List<NearbyRestaurantResponse> restaurants = restaurantService.findNearbyRestaurants(lat, lng, radiusKm, limit);
+
+		return ResponseEntity.ok(restaurants);
+	}
+
+
+	// one page of restaurant summaries, pass nextCursor back with the same sort for the next page
 	@GetMapping()
-	public ResponseEntity<List<Restaurant>> getAllRestaurants() {
+	public ResponseEntity<RestaurantSummaryPageResponse> getAllRestaurants(
+			@RequestParam(defaultValue = "NAME") RestaurantSort sort,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "20") int size) throws RestaurantException {
 
-		List<Restaurant> restaurants = restaurantService.getAllRestaurant();
+		RestaurantSummaryPageResponse page = restaurantService.getRestaurantSummaries(sort, cursor, size);
 		
 		
-		return ResponseEntity.ok(restaurants);
+		return ResponseEntity.ok(page);
 	}
 	
 	
 	@GetMapping("/{id}")
 	public ResponseEntity<Restaurant> findRestaurantById(
-			@PathVariable Long id) throws RestaurantException {
+			@PathVariable Long id,
+			WebRequest request) throws RestaurantException {
 
+			if (request.checkNotModified(restaurantService.getRestaurantETag(id))) {
+				return null;
+			}
 			Restaurant restaurant = restaurantService.findRestaurantById(id);
-			return ResponseEntity.ok(restaurant);
+			return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(restaurant);
 
 	}
 	
 	@PutMapping("/{id}/add-favorites")
 	public ResponseEntity<RestaurantDto> addToFavorite(
-			@RequestHeader("Authorization") String jwt,
+			@CurrentUser User user,
 			@PathVariable Long id) throws RestaurantException, UserException {
 		
-			User user = userService.findUserProfileByJwt(jwt);
 			RestaurantDto restaurant = restaurantService.addToFavorites(id, user);
 			return ResponseEntity.ok(restaurant);
 
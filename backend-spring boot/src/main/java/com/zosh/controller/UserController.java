@@ -3,28 +3,20 @@ package com.zosh.controller;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.zosh.Exception.UserException;
+import com.zosh.config.CurrentUser;
 import com.zosh.model.User;
-import com.zosh.service.UserService;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
-	private UserService userService;
-
-	public UserController(UserService userService) {
-		this.userService = userService;
-	}
-
 	@GetMapping("/profile")
-	public ResponseEntity<User> getUserProfileHandler(@RequestHeader("Authorization") String jwt) throws UserException {
+	public ResponseEntity<User> getUserProfileHandler(@CurrentUser User user) throws UserException {
 
-		User user = userService.findUserProfileByJwt(jwt);
 		user.setPassword(null);
 
 		return new ResponseEntity<>(user, HttpStatus.ACCEPTED);
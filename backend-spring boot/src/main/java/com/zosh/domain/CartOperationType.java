@@ -0,0 +1,10 @@
+package com.zosh.domain;
+
+public enum CartOperationType {
+    // menuItemId, quantity and ingredients; merges into an existing line with the same ingredients
+    ADD,
+    // cartItemId and quantity
+    SET_QUANTITY,
+    // cartItemId
+    REMOVE
+}
@@ -0,0 +1,11 @@
+package com.zosh.domain;
+
+public enum CheckoutFailureReason {
+    EMPTY_CART,
+    FOOD_NOT_FOUND,
+    FOOD_UNAVAILABLE,
+    RESTAURANT_CLOSED,
+    INGREDIENT_OUT_OF_STOCK,
+    // checkout re-prices the line, checking out again accepts the new price
+    PRICE_CHANGED
+}
@@ -0,0 +1,8 @@
+package com.zosh.domain;
+
+public enum OrderEventType {
+    ORDER_CREATED,
+    ORDER_STATUS_CHANGED,
+    // the client's Last-Event-ID fell out of the replay buffer, reload the order list
+    RESYNC
+}
@@ -1,10 +1,52 @@
 package com.zosh.domain;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum OrderStatus {
     RECEIVED,
     PENDING,
     READY_FOR_PICKUP,
     OUT_FOR_DELIVERY,
     DELIVERED,
-    CANCELLED
+    COMPLETED,
+    CANCELLED;
+
+    // the delivery sequence, forward only. RECEIVED and READY_FOR_PICKUP may be
+    // skipped, a picked up order completes from READY_FOR_PICKUP, and a delivered
+    // one from DELIVERED. CANCELLED is never a status update: orders are cancelled
+    // through the cancel endpoint. COMPLETED and CANCELLED are terminal.
+    private static final Map<OrderStatus, Set<OrderStatus>> NEXT = new EnumMap<>(OrderStatus.class);
+    private static final Map<OrderStatus, Set<OrderStatus>> PREVIOUS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        NEXT.put(PENDING, EnumSet.of(RECEIVED, READY_FOR_PICKUP, OUT_FOR_DELIVERY));
+        NEXT.put(RECEIVED, EnumSet.of(READY_FOR_PICKUP, OUT_FOR_DELIVERY));
+        NEXT.put(READY_FOR_PICKUP, EnumSet.of(OUT_FOR_DELIVERY, COMPLETED));
+        NEXT.put(OUT_FOR_DELIVERY, EnumSet.of(DELIVERED));
+        NEXT.put(DELIVERED, EnumSet.of(COMPLETED));
+        NEXT.put(COMPLETED, EnumSet.noneOf(OrderStatus.class));
+        NEXT.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+
+        for (OrderStatus status : values()) {
+            PREVIOUS.put(status, EnumSet.noneOf(OrderStatus.class));
+        }
+        NEXT.forEach((from, targets) -> targets.forEach(to -> PREVIOUS.get(to).add(from)));
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return NEXT.get(this).contains(next);
+    }
+
+    public Set<OrderStatus> nextStatuses() {
+        return Collections.unmodifiableSet(NEXT.get(this));
+    }
+
+    // every status an order may be in right before moving to this one
+    public Set<OrderStatus> allowedPredecessors() {
+        return Collections.unmodifiableSet(PREVIOUS.get(this));
+    }
 }
@@ -0,0 +1,8 @@
+package com.zosh.domain;
+
+// orderings of the restaurant listing, each backed by an index
+public enum RestaurantSort {
+    NAME,
+    RATING,
+    NEWEST
+}
@@ -0,0 +1,6 @@
+package com.zosh.domain;
+
+public enum RollupGranularity {
+    HOUR,
+    DAY
+}
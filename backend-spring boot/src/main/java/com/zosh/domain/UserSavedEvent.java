@@ -0,0 +1,18 @@
+package com.zosh.domain;
+
+/**
+ * Published by Spring Data whenever a user is saved through UserRepository.
+ */
+public class UserSavedEvent {
+
+	private final String email;
+
+	public UserSavedEvent(String email) {
+		this.email = email;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+}
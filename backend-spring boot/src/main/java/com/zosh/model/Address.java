@@ -6,14 +6,17 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.util.Objects;
 
 @Entity
+@Table(indexes = @Index(name = "idx_address_location", columnList = "latitude, longitude"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
@@ -34,6 +37,11 @@ public class Address {
 
 	private String country;
 
+	// WGS84 degrees, geocoded from the postal code when not given
+	private Double latitude;
+
+	private Double longitude;
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o)
@@ -0,0 +1,73 @@
+package com.zosh.model;
+
+
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.zosh.domain.OrderStatus;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cold copy of a finished order. Rows are only written by the archiver, which
+ * keeps the id the order had in the orders table.
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Table(name = "orders_archive", indexes = {
+		@Index(name = "idx_orders_archive_restaurant_created", columnList = "restaurant_id, createdAt"),
+		@Index(name = "idx_orders_archive_customer_created", columnList = "customer_id, createdAt") })
+public class ArchivedOrder {
+	@Id
+	private Long id;
+
+	@ManyToOne
+	private User customer;
+
+	@JsonIgnore
+	@ManyToOne
+	private Restaurant restaurant;
+
+	private Long totalAmount;
+
+	@Enumerated(EnumType.STRING)
+	private OrderStatus orderStatus;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date createdAt;
+
+	@ManyToOne
+	private Address deliveryAddress;
+
+	@OneToMany
+	@JoinColumn(name = "order_id")
+	private List<ArchivedOrderItem> items;
+
+	@OneToOne
+	private Payment payment;
+
+	private int totalItem;
+
+	private int totalPrice;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date archivedAt;
+
+}
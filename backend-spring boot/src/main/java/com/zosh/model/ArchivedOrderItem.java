@@ -0,0 +1,31 @@
+package com.zosh.model;
+
+
+import java.util.List;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Table(name = "order_item_archive")
+public class ArchivedOrderItem {
+    @Id
+    private Long id;
+
+    @ManyToOne
+    private Food food;
+
+    private int quantity;
+    private Long totalPrice;
+
+    private List<String> ingredients;
+
+}
@@ -31,6 +31,7 @@ public class Cart {
 	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
 	private List<CartItem> items = new ArrayList<>();
 	
+	// sum of the items' totalPrice, kept up to date on every edit
 	private Long total;
 
 }
@@ -4,17 +4,22 @@ import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cart_item_line",
+        columnNames = { "cart_id", "food_id", "ingredientsHash" }))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -33,6 +38,14 @@ public class CartItem {
     private int quantity;
     
     private List<String> ingredients;
+
+    // SHA-256 of the sorted ingredient set, part of the line's unique key
+    @JsonIgnore
+    @Column(length = 64)
+    private String ingredientsHash;
+
+    // food price when the line was added, the cart is charged at this price
+    private Long unitPrice;
     
     private Long totalPrice;
 }
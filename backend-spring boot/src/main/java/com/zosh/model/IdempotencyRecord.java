@@ -0,0 +1,71 @@
+package com.zosh.model;
+
+import java.util.Date;
+
+import com.zosh.domain.IdempotencyStatus;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a checkout made with an Idempotency-Key header. The unique
+ * (userId, idempotencyKey) pair is what stops two instances, or a restarted
+ * one, from running the same checkout twice.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "idempotency_record",
+		uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_user_key", columnNames = { "userId", "idempotencyKey" }),
+		indexes = @Index(name = "idx_idempotency_expires_at", columnList = "expiresAt"))
+public class IdempotencyRecord {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	private Long userId;
+
+	@Column(length = 100)
+	private String idempotencyKey;
+
+	// hash of the request body, a reused key with a different body is rejected
+	@Column(length = 64)
+	private String requestHash;
+
+	@Enumerated(EnumType.STRING)
+	private IdempotencyStatus status;
+
+	// PaymentResponse as JSON
+	@Column(length = 2000)
+	private String response;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date createdAt;
+
+	// lease of the instance running the checkout; an IN_PROGRESS record whose lease ran out can be taken over
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(nullable = false)
+	private Date claimedAt;
+
+	// set once the checkout has created its order, so a takeover resumes it instead of ordering again
+	private Long orderId;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date expiresAt;
+
+}
@@ -0,0 +1,71 @@
+package com.zosh.model;
+
+import java.util.Date;
+
+import com.zosh.domain.MailStatus;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An email waiting to be sent. Rows are written in the transaction of the
+ * change that causes the email, so the email goes out if and only if that
+ * change commits; the dispatcher sends them in the background.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "mail_outbox",
+		indexes = @Index(name = "idx_mail_outbox_due", columnList = "status, nextAttemptAt"))
+public class MailOutbox {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	private String recipient;
+
+	private String subject;
+
+	@Column(length = 4000)
+	private String body;
+
+	@Enumerated(EnumType.STRING)
+	private MailStatus status;
+
+	private int attempts;
+
+	// while a dispatcher holds the row this is the end of its lease
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date nextAttemptAt;
+
+	@Column(length = 1000)
+	private String lastError;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date createdAt;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date sentAt;
+
+	public MailOutbox(String recipient, String subject, String body) {
+		this.recipient = recipient;
+		this.subject = subject;
+		this.body = body;
+		this.status = MailStatus.PENDING;
+		this.createdAt = new Date();
+		this.nextAttemptAt = this.createdAt;
+	}
+
+}
@@ -5,12 +5,16 @@ import java.util.Date;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.zosh.domain.OrderStatus;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -26,7 +30,11 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+		@Index(name = "idx_orders_restaurant_status_created", columnList = "restaurant_id, orderStatus, createdAt"),
+		@Index(name = "idx_orders_restaurant_created", columnList = "restaurant_id, createdAt"),
+		@Index(name = "idx_orders_customer_created", columnList = "customer_id, createdAt"),
+		@Index(name = "idx_orders_status_created", columnList = "orderStatus, createdAt") })
 public class Order {
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,7 +49,8 @@ public class Order {
 
 	private Long totalAmount;
 	
-	private String orderStatus;
+	@Enumerated(EnumType.STRING)
+	private OrderStatus orderStatus;
 
 	@Temporal(TemporalType.TIMESTAMP)
 	private Date createdAt;
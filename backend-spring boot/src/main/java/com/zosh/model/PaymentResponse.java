@@ -1,10 +1,16 @@
 package com.zosh.model;
 
+import com.zosh.domain.PaymentLinkStatus;
+
 import lombok.Data;
 
 @Data
 public class PaymentResponse {
 	
 	private String payment_url ;
+	
+	private Long orderId;
+	
+	private PaymentLinkStatus status;
 
 }
@@ -12,6 +12,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_restaurant_name", columnList = "name, id"),
+        @Index(name = "idx_restaurant_rating", columnList = "rating, id") })
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
@@ -46,10 +49,17 @@ public class Restaurant {
 
     private int numRating;
 
+    // average review rating, recomputed by every review write
+    private double rating;
+
     @ElementCollection
     @Column(length = 1000)
     private List<String> images;
 
+    // first image, so listings need not load the images collection
+    @Column(length = 1000)
+    private String thumbnail;
+
     private LocalDateTime registrationDate;
 
     private boolean open;
@@ -0,0 +1,61 @@
+package com.zosh.model;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.zosh.domain.RollupGranularity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per restaurant totals for one hour or one day, keyed by when the orders
+ * were placed. Maintained incrementally by RevenueRollupService and rebuilt
+ * from the order tables every night.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "revenue_rollup", uniqueConstraints = @UniqueConstraint(name = "uk_revenue_rollup_bucket",
+		columnNames = { "restaurantId", "granularity", "bucketStart" }),
+		indexes = @Index(name = "idx_revenue_rollup_bucket_start", columnList = "bucketStart"))
+public class RevenueRollup {
+
+	@JsonIgnore
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@JsonIgnore
+	private Long restaurantId;
+
+	@JsonIgnore
+	@Enumerated(EnumType.STRING)
+	private RollupGranularity granularity;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date bucketStart;
+
+	private long ordersPlaced;
+
+	private long ordersCancelled;
+
+	private long ordersCompleted;
+
+	// sum of totalAmount over orders that were not cancelled
+	private long revenue;
+
+}
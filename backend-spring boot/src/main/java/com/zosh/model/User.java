@@ -1,10 +1,14 @@
 package com.zosh.model;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.DomainEvents;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.zosh.domain.USER_ROLE;
+import com.zosh.domain.UserSavedEvent;
 import com.zosh.dto.RestaurantDto;
 
 import jakarta.persistence.CascadeType;
@@ -12,6 +16,7 @@ import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -19,7 +24,7 @@ import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
 import lombok.Data;
 
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = @UniqueConstraint(name = "uk_users_email", columnNames = "email"))
 @Entity
 @Data
 public class User {
@@ -46,4 +51,10 @@ public class User {
 
 	private String status;
 
+	// published on every save through UserRepository, so cached copies are dropped
+	@DomainEvents
+	Collection<UserSavedEvent> savedEvents() {
+		return List.of(new UserSavedEvent(email));
+	}
+
 }
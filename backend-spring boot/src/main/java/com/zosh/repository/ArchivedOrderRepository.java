@@ -0,0 +1,25 @@
+package com.zosh.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.zosh.domain.OrderStatus;
+import com.zosh.model.ArchivedOrder;
+
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+	@Query("SELECT DISTINCT o FROM ArchivedOrder o LEFT JOIN FETCH o.items WHERE o.customer.id = :userId "
+			+ "ORDER BY o.createdAt DESC, o.id DESC")
+	List<ArchivedOrder> findAllUserOrders(@Param("userId") Long userId);
+
+	@Query("SELECT DISTINCT o FROM ArchivedOrder o LEFT JOIN FETCH o.items WHERE o.restaurant.id = :restaurantId "
+			+ "AND (:orderStatus IS NULL OR o.orderStatus = :orderStatus) "
+			+ "ORDER BY o.createdAt DESC, o.id DESC")
+	List<ArchivedOrder> findOrdersByRestaurantIdAndStatus(
+			@Param("restaurantId") Long restaurantId,
+			@Param("orderStatus") OrderStatus orderStatus);
+
+}
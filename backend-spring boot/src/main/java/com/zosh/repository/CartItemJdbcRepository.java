@@ -0,0 +1,122 @@
+package com.zosh.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.model.CartItem;
+
+/**
+ * Cart line upsert. cart_item is unique on (cart_id, food_id,
+ * ingredients_hash), so adding a food the cart already holds with the same
+ * ingredients bumps that line's quantity in the same statement that would
+ * otherwise insert it, and concurrent adds can never create a second line.
+ */
+@Repository
+public class CartItemJdbcRepository {
+
+	// total_price is assigned first so it reads the quantity before the increment
+	private static final String UPSERT_LINE = "INSERT INTO cart_item "
+			+ "(cart_id, food_id, ingredients_hash, ingredients, quantity, unit_price, total_price) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE total_price = unit_price * (quantity + VALUES(quantity)), "
+			+ "quantity = quantity + VALUES(quantity)";
+
+	private static final String SELECT_LINE = "SELECT id, quantity, unit_price, total_price FROM cart_item "
+			+ "WHERE cart_id = ? AND food_id = ? AND ingredients_hash = ?";
+
+	private static final String SELECT_CART_LINES = "SELECT id, food_id, ingredients_hash, quantity, unit_price, total_price "
+			+ "FROM cart_item WHERE cart_id = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public CartItemJdbcRepository(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Adds the item's quantity to its line, creating the line at the item's
+	 * unit price if the cart has none. The item is updated with the line's id,
+	 * quantity and prices as stored; an existing line keeps its price snapshot.
+	 */
+	@Transactional
+	public CartItem upsertLine(CartItem item) {
+		return jdbcTemplate.execute((ConnectionCallback<CartItem>) con -> {
+			try (PreparedStatement ps = con.prepareStatement(UPSERT_LINE, Statement.RETURN_GENERATED_KEYS)) {
+				setLine(ps, item);
+				// MySQL counts 1 for an inserted row and 2 for an updated one
+				if (ps.executeUpdate() == 1) {
+					try (ResultSet keys = ps.getGeneratedKeys()) {
+						if (keys.next()) {
+							item.setId(keys.getLong(1));
+							item.setTotalPrice(item.getUnitPrice() * item.getQuantity());
+							return item;
+						}
+					}
+				}
+			}
+
+			// the line already existed, read back what the increment left
+			try (PreparedStatement ps = con.prepareStatement(SELECT_LINE)) {
+				ps.setLong(1, item.getCart().getId());
+				ps.setLong(2, item.getFood().getId());
+				ps.setString(3, item.getIngredientsHash());
+				try (ResultSet rs = ps.executeQuery()) {
+					rs.next();
+					item.setId(rs.getLong(1));
+					item.setQuantity(rs.getInt(2));
+					item.setUnitPrice(rs.getLong(3));
+					item.setTotalPrice(rs.getLong(4));
+				}
+			}
+			return item;
+		});
+	}
+
+	/**
+	 * Upserts several lines of one cart as a single JDBC batch, then reads the
+	 * cart's lines back once to fill in each item's id, quantity and prices.
+	 */
+	@Transactional
+	public List<CartItem> upsertLines(Long cartId, List<CartItem> items) {
+		if (items.isEmpty()) {
+			return items;
+		}
+		jdbcTemplate.batchUpdate(UPSERT_LINE, items, items.size(), this::setLine);
+
+		Map<String, CartItem> byKey = new HashMap<>();
+		for (CartItem item : items) {
+			byKey.put(item.getFood().getId() + ":" + item.getIngredientsHash(), item);
+		}
+		jdbcTemplate.query(SELECT_CART_LINES, rs -> {
+			CartItem item = byKey.get(rs.getLong(2) + ":" + rs.getString(3));
+			if (item != null) {
+				item.setId(rs.getLong(1));
+				item.setQuantity(rs.getInt(4));
+				item.setUnitPrice(rs.getLong(5));
+				item.setTotalPrice(rs.getLong(6));
+			}
+		}, cartId);
+		return items;
+	}
+
+	private void setLine(PreparedStatement ps, CartItem item) throws SQLException {
+		ps.setLong(1, item.getCart().getId());
+		ps.setLong(2, item.getFood().getId());
+		ps.setString(3, item.getIngredientsHash());
+		ps.setBytes(4, OrderJdbcRepository.serializeIngredients(item.getIngredients()));
+		ps.setInt(5, item.getQuantity());
+		ps.setLong(6, item.getUnitPrice());
+		ps.setLong(7, item.getUnitPrice() * item.getQuantity());
+	}
+
+}
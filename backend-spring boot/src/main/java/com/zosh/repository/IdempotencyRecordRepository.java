@@ -0,0 +1,41 @@
+package com.zosh.repository;
+
+import java.util.Date;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.model.IdempotencyRecord;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+	Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE IdempotencyRecord r SET r.claimedAt = :now WHERE r.id = :id "
+			+ "AND r.status = com.zosh.domain.IdempotencyStatus.IN_PROGRESS "
+			+ "AND r.claimedAt < :staleBefore")
+	int takeOver(@Param("id") Long id, @Param("now") Date now, @Param("staleBefore") Date staleBefore);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE IdempotencyRecord r SET r.orderId = :orderId, r.claimedAt = :now WHERE r.id = :id")
+	int recordOrder(@Param("id") Long id, @Param("orderId") Long orderId, @Param("now") Date now);
+
+	// lets the next retry take over straight away
+	@Transactional
+	@Modifying
+	@Query("UPDATE IdempotencyRecord r SET r.claimedAt = :released WHERE r.id = :id")
+	int release(@Param("id") Long id, @Param("released") Date released);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+	int deleteExpired(@Param("now") Date now);
+
+}
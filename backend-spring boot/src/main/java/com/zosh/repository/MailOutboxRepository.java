@@ -0,0 +1,34 @@
+package com.zosh.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.domain.MailStatus;
+import com.zosh.model.MailOutbox;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+	// rows another dispatcher has locked are skipped rather than waited for (lock timeout -2)
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+	@Query("SELECT m FROM MailOutbox m WHERE m.status = :status AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt")
+	List<MailOutbox> findDueForUpdate(@Param("status") MailStatus status, @Param("now") Date now, Pageable page);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM MailOutbox m WHERE m.status = :status AND m.createdAt < :before")
+	int deleteOlderThan(@Param("status") MailStatus status, @Param("before") Date before);
+
+}
@@ -0,0 +1,40 @@
+package com.zosh.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.zosh.model.Notification;
+
+/**
+ * Batched notification inserts for bulk operations, one JDBC batch instead of
+ * one save per notification.
+ */
+@Repository
+public class NotificationJdbcRepository {
+
+	private static final String INSERT_NOTIFICATION = "INSERT INTO notification "
+			+ "(recipient_id, restaurant_id, message, sent_at, read_status) VALUES (?, ?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public NotificationJdbcRepository(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	public void insertAll(List<Notification> notifications) {
+		if (notifications.isEmpty()) {
+			return;
+		}
+		jdbcTemplate.batchUpdate(INSERT_NOTIFICATION, notifications, notifications.size(), (ps, notification) -> {
+			ps.setObject(1, notification.getCustomer() == null ? null : notification.getCustomer().getId());
+			ps.setObject(2, notification.getRestaurant() == null ? null : notification.getRestaurant().getId());
+			ps.setString(3, notification.getMessage());
+			ps.setTimestamp(4, new Timestamp(notification.getSentAt().getTime()));
+			ps.setBoolean(5, notification.getReadStatus());
+		});
+	}
+
+}
@@ -0,0 +1,160 @@
+package com.zosh.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.domain.OrderStatus;
+import com.zosh.model.Order;
+import com.zosh.model.OrderItem;
+
+/**
+ * Batched order write paths. Checkout inserts an order, its items and the
+ * orders_items links with a fixed number of statements (one insert plus two
+ * JDBC batches), no matter how many lines the cart has, and never goes through
+ * Restaurant.orders. Bulk status changes go out as a single batch as well.
+ */
+@Repository
+public class OrderJdbcRepository {
+
+	private static final String INSERT_ORDER = "INSERT INTO orders "
+			+ "(customer_id, restaurant_id, delivery_address_id, total_amount, order_status, created_at, total_item, total_price) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String INSERT_ORDER_ITEM = "INSERT INTO order_item "
+			+ "(food_id, quantity, total_price, ingredients) VALUES (?, ?, ?, ?)";
+
+	private static final String INSERT_ORDER_ITEM_LINK = "INSERT INTO orders_items (order_id, items_id) VALUES (?, ?)";
+
+	private static final String COMPARE_AND_SET_STATUS = "UPDATE orders SET order_status = ? WHERE id = ? AND order_status = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public OrderJdbcRepository(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Transactional
+	public Order insertOrder(Order order) {
+		return jdbcTemplate.execute((ConnectionCallback<Order>) con -> {
+			insertOrderRow(con, order);
+			List<OrderItem> items = order.getItems();
+			if (items != null && !items.isEmpty()) {
+				insertOrderItems(con, items);
+				insertOrderItemLinks(con, order.getId(), items);
+			}
+			return order;
+		});
+	}
+
+	/**
+	 * Moves each order from its expected status to next with one JDBC batch of
+	 * conditional updates. Returns the per-order update count, 0 where the
+	 * order had already moved on.
+	 */
+	@Transactional
+	public int[] compareAndSetStatuses(List<Long> orderIds, List<OrderStatus> expected, OrderStatus next) {
+		return jdbcTemplate.batchUpdate(COMPARE_AND_SET_STATUS, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				ps.setString(1, next.name());
+				ps.setLong(2, orderIds.get(i));
+				ps.setString(3, expected.get(i).name());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return orderIds.size();
+			}
+		});
+	}
+
+	private void insertOrderRow(Connection con, Order order) throws SQLException {
+		try (PreparedStatement ps = con.prepareStatement(INSERT_ORDER, Statement.RETURN_GENERATED_KEYS)) {
+			ps.setLong(1, order.getCustomer().getId());
+			ps.setLong(2, order.getRestaurant().getId());
+			setNullableLong(ps, 3, order.getDeliveryAddress() == null ? null : order.getDeliveryAddress().getId());
+			setNullableLong(ps, 4, order.getTotalAmount());
+			ps.setString(5, order.getOrderStatus().name());
+			ps.setTimestamp(6, new Timestamp(order.getCreatedAt().getTime()));
+			ps.setInt(7, order.getTotalItem());
+			ps.setInt(8, order.getTotalPrice());
+			ps.executeUpdate();
+
+			try (ResultSet keys = ps.getGeneratedKeys()) {
+				keys.next();
+				order.setId(keys.getLong(1));
+			}
+		}
+	}
+
+	private void insertOrderItems(Connection con, List<OrderItem> items) throws SQLException {
+		try (PreparedStatement ps = con.prepareStatement(INSERT_ORDER_ITEM, Statement.RETURN_GENERATED_KEYS)) {
+			for (OrderItem item : items) {
+				ps.setLong(1, item.getFood().getId());
+				ps.setInt(2, item.getQuantity());
+				setNullableLong(ps, 3, item.getTotalPrice());
+				ps.setBytes(4, serializeIngredients(item.getIngredients()));
+				ps.addBatch();
+			}
+			ps.executeBatch();
+
+			try (ResultSet keys = ps.getGeneratedKeys()) {
+				for (OrderItem item : items) {
+					keys.next();
+					item.setId(keys.getLong(1));
+				}
+			}
+		}
+	}
+
+	private void insertOrderItemLinks(Connection con, Long orderId, List<OrderItem> items) throws SQLException {
+		try (PreparedStatement ps = con.prepareStatement(INSERT_ORDER_ITEM_LINK)) {
+			for (OrderItem item : items) {
+				ps.setLong(1, orderId);
+				ps.setLong(2, item.getId());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+	}
+
+	private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+		if (value == null) {
+			ps.setNull(index, Types.BIGINT);
+		} else {
+			ps.setLong(index, value);
+		}
+	}
+
+	// Hibernate stores a basic List<String> as a serialized ArrayList in a
+	// VARBINARY column, so write it the same way to keep rows readable by JPA.
+	static byte[] serializeIngredients(List<String> ingredients) {
+		if (ingredients == null) {
+			return null;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(new ArrayList<>(ingredients));
+		} catch (IOException e) {
+			throw new IllegalStateException("could not serialize order item ingredients", e);
+		}
+		return bytes.toByteArray();
+	}
+
+}
@@ -1,14 +1,22 @@
 package com.zosh.repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.zosh.domain.OrderStatus;
 import com.zosh.model.Order;
 import com.zosh.model.User;
+import com.zosh.response.OrderHistoryItemResponse;
+import com.zosh.response.OrderHistoryResponse;
 
 public interface OrderRepository extends JpaRepository<Order,Long> {
 	@Query("SELECT o FROM Order o WHERE o.customer.id = :userId")
@@ -16,4 +24,101 @@ public interface OrderRepository extends JpaRepository<Order,Long> {
     
 	@Query("SELECT o FROM Order o WHERE o.restaurant.id = :restaurantId")
 	List<Order> findOrdersByRestaurantId(@Param("restaurantId") Long restaurantId);
+
+	@Query("SELECT o FROM Order o WHERE o.restaurant.id = :restaurantId "
+			+ "AND (:orderStatus IS NULL OR o.orderStatus = :orderStatus) "
+			+ "ORDER BY o.createdAt DESC, o.id DESC")
+	List<Order> findOrdersByRestaurantIdAndStatus(
+			@Param("restaurantId") Long restaurantId,
+			@Param("orderStatus") OrderStatus orderStatus);
+
+	// dashboard pages, newest first: keyset on (createdAt, id), one query per first page / later page and
+	// with / without the status filter, so every seek is a plain row comparison on the restaurant's orders
+	@Query("SELECT o FROM Order o WHERE o.restaurant.id = :restaurantId "
+			+ "ORDER BY o.createdAt DESC, o.id DESC")
+	List<Order> findFirstOrdersPageByRestaurantId(
+			@Param("restaurantId") Long restaurantId,
+			Pageable pageable);
+
+	@Query("SELECT o FROM Order o WHERE o.restaurant.id = :restaurantId "
+			+ "AND (o.createdAt, o.id) < (:cursorCreatedAt, :cursorId) "
+			+ "ORDER BY o.createdAt DESC, o.id DESC")
+	List<Order> findOrdersPageByRestaurantIdAfter(
+			@Param("restaurantId") Long restaurantId,
+			@Param("cursorCreatedAt") Date cursorCreatedAt,
+			@Param("cursorId") Long cursorId,
+			Pageable pageable);
+
+	@Query("SELECT o FROM Order o WHERE o.restaurant.id = :restaurantId AND o.orderStatus = :orderStatus "
+			+ "ORDER BY o.createdAt DESC, o.id DESC")
+	List<Order> findFirstOrdersPageByRestaurantIdAndStatus(
+			@Param("restaurantId") Long restaurantId,
+			@Param("orderStatus") OrderStatus orderStatus,
+			Pageable pageable);
+
+	@Query("SELECT o FROM Order o WHERE o.restaurant.id = :restaurantId AND o.orderStatus = :orderStatus "
+			+ "AND (o.createdAt, o.id) < (:cursorCreatedAt, :cursorId) "
+			+ "ORDER BY o.createdAt DESC, o.id DESC")
+	List<Order> findOrdersPageByRestaurantIdAndStatusAfter(
+			@Param("restaurantId") Long restaurantId,
+			@Param("orderStatus") OrderStatus orderStatus,
+			@Param("cursorCreatedAt") Date cursorCreatedAt,
+			@Param("cursorId") Long cursorId,
+			Pageable pageable);
+
+	// customer order history read model: flat rows only, no entity graph is loaded.
+	// Keyset on (createdAt, id), the first page and the following ones are separate queries.
+	@Query("SELECT new com.zosh.response.OrderHistoryResponse("
+			+ "o.id, o.orderStatus, o.createdAt, o.totalAmount, r.id, r.name) "
+			+ "FROM Order o LEFT JOIN o.restaurant r WHERE o.customer.id = :userId "
+			+ "ORDER BY o.createdAt DESC, o.id DESC")
+	List<OrderHistoryResponse> findFirstOrderHistoryPage(
+			@Param("userId") Long userId,
+			Pageable pageable);
+
+	@Query("SELECT new com.zosh.response.OrderHistoryResponse("
+			+ "o.id, o.orderStatus, o.createdAt, o.totalAmount, r.id, r.name) "
+			+ "FROM Order o LEFT JOIN o.restaurant r WHERE o.customer.id = :userId "
+			+ "AND (o.createdAt, o.id) < (:cursorCreatedAt, :cursorId) "
+			+ "ORDER BY o.createdAt DESC, o.id DESC")
+	List<OrderHistoryResponse> findOrderHistoryPageAfter(
+			@Param("userId") Long userId,
+			@Param("cursorCreatedAt") Date cursorCreatedAt,
+			@Param("cursorId") Long cursorId,
+			Pageable pageable);
+
+	@Query("SELECT new com.zosh.response.OrderHistoryItemResponse("
+			+ "o.id, i.id, f.id, f.name, f.price, i.quantity, i.totalPrice, i.ingredients) "
+			+ "FROM Order o JOIN o.items i LEFT JOIN i.food f WHERE o.id IN :orderIds "
+			+ "ORDER BY i.id")
+	List<OrderHistoryItemResponse> findOrderHistoryItems(@Param("orderIds") Collection<Long> orderIds);
+
+	boolean existsByIdAndCustomerId(Long id, Long customerId);
+
+	// (id, orderStatus, customerId, restaurantId, createdAt, totalAmount) without loading the order graph
+	@Query("SELECT o.id, o.orderStatus, o.customer.id, o.restaurant.id, o.createdAt, o.totalAmount "
+			+ "FROM Order o WHERE o.id IN :orderIds")
+	List<Object[]> findStatusRowsByIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+	@Query("SELECT o.orderStatus FROM Order o WHERE o.id = :orderId")
+	Optional<OrderStatus> findStatusById(@Param("orderId") Long orderId);
+
+	// conditional transitions: nothing is read first, a stale or illegal move updates 0 rows
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE Order o SET o.orderStatus = :next "
+			+ "WHERE o.id = :orderId AND o.orderStatus IN :allowedFrom")
+	int transitionStatus(
+			@Param("orderId") Long orderId,
+			@Param("next") OrderStatus next,
+			@Param("allowedFrom") Collection<OrderStatus> allowedFrom);
+
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE Order o SET o.orderStatus = :next "
+			+ "WHERE o.id = :orderId AND o.orderStatus = :expected")
+	int compareAndSetStatus(
+			@Param("orderId") Long orderId,
+			@Param("expected") OrderStatus expected,
+			@Param("next") OrderStatus next);
 }
@@ -0,0 +1,12 @@
+package com.zosh.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.zosh.model.Payment;
+
+public interface PaymentRepository extends JpaRepository<Payment, Long> {
+
+	Optional<Payment> findFirstByOrderIdOrderByIdDesc(Long orderId);
+}
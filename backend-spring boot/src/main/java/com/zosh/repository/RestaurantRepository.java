@@ -3,11 +3,16 @@ package com.zosh.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.zosh.model.Restaurant;
+import com.zosh.response.RestaurantSummaryResponse;
 
 public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
 
@@ -16,6 +21,108 @@ public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
 
 	Restaurant findByOwnerId(Long userId);
 
+	Page<Restaurant> findByOpenTrue(Pageable pageable);
+
+	// listing read models: one query per page, keyset on (sort key, id) so each page is an index range scan.
+	// The first page and the following ones are separate queries, so every seek is a plain row comparison.
+
+	// names ascending, restaurants without a name first
+	@Query("SELECT new com.zosh.response.RestaurantSummaryResponse("
+			+ "r.id, r.name, r.cuisineType, r.thumbnail, r.open, r.rating, r.numRating, a.city) "
+			+ "FROM Restaurant r LEFT JOIN r.address a "
+			+ "ORDER BY r.name ASC, r.id ASC")
+	List<RestaurantSummaryResponse> findFirstSummariesByName(Pageable pageable);
+
+	// named restaurants after the cursor; the comparison is never true for a null name
+	@Query("SELECT new com.zosh.response.RestaurantSummaryResponse("
+			+ "r.id, r.name, r.cuisineType, r.thumbnail, r.open, r.rating, r.numRating, a.city) "
+			+ "FROM Restaurant r LEFT JOIN r.address a "
+			+ "WHERE (r.name, r.id) > (:cursorName, :cursorId) "
+			+ "ORDER BY r.name ASC, r.id ASC")
+	List<RestaurantSummaryResponse> findSummariesByNameAfter(
+			@Param("cursorName") String cursorName,
+			@Param("cursorId") Long cursorId,
+			Pageable pageable);
+
+	// restaurants without a name after the cursor, the head of the name order
+	@Query("SELECT new com.zosh.response.RestaurantSummaryResponse("
+			+ "r.id, r.name, r.cuisineType, r.thumbnail, r.open, r.rating, r.numRating, a.city) "
+			+ "FROM Restaurant r LEFT JOIN r.address a "
+			+ "WHERE r.name IS NULL AND r.id > :cursorId "
+			+ "ORDER BY r.id ASC")
+	List<RestaurantSummaryResponse> findUnnamedSummariesAfter(
+			@Param("cursorId") Long cursorId,
+			Pageable pageable);
+
+	// best rated first
+	@Query("SELECT new com.zosh.response.RestaurantSummaryResponse("
+			+ "r.id, r.name, r.cuisineType, r.thumbnail, r.open, r.rating, r.numRating, a.city) "
+			+ "FROM Restaurant r LEFT JOIN r.address a "
+			+ "ORDER BY r.rating DESC, r.id DESC")
+	List<RestaurantSummaryResponse> findFirstSummariesByRating(Pageable pageable);
+
+	@Query("SELECT new com.zosh.response.RestaurantSummaryResponse("
+			+ "r.id, r.name, r.cuisineType, r.thumbnail, r.open, r.rating, r.numRating, a.city) "
+			+ "FROM Restaurant r LEFT JOIN r.address a "
+			+ "WHERE (r.rating, r.id) < (:cursorRating, :cursorId) "
+			+ "ORDER BY r.rating DESC, r.id DESC")
+	List<RestaurantSummaryResponse> findSummariesByRatingAfter(
+			@Param("cursorRating") Double cursorRating,
+			@Param("cursorId") Long cursorId,
+			Pageable pageable);
+
+	// most recently registered first
+	@Query("SELECT new com.zosh.response.RestaurantSummaryResponse("
+			+ "r.id, r.name, r.cuisineType, r.thumbnail, r.open, r.rating, r.numRating, a.city) "
+			+ "FROM Restaurant r LEFT JOIN r.address a "
+			+ "ORDER BY r.id DESC")
+	List<RestaurantSummaryResponse> findFirstSummariesByNewest(Pageable pageable);
+
+	@Query("SELECT new com.zosh.response.RestaurantSummaryResponse("
+			+ "r.id, r.name, r.cuisineType, r.thumbnail, r.open, r.rating, r.numRating, a.city) "
+			+ "FROM Restaurant r LEFT JOIN r.address a "
+			+ "WHERE r.id < :cursorId "
+			+ "ORDER BY r.id DESC")
+	List<RestaurantSummaryResponse> findSummariesByNewestAfter(
+			@Param("cursorId") Long cursorId,
+			Pageable pageable);
+
+	// recounts the restaurant's reviews into numRating and rating
+	@Modifying
+	@Transactional
+	@Query("UPDATE Restaurant r SET "
+			+ "r.numRating = (SELECT count(v) FROM Review v WHERE v.restaurant.id = :restaurantId), "
+			+ "r.rating = COALESCE((SELECT avg(v.rating) FROM Review v WHERE v.restaurant.id = :restaurantId), 0) "
+			+ "WHERE r.id = :restaurantId")
+	int refreshRating(@Param("restaurantId") Long restaurantId);
+
+	// fills the listing columns of restaurants stored before they existed
+	@Modifying
+	@Transactional
+	@Query(value = "UPDATE restaurant r SET r.num_rating = "
+			+ "(SELECT COUNT(*) FROM review v WHERE v.restaurant_id = r.id), "
+			+ "r.rating = COALESCE((SELECT AVG(v.rating) FROM review v WHERE v.restaurant_id = r.id), 0) "
+			+ "WHERE r.num_rating = 0 AND EXISTS (SELECT 1 FROM review v WHERE v.restaurant_id = r.id)",
+			nativeQuery = true)
+	int backfillRatings();
+
+	@Modifying
+	@Transactional
+	@Query(value = "UPDATE restaurant r SET r.thumbnail = "
+			+ "(SELECT MIN(i.images) FROM restaurant_images i WHERE i.restaurant_id = r.id) "
+			+ "WHERE r.thumbnail IS NULL AND EXISTS (SELECT 1 FROM restaurant_images i WHERE i.restaurant_id = r.id)",
+			nativeQuery = true)
+	int backfillThumbnails();
+
+	// open restaurants with coordinates inside a bounding box
+	@Query("SELECT r FROM Restaurant r JOIN r.address a WHERE r.open = true "
+			+ "AND a.latitude BETWEEN :minLatitude AND :maxLatitude "
+			+ "AND a.longitude BETWEEN :minLongitude AND :maxLongitude")
+	List<Restaurant> findOpenWithin(@Param("minLatitude") double minLatitude,
+			@Param("maxLatitude") double maxLatitude,
+			@Param("minLongitude") double minLongitude,
+			@Param("maxLongitude") double maxLongitude);
+
 
 
 }
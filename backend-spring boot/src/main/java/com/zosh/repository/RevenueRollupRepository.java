@@ -0,0 +1,17 @@
+package com.zosh.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.zosh.domain.RollupGranularity;
+import com.zosh.model.RevenueRollup;
+
+public interface RevenueRollupRepository extends JpaRepository<RevenueRollup, Long> {
+
+	// served straight from the unique (restaurant, granularity, bucket) index
+	List<RevenueRollup> findByRestaurantIdAndGranularityAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(
+			Long restaurantId, RollupGranularity granularity, Date from, Date to);
+
+}
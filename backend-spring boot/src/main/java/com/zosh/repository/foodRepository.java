@@ -1,5 +1,6 @@
 package com.zosh.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,13 +16,23 @@ public interface foodRepository extends JpaRepository<Food, Long> {
 	
 	List<Food> findByRestaurantId(Long restaurantId);
 	
-	@Query("SELECT f FROM Food f WHERE "
-			+ "f.name LIKE %:keyword% OR "
-			+ "f.foodCategory.name LIKE %:keyword% AND "
-			+ "f.restaurant!=null"
+	// only used until the in-memory search index is built
+	@Query("SELECT f FROM Food f LEFT JOIN f.foodCategory c WHERE "
+			+ "(f.name LIKE %:keyword% OR c.name LIKE %:keyword%) AND "
+			+ "f.restaurant IS NOT NULL"
 	)
 	List<Food> searchByNameOrCategory(@Param("keyword") String keyword);
 
+	// (foodId, imageUrl) pairs for a batch of foods
+	@Query("SELECT f.id, img FROM Food f JOIN f.images img WHERE f.id IN :foodIds")
+	List<Object[]> findImagesByFoodIds(@Param("foodIds") Collection<Long> foodIds);
+
+	// (foodId, available, price, restaurant open, ingredient name, ingredient in stock),
+	// one row per ingredient of each food, or one with null ingredient columns
+	@Query("SELECT f.id, f.available, f.price, r.open, i.name, i.inStoke FROM Food f "
+			+ "LEFT JOIN f.restaurant r LEFT JOIN f.ingredients i WHERE f.id IN :foodIds")
+	List<Object[]> findCheckoutRowsByFoodIds(@Param("foodIds") Collection<Long> foodIds);
+
 
 	
 
@@ -0,0 +1,14 @@
+package com.zosh.request;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class BulkOrderStatusRequest {
+	
+	private List<Long> orderIds;
+	
+	private String orderStatus;
+
+}
@@ -0,0 +1,22 @@
+package com.zosh.request;
+
+import java.util.List;
+
+import com.zosh.domain.CartOperationType;
+
+import lombok.Data;
+
+@Data
+public class CartOperation {
+	
+	private CartOperationType type;
+	
+	private Long menuItemId;
+	
+	private Long cartItemId;
+	
+	private int quantity;
+	
+	private List<String> ingredients;
+
+}
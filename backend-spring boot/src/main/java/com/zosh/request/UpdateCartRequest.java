@@ -0,0 +1,13 @@
+package com.zosh.request;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class UpdateCartRequest {
+	
+	// applied in order, all or none
+	private List<CartOperation> operations;
+
+}
@@ -0,0 +1,21 @@
+package com.zosh.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderStatusResponse {
+	
+	private int updated;
+	
+	private int failed;
+	
+	// one entry per requested order, in request order
+	private List<BulkOrderStatusResult> results;
+
+}
@@ -0,0 +1,25 @@
+package com.zosh.response;
+
+import com.zosh.domain.OrderStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderStatusResult {
+	
+	private Long orderId;
+	
+	private boolean success;
+	
+	// status before the update, null when the order does not exist
+	private OrderStatus previousStatus;
+	
+	private OrderStatus orderStatus;
+	
+	private String message;
+
+}
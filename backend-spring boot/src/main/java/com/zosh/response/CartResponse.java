@@ -0,0 +1,18 @@
+package com.zosh.response;
+
+import com.zosh.model.Cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartResponse {
+	
+	private Cart cart;
+	
+	private Long total;
+
+}
@@ -0,0 +1,23 @@
+package com.zosh.response;
+
+import com.zosh.domain.CheckoutFailureReason;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutFailure {
+	
+	// null for failures of the cart as a whole
+	private Long cartItemId;
+	
+	private Long foodId;
+	
+	private CheckoutFailureReason reason;
+	
+	private String message;
+
+}
@@ -0,0 +1,22 @@
+package com.zosh.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutValidationResponse {
+	
+	private boolean valid;
+	
+	// cart total at current menu prices
+	private Long total;
+	
+	private List<CheckoutFailure> failures = new ArrayList<>();
+
+}
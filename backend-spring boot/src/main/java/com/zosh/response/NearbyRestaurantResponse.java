@@ -0,0 +1,15 @@
+package com.zosh.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class NearbyRestaurantResponse {
+
+	private RestaurantSummaryResponse restaurant;
+	private double distanceKm;
+
+}
@@ -0,0 +1,32 @@
+package com.zosh.response;
+
+import java.util.Date;
+
+import com.zosh.domain.OrderEventType;
+import com.zosh.domain.OrderStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEvent {
+	
+	// per-restaurant sequence, sent as the SSE id and echoed back in Last-Event-ID
+	private long id;
+	
+	private OrderEventType type;
+	
+	private Long orderId;
+	
+	private Long restaurantId;
+	
+	private OrderStatus orderStatus;
+	
+	private Long totalAmount;
+	
+	private Date createdAt;
+
+}
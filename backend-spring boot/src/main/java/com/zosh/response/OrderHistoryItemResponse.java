@@ -0,0 +1,47 @@
+package com.zosh.response;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class OrderHistoryItemResponse {
+	
+	@JsonIgnore
+	private Long orderId;
+	
+	private Long id;
+	
+	private Long foodId;
+	
+	private String foodName;
+	
+	private Long foodPrice;
+	
+	// first food image only, the history screen shows a single thumbnail
+	private String foodImage;
+	
+	private int quantity;
+	
+	private Long totalPrice;
+	
+	private List<String> ingredients;
+	
+	// JPQL constructor projection, foodImage is filled in afterwards
+	public OrderHistoryItemResponse(Long orderId, Long id, Long foodId, String foodName, Long foodPrice,
+			int quantity, Long totalPrice, List<String> ingredients) {
+		this.orderId = orderId;
+		this.id = id;
+		this.foodId = foodId;
+		this.foodName = foodName;
+		this.foodPrice = foodPrice;
+		this.quantity = quantity;
+		this.totalPrice = totalPrice;
+		this.ingredients = ingredients;
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.zosh.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryPageResponse {
+	
+	private List<OrderHistoryResponse> orders;
+	
+	// pass back as ?cursor= for the next page, null on the last page
+	private String nextCursor;
+
+}
@@ -0,0 +1,41 @@
+package com.zosh.response;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.zosh.domain.OrderStatus;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class OrderHistoryResponse {
+	
+	private Long id;
+	
+	private OrderStatus orderStatus;
+	
+	private Date createdAt;
+	
+	private Long totalAmount;
+	
+	private Long restaurantId;
+	
+	private String restaurantName;
+	
+	private List<OrderHistoryItemResponse> items = new ArrayList<>();
+	
+	// JPQL constructor projection, items are attached afterwards
+	public OrderHistoryResponse(Long id, OrderStatus orderStatus, Date createdAt, Long totalAmount,
+			Long restaurantId, String restaurantName) {
+		this.id = id;
+		this.orderStatus = orderStatus;
+		this.createdAt = createdAt;
+		this.totalAmount = totalAmount;
+		this.restaurantId = restaurantId;
+		this.restaurantName = restaurantName;
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.zosh.response;
+
+import java.util.List;
+
+import com.zosh.model.Order;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageResponse {
+	
+	private List<Order> orders;
+	
+	// pass back as ?cursor= for the next page, null on the last page
+	private String nextCursor;
+
+}
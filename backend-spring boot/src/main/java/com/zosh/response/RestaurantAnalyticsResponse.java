@@ -0,0 +1,34 @@
+package com.zosh.response;
+
+import java.util.List;
+
+import com.zosh.domain.RollupGranularity;
+import com.zosh.model.RevenueRollup;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestaurantAnalyticsResponse {
+	
+	private Long restaurantId;
+	
+	private RollupGranularity granularity;
+	
+	private long ordersPlaced;
+	
+	private long ordersCancelled;
+	
+	private long ordersCompleted;
+	
+	private long revenue;
+	
+	// revenue per order that was not cancelled
+	private double averageTicket;
+	
+	private List<RevenueRollup> buckets;
+
+}
@@ -0,0 +1,19 @@
+package com.zosh.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestaurantSummaryPageResponse {
+
+	private List<RestaurantSummaryResponse> restaurants;
+
+	// pass back as ?cursor= with the same sort for the next page, null on the last page
+	private String nextCursor;
+
+}
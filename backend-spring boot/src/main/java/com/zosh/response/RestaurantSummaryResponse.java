@@ -0,0 +1,21 @@
+package com.zosh.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestaurantSummaryResponse {
+
+	private Long id;
+	private String name;
+	private String cuisineType;
+	private String thumbnail;
+	private boolean open;
+	private double rating;
+	private int numRating;
+	private String city;
+
+}
@@ -0,0 +1,452 @@
+package com.zosh.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zosh.Exception.CartException;
+import com.zosh.model.Cart;
+import com.zosh.model.CartItem;
+import com.zosh.model.Food;
+import com.zosh.repository.CartRepository;
+import com.zosh.repository.foodRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Per-user cart cache with write-behind to {@link CartRepository}. Edits change
+ * the cached, detached cart graph and only mark it dirty; the flusher writes a
+ * cart once it has been quiet for the coalesce window, or once its oldest
+ * unflushed edit reaches the maximum flush delay, which bounds what a crash
+ * can lose. Least recently used carts are evicted once the cache is full and
+ * written out on the next tick. A write that fails keeps the cart pending and
+ * is retried with backoff; after max-flush-attempts the edits are dropped and
+ * the next request reloads the stored cart.
+ *
+ * Callers change a cart only between {@link #lock(Long)} and
+ * {@link Entry#unlock()}. Eviction skips locked entries, and {@code lock}
+ * retries when the entry it got was evicted or flushed out before its lock was
+ * taken, so two copies of one user's cart are never edited at once. The cache
+ * assumes a user's cart requests are served by a single instance.
+ */
+@Component
+class CartCache {
+
+	private static final Logger log = LoggerFactory.getLogger(CartCache.class);
+
+	private final CartRepository cartRepository;
+	private final foodRepository foodRepository;
+	private final TransactionTemplate transactionTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final int maxEntries;
+	private final long coalesceMs;
+	private final long maxFlushDelayMs;
+	private final int maxFlushAttempts;
+	private final long flushBackoffMs;
+	private final long maxFlushBackoffMs;
+
+	// access ordered, so the eldest entry is the least recently used one
+	private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	// dirty entries by user, including evicted ones that have not been written yet
+	private final Map<Long, Entry> pending = new LinkedHashMap<>();
+
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter flushFailures;
+	private final Counter flushDiscards;
+	private final Timer flushLag;
+
+	public CartCache(
+			CartRepository cartRepository,
+			foodRepository foodRepository,
+			PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry,
+			@Value("${cart.cache.max-entries:10000}") int maxEntries,
+			@Value("${cart.cache.coalesce-ms:500}") long coalesceMs,
+			@Value("${cart.cache.max-flush-delay-ms:5000}") long maxFlushDelayMs,
+			@Value("${cart.cache.max-flush-attempts:5}") int maxFlushAttempts,
+			@Value("${cart.cache.flush-backoff-ms:1000}") long flushBackoffMs,
+			@Value("${cart.cache.max-flush-backoff-ms:30000}") long maxFlushBackoffMs) {
+		this.cartRepository = cartRepository;
+		this.foodRepository = foodRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.maxEntries = maxEntries;
+		this.coalesceMs = coalesceMs;
+		this.maxFlushDelayMs = maxFlushDelayMs;
+		this.maxFlushAttempts = maxFlushAttempts;
+		this.flushBackoffMs = flushBackoffMs;
+		this.maxFlushBackoffMs = maxFlushBackoffMs;
+
+		this.hits = Counter.builder("cart.cache.gets").tag("result", "hit")
+				.description("Cart lookups served from the cache").register(meterRegistry);
+		this.misses = Counter.builder("cart.cache.gets").tag("result", "miss")
+				.description("Cart lookups that loaded the cart from the database").register(meterRegistry);
+		this.flushFailures = Counter.builder("cart.cache.flush.failures")
+				.description("Cart writes that failed and were scheduled again").register(meterRegistry);
+		this.flushDiscards = Counter.builder("cart.cache.flush.discarded")
+				.description("Carts whose cached edits were dropped after max-flush-attempts failed writes")
+				.register(meterRegistry);
+		this.flushLag = Timer.builder("cart.cache.flush.lag")
+				.description("Time from a cart's first unflushed edit to its write").register(meterRegistry);
+		Gauge.builder("cart.cache.hit.ratio", this, CartCache::hitRatio)
+				.description("Share of cart lookups served from the cache").register(meterRegistry);
+		Gauge.builder("cart.cache.size", this, cache -> cache.count(cache.entries))
+				.description("Carts held in the cache").register(meterRegistry);
+		Gauge.builder("cart.cache.pending", this, cache -> cache.count(cache.pending))
+				.description("Carts with edits not yet written").register(meterRegistry);
+	}
+
+	/**
+	 * Returns the user's cached cart for reading. Use {@link #lock(Long)} to
+	 * change it.
+	 */
+	Entry get(Long userId) throws CartException {
+		Entry entry;
+		synchronized (entries) {
+			entry = find(userId);
+		}
+		if (entry != null) {
+			hits.increment();
+			return entry;
+		}
+
+		misses.increment();
+		Cart cart = load(userId);
+		synchronized (entries) {
+			entry = find(userId);
+			if (entry == null) {
+				entry = new Entry(userId, cart);
+				entries.put(userId, entry);
+				evictEldest();
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the user's cached cart with its lock held. The caller changes the
+	 * cart, calls {@link #markDirty(Entry)} and releases the lock with
+	 * {@link Entry#unlock()} in a finally block.
+	 */
+	Entry lock(Long userId) throws CartException {
+		while (true) {
+			Entry entry = get(userId);
+			entry.lock.lock();
+			if (isLive(entry)) {
+				return entry;
+			}
+			// evicted clean, flushed after eviction or invalidated while we waited
+			entry.lock.unlock();
+		}
+	}
+
+	// caller holds the entry lock
+	void markDirty(Entry entry) {
+		if (!entry.lock.isHeldByCurrentThread()) {
+			throw new IllegalStateException("cart of user " + entry.userId + " changed without its lock");
+		}
+		long now = System.currentTimeMillis();
+		if (entry.firstDirtyAt == 0) {
+			entry.firstDirtyAt = now;
+		}
+		entry.lastDirtyAt = now;
+		synchronized (entries) {
+			Entry current = pending.putIfAbsent(entry.userId, entry);
+			if (current != null && current != entry) {
+				// a second copy of the cart would overwrite these edits when written
+				throw new IllegalStateException("cart of user " + entry.userId + " has another pending copy");
+			}
+			if (entries.get(entry.userId) != entry) {
+				entry.evicted = true;
+			}
+		}
+	}
+
+	/**
+	 * Writes the cart now if it has unflushed edits. The entry then holds the
+	 * written graph, so new items carry their generated ids.
+	 */
+	void flush(Entry entry) {
+		entry.lock.lock();
+		try {
+			// already written, or invalidated and not to be written at all
+			if (!isPending(entry)) {
+				return;
+			}
+			long dirtySince = entry.firstDirtyAt;
+			entry.cart = transactionTemplate.execute(status -> {
+				// a plain list, so the merge removes every stored line that is gone; the
+				// detached collection's snapshot misses lines upserted since the last write
+				entry.cart.setItems(new ArrayList<>(entry.cart.getItems()));
+				Cart saved = cartRepository.save(entry.cart);
+				entityManager.flush();
+				return detach(saved);
+			});
+			entry.firstDirtyAt = 0;
+			entry.lastDirtyAt = 0;
+			entry.failures = 0;
+			entry.retryAt = 0;
+			synchronized (entries) {
+				pending.remove(entry.userId, entry);
+			}
+			flushLag.record(System.currentTimeMillis() - dirtySince, TimeUnit.MILLISECONDS);
+		} finally {
+			entry.lock.unlock();
+		}
+	}
+
+	void flush(Long userId) {
+		Entry entry;
+		synchronized (entries) {
+			entry = pending.get(userId);
+		}
+		if (entry != null) {
+			flush(entry);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${cart.cache.flush-interval-ms:250}")
+	public void flushDue() {
+		long now = System.currentTimeMillis();
+		List<Entry> due = new ArrayList<>();
+		synchronized (entries) {
+			for (Entry entry : pending.values()) {
+				if (now < entry.retryAt) {
+					continue;
+				}
+				if (entry.evicted || now - entry.lastDirtyAt >= coalesceMs
+						|| now - entry.firstDirtyAt >= maxFlushDelayMs) {
+					due.add(entry);
+				}
+			}
+		}
+		for (Entry entry : due) {
+			flushQuietly(entry);
+		}
+	}
+
+	@PreDestroy
+	public void flushAll() {
+		List<Entry> dirty;
+		synchronized (entries) {
+			dirty = new ArrayList<>(pending.values());
+		}
+		for (Entry entry : dirty) {
+			flushQuietly(entry);
+		}
+	}
+
+	private void flushQuietly(Entry entry) {
+		try {
+			flush(entry);
+		} catch (RuntimeException e) {
+			entry.lock.lock();
+			try {
+				if (isPending(entry)) {
+					failed(entry, e);
+				}
+			} finally {
+				entry.lock.unlock();
+			}
+		}
+	}
+
+	// caller holds the entry lock
+	private void failed(Entry entry, RuntimeException e) {
+		entry.failures++;
+		if (entry.failures >= maxFlushAttempts) {
+			// a cart that cannot be written (e.g. a food was deleted) would fail
+			// forever, so drop it and let the next request reload the stored cart
+			flushDiscards.increment();
+			invalidate(entry);
+			log.error("cart flush failed for user {} {} times, cached edits dropped", entry.userId, entry.failures, e);
+			return;
+		}
+		flushFailures.increment();
+		// 1x, 2x, 4x ... the base backoff, capped
+		long delay = Math.min(maxFlushBackoffMs, flushBackoffMs << Math.min(entry.failures - 1, 30));
+		entry.retryAt = System.currentTimeMillis() + delay;
+	}
+
+	private Cart load(Long userId) throws CartException {
+		Optional<Cart> cart = transactionTemplate.execute(status ->
+				cartRepository.findByCustomer_Id(userId).map(this::detach));
+		if (cart.isEmpty()) {
+			throw new CartException("cart not found");
+		}
+		backfill(cart.get());
+		return cart.get();
+	}
+
+	// carts stored before unit prices, totals and line keys were kept; written with the next edit
+	private static void backfill(Cart cart) {
+		long total = 0;
+		for (CartItem item : cart.getItems()) {
+			if (item.getIngredientsHash() == null) {
+				item.setIngredientsHash(CartLines.ingredientsHash(item.getIngredients()));
+			}
+			if (item.getUnitPrice() == null) {
+				item.setUnitPrice(item.getFood().getPrice());
+				item.setTotalPrice(item.getUnitPrice() * item.getQuantity());
+			}
+			total += item.getTotalPrice();
+		}
+		if (cart.getTotal() == null) {
+			cart.setTotal(total);
+		}
+	}
+
+	// loads everything the cart's JSON touches, then detaches the cart and its
+	// items so edits on cached copies never reach a request's persistence context
+	private Cart detach(Cart cart) {
+		EntityGraphs.initialize(cart.getCustomer());
+		for (CartItem item : cart.getItems()) {
+			EntityGraphs.initialize(item.getFood());
+		}
+		entityManager.detach(cart);
+		return cart;
+	}
+
+	/**
+	 * Loads a food for a new cart line with everything its JSON touches, so it
+	 * can sit in a cached cart after the request ends.
+	 */
+	Optional<Food> findFood(Long foodId) {
+		return transactionTemplate.execute(status -> {
+			Optional<Food> food = foodRepository.findById(foodId);
+			food.ifPresent(EntityGraphs::initialize);
+			return food;
+		});
+	}
+
+	List<Food> findFoods(Collection<Long> foodIds) {
+		return transactionTemplate.execute(status -> {
+			List<Food> foods = foodRepository.findAllById(foodIds);
+			foods.forEach(EntityGraphs::initialize);
+			return foods;
+		});
+	}
+
+	/**
+	 * Drops the cached cart, e.g. after a write that failed part way, so the
+	 * next request reloads what is stored.
+	 */
+	void invalidate(Entry entry) {
+		synchronized (entries) {
+			pending.remove(entry.userId, entry);
+			entries.remove(entry.userId, entry);
+		}
+	}
+
+	// caller holds the entries lock; an evicted cart stays live while its write is pending
+	private Entry find(Long userId) {
+		Entry entry = entries.get(userId);
+		if (entry == null) {
+			// an evicted cart that is still waiting for its write is the newest copy
+			entry = pending.get(userId);
+			if (entry != null) {
+				entry.evicted = false;
+				entries.put(userId, entry);
+				evictEldest();
+			}
+		}
+		return entry;
+	}
+
+	private boolean isLive(Entry entry) {
+		synchronized (entries) {
+			return entries.get(entry.userId) == entry || pending.get(entry.userId) == entry;
+		}
+	}
+
+	private boolean isPending(Entry entry) {
+		synchronized (entries) {
+			return pending.get(entry.userId) == entry;
+		}
+	}
+
+	private int count(Map<Long, Entry> map) {
+		synchronized (entries) {
+			return map.size();
+		}
+	}
+
+	private double hitRatio() {
+		double total = hits.count() + misses.count();
+		return total == 0 ? 0 : hits.count() / total;
+	}
+
+	// caller holds the entries lock
+	private void evictEldest() {
+		Iterator<Entry> it = entries.values().iterator();
+		while (entries.size() > maxEntries && it.hasNext()) {
+			Entry eldest = it.next();
+			if (!it.hasNext()) {
+				// the newest entry is the one being returned
+				break;
+			}
+			// a locked cart is being changed; a clean one evicted now would be
+			// loaded again from the database and edited twice
+			if (eldest.lock.isHeldByCurrentThread() || !eldest.lock.tryLock()) {
+				continue;
+			}
+			try {
+				it.remove();
+				// dirty carts stay in pending and are written on the next tick
+				eldest.evicted = true;
+			} finally {
+				eldest.lock.unlock();
+			}
+		}
+	}
+
+	static final class Entry {
+
+		private final Long userId;
+		private final ReentrantLock lock = new ReentrantLock();
+		private Cart cart;
+		// written under the entry lock, read by the flusher under the entries lock
+		private volatile long firstDirtyAt;
+		private volatile long lastDirtyAt;
+		private volatile boolean evicted;
+		private volatile int failures;
+		private volatile long retryAt;
+
+		Entry(Long userId, Cart cart) {
+			this.userId = userId;
+			this.cart = cart;
+		}
+
+		Cart getCart() {
+			return cart;
+		}
+
+		void unlock() {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.zosh.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeSet;
+
+import com.zosh.model.Cart;
+import com.zosh.model.CartItem;
+
+/**
+ * A cart line is identified by its food and its ingredient set; order and
+ * repeats in the ingredient list do not make a different line. Lookups compare
+ * ids and hashes only, never whole entities.
+ */
+final class CartLines {
+
+	private CartLines() {
+	}
+
+	static String ingredientsHash(List<String> ingredients) {
+		TreeSet<String> set = new TreeSet<>();
+		if (ingredients != null) {
+			set.addAll(ingredients);
+		}
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (String ingredient : set) {
+				digest.update(ingredient.getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static CartItem find(Cart cart, Long foodId, String ingredientsHash) {
+		for (CartItem cartItem : cart.getItems()) {
+			if (foodId.equals(cartItem.getFood().getId()) && ingredientsHash.equals(cartItem.getIngredientsHash())) {
+				return cartItem;
+			}
+		}
+		return null;
+	}
+
+	static CartItem find(Cart cart, Long cartItemId) {
+		for (CartItem cartItem : cart.getItems()) {
+			if (cartItemId.equals(cartItem.getId())) {
+				return cartItem;
+			}
+		}
+		return null;
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.zosh.service;
 
+import java.util.List;
+
 import com.zosh.Exception.CartException;
 import com.zosh.Exception.CartItemException;
 import com.zosh.Exception.FoodException;
@@ -7,18 +9,24 @@ import com.zosh.Exception.UserException;
 import com.zosh.model.Cart;
 import com.zosh.model.CartItem;
 import com.zosh.model.Food;
+import com.zosh.model.OrderItem;
 import com.zosh.model.User;
 import com.zosh.request.AddCartItemRequest;
+import com.zosh.request.CartOperation;
 import com.zosh.request.UpdateCartItemRequest;
+import com.zosh.response.CartResponse;
+import com.zosh.response.CheckoutValidationResponse;
 
 public interface CartSerive {
 
 	public CartItem addItemToCart(AddCartItemRequest req, String jwt) throws UserException, FoodException, CartException, CartItemException;
 
-	public CartItem updateCartItemQuantity(Long cartItemId,int quantity) throws CartItemException;
+	public CartItem updateCartItemQuantity(Long cartItemId,int quantity, String jwt) throws UserException, CartException, CartItemException;
 
 	public Cart removeItemFromCart(Long cartItemId, String jwt) throws UserException, CartException, CartItemException;
 
+	public CartResponse updateCart(List<CartOperation> operations, String jwt) throws UserException, FoodException, CartException, CartItemException;
+
 	public Long calculateCartTotals(Cart cart) throws UserException;
 	
 	public Cart findCartById(Long id) throws CartException;
@@ -26,6 +34,18 @@ public interface CartSerive {
 	public Cart findCartByUserId(Long userId) throws CartException, UserException;
 	
 	public Cart clearCart(Long userId) throws CartException, UserException;
+
+	// reports every reason the cart cannot be checked out, without changing it
+	public CheckoutValidationResponse validateCart(Long userId) throws CartException;
+
+	// moves changed lines to the current menu price and corrects the cart total
+	public Cart repriceCart(Long userId) throws CartException;
+
+	// validates the cart and copies its lines into order items under one cart lock;
+	// throws CheckoutValidationException with every failure, repricing the cart first if a price changed
+	public List<OrderItem> checkoutItems(Long userId) throws CartException;
+
+	public void flushCart(Long userId);
 	
 
 	
@@ -1,79 +1,126 @@
 package com.zosh.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.zosh.Exception.CartException;
 import com.zosh.Exception.CartItemException;
+import com.zosh.Exception.CheckoutValidationException;
 import com.zosh.Exception.FoodException;
 import com.zosh.Exception.UserException;
+import com.zosh.domain.CartOperationType;
+import com.zosh.domain.CheckoutFailureReason;
 import com.zosh.model.Cart;
 import com.zosh.model.CartItem;
 import com.zosh.model.Food;
+import com.zosh.model.OrderItem;
 import com.zosh.model.User;
-import com.zosh.repository.CartItemRepository;
+import com.zosh.repository.CartItemJdbcRepository;
 import com.zosh.repository.CartRepository;
 import com.zosh.repository.foodRepository;
 import com.zosh.request.AddCartItemRequest;
+import com.zosh.request.CartOperation;
 import com.zosh.request.UpdateCartItemRequest;
+import com.zosh.response.CartResponse;
+import com.zosh.response.CheckoutFailure;
+import com.zosh.response.CheckoutValidationResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Service
 public class CartServiceImplementation implements CartSerive {
+
+	private static final int MAX_CART_OPERATIONS = 100;
+
 	@Autowired
 	private CartRepository cartRepository;
 	@Autowired
 	private UserService userService;
 	@Autowired
-	private CartItemRepository cartItemRepository;
-	@Autowired
 	private foodRepository menuItemRepository;
+	@Autowired
+	private CartItemJdbcRepository cartItemJdbcRepository;
+	@Autowired
+	private CartCache cartCache;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private MeterRegistry meterRegistry;
 
 	@Override
 	public CartItem addItemToCart(AddCartItemRequest req, String jwt) throws UserException, FoodException, CartException, CartItemException {
 
 		User user = userService.findUserProfileByJwt(jwt);
-		
-		Optional<Food> menuItem=menuItemRepository.findById(req.getMenuItemId());
+
+		if (req.getQuantity() < 1) {
+			throw new CartItemException("quantity must be at least 1");
+		}
+		Optional<Food> menuItem=cartCache.findFood(req.getMenuItemId());
 		if(menuItem.isEmpty()) {
 			throw new FoodException("Menu Item not exist with id "+req.getMenuItemId());
 		}
 
-		Cart cart = findCartByUserId(user.getId());
+		String ingredientsHash = CartLines.ingredientsHash(req.getIngredients());
+		CartCache.Entry entry = cartCache.lock(user.getId());
+		try {
+			Cart cart = entry.getCart();
 
-		for (CartItem cartItem : cart.getItems()) {
-			if (cartItem.getFood().equals(menuItem.get())) {
-
-				int newQuantity = cartItem.getQuantity() + req.getQuantity();
-				return updateCartItemQuantity(cartItem.getId(),newQuantity);
+			CartItem existing = CartLines.find(cart, menuItem.get().getId(), ingredientsHash);
+			if (existing != null) {
+				setQuantity(cart, existing, existing.getQuantity() + req.getQuantity());
+				cartCache.markDirty(entry);
+				return existing;
 			}
-		}
 
-		CartItem newCartItem = new CartItem();
-		newCartItem.setFood(menuItem.get());
-		newCartItem.setQuantity(req.getQuantity());
-		newCartItem.setCart(cart);
-		newCartItem.setIngredients(req.getIngredients());
-		newCartItem.setTotalPrice(req.getQuantity()*menuItem.get().getPrice());
-		
-		CartItem savedItem=cartItemRepository.save(newCartItem);
-		cart.getItems().add(savedItem);
-		cartRepository.save(cart);
-		
-		return savedItem;
+			// a line removed from the cached cart stays stored until the cart is
+			// written, and the upsert below would add to its old quantity
+			cartCache.flush(entry);
+			cart = entry.getCart();
+
+			CartItem newCartItem = new CartItem();
+			newCartItem.setFood(menuItem.get());
+			newCartItem.setCart(cart);
+			newCartItem.setIngredients(req.getIngredients());
+			newCartItem.setIngredientsHash(ingredientsHash);
+			newCartItem.setQuantity(req.getQuantity());
+			newCartItem.setUnitPrice(menuItem.get().getPrice());
+
+			// a new line is written straight away, the client needs its id
+			cartItemJdbcRepository.upsertLine(newCartItem);
+			cart.getItems().add(newCartItem);
+			cart.setTotal(cart.getTotal() + newCartItem.getTotalPrice());
+			cartCache.markDirty(entry);
+			return newCartItem;
+		} finally {
+			entry.unlock();
+		}
 
 	}
 
 	@Override
-	public CartItem updateCartItemQuantity(Long cartItemId,int quantity) throws CartItemException {
-		Optional<CartItem> cartItem=cartItemRepository.findById(cartItemId);
-		if(cartItem.isEmpty()) {
-			throw new CartItemException("cart item not exist with id "+cartItemId);
+	public CartItem updateCartItemQuantity(Long cartItemId,int quantity, String jwt) throws UserException, CartException, CartItemException {
+		User user = userService.findUserProfileByJwt(jwt);
+
+		CartCache.Entry entry = cartCache.lock(user.getId());
+		try {
+			CartItem cartItem = findItem(entry.getCart(), cartItemId);
+			setQuantity(entry.getCart(), cartItem, quantity);
+			cartCache.markDirty(entry);
+			return cartItem;
+		} finally {
+			entry.unlock();
 		}
-		cartItem.get().setQuantity(quantity);
-		cartItem.get().setTotalPrice((cartItem.get().getFood().getPrice()*quantity));
-		return cartItemRepository.save(cartItem.get());
 	}
 
 	@Override
@@ -82,26 +129,146 @@ public class CartServiceImplementation implements CartSerive {
 
 		User user = userService.findUserProfileByJwt(jwt);
 
-		Cart cart = findCartByUserId(user.getId());
-		
-		Optional<CartItem> cartItem=cartItemRepository.findById(cartItemId);
-		
-		if(cartItem.isEmpty()) {
-			throw new CartItemException("cart item not exist with id "+cartItemId);
+		CartCache.Entry entry = cartCache.lock(user.getId());
+		try {
+			Cart cart = entry.getCart();
+			CartItem cartItem = findItem(cart, cartItemId);
+			cart.getItems().remove(cartItem);
+			cart.setTotal(cart.getTotal() - cartItem.getTotalPrice());
+			cartCache.markDirty(entry);
+			return cart;
+		} finally {
+			entry.unlock();
 		}
-
-		cart.getItems().remove(cartItem.get());
-		return cartRepository.save(cart);
 	}
 
 	@Override
-	public Long calculateCartTotals(Cart cart) throws UserException {
+	public CartResponse updateCart(List<CartOperation> operations, String jwt)
+			throws UserException, FoodException, CartException, CartItemException {
+
+		User user = userService.findUserProfileByJwt(jwt);
+
+		if (operations == null || operations.isEmpty()) {
+			throw new CartException("no cart operations given");
+		}
+		if (operations.size() > MAX_CART_OPERATIONS) {
+			throw new CartException("At most " + MAX_CART_OPERATIONS + " cart operations can be applied at once");
+		}
+
+		// every food the batch adds, in one query
+		Set<Long> foodIds = new HashSet<>();
+		for (CartOperation op : operations) {
+			if (op.getType() == CartOperationType.ADD && op.getMenuItemId() != null) {
+				foodIds.add(op.getMenuItemId());
+			}
+		}
+		Map<Long, Food> foods = new HashMap<>();
+		if (!foodIds.isEmpty()) {
+			for (Food food : cartCache.findFoods(foodIds)) {
+				foods.put(food.getId(), food);
+			}
+		}
+
+		CartCache.Entry entry = cartCache.lock(user.getId());
+		try {
+			Cart cart = entry.getCart();
+			checkOperations(operations, cart, foods);
+
+			// adds of foods the cart has no line for, merged by line key
+			Map<String, CartItem> newLines = new LinkedHashMap<>();
+			for (CartOperation op : operations) {
+				if (op.getType() == CartOperationType.ADD) {
+					Food food = foods.get(op.getMenuItemId());
+					String ingredientsHash = CartLines.ingredientsHash(op.getIngredients());
+					CartItem existing = CartLines.find(cart, food.getId(), ingredientsHash);
+					if (existing != null) {
+						setQuantity(cart, existing, existing.getQuantity() + op.getQuantity());
+						continue;
+					}
+					CartItem newLine = newLines.get(food.getId() + ":" + ingredientsHash);
+					if (newLine != null) {
+						newLine.setQuantity(newLine.getQuantity() + op.getQuantity());
+						continue;
+					}
+					newLine = new CartItem();
+					newLine.setFood(food);
+					newLine.setCart(cart);
+					newLine.setIngredients(op.getIngredients());
+					newLine.setIngredientsHash(ingredientsHash);
+					newLine.setQuantity(op.getQuantity());
+					newLine.setUnitPrice(food.getPrice());
+					newLines.put(food.getId() + ":" + ingredientsHash, newLine);
+				} else if (op.getType() == CartOperationType.SET_QUANTITY) {
+					setQuantity(cart, CartLines.find(cart, op.getCartItemId()), op.getQuantity());
+				} else {
+					CartItem cartItem = CartLines.find(cart, op.getCartItemId());
+					cart.getItems().remove(cartItem);
+					cart.setTotal(cart.getTotal() - cartItem.getTotalPrice());
+				}
+			}
 
-		Long total = 0L;
+			// new lines as one batch of upserts and the cart as one write, in one transaction
+			try {
+				transactionTemplate.executeWithoutResult(status -> {
+					if (!newLines.isEmpty()) {
+						// removals, earlier or in this batch, are written first so the
+						// upserts cannot add to a line the cart no longer has
+						cartCache.markDirty(entry);
+						cartCache.flush(entry);
+					}
+					Cart written = entry.getCart();
+					for (CartItem line : cartItemJdbcRepository.upsertLines(written.getId(), new ArrayList<>(newLines.values()))) {
+						line.setCart(written);
+						written.getItems().add(line);
+						written.setTotal(written.getTotal() + line.getTotalPrice());
+					}
+					cartCache.markDirty(entry);
+					cartCache.flush(entry);
+				});
+			} catch (RuntimeException e) {
+				// the cached cart already holds the edits, reload what was actually stored next time
+				cartCache.invalidate(entry);
+				throw e;
+			}
+			return new CartResponse(entry.getCart(), entry.getCart().getTotal());
+		} finally {
+			entry.unlock();
+		}
+	}
+
+	// validates the whole batch against the cart before any of it is applied
+	private static void checkOperations(List<CartOperation> operations, Cart cart, Map<Long, Food> foods)
+			throws FoodException, CartException, CartItemException {
+		Set<Long> lines = new HashSet<>();
 		for (CartItem cartItem : cart.getItems()) {
-			total += cartItem.getFood().getPrice() * cartItem.getQuantity();
+			lines.add(cartItem.getId());
+		}
+
+		for (int i = 0; i < operations.size(); i++) {
+			CartOperation op = operations.get(i);
+			if (op.getType() == null) {
+				throw new CartException("operation " + i + ": type is required");
+			}
+			if (op.getType() == CartOperationType.ADD) {
+				if (!foods.containsKey(op.getMenuItemId())) {
+					throw new FoodException("operation " + i + ": Menu Item not exist with id " + op.getMenuItemId());
+				}
+			} else if (op.getCartItemId() == null || !lines.contains(op.getCartItemId())) {
+				throw new CartItemException("operation " + i + ": cart item not exist with id " + op.getCartItemId());
+			}
+
+			if (op.getType() == CartOperationType.REMOVE) {
+				lines.remove(op.getCartItemId());
+			} else if (op.getQuantity() < 1) {
+				throw new CartItemException("operation " + i + ": quantity must be at least 1");
+			}
 		}
-		return total;
+	}
+
+	@Override
+	public Long calculateCartTotals(Cart cart) throws UserException {
+
+		return cart.getTotal() == null ? 0L : cart.getTotal();
 	}
 
 	@Override
@@ -115,24 +282,221 @@ public class CartServiceImplementation implements CartSerive {
 
 	@Override
 	public Cart findCartByUserId(Long userId) throws CartException, UserException {
-	
-		Optional<Cart> opt=cartRepository.findByCustomer_Id(userId);
-		
-		if(opt.isPresent()) {
-			return opt.get();
-		}
-		throw new CartException("cart not found");
-		
+		return cartCache.get(userId).getCart();
 	}
 
 	@Override
 	public Cart clearCart(Long userId) throws CartException, UserException {
-		Cart cart=findCartByUserId(userId);
-		
-		cart.getItems().clear();
-		return cartRepository.save(cart);
+		CartCache.Entry entry = cartCache.lock(userId);
+		try {
+			entry.getCart().getItems().clear();
+			entry.getCart().setTotal(0L);
+			cartCache.markDirty(entry);
+			return entry.getCart();
+		} finally {
+			entry.unlock();
+		}
+	}
+
+	@Override
+	public CheckoutValidationResponse validateCart(Long userId) throws CartException {
+		CartCache.Entry entry = cartCache.lock(userId);
+		try {
+			return validate(entry.getCart());
+		} finally {
+			entry.unlock();
+		}
 	}
 
-	
+	@Override
+	public Cart repriceCart(Long userId) throws CartException {
+		CartCache.Entry entry = cartCache.lock(userId);
+		try {
+			return reprice(entry);
+		} finally {
+			entry.unlock();
+		}
+	}
+
+	@Override
+	public List<OrderItem> checkoutItems(Long userId) throws CartException {
+		CartCache.Entry entry = cartCache.lock(userId);
+		try {
+			// every problem with the cart is reported at once, before anything is written
+			CheckoutValidationResponse validation = validate(entry.getCart());
+			if (!validation.getValid()) {
+				for (CheckoutFailure failure : validation.getFailures()) {
+					if (failure.getReason() == CheckoutFailureReason.PRICE_CHANGED) {
+						// the cart takes the new prices, checking out again accepts them
+						reprice(entry);
+						break;
+					}
+				}
+				throw new CheckoutValidationException(validation);
+			}
+
+			// copied before the lock is released, so the order holds exactly the lines that were validated
+			List<OrderItem> orderItems = new ArrayList<>();
+			for (CartItem cartItem : entry.getCart().getItems()) {
+				OrderItem orderItem = new OrderItem();
+				orderItem.setFood(cartItem.getFood());
+				orderItem.setIngredients(cartItem.getIngredients() == null ? null
+						: new ArrayList<>(cartItem.getIngredients()));
+				orderItem.setQuantity(cartItem.getQuantity());
+				orderItem.setTotalPrice(cartItem.getTotalPrice());
+				orderItems.add(orderItem);
+			}
+			return orderItems;
+		} finally {
+			entry.unlock();
+		}
+	}
+
+	// callers hold the cart lock
+	private CheckoutValidationResponse validate(Cart cart) {
+		CheckoutValidationResponse res = new CheckoutValidationResponse();
+		if (cart.getItems().isEmpty()) {
+			res.getFailures().add(new CheckoutFailure(null, null, CheckoutFailureReason.EMPTY_CART, "cart is empty"));
+			res.setTotal(0L);
+			return res;
+		}
+
+		Map<Long, FoodState> foods = checkoutState(cart);
+		long total = 0;
+		long stored = 0;
+		for (CartItem cartItem : cart.getItems()) {
+			Long foodId = cartItem.getFood().getId();
+			String name = cartItem.getFood().getName();
+			FoodState food = foods.get(foodId);
+			stored += cartItem.getTotalPrice();
+			if (food == null) {
+				res.getFailures().add(new CheckoutFailure(cartItem.getId(), foodId,
+						CheckoutFailureReason.FOOD_NOT_FOUND, name + " is no longer on the menu"));
+				total += cartItem.getTotalPrice();
+				continue;
+			}
+			if (!food.available) {
+				res.getFailures().add(new CheckoutFailure(cartItem.getId(), foodId,
+						CheckoutFailureReason.FOOD_UNAVAILABLE, name + " is not available"));
+			}
+			if (!food.restaurantOpen) {
+				res.getFailures().add(new CheckoutFailure(cartItem.getId(), foodId,
+						CheckoutFailureReason.RESTAURANT_CLOSED, "the restaurant serving " + name + " is closed"));
+			}
+			if (cartItem.getIngredients() != null) {
+				for (String ingredient : cartItem.getIngredients()) {
+					if (Boolean.FALSE.equals(food.inStock.get(ingredient))) {
+						res.getFailures().add(new CheckoutFailure(cartItem.getId(), foodId,
+								CheckoutFailureReason.INGREDIENT_OUT_OF_STOCK, ingredient + " for " + name + " is out of stock"));
+					}
+				}
+			}
+			if (food.priceChanged(cartItem)) {
+				res.getFailures().add(new CheckoutFailure(cartItem.getId(), foodId, CheckoutFailureReason.PRICE_CHANGED,
+						"price of " + name + " changed from " + cartItem.getUnitPrice() + " to " + food.price));
+				total += food.price * cartItem.getQuantity();
+			} else {
+				total += cartItem.getTotalPrice();
+			}
+		}
+
+		// the kept total no longer matches its lines; repriceCart or the next edit corrects it
+		if (cart.getTotal() == null || cart.getTotal() != stored) {
+			totalDrift().increment();
+		}
+
+		res.setValid(res.getFailures().isEmpty());
+		res.setTotal(total);
+		return res;
+	}
+
+	// callers hold the cart lock
+	private Cart reprice(CartCache.Entry entry) {
+		Cart cart = entry.getCart();
+		if (cart.getItems().isEmpty()) {
+			return cart;
+		}
+		Map<Long, FoodState> foods = checkoutState(cart);
+		boolean repriced = false;
+		long total = 0;
+		for (CartItem cartItem : cart.getItems()) {
+			FoodState food = foods.get(cartItem.getFood().getId());
+			if (food != null && food.priceChanged(cartItem)) {
+				cartItem.setUnitPrice(food.price);
+				cartItem.setTotalPrice(food.price * cartItem.getQuantity());
+				repriced = true;
+			}
+			total += cartItem.getTotalPrice();
+		}
+		if (repriced || cart.getTotal() == null || cart.getTotal() != total) {
+			cart.setTotal(total);
+			cartCache.markDirty(entry);
+		}
+		return cart;
+	}
+
+	// availability, restaurant, price and ingredient stock of every cart food in one query
+	private Map<Long, FoodState> checkoutState(Cart cart) {
+		Set<Long> foodIds = new HashSet<>();
+		for (CartItem cartItem : cart.getItems()) {
+			foodIds.add(cartItem.getFood().getId());
+		}
+		Map<Long, FoodState> foods = new HashMap<>();
+		for (Object[] row : menuItemRepository.findCheckoutRowsByFoodIds(foodIds)) {
+			FoodState food = foods.computeIfAbsent((Long) row[0], id -> new FoodState(row));
+			if (row[4] != null) {
+				food.inStock.merge((String) row[4], Boolean.TRUE.equals(row[5]), Boolean::logicalAnd);
+			}
+		}
+		return foods;
+	}
+
+	private Counter totalDrift() {
+		return Counter.builder("cart.total.drift")
+				.description("Validated carts whose kept total did not match the sum of their lines")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void flushCart(Long userId) {
+		cartCache.flush(userId);
+	}
+
+	private static CartItem findItem(Cart cart, Long cartItemId) throws CartItemException {
+		CartItem cartItem = CartLines.find(cart, cartItemId);
+		if (cartItem == null) {
+			throw new CartItemException("cart item not exist with id "+cartItemId);
+		}
+		return cartItem;
+	}
+
+	// one food's checkout state, from the first of its (food, ingredient) rows
+	private static final class FoodState {
+
+		private final boolean available;
+		private final Long price;
+		private final boolean restaurantOpen;
+		// ingredient name -> in stock
+		private final Map<String, Boolean> inStock = new HashMap<>();
+
+		FoodState(Object[] row) {
+			this.available = Boolean.TRUE.equals(row[1]);
+			this.price = (Long) row[2];
+			// null when the food has no restaurant
+			this.restaurantOpen = Boolean.TRUE.equals(row[3]);
+		}
+
+		boolean priceChanged(CartItem cartItem) {
+			return price != null && !price.equals(cartItem.getUnitPrice());
+		}
+	}
+
+	// keeps the cart total in step with the line, priced at the snapshot taken when it was added
+	private static void setQuantity(Cart cart, CartItem cartItem, int quantity) {
+		long totalPrice = cartItem.getUnitPrice()*quantity;
+		cart.setTotal(cart.getTotal() + totalPrice - cartItem.getTotalPrice());
+		cartItem.setQuantity(quantity);
+		cartItem.setTotalPrice(totalPrice);
+	}
 
 }
@@ -0,0 +1,73 @@
+package com.zosh.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Version counters for the parts of a restaurant's catalog that clients fetch
+ * again and again, and the strong ETags made from them. A write bumps the
+ * counters of what it changed once it has committed, so a tag read before
+ * loading is never newer than the response it goes with.
+ *
+ * Tags start with a random epoch that is replaced, together with all
+ * counters, every rotate interval. Tags from another instance or from before
+ * a restart therefore never match, and writes made through other instances
+ * are picked up within one interval, like the search and geo indexes.
+ */
+@Component
+class CatalogVersions {
+
+	enum Aggregate {
+		// the restaurant itself, as returned by /api/restaurants/{id} and embedded in its foods
+		RESTAURANT,
+		// foods, with their ingredients and stock
+		MENU,
+		CATEGORIES,
+		// ingredient items and ingredient categories
+		INGREDIENTS
+	}
+
+	private volatile Generation current = new Generation();
+
+	String tag(Long restaurantId, Aggregate... aggregates) {
+		Generation generation = current;
+		StringBuilder tag = new StringBuilder(generation.epoch);
+		for (Aggregate aggregate : aggregates) {
+			tag.append('-').append(generation.versions.get(aggregate).getOrDefault(restaurantId, 0L));
+		}
+		return tag.toString();
+	}
+
+	// call once the write has committed
+	void bump(Long restaurantId, Aggregate... aggregates) {
+		Generation generation = current;
+		for (Aggregate aggregate : aggregates) {
+			generation.versions.get(aggregate).merge(restaurantId, 1L, Long::sum);
+		}
+	}
+
+	// swapped as a whole, so a tag never mixes an old epoch with new counters
+	@Scheduled(initialDelayString = "${catalog.etag.rotate-interval-ms:600000}",
+			fixedDelayString = "${catalog.etag.rotate-interval-ms:600000}")
+	public void rotate() {
+		current = new Generation();
+	}
+
+	private static final class Generation {
+
+		private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+		private final Map<Aggregate, ConcurrentHashMap<Long, Long>> versions = new EnumMap<>(Aggregate.class);
+
+		private Generation() {
+			for (Aggregate aggregate : Aggregate.values()) {
+				versions.put(aggregate, new ConcurrentHashMap<>());
+			}
+		}
+	}
+
+}
@@ -10,5 +10,6 @@ public interface CategoryService {
 	public Category createCategory (String name,Long userId) throws RestaurantException;
 	public List<Category> findCategoryByRestaurantId(Long restaurantId) throws RestaurantException;
 	public Category findCategoryById(Long id) throws RestaurantException;
+	public String getCategoriesETag(Long restaurantId);
 
 }
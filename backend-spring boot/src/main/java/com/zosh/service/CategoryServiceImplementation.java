@@ -19,6 +19,9 @@ public class CategoryServiceImplementation implements CategoryService {
 	
 	@Autowired
 	private CategoryRepository categoryRepository;
+	
+	@Autowired
+	private CatalogVersions catalogVersions;
 
 	@Override
 	public Category createCategory(String name,Long userId) throws RestaurantException {
@@ -27,7 +30,9 @@ public class CategoryServiceImplementation implements CategoryService {
 		
 		createdCategory.setName(name);
 		createdCategory.setRestaurant(restaurant);
-		return categoryRepository.save(createdCategory);
+		Category savedCategory=categoryRepository.save(createdCategory);
+		catalogVersions.bump(restaurant.getId(), CatalogVersions.Aggregate.CATEGORIES);
+		return savedCategory;
 	}
 
 	@Override
@@ -47,4 +52,9 @@ public class CategoryServiceImplementation implements CategoryService {
 		return opt.get();
 	}
 
+	@Override
+	public String getCategoriesETag(Long restaurantId) {
+		return catalogVersions.tag(restaurantId, CatalogVersions.Aggregate.CATEGORIES);
+	}
+
 }
@@ -0,0 +1,40 @@
+package com.zosh.service;
+
+import org.hibernate.Hibernate;
+
+import com.zosh.model.Food;
+import com.zosh.model.Restaurant;
+import com.zosh.model.User;
+
+/**
+ * Loads the lazy parts of an entity graph that its JSON touches, so cached
+ * entities can be serialized after their persistence context is gone.
+ */
+final class EntityGraphs {
+
+	private EntityGraphs() {
+	}
+
+	static void initialize(Food food) {
+		if (food != null) {
+			Hibernate.initialize(food.getImages());
+			Hibernate.initialize(food.getIngredients());
+			initialize(food.getRestaurant());
+		}
+	}
+
+	static void initialize(Restaurant restaurant) {
+		if (restaurant != null) {
+			Hibernate.initialize(restaurant.getImages());
+			initialize(restaurant.getOwner());
+		}
+	}
+
+	static void initialize(User user) {
+		if (user != null) {
+			Hibernate.initialize(user.getAddresses());
+			Hibernate.initialize(user.getFavorites());
+		}
+	}
+
+}
@@ -17,7 +17,10 @@ public interface FoodService {
 	void deleteFood(Long foodId) throws FoodException;
 	
 	public List<Food> getRestaurantsFood(Long restaurantId,
-			boolean isVegetarian, boolean isNonveg, boolean isSeasonal,String foodCategory) throws FoodException;
+			boolean isVegetarian, boolean isNonveg, boolean isSeasonal, boolean isAvailable,
+			String foodCategory) throws FoodException;
+	
+	public String getMenuETag(Long restaurantId);
 	
 	public List<Food> searchFood(String keyword);
 	
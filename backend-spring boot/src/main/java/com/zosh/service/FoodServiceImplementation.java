@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -38,6 +37,15 @@ public class FoodServiceImplementation implements FoodService {
 	
 	@Autowired
 	private IngredientsCategoryRepository ingredientCategoryRepo;
+	
+	@Autowired
+	private MenuCache menuCache;
+	
+	@Autowired
+	private SearchIndex searchIndex;
+	
+	@Autowired
+	private CatalogVersions catalogVersions;
 
 	@Override
 	public Food createFood(CreateFoodRequest  req,
@@ -60,6 +68,9 @@ public class FoodServiceImplementation implements FoodService {
 			food = foodRepository.save(food);
 
 			restaurant.getFoods().add(food);
+			menuCache.rebuild(restaurant.getId());
+			searchIndex.foodChanged(food.getId());
+			catalogVersions.bump(restaurant.getId(), CatalogVersions.Aggregate.MENU);
 			return food;
 		
 	}
@@ -67,9 +78,15 @@ public class FoodServiceImplementation implements FoodService {
 	@Override
 	public void deleteFood(Long foodId) throws FoodException {
 		Food food=findFoodById(foodId);
+		Restaurant restaurant=food.getRestaurant();
 		food.setRestaurant(null);;
 //		foodRepository.save(food);
 		foodRepository.delete(food);
+		searchIndex.foodRemoved(foodId);
+		if(restaurant!=null) {
+			menuCache.rebuild(restaurant.getId());
+			catalogVersions.bump(restaurant.getId(), CatalogVersions.Aggregate.MENU);
+		}
 
 	}
 
@@ -80,63 +97,28 @@ public class FoodServiceImplementation implements FoodService {
 			boolean isVegetarian, 
 			boolean isNonveg,
 			boolean isSeasonal,
+			boolean isAvailable,
 			String foodCategory) throws FoodException {
-		List<Food> foods = foodRepository.findByRestaurantId(restaurantId);
-		
-		
-		
-	    if (isVegetarian) {
-	        foods = filterByVegetarian(foods, isVegetarian);
-	    }
-	    if (isNonveg) {
-	        foods = filterByNonveg(foods, isNonveg);
-	    }
-
-	    if (isSeasonal) {
-	        foods = filterBySeasonal(foods, isSeasonal);
-	    }
-	    if(foodCategory!=null && !foodCategory.equals("")) {
-	    	foods = filterByFoodCategory(foods, foodCategory);
-	    }
-		
-		return foods;
-		
-	}
-	
-	private List<Food> filterByVegetarian(List<Food> foods, boolean isVegetarian) {
-	    return foods.stream()
-	            .filter(food -> food.isVegetarian() == isVegetarian)
-	            .collect(Collectors.toList());
-	}
-	private List<Food> filterByNonveg(List<Food> foods, boolean isNonveg) {
-	    return foods.stream()
-	            .filter(food -> food.isVegetarian() == false)
-	            .collect(Collectors.toList());
+		// answered from the restaurant's in-memory menu, filters are bitset operations
+		return menuCache.get(restaurantId).select(isVegetarian, isNonveg, isSeasonal, isAvailable, foodCategory);
 	}
-	private List<Food> filterBySeasonal(List<Food> foods, boolean isSeasonal) {
-	    return foods.stream()
-	            .filter(food -> food.isSeasonal() == isSeasonal)
-	            .collect(Collectors.toList());
-	}
-	private List<Food> filterByFoodCategory(List<Food> foods, String foodCategory) {
-	    
-		return foods.stream()
-			    .filter(food -> {
-			        if (food.getFoodCategory() != null) {
-			            return food.getFoodCategory().getName().equals(foodCategory);
-			        }
-			        return false; // Return true if food category is null
-			    })
-			    .collect(Collectors.toList());
+
+	@Override
+	public String getMenuETag(Long restaurantId) {
+		// foods embed their restaurant
+		return catalogVersions.tag(restaurantId, CatalogVersions.Aggregate.RESTAURANT, CatalogVersions.Aggregate.MENU);
 	}
 
 	@Override
 	public List<Food> searchFood(String keyword) {
 		List<Food> items=new ArrayList<>();
 		
-		if(keyword!="") {
-			System.out.println("keyword -- "+keyword);
-			items=foodRepository.searchByNameOrCategory(keyword);
+		if(keyword!=null && !keyword.isBlank()) {
+			items=searchIndex.searchFood(keyword);
+			if(items==null) {
+				// index not built yet
+				items=foodRepository.searchByNameOrCategory(keyword);
+			}
 		}
 		
 		return items;
@@ -148,6 +130,11 @@ public class FoodServiceImplementation implements FoodService {
 		
 		food.setAvailable(!food.isAvailable());
 		foodRepository.save(food);
+		if(food.getRestaurant()!=null) {
+			menuCache.rebuild(food.getRestaurant().getId());
+			catalogVersions.bump(food.getRestaurant().getId(), CatalogVersions.Aggregate.MENU);
+		}
+		searchIndex.foodChanged(id);
 		return food;
 	}
 
@@ -0,0 +1,275 @@
+package com.zosh.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory spatial index of points on a fixed grid of latitude/longitude
+ * cells, the same bucketing geohash prefixes give, keyed by cell number.
+ *
+ * A nearest query scans rings of cells around the query point, nearest ring
+ * first, and keeps the best k points by great-circle distance. It stops once
+ * the next ring is too far away to hold anything closer than the k-th point
+ * found, or is outside the radius, so a query only looks at the few cells
+ * around the point however large the index grows.
+ */
+final class GeoIndex<T> {
+
+	static final double EARTH_RADIUS_KM = 6371.0;
+	private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+	// queries do not reach beyond this latitude, so rings never wrap round a pole
+	private static final double MAX_LATITUDE = 85;
+
+	private final double cellDegrees;
+	private final int rows;
+	private final int columns;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Long, Point<T>> points = new HashMap<>();
+	private final Map<Long, List<Point<T>>> cells = new HashMap<>();
+
+	// ids written while a rebuild was loading; the rebuild keeps their current state
+	private Set<Long> touched;
+
+	GeoIndex(double cellKm) {
+		this.cellDegrees = cellKm / KM_PER_DEGREE;
+		this.rows = (int) Math.ceil(180 / cellDegrees);
+		this.columns = (int) Math.ceil(360 / cellDegrees);
+	}
+
+	void put(long id, double latitude, double longitude, T value) {
+		Point<T> point = new Point<>(id, latitude, longitude, value, cell(row(latitude), column(longitude)));
+		lock.writeLock().lock();
+		try {
+			unlink(points.remove(id));
+			link(point);
+			touch(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void remove(long id) {
+		lock.writeLock().lock();
+		try {
+			unlink(points.remove(id));
+			touch(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Starts a full rebuild. Writes made from here on win over the data the
+	 * rebuild loaded, which may predate them.
+	 */
+	void beginRebuild() {
+		lock.writeLock().lock();
+		try {
+			touched = new HashSet<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/** Replaces the contents with what {@code load} put, keeping points written since beginRebuild. */
+	void finishRebuild(GeoIndex<T> load) {
+		lock.writeLock().lock();
+		try {
+			List<Point<T>> kept = new ArrayList<>();
+			for (Long id : touched) {
+				if (points.containsKey(id)) {
+					kept.add(points.get(id));
+				}
+			}
+			points.clear();
+			cells.clear();
+			for (Point<T> point : load.points.values()) {
+				if (!touched.contains(point.id)) {
+					link(point);
+				}
+			}
+			kept.forEach(this::link);
+			touched = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	int size() {
+		lock.readLock().lock();
+		try {
+			return points.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns up to {@code limit} points within {@code radiusKm} of the given
+	 * position, nearest first.
+	 */
+	List<Hit<T>> nearest(double latitude, double longitude, double radiusKm, int limit) {
+		List<Hit<T>> result = new ArrayList<>();
+		if (limit <= 0) {
+			return result;
+		}
+		// farthest first, so the head is the point to drop when a closer one turns up
+		PriorityQueue<Hit<T>> best = new PriorityQueue<>(Comparator.comparingDouble((Hit<T> hit) -> -hit.distanceKm));
+
+		int row = row(latitude);
+		int column = column(longitude);
+		double radiusDegrees = radiusKm / KM_PER_DEGREE;
+		double widestLatitude = Math.min(MAX_LATITUDE, Math.abs(latitude) + radiusDegrees);
+		double cosine = Math.cos(Math.toRadians(widestLatitude));
+		int rowRings = (int) Math.ceil(radiusDegrees / cellDegrees);
+		int columnRings = Math.min((int) Math.ceil(radiusDegrees / cosine / cellDegrees), (columns - 1) / 2);
+		// the narrowest a cell gets within the searched area; 0.9 covers great circles
+		// cutting the corner of a parallel
+		double ringKm = cellDegrees * KM_PER_DEGREE * cosine * 0.9;
+
+		lock.readLock().lock();
+		try {
+			for (int ring = 0; ring <= Math.max(rowRings, columnRings); ring++) {
+				double ringDistanceKm = (ring - 1) * ringKm;
+				if (ringDistanceKm > radiusKm
+						|| (best.size() == limit && ringDistanceKm > best.peek().distanceKm)) {
+					break;
+				}
+				for (int dr = -Math.min(ring, rowRings); dr <= Math.min(ring, rowRings); dr++) {
+					int r = row + dr;
+					if (r < 0 || r >= rows) {
+						continue;
+					}
+					boolean edgeRow = Math.abs(dr) == ring;
+					for (int dc = -Math.min(ring, columnRings); dc <= Math.min(ring, columnRings); dc++) {
+						// inner cells were scanned by an earlier ring
+						if (!edgeRow && Math.abs(dc) != ring) {
+							continue;
+						}
+						List<Point<T>> cell = cells.get(cell(r, Math.floorMod(column + dc, columns)));
+						if (cell != null) {
+							scan(cell, latitude, longitude, radiusKm, limit, best);
+						}
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		result.addAll(best);
+		result.sort(Comparator.comparingDouble(hit -> hit.distanceKm));
+		return result;
+	}
+
+	private static <T> void scan(List<Point<T>> cell, double latitude, double longitude, double radiusKm,
+			int limit, PriorityQueue<Hit<T>> best) {
+		for (Point<T> point : cell) {
+			double boundKm = best.size() < limit ? radiusKm : best.peek().distanceKm;
+			// the latitude difference alone is a lower bound, and far cheaper than haversine
+			if (Math.abs(point.latitude - latitude) * KM_PER_DEGREE > boundKm) {
+				continue;
+			}
+			double distanceKm = distanceKm(latitude, longitude, point.latitude, point.longitude);
+			if (distanceKm > radiusKm) {
+				continue;
+			}
+			if (best.size() < limit) {
+				best.add(new Hit<>(point.value, distanceKm));
+			} else if (distanceKm < best.peek().distanceKm) {
+				best.poll();
+				best.add(new Hit<>(point.value, distanceKm));
+			}
+		}
+	}
+
+	// haversine
+	static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLng = Math.toRadians(lng2 - lng1);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+		return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	// caller holds the write lock
+	private void link(Point<T> point) {
+		points.put(point.id, point);
+		cells.computeIfAbsent(point.cell, k -> new ArrayList<>()).add(point);
+	}
+
+	// caller holds the write lock
+	private void unlink(Point<T> point) {
+		if (point == null) {
+			return;
+		}
+		List<Point<T>> cell = cells.get(point.cell);
+		cell.remove(point);
+		if (cell.isEmpty()) {
+			cells.remove(point.cell);
+		}
+	}
+
+	private void touch(long id) {
+		if (touched != null) {
+			touched.add(id);
+		}
+	}
+
+	private int row(double latitude) {
+		return Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellDegrees));
+	}
+
+	private int column(double longitude) {
+		return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), columns);
+	}
+
+	private long cell(int row, int column) {
+		return (long) row * columns + column;
+	}
+
+	static final class Hit<T> {
+
+		private final T value;
+		private final double distanceKm;
+
+		Hit(T value, double distanceKm) {
+			this.value = value;
+			this.distanceKm = distanceKm;
+		}
+
+		T getValue() {
+			return value;
+		}
+
+		double getDistanceKm() {
+			return distanceKm;
+		}
+	}
+
+	private static final class Point<T> {
+
+		private final long id;
+		private final double latitude;
+		private final double longitude;
+		private final T value;
+		private final long cell;
+
+		Point(long id, double latitude, double longitude, T value, long cell) {
+			this.id = id;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.value = value;
+			this.cell = cell;
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.zosh.service;
+
+import com.zosh.model.PaymentResponse;
+
+public interface IdempotencyService {
+
+	@FunctionalInterface
+	public interface Claim {
+		// call as soon as the order row exists, from then on the checkout is never run again for this key
+		public void orderCreated(Long orderId);
+	}
+
+	public interface Checkout {
+		public PaymentResponse run(Claim claim) throws Exception;
+
+		// finishes a checkout whose order was created but whose response was lost, without a second order
+		public PaymentResponse resume(Long orderId) throws Exception;
+	}
+
+	// runs checkout at most once per (userId, key); retries and concurrent duplicates get the first response
+	public PaymentResponse execute(Long userId, String key, String requestHash, Checkout checkout) throws Exception;
+
+}
@@ -0,0 +1,254 @@
+package com.zosh.service;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zosh.Exception.OrderException;
+import com.zosh.domain.IdempotencyStatus;
+import com.zosh.model.IdempotencyRecord;
+import com.zosh.model.PaymentResponse;
+import com.zosh.repository.IdempotencyRecordRepository;
+
+/**
+ * Two levels of dedupe for Idempotency-Key requests. A bounded in-memory map
+ * of futures makes concurrent duplicates on this instance wait for the first
+ * one instead of running checkout again; the idempotency_record table, claimed
+ * before checkout starts, covers other instances and restarts.
+ *
+ * A claim is a lease: an instance that dies mid checkout leaves an
+ * IN_PROGRESS record that a retry takes over once the lease has run out.
+ * Checkouts that fail before creating their order are forgotten so the
+ * client can retry with the same key; once the order exists the checkout is
+ * only ever resumed for that order, never run again.
+ */
+@Service
+public class IdempotencyServiceImplementation implements IdempotencyService {
+
+	private static final Logger log = LoggerFactory.getLogger(IdempotencyServiceImplementation.class);
+
+	private final IdempotencyRecordRepository recordRepository;
+	private final ObjectMapper objectMapper;
+
+	private final long ttlMs;
+	private final int maxEntries;
+	private final long waitMs;
+	private final long leaseMs;
+
+	// insertion ordered, so the eldest entries are evicted first once full
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+	public IdempotencyServiceImplementation(
+			IdempotencyRecordRepository recordRepository,
+			ObjectMapper objectMapper,
+			@Value("${idempotency.ttl-ms:86400000}") long ttlMs,
+			@Value("${idempotency.max-entries:10000}") int maxEntries,
+			@Value("${idempotency.wait-ms:30000}") long waitMs,
+			@Value("${idempotency.lease-ms:120000}") long leaseMs) {
+		this.recordRepository = recordRepository;
+		this.objectMapper = objectMapper;
+		this.ttlMs = ttlMs;
+		this.maxEntries = maxEntries;
+		this.waitMs = waitMs;
+		this.leaseMs = leaseMs;
+	}
+
+	@Override
+	public PaymentResponse execute(Long userId, String key, String requestHash, Checkout checkout) throws Exception {
+		if (key.length() > 100) {
+			throw new OrderException("Idempotency-Key must be at most 100 characters");
+		}
+
+		String cacheKey = userId + ":" + key;
+		long now = System.currentTimeMillis();
+		Entry entry;
+		boolean owner = false;
+		synchronized (entries) {
+			entry = entries.get(cacheKey);
+			if (entry == null || entry.expiresAt < now) {
+				entry = new Entry(requestHash, now + ttlMs);
+				entries.remove(cacheKey);
+				entries.put(cacheKey, entry);
+				owner = true;
+				evict(now);
+			}
+		}
+
+		if (!entry.requestHash.equals(requestHash)) {
+			throw new OrderException("Idempotency-Key " + key + " was already used for a different request");
+		}
+		if (!owner) {
+			return await(entry, key);
+		}
+
+		try {
+			PaymentResponse res = runOnce(userId, key, requestHash, checkout);
+			entry.result.complete(res);
+			return res;
+		} catch (Exception e) {
+			synchronized (entries) {
+				entries.remove(cacheKey, entry);
+			}
+			entry.result.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private PaymentResponse runOnce(Long userId, String key, String requestHash, Checkout checkout) throws Exception {
+		Optional<IdempotencyRecord> stored = recordRepository.findByUserIdAndIdempotencyKey(userId, key);
+		if (stored.isPresent()) {
+			if (takeOver(stored.get(), key, requestHash)) {
+				return finish(stored.get(), checkout);
+			}
+			return storedResponse(stored.get(), key, requestHash);
+		}
+
+		IdempotencyRecord record = new IdempotencyRecord();
+		record.setUserId(userId);
+		record.setIdempotencyKey(key);
+		record.setRequestHash(requestHash);
+		record.setStatus(IdempotencyStatus.IN_PROGRESS);
+		record.setCreatedAt(new Date());
+		record.setClaimedAt(record.getCreatedAt());
+		record.setExpiresAt(new Date(record.getCreatedAt().getTime() + ttlMs));
+		try {
+			record = recordRepository.saveAndFlush(record);
+		} catch (DataIntegrityViolationException e) {
+			// another instance claimed the key between our read and insert
+			Optional<IdempotencyRecord> winner = recordRepository.findByUserIdAndIdempotencyKey(userId, key);
+			if (winner.isEmpty()) {
+				throw new OrderException("Request with Idempotency-Key " + key + " is still in progress");
+			}
+			return storedResponse(winner.get(), key, requestHash);
+		}
+		return finish(record, checkout);
+	}
+
+	// true if the record was left IN_PROGRESS by a claim whose lease ran out, and is now ours
+	private boolean takeOver(IdempotencyRecord record, String key, String requestHash) throws OrderException {
+		if (record.getStatus() != IdempotencyStatus.IN_PROGRESS) {
+			return false;
+		}
+		if (!record.getRequestHash().equals(requestHash)) {
+			throw new OrderException("Idempotency-Key " + key + " was already used for a different request");
+		}
+		Date now = new Date();
+		if (recordRepository.takeOver(record.getId(), now, new Date(now.getTime() - leaseMs)) == 0) {
+			return false;
+		}
+		record.setClaimedAt(now);
+		return true;
+	}
+
+	// runs, or resumes, the checkout of a record this instance has claimed
+	private PaymentResponse finish(IdempotencyRecord record, Checkout checkout) throws Exception {
+		PaymentResponse res;
+		if (record.getOrderId() != null) {
+			res = resume(record, checkout);
+		} else {
+			try {
+				res = checkout.run(orderId -> {
+					record.setOrderId(orderId);
+					recordRepository.recordOrder(record.getId(), orderId, new Date());
+				});
+			} catch (Exception e) {
+				if (record.getOrderId() == null) {
+					// nothing was ordered, so the client may retry with the same key
+					recordRepository.delete(record);
+					throw e;
+				}
+				// e.g. the payment step failed after the order was created
+				res = resume(record, checkout);
+			}
+		}
+
+		record.setStatus(IdempotencyStatus.COMPLETED);
+		record.setResponse(objectMapper.writeValueAsString(res));
+		recordRepository.save(record);
+		return res;
+	}
+
+	private PaymentResponse resume(IdempotencyRecord record, Checkout checkout) throws Exception {
+		try {
+			return checkout.resume(record.getOrderId());
+		} catch (Exception e) {
+			// keep the order with the key, and let the next retry take over without waiting out the lease
+			recordRepository.release(record.getId(), new Date(0));
+			throw e;
+		}
+	}
+
+	private PaymentResponse storedResponse(IdempotencyRecord record, String key, String requestHash)
+			throws OrderException, JsonProcessingException {
+		if (!record.getRequestHash().equals(requestHash)) {
+			throw new OrderException("Idempotency-Key " + key + " was already used for a different request");
+		}
+		if (record.getStatus() != IdempotencyStatus.COMPLETED) {
+			throw new OrderException("Request with Idempotency-Key " + key + " is still in progress");
+		}
+		return objectMapper.readValue(record.getResponse(), PaymentResponse.class);
+	}
+
+	private PaymentResponse await(Entry entry, String key) throws Exception {
+		try {
+			return entry.result.get(waitMs, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			// duplicates see the same outcome as the request they joined
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} catch (TimeoutException e) {
+			throw new OrderException("Request with Idempotency-Key " + key + " is still in progress");
+		}
+	}
+
+	// caller holds the entries lock
+	private void evict(long now) {
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Entry> eldest = it.next();
+			if (entries.size() > maxEntries || eldest.getValue().expiresAt < now) {
+				it.remove();
+			} else {
+				break;
+			}
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+	public void purgeExpired() {
+		int removed = recordRepository.deleteExpired(new Date());
+		if (removed > 0) {
+			log.info("purged {} expired idempotency records", removed);
+		}
+	}
+
+	private static final class Entry {
+
+		private final String requestHash;
+		private final long expiresAt;
+		private final CompletableFuture<PaymentResponse> result = new CompletableFuture<>();
+
+		Entry(String requestHash, long expiresAt) {
+			this.requestHash = requestHash;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
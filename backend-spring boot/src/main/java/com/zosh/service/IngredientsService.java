@@ -27,4 +27,6 @@ public interface IngredientsService {
 
 	public IngredientsItem updateStoke(Long id) throws Exception;
 	
+	public String getIngredientsETag(Long restaurantId);
+	
 }
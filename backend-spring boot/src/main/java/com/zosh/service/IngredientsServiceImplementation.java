@@ -29,6 +29,15 @@ public class IngredientsServiceImplementation implements IngredientsService {
 	@Autowired
 	private RestaurantService restaurantService;
 	
+	@Autowired
+	private MenuCache menuCache;
+	
+	@Autowired
+	private SearchIndex searchIndex;
+	
+	@Autowired
+	private CatalogVersions catalogVersions;
+	
 	@Override
 	public IngredientCategory createIngredientsCategory(
 			String name,Long restaurantId) throws RestaurantException {
@@ -47,6 +56,7 @@ public class IngredientsServiceImplementation implements IngredientsService {
 		ingredientCategory.setName(name);
 		
 		IngredientCategory createdCategory = ingredientsCategoryRepo.save(ingredientCategory);
+		catalogVersions.bump(restaurantId, CatalogVersions.Aggregate.INGREDIENTS);
 		
 		return createdCategory;
 	}
@@ -94,6 +104,7 @@ public class IngredientsServiceImplementation implements IngredientsService {
 		
 		IngredientsItem savedIngredients = ingredientsItemRepository.save(item);
 		category.getIngredients().add(savedIngredients);
+		catalogVersions.bump(restaurantId, CatalogVersions.Aggregate.INGREDIENTS);
 
 		return savedIngredients;
 	}
@@ -107,7 +118,20 @@ public class IngredientsServiceImplementation implements IngredientsService {
 		}
 		IngredientsItem ingredient=item.get();
 		ingredient.setInStoke(!ingredient.isInStoke());
-		return ingredientsItemRepository.save(ingredient);
+		IngredientsItem savedIngredient = ingredientsItemRepository.save(ingredient);
+		// menus and food search results show each food's ingredients with their stock
+		if (ingredient.getRestaurant() != null) {
+			menuCache.invalidate(ingredient.getRestaurant().getId());
+			searchIndex.menuChanged(ingredient.getRestaurant().getId());
+			catalogVersions.bump(ingredient.getRestaurant().getId(),
+					CatalogVersions.Aggregate.INGREDIENTS, CatalogVersions.Aggregate.MENU);
+		}
+		return savedIngredient;
+	}
+
+	@Override
+	public String getIngredientsETag(Long restaurantId) {
+		return catalogVersions.tag(restaurantId, CatalogVersions.Aggregate.INGREDIENTS);
 	}
 
 	
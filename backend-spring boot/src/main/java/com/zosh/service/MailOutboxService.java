@@ -0,0 +1,11 @@
+package com.zosh.service;
+
+public interface MailOutboxService {
+
+	// stores the email in the caller's transaction, it is sent only if that transaction commits
+	public void enqueue(String to, String subject, String text);
+
+	// sends one batch of due emails, returns how many were attempted
+	public int dispatch();
+
+}
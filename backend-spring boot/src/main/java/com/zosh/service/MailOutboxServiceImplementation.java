@@ -0,0 +1,196 @@
+package com.zosh.service;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zosh.domain.MailStatus;
+import com.zosh.model.MailOutbox;
+import com.zosh.repository.MailOutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Transactional outbox for email. Callers only insert a mail_outbox row; the
+ * dispatcher claims due rows in batches, sends each batch over a single SMTP
+ * connection and records the outcome per email. Failed emails are retried
+ * with exponential backoff until max-attempts, then left as FAILED.
+ *
+ * Claiming a row pushes its next attempt past a lease, so a dispatcher that
+ * dies mid-batch only delays those emails; delivery is at least once.
+ */
+@Service
+public class MailOutboxServiceImplementation implements MailOutboxService {
+
+	private static final Logger log = LoggerFactory.getLogger(MailOutboxServiceImplementation.class);
+
+	private final MailOutboxRepository outboxRepository;
+	private final JavaMailSender mailSender;
+	private final TransactionTemplate transactionTemplate;
+
+	private final int batchSize;
+	private final int maxAttempts;
+	private final long backoffMs;
+	private final long maxBackoffMs;
+	private final long leaseMs;
+	private final int retentionDays;
+
+	private final Counter sent;
+	private final Counter retried;
+	private final Counter failed;
+
+	public MailOutboxServiceImplementation(
+			MailOutboxRepository outboxRepository,
+			JavaMailSender mailSender,
+			PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry,
+			@Value("${mail.outbox.batch-size:50}") int batchSize,
+			@Value("${mail.outbox.max-attempts:8}") int maxAttempts,
+			@Value("${mail.outbox.backoff-ms:30000}") long backoffMs,
+			@Value("${mail.outbox.max-backoff-ms:3600000}") long maxBackoffMs,
+			@Value("${mail.outbox.lease-ms:300000}") long leaseMs,
+			@Value("${mail.outbox.retention-days:7}") int retentionDays) {
+		this.outboxRepository = outboxRepository;
+		this.mailSender = mailSender;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.batchSize = batchSize;
+		this.maxAttempts = maxAttempts;
+		this.backoffMs = backoffMs;
+		this.maxBackoffMs = maxBackoffMs;
+		this.leaseMs = leaseMs;
+		this.retentionDays = retentionDays;
+
+		this.sent = Counter.builder("mail.outbox.sent")
+				.description("Emails handed to the SMTP server").register(meterRegistry);
+		this.retried = Counter.builder("mail.outbox.retried")
+				.description("Email attempts that failed and were scheduled again").register(meterRegistry);
+		this.failed = Counter.builder("mail.outbox.failed")
+				.description("Emails given up after the last attempt").register(meterRegistry);
+	}
+
+	@Override
+	public void enqueue(String to, String subject, String text) {
+		outboxRepository.save(new MailOutbox(to, subject, text));
+	}
+
+	@Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:1000}")
+	public void scheduledDispatch() {
+		try {
+			while (dispatch() == batchSize) {
+				// a full batch means more may be due
+			}
+		} catch (RuntimeException e) {
+			log.warn("mail outbox dispatch failed", e);
+		}
+	}
+
+	@Override
+	public int dispatch() {
+		Date now = new Date();
+		List<MailOutbox> batch = transactionTemplate.execute(status -> {
+			List<MailOutbox> due = outboxRepository.findDueForUpdate(MailStatus.PENDING, now,
+					PageRequest.of(0, batchSize));
+			Date leaseEnd = new Date(now.getTime() + leaseMs);
+			for (MailOutbox mail : due) {
+				mail.setAttempts(mail.getAttempts() + 1);
+				mail.setNextAttemptAt(leaseEnd);
+			}
+			return due;
+		});
+		if (batch.isEmpty()) {
+			return 0;
+		}
+
+		SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+		for (int i = 0; i < messages.length; i++) {
+			MailOutbox mail = batch.get(i);
+			messages[i] = new SimpleMailMessage();
+			messages[i].setTo(mail.getRecipient());
+			messages[i].setSubject(mail.getSubject());
+			messages[i].setText(mail.getBody());
+		}
+
+		Map<Object, Exception> failures = send(messages);
+
+		Date done = new Date();
+		for (int i = 0; i < messages.length; i++) {
+			MailOutbox mail = batch.get(i);
+			Exception error = failures.get(messages[i]);
+			if (error == null) {
+				mail.setStatus(MailStatus.SENT);
+				mail.setSentAt(done);
+				mail.setLastError(null);
+				sent.increment();
+			} else {
+				failed(mail, error, done);
+			}
+		}
+		transactionTemplate.executeWithoutResult(status -> outboxRepository.saveAll(batch));
+		return batch.size();
+	}
+
+	// JavaMailSender sends an array over one connection and reports failures per message
+	private Map<Object, Exception> send(SimpleMailMessage[] messages) {
+		try {
+			mailSender.send(messages);
+			return Collections.emptyMap();
+		} catch (MailSendException e) {
+			if (!e.getFailedMessages().isEmpty()) {
+				return e.getFailedMessages();
+			}
+			return allFailed(messages, e);
+		} catch (MailException e) {
+			return allFailed(messages, e);
+		}
+	}
+
+	private static Map<Object, Exception> allFailed(SimpleMailMessage[] messages, Exception e) {
+		Map<Object, Exception> failures = new LinkedHashMap<>();
+		for (SimpleMailMessage message : messages) {
+			failures.put(message, e);
+		}
+		return failures;
+	}
+
+	private void failed(MailOutbox mail, Exception error, Date now) {
+		String message = String.valueOf(error.getMessage());
+		mail.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+		if (mail.getAttempts() >= maxAttempts) {
+			mail.setStatus(MailStatus.FAILED);
+			failed.increment();
+			log.error("giving up on email {} after {} attempts - {}", mail.getId(), mail.getAttempts(), message);
+			return;
+		}
+		// 1x, 2x, 4x ... the base backoff, capped
+		long delay = Math.min(maxBackoffMs, backoffMs << Math.min(mail.getAttempts() - 1, 30));
+		mail.setNextAttemptAt(new Date(now.getTime() + delay));
+		retried.increment();
+	}
+
+	@Scheduled(fixedDelayString = "${mail.outbox.cleanup-interval-ms:3600000}")
+	public void purgeSent() {
+		Date before = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+		int removed = outboxRepository.deleteOlderThan(MailStatus.SENT, before);
+		if (removed > 0) {
+			log.info("purged {} sent emails from the outbox", removed);
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.zosh.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zosh.model.Food;
+import com.zosh.repository.foodRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * One {@link MenuSnapshot} per restaurant. Menu writes rebuild the
+ * restaurant's snapshot once they have committed, and the new snapshot
+ * replaces the old one in a single map write, so readers see either the old
+ * menu or the new one. Changes to what a menu shows about its restaurant or
+ * ingredients only invalidate, and the next read rebuilds.
+ *
+ * Snapshots are built in their own transaction, so they never share entity
+ * instances with the request that triggered the build.
+ */
+@Component
+class MenuCache {
+
+	private final foodRepository foodRepository;
+	private final TransactionTemplate transactionTemplate;
+
+	private final ConcurrentHashMap<Long, MenuSnapshot> snapshots = new ConcurrentHashMap<>();
+	// bumped by every invalidation, so a build that raced with one is not kept
+	private final AtomicLong generation = new AtomicLong();
+
+	private final Timer builds;
+
+	public MenuCache(foodRepository foodRepository, PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry) {
+		this.foodRepository = foodRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.transactionTemplate.setReadOnly(true);
+
+		this.builds = Timer.builder("menu.snapshot.builds")
+				.description("Time to load a restaurant's menu and build its snapshot").register(meterRegistry);
+		Gauge.builder("menu.snapshot.count", snapshots, ConcurrentHashMap::size)
+				.description("Restaurant menus held in memory").register(meterRegistry);
+	}
+
+	MenuSnapshot get(Long restaurantId) {
+		MenuSnapshot snapshot = snapshots.get(restaurantId);
+		return snapshot != null ? snapshot : build(restaurantId);
+	}
+
+	// call once the write has committed
+	void rebuild(Long restaurantId) {
+		invalidate(restaurantId);
+		build(restaurantId);
+	}
+
+	void invalidate(Long restaurantId) {
+		generation.incrementAndGet();
+		snapshots.remove(restaurantId);
+	}
+
+	private MenuSnapshot build(Long restaurantId) {
+		long buildGeneration = generation.get();
+		MenuSnapshot snapshot = builds.record(() -> transactionTemplate.execute(status -> {
+			List<Food> menu = foodRepository.findByRestaurantId(restaurantId);
+			menu.sort(Comparator.comparing(Food::getId));
+			menu.forEach(EntityGraphs::initialize);
+			return new MenuSnapshot(menu);
+		}));
+		// empty menus are not kept, so unknown restaurant ids cannot fill the map
+		if (snapshot.size() > 0 && generation.get() == buildGeneration) {
+			snapshots.put(restaurantId, snapshot);
+			if (generation.get() != buildGeneration) {
+				snapshots.remove(restaurantId, snapshot);
+			}
+		}
+		return snapshot;
+	}
+
+}
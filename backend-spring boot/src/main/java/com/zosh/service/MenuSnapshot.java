@@ -0,0 +1,78 @@
+package com.zosh.service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.zosh.model.Food;
+
+/**
+ * Immutable view of one restaurant's menu. Bit i of each set says whether
+ * foods[i] has the property, so any filter combination is a few word-wise
+ * and / and-not operations over the menu instead of a pass per filter.
+ * The foods are detached and fully loaded, and must not be changed.
+ */
+final class MenuSnapshot {
+
+	private final Food[] foods;
+	private final BitSet vegetarian;
+	private final BitSet seasonal;
+	private final BitSet available;
+	private final Map<String, BitSet> byCategory;
+
+	MenuSnapshot(List<Food> menu) {
+		this.foods = menu.toArray(new Food[0]);
+		this.vegetarian = new BitSet(foods.length);
+		this.seasonal = new BitSet(foods.length);
+		this.available = new BitSet(foods.length);
+		Map<String, BitSet> categories = new HashMap<>();
+		for (int i = 0; i < foods.length; i++) {
+			Food food = foods[i];
+			vegetarian.set(i, food.isVegetarian());
+			seasonal.set(i, food.isSeasonal());
+			available.set(i, food.isAvailable());
+			if (food.getFoodCategory() != null && food.getFoodCategory().getName() != null) {
+				categories.computeIfAbsent(food.getFoodCategory().getName(), k -> new BitSet(foods.length)).set(i);
+			}
+		}
+		this.byCategory = Map.copyOf(categories);
+	}
+
+	List<Food> select(boolean vegetarianOnly, boolean nonVegetarianOnly, boolean seasonalOnly,
+			boolean availableOnly, String category) {
+		BitSet selected = new BitSet(foods.length);
+		selected.set(0, foods.length);
+		if (vegetarianOnly) {
+			selected.and(vegetarian);
+		}
+		if (nonVegetarianOnly) {
+			selected.andNot(vegetarian);
+		}
+		if (seasonalOnly) {
+			selected.and(seasonal);
+		}
+		if (availableOnly) {
+			selected.and(available);
+		}
+		if (category != null && !category.isEmpty()) {
+			BitSet inCategory = byCategory.get(category);
+			if (inCategory == null) {
+				return new ArrayList<>();
+			}
+			selected.and(inCategory);
+		}
+
+		List<Food> result = new ArrayList<>(selected.cardinality());
+		for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+			result.add(foods[i]);
+		}
+		return result;
+	}
+
+	int size() {
+		return foods.length;
+	}
+
+}
@@ -10,6 +10,7 @@ import com.zosh.model.User;
 public interface NotificationService {
 	
 	public Notification sendOrderStatusNotification(Order order);
+	public void sendOrderStatusNotifications(List<Order> orders);
 	public void sendRestaurantNotification(Restaurant restaurant, String message);
 	public void sendPromotionalNotification(User user, String message);
 	
@@ -1,6 +1,7 @@
 package com.zosh.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -11,6 +12,7 @@ import com.zosh.model.Notification;
 import com.zosh.model.Order;
 import com.zosh.model.Restaurant;
 import com.zosh.model.User;
+import com.zosh.repository.NotificationJdbcRepository;
 import com.zosh.repository.NotificationRepository;
 
 @Service
@@ -19,14 +21,29 @@ public class NotificationServiceImplementation implements NotificationService {
 	@Autowired
 	private NotificationRepository notificationRepository;
 	
+	@Autowired
+	private NotificationJdbcRepository notificationJdbcRepository;
+	
 	@Override
 	public Notification sendOrderStatusNotification(Order order) {
+		return notificationRepository.save(orderStatusNotification(order));
+	}
+	
+	@Override
+	public void sendOrderStatusNotifications(List<Order> orders) {
+		List<Notification> notifications = new ArrayList<>();
+		for (Order order : orders) {
+			notifications.add(orderStatusNotification(order));
+		}
+		notificationJdbcRepository.insertAll(notifications);
+	}
+	
+	private Notification orderStatusNotification(Order order) {
 		Notification notification = new Notification();
 		notification.setMessage("your order is "+order.getOrderStatus()+ " order id is - "+order.getId());
 		notification.setCustomer(order.getCustomer());
 		notification.setSentAt(new Date());
-		
-		return notificationRepository.save(notification);
+		return notification;
 	}
 
 	@Override
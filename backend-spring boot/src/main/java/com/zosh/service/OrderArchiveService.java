@@ -0,0 +1,8 @@
+package com.zosh.service;
+
+public interface OrderArchiveService {
+
+	// moves eligible finished orders to the archive tables, returns how many were moved
+	public int archiveOrders();
+
+}
@@ -0,0 +1,175 @@
+package com.zosh.service;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zosh.domain.OrderStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Moves finished orders out of the hot orders / orders_items / order_item
+ * tables into orders_archive and order_item_archive. Work is done in chunks,
+ * each chunk in its own short transaction, so the archiver never holds locks
+ * on more than a chunk of rows at a time.
+ */
+@Service
+public class OrderArchiveServiceImplementation implements OrderArchiveService {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderArchiveServiceImplementation.class);
+
+	private static final List<String> ARCHIVABLE = List.of(OrderStatus.COMPLETED.name(), OrderStatus.DELIVERED.name());
+
+	private static final String COUNT_ARCHIVABLE = "SELECT COUNT(*) FROM orders "
+			+ "WHERE order_status IN (:statuses) AND created_at < :cutoff";
+
+	private static final String SELECT_CHUNK = "SELECT id FROM orders "
+			+ "WHERE order_status IN (:statuses) AND created_at < :cutoff "
+			+ "ORDER BY id LIMIT :limit FOR UPDATE";
+
+	private static final String COPY_ORDERS = "INSERT INTO orders_archive "
+			+ "(id, customer_id, restaurant_id, delivery_address_id, total_amount, order_status, created_at, "
+			+ "total_item, total_price, payment_id, archived_at) "
+			+ "SELECT id, customer_id, restaurant_id, delivery_address_id, total_amount, order_status, created_at, "
+			+ "total_item, total_price, payment_id, :archivedAt FROM orders WHERE id IN (:ids)";
+
+	private static final String COPY_ITEMS = "INSERT INTO order_item_archive "
+			+ "(id, order_id, food_id, quantity, total_price, ingredients) "
+			+ "SELECT i.id, l.order_id, i.food_id, i.quantity, i.total_price, i.ingredients "
+			+ "FROM orders_items l JOIN order_item i ON i.id = l.items_id WHERE l.order_id IN (:ids)";
+
+	private static final String SELECT_ITEM_IDS = "SELECT items_id FROM orders_items WHERE order_id IN (:ids)";
+
+	private static final String DELETE_LINKS = "DELETE FROM orders_items WHERE order_id IN (:ids)";
+
+	private static final String DELETE_ITEMS = "DELETE FROM order_item WHERE id IN (:ids)";
+
+	private static final String DELETE_ORDERS = "DELETE FROM orders WHERE id IN (:ids)";
+
+	private final NamedParameterJdbcTemplate jdbc;
+	private final TransactionTemplate transactionTemplate;
+
+	private final long ageDays;
+	private final int chunkSize;
+	private final int maxChunksPerRun;
+
+	private final Counter ordersMoved;
+	private final Counter itemsMoved;
+	private final Counter failures;
+	private final Timer chunkTimer;
+	private final AtomicLong backlog = new AtomicLong();
+	private final AtomicLong lastRunOrders = new AtomicLong();
+
+	public OrderArchiveServiceImplementation(
+			JdbcTemplate jdbcTemplate,
+			PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry,
+			@Value("${order.archive.age-days:30}") long ageDays,
+			@Value("${order.archive.chunk-size:500}") int chunkSize,
+			@Value("${order.archive.max-chunks-per-run:100}") int maxChunksPerRun) {
+		this.jdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.ageDays = ageDays;
+		this.chunkSize = chunkSize;
+		this.maxChunksPerRun = maxChunksPerRun;
+
+		this.ordersMoved = Counter.builder("orders.archive.orders")
+				.description("Orders moved to the archive tables").register(meterRegistry);
+		this.itemsMoved = Counter.builder("orders.archive.items")
+				.description("Order items moved to the archive tables").register(meterRegistry);
+		this.failures = Counter.builder("orders.archive.failures")
+				.description("Archive chunks rolled back").register(meterRegistry);
+		this.chunkTimer = Timer.builder("orders.archive.chunk")
+				.description("Time to move one chunk of orders").register(meterRegistry);
+		meterRegistry.gauge("orders.archive.backlog", backlog);
+		meterRegistry.gauge("orders.archive.last.run.orders", lastRunOrders);
+	}
+
+	@Scheduled(fixedDelayString = "${order.archive.interval-ms:3600000}",
+			initialDelayString = "${order.archive.initial-delay-ms:300000}")
+	public void scheduledArchive() {
+		try {
+			archiveOrders();
+		} catch (RuntimeException e) {
+			log.error("order archive run failed", e);
+		}
+	}
+
+	@Override
+	public int archiveOrders() {
+		Timestamp cutoff = new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ageDays));
+		Map<String, Object> params = Map.of("statuses", ARCHIVABLE, "cutoff", cutoff);
+
+		Long eligible = jdbc.queryForObject(COUNT_ARCHIVABLE, params, Long.class);
+		backlog.set(eligible == null ? 0 : eligible);
+
+		int total = 0;
+		for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+			int[] moved;
+			Timer.Sample sample = Timer.start();
+			try {
+				moved = transactionTemplate.execute(status -> moveChunk(cutoff));
+			} catch (RuntimeException e) {
+				failures.increment();
+				throw e;
+			} finally {
+				sample.stop(chunkTimer);
+			}
+
+			// counted only once the chunk has committed
+			ordersMoved.increment(moved[0]);
+			itemsMoved.increment(moved[1]);
+			total += moved[0];
+			backlog.addAndGet(-moved[0]);
+			if (moved[0] < chunkSize) {
+				break;
+			}
+		}
+
+		lastRunOrders.set(total);
+		if (total > 0) {
+			log.info("archived {} orders older than {}", total, cutoff);
+		}
+		return total;
+	}
+
+	// returns { orders moved, items moved }
+	private int[] moveChunk(Timestamp cutoff) {
+		List<Long> orderIds = jdbc.queryForList(SELECT_CHUNK,
+				Map.of("statuses", ARCHIVABLE, "cutoff", cutoff, "limit", chunkSize), Long.class);
+		if (orderIds.isEmpty()) {
+			return new int[] { 0, 0 };
+		}
+
+		Map<String, Object> orders = Map.of("ids", orderIds);
+		List<Long> itemIds = jdbc.queryForList(SELECT_ITEM_IDS, orders, Long.class);
+
+		// children of orders_archive last, so the order_id foreign key is satisfied
+		jdbc.update(COPY_ORDERS, Map.of("ids", orderIds, "archivedAt", new Timestamp(System.currentTimeMillis())));
+		jdbc.update(COPY_ITEMS, orders);
+
+		jdbc.update(DELETE_LINKS, orders);
+		if (!itemIds.isEmpty()) {
+			jdbc.update(DELETE_ITEMS, Map.of("ids", itemIds));
+		}
+		jdbc.update(DELETE_ORDERS, orders);
+
+		return new int[] { orderIds.size(), itemIds.size() };
+	}
+
+}
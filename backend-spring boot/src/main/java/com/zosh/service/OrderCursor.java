@@ -0,0 +1,50 @@
+package com.zosh.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import com.zosh.Exception.OrderException;
+
+/**
+ * Opaque keyset cursor over (createdAt, id) for the newest-first order lists.
+ */
+final class OrderCursor {
+
+	private final Date createdAt;
+	private final Long id;
+
+	private OrderCursor(Date createdAt, Long id) {
+		this.createdAt = createdAt;
+		this.id = id;
+	}
+
+	Date getCreatedAt() {
+		return createdAt;
+	}
+
+	Long getId() {
+		return id;
+	}
+
+	static String encode(Date createdAt, Long id) {
+		String position = createdAt.getTime() + "_" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// null or empty means "start from the newest order"
+	static OrderCursor decode(String cursor) throws OrderException {
+		if (cursor == null || cursor.isEmpty()) {
+			return new OrderCursor(null, null);
+		}
+		try {
+			String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int split = position.indexOf('_');
+			return new OrderCursor(new Date(Long.parseLong(position.substring(0, split))),
+					Long.parseLong(position.substring(split + 1)));
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new OrderException("Invalid cursor " + cursor);
+		}
+	}
+
+}
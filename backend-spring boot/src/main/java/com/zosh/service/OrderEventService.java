@@ -0,0 +1,15 @@
+package com.zosh.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.zosh.model.Order;
+
+public interface OrderEventService {
+
+	public SseEmitter subscribe(Long restaurantId, String lastEventId);
+
+	public void orderCreated(Order order);
+
+	public void orderStatusChanged(Order order);
+
+}
@@ -0,0 +1,326 @@
+package com.zosh.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import com.zosh.domain.OrderEventType;
+import com.zosh.model.Order;
+import com.zosh.response.OrderEvent;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-memory order feed for restaurant dashboards. Each restaurant has its own
+ * channel with a bounded ring buffer of recent events, so a reconnecting
+ * client can replay everything after its Last-Event-ID. Every connection gets
+ * a bounded send queue drained on a small sender pool; a client that cannot
+ * keep up overflows its queue and is disconnected instead of holding memory.
+ * A channel nobody listens to is dropped once its buffer has gone unused for
+ * the idle timeout. The next channel for that restaurant carries on from the
+ * highest id handed out so far, so a client holding an older id never has it
+ * reused: it either picks up where it stopped or is told to resync.
+ */
+@Service
+public class OrderEventServiceImplementation implements OrderEventService {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderEventServiceImplementation.class);
+
+	private final long emitterTimeoutMs;
+	private final int replaySize;
+	private final int clientQueueCapacity;
+	private final long channelIdleMs;
+
+	private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+	// highest id handed out by any channel, where a new channel starts counting
+	private final AtomicLong highestEventId = new AtomicLong();
+	private final ThreadPoolExecutor sender;
+
+	public OrderEventServiceImplementation(
+			@Value("${order.events.timeout-ms:1800000}") long emitterTimeoutMs,
+			@Value("${order.events.replay-size:256}") int replaySize,
+			@Value("${order.events.client-queue-capacity:64}") int clientQueueCapacity,
+			@Value("${order.events.sender-threads:4}") int senderThreads,
+			@Value("${order.events.channel-idle-ms:600000}") long channelIdleMs) {
+		this.emitterTimeoutMs = emitterTimeoutMs;
+		this.replaySize = replaySize;
+		this.clientQueueCapacity = clientQueueCapacity;
+		this.channelIdleMs = channelIdleMs;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(),
+				r -> {
+					Thread t = new Thread(r, "order-events-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	@Override
+	public SseEmitter subscribe(Long restaurantId, String lastEventId) {
+		SseEmitter emitter = createEmitter();
+		Long after = parseEventId(lastEventId);
+		// a channel dropped between lookup and subscribe is replaced by a fresh one
+		while (true) {
+			Channel channel = channel(restaurantId);
+			Subscriber subscriber = new Subscriber(channel, emitter);
+			if (channel.subscribe(subscriber, after)) {
+				emitter.onCompletion(() -> channel.remove(subscriber));
+				emitter.onTimeout(() -> subscriber.close());
+				emitter.onError(e -> subscriber.close());
+				return emitter;
+			}
+		}
+	}
+
+	SseEmitter createEmitter() {
+		return new SseEmitter(emitterTimeoutMs);
+	}
+
+	@Override
+	public void orderCreated(Order order) {
+		publish(OrderEventType.ORDER_CREATED, order);
+	}
+
+	@Override
+	public void orderStatusChanged(Order order) {
+		publish(OrderEventType.ORDER_STATUS_CHANGED, order);
+	}
+
+	private void publish(OrderEventType type, Order order) {
+		Long restaurantId = order.getRestaurant().getId();
+		OrderEvent event = new OrderEvent();
+		event.setType(type);
+		event.setOrderId(order.getId());
+		event.setRestaurantId(restaurantId);
+		event.setOrderStatus(order.getOrderStatus());
+		event.setTotalAmount(order.getTotalAmount());
+		event.setCreatedAt(order.getCreatedAt());
+		while (!channel(restaurantId).publish(event)) {
+			// dropped while idle, the event goes to the channel that replaced it
+		}
+	}
+
+	// a comment line keeps proxies from closing idle connections and flushes out dead ones
+	@Scheduled(fixedDelayString = "${order.events.heartbeat-ms:15000}")
+	public void heartbeat() {
+		for (Channel channel : channels.values()) {
+			for (Subscriber subscriber : channel.subscribers) {
+				subscriber.offer(() -> SseEmitter.event().comment("heartbeat"));
+			}
+		}
+		evictIdleChannels(System.currentTimeMillis());
+	}
+
+	// drops channels without subscribers whose last event or listener is older than the idle timeout
+	void evictIdleChannels(long now) {
+		channels.forEach((restaurantId, channel) -> {
+			if (channel.retireIfIdle(now)) {
+				channels.remove(restaurantId, channel);
+			}
+		});
+	}
+
+	int channelCount() {
+		return channels.size();
+	}
+
+	private Channel channel(Long restaurantId) {
+		return channels.computeIfAbsent(restaurantId, id -> new Channel(highestEventId.get()));
+	}
+
+	private static Long parseEventId(String lastEventId) {
+		if (lastEventId == null || lastEventId.isBlank()) {
+			return null;
+		}
+		try {
+			return Long.parseLong(lastEventId.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static SseEventBuilder toSse(OrderEvent event) {
+		return SseEmitter.event()
+				.id(String.valueOf(event.getId()))
+				.name(event.getType().name())
+				.data(event);
+	}
+
+	private final class Channel {
+
+		private final ArrayDeque<OrderEvent> recent = new ArrayDeque<>();
+		private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+		private long lastId;
+		private long lastActive = System.currentTimeMillis();
+		private boolean retired;
+
+		Channel(long firstId) {
+			this.lastId = firstId;
+		}
+
+		// ids are assigned and fanned out under the channel lock, so replay and
+		// live delivery never interleave or skip an event
+		synchronized boolean publish(OrderEvent event) {
+			if (retired) {
+				return false;
+			}
+			event.setId(++lastId);
+			highestEventId.accumulateAndGet(lastId, Math::max);
+			lastActive = System.currentTimeMillis();
+			recent.addLast(event);
+			if (recent.size() > replaySize) {
+				recent.removeFirst();
+			}
+			for (Subscriber subscriber : subscribers) {
+				subscriber.offer(() -> toSse(event));
+			}
+			return true;
+		}
+
+		synchronized boolean subscribe(Subscriber subscriber, Long lastEventId) {
+			if (retired) {
+				return false;
+			}
+			lastActive = System.currentTimeMillis();
+			subscriber.offer(() -> SseEmitter.event().comment("connected"));
+			if (lastEventId != null) {
+				long oldest = recent.isEmpty() ? lastId + 1 : recent.peekFirst().getId();
+				if (lastEventId < oldest - 1 || lastEventId > lastId) {
+					OrderEvent resync = new OrderEvent();
+					resync.setId(lastId);
+					resync.setType(OrderEventType.RESYNC);
+					subscriber.offer(() -> toSse(resync));
+				} else {
+					for (OrderEvent event : recent) {
+						if (event.getId() > lastEventId) {
+							subscriber.offer(() -> toSse(event));
+						}
+					}
+				}
+			}
+			if (!subscriber.closed.get()) {
+				subscribers.add(subscriber);
+			}
+			return true;
+		}
+
+		synchronized void remove(Subscriber subscriber) {
+			if (subscribers.remove(subscriber)) {
+				lastActive = System.currentTimeMillis();
+			}
+		}
+
+		synchronized boolean retireIfIdle(long now) {
+			if (subscribers.isEmpty() && now - lastActive >= channelIdleMs) {
+				retired = true;
+			}
+			return retired;
+		}
+	}
+
+	private final class Subscriber {
+
+		private final Channel channel;
+		private final SseEmitter emitter;
+		// builders are single use, so each send builds its own
+		private final BlockingQueue<Supplier<SseEventBuilder>> queue;
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		Subscriber(Channel channel, SseEmitter emitter) {
+			this.channel = channel;
+			this.emitter = emitter;
+			this.queue = new ArrayBlockingQueue<>(clientQueueCapacity);
+		}
+
+		void offer(Supplier<SseEventBuilder> event) {
+			if (closed.get()) {
+				return;
+			}
+			if (!queue.offer(event)) {
+				log.warn("order event queue full, dropping slow dashboard client");
+				close();
+				return;
+			}
+			scheduleDrain();
+		}
+
+		private void scheduleDrain() {
+			if (draining.compareAndSet(false, true)) {
+				try {
+					sender.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					close();
+				}
+			}
+		}
+
+		private void drain() {
+			while (true) {
+				Supplier<SseEventBuilder> event = queue.poll();
+				if (event == null) {
+					draining.set(false);
+					// an offer may have landed between poll() and set(false)
+					if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+						return;
+					}
+					continue;
+				}
+				if (closed.get()) {
+					queue.clear();
+					continue;
+				}
+				try {
+					emitter.send(event.get());
+				} catch (IOException | IllegalStateException e) {
+					close();
+				}
+			}
+		}
+
+		// the client reconnects with Last-Event-ID and catches up from the ring buffer
+		void close() {
+			if (closed.compareAndSet(false, true)) {
+				channel.remove(this);
+				queue.clear();
+				try {
+					emitter.complete();
+				} catch (IllegalStateException e) {
+					// already completed by the container
+				}
+			}
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		for (Channel channel : channels.values()) {
+			channel.subscribers.forEach(Subscriber::close);
+		}
+		sender.shutdown();
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.zosh.service;
+
+import com.zosh.Exception.OrderException;
+import com.zosh.response.OrderHistoryPageResponse;
+
+public interface OrderHistoryService {
+
+	public OrderHistoryPageResponse getUserOrderHistory(Long userId, String cursor, int size) throws OrderException;
+
+}
@@ -0,0 +1,83 @@
+package com.zosh.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.Exception.OrderException;
+import com.zosh.repository.OrderRepository;
+import com.zosh.repository.foodRepository;
+import com.zosh.response.OrderHistoryItemResponse;
+import com.zosh.response.OrderHistoryPageResponse;
+import com.zosh.response.OrderHistoryResponse;
+
+/**
+ * Customer order history built from projections: one query for the page of
+ * orders, one for their items and one for the food thumbnails, whatever the
+ * page size.
+ */
+@Service
+public class OrderHistoryServiceImplementation implements OrderHistoryService {
+
+	private static final int MAX_PAGE_SIZE = 50;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private foodRepository foodRepository;
+
+	@Override
+	@Transactional(readOnly = true)
+	public OrderHistoryPageResponse getUserOrderHistory(Long userId, String cursor, int size) throws OrderException {
+		OrderCursor position = OrderCursor.decode(cursor);
+
+		int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		List<OrderHistoryResponse> orders = position.getId() == null
+				? orderRepository.findFirstOrderHistoryPage(userId, PageRequest.of(0, pageSize))
+				: orderRepository.findOrderHistoryPageAfter(userId, position.getCreatedAt(), position.getId(),
+						PageRequest.of(0, pageSize));
+		if (orders.isEmpty()) {
+			return new OrderHistoryPageResponse(orders, null);
+		}
+
+		Map<Long, OrderHistoryResponse> byId = new LinkedHashMap<>();
+		for (OrderHistoryResponse order : orders) {
+			byId.put(order.getId(), order);
+		}
+
+		List<OrderHistoryItemResponse> items = orderRepository.findOrderHistoryItems(byId.keySet());
+		Set<Long> foodIds = items.stream()
+				.map(OrderHistoryItemResponse::getFoodId)
+				.filter(id -> id != null)
+				.collect(Collectors.toSet());
+
+		Map<Long, String> thumbnails = new HashMap<>();
+		if (!foodIds.isEmpty()) {
+			for (Object[] row : foodRepository.findImagesByFoodIds(foodIds)) {
+				thumbnails.putIfAbsent((Long) row[0], (String) row[1]);
+			}
+		}
+
+		for (OrderHistoryItemResponse item : items) {
+			item.setFoodImage(thumbnails.get(item.getFoodId()));
+			byId.get(item.getOrderId()).getItems().add(item);
+		}
+
+		String nextCursor = null;
+		if (orders.size() == pageSize) {
+			OrderHistoryResponse last = orders.get(orders.size() - 1);
+			nextCursor = OrderCursor.encode(last.getCreatedAt(), last.getId());
+		}
+		return new OrderHistoryPageResponse(orders, nextCursor);
+	}
+
+}
@@ -12,18 +12,24 @@ import com.zosh.model.Order;
 import com.zosh.model.PaymentResponse;
 import com.zosh.model.User;
 import com.zosh.request.CreateOrderRequest;
+import com.zosh.response.BulkOrderStatusResponse;
+import com.zosh.response.OrderPageResponse;
 
 public interface OrderService {
 	
-	 public PaymentResponse createOrder(CreateOrderRequest order, User user) throws UserException, RestaurantException, CartException, StripeException, RazorpayException;
+	 public PaymentResponse createOrder(CreateOrderRequest order, User user, boolean asyncPayment, String idempotencyKey) throws UserException, RestaurantException, CartException, StripeException, RazorpayException, OrderException;
 	 
-	 public Order updateOrder(Long orderId, String orderStatus) throws OrderException;
+	 public Order updateOrder(Long orderId, String orderStatus, String expectedStatus) throws OrderException;
+	 
+	 public BulkOrderStatusResponse updateOrders(List<Long> orderIds, String orderStatus) throws OrderException;
 	 
 	 public void cancelOrder(Long orderId) throws OrderException;
 	 
-	 public List<Order> getUserOrders(Long userId) throws OrderException;
+	 public List<Order> getUserOrders(Long userId, boolean includeArchived) throws OrderException;
+	 
+	 public List<Order> getOrdersOfRestaurant(Long restaurantId,String orderStatus,boolean includeArchived) throws OrderException, RestaurantException;
 	 
-	 public List<Order> getOrdersOfRestaurant(Long restaurantId,String orderStatus) throws OrderException, RestaurantException;
+	 public OrderPageResponse getOrdersOfRestaurant(Long restaurantId,String orderStatus,String cursor,int size) throws OrderException;
 	 
 
 }
@@ -1,49 +1,73 @@
 package com.zosh.service;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import com.razorpay.RazorpayException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stripe.exception.StripeException;
 import com.zosh.Exception.CartException;
 import com.zosh.Exception.OrderException;
 import com.zosh.Exception.RestaurantException;
 import com.zosh.Exception.UserException;
+import com.zosh.domain.OrderStatus;
+import com.zosh.domain.PaymentLinkStatus;
 import com.zosh.model.Address;
-import com.zosh.model.Cart;
-import com.zosh.model.CartItem;
-import com.zosh.model.Notification;
+import com.zosh.model.ArchivedOrder;
+import com.zosh.model.ArchivedOrderItem;
 import com.zosh.model.Order;
 import com.zosh.model.OrderItem;
 import com.zosh.model.PaymentResponse;
 import com.zosh.model.Restaurant;
 import com.zosh.model.User;
 import com.zosh.repository.AddressRepository;
+import com.zosh.repository.ArchivedOrderRepository;
 import com.zosh.repository.CartRepository;
-import com.zosh.repository.OrderItemRepository;
+import com.zosh.repository.OrderJdbcRepository;
 import com.zosh.repository.OrderRepository;
 import com.zosh.repository.RestaurantRepository;
 import com.zosh.repository.UserRepository;
 import com.zosh.request.CreateOrderRequest;
+import com.zosh.response.BulkOrderStatusResponse;
+import com.zosh.response.BulkOrderStatusResult;
+import com.zosh.response.OrderPageResponse;
 
 @Service
 public class OrderServiceImplementation implements OrderService {
 
+	private static final int MAX_PAGE_SIZE = 100;
+	private static final int MAX_BULK_UPDATE = 200;
+
+	private static final Comparator<Order> NEWEST_FIRST = Comparator
+			.comparing(Order::getCreatedAt, Comparator.nullsLast(Comparator.<Date>reverseOrder()))
+			.thenComparing(Order::getId, Comparator.reverseOrder());
+
 	@Autowired
 	private AddressRepository addressRepository;
 	@Autowired
 	private CartSerive cartService;
 	@Autowired
-	private OrderItemRepository orderItemRepository;
+	private OrderJdbcRepository orderJdbcRepository;
 	@Autowired
 	private OrderRepository orderRepository;
 	@Autowired
+	private ArchivedOrderRepository archivedOrderRepository;
+	@Autowired
 	private RestaurantRepository restaurantRepository;
 
 	@Autowired
@@ -52,13 +76,75 @@ public class OrderServiceImplementation implements OrderService {
 	@Autowired
 	private PaymentService paymentSerive;
 
+	@Autowired
+	private PaymentLinkService paymentLinkService;
+
 	@Autowired
 	private NotificationService notificationService;
 
+	@Autowired
+	private OrderEventService orderEventService;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private RevenueRollupService revenueRollupService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	@Override
-	public PaymentResponse createOrder(CreateOrderRequest order, User user)
+	public PaymentResponse createOrder(CreateOrderRequest order, User user, boolean asyncPayment, String idempotencyKey)
+			throws UserException, RestaurantException, CartException, StripeException, RazorpayException,
+			OrderException {
+
+		if (idempotencyKey == null || idempotencyKey.isBlank()) {
+			return placeOrder(order, user, asyncPayment, orderId -> {});
+		}
+
+		try {
+			return idempotencyService.execute(user.getId(), idempotencyKey.trim(), requestHash(order, asyncPayment),
+					new IdempotencyService.Checkout() {
+
+						@Override
+						public PaymentResponse run(IdempotencyService.Claim claim) throws Exception {
+							return placeOrder(order, user, asyncPayment, claim);
+						}
+
+						// the order is there, only its payment link is missing
+						@Override
+						public PaymentResponse resume(Long orderId) throws Exception {
+							return paymentLinkService.requestPaymentLink(findOrderById(orderId));
+						}
+					});
+		} catch (UserException | RestaurantException | CartException | StripeException | RazorpayException
+				| OrderException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private String requestHash(CreateOrderRequest order, boolean asyncPayment) {
+		try {
+			byte[] body = objectMapper.writeValueAsBytes(order);
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(body);
+			digest.update((byte) (asyncPayment ? 1 : 0));
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (JsonProcessingException | NoSuchAlgorithmException e) {
+			throw new IllegalStateException("could not hash order request", e);
+		}
+	}
+
+	private PaymentResponse placeOrder(CreateOrderRequest order, User user, boolean asyncPayment,
+			IdempotencyService.Claim claim)
 			throws UserException, RestaurantException, CartException, StripeException, RazorpayException {
 
+		// the validated lines, copied while the cart was locked; edits made from now on are not part of this order
+		List<OrderItem> orderItems = cartService.checkoutItems(user.getId());
+
 		Address shippAddress = order.getDeliveryAddress();
 		Address savedAddress;
 
@@ -116,48 +202,44 @@ public class OrderServiceImplementation implements OrderService {
 
 		System.out.println("user addresses --------------  " + user.getAddresses());
 
-		Optional<Restaurant> restaurant = restaurantRepository.findById(order.getRestaurantId());
-		if (restaurant.isEmpty()) {
+		if (!restaurantRepository.existsById(order.getRestaurantId())) {
 			throw new RestaurantException("Restaurant not found with id " + order.getRestaurantId());
 		}
+		Restaurant restaurant = restaurantRepository.getReferenceById(order.getRestaurantId());
 
 		Order createdOrder = new Order();
 
 		createdOrder.setCustomer(user);
 		createdOrder.setDeliveryAddress(savedAddress);
 		createdOrder.setCreatedAt(new Date());
-		createdOrder.setOrderStatus("PENDING");
-		createdOrder.setRestaurant(restaurant.get());
-
-		Cart cart = cartService.findCartByUserId(user.getId());
-
-		List<OrderItem> orderItems = new ArrayList<>();
-
-		for (CartItem cartItem : cart.getItems()) {
-			OrderItem orderItem = new OrderItem();
-			orderItem.setFood(cartItem.getFood());
-			orderItem.setIngredients(cartItem.getIngredients());
-			orderItem.setQuantity(cartItem.getQuantity());
-			orderItem.setTotalPrice(cartItem.getFood().getPrice() * cartItem.getQuantity());
+		createdOrder.setOrderStatus(OrderStatus.PENDING);
+		createdOrder.setRestaurant(restaurant);
 
-			OrderItem savedOrderItem = orderItemRepository.save(orderItem);
-			orderItems.add(savedOrderItem);
+		// summed from the lines, as validated, rather than the cart's kept total
+		long total = 0;
+		for (OrderItem orderItem : orderItems) {
+			total += orderItem.getTotalPrice();
 		}
 
-		Long totalPrice = cartService.calculateCartTotals(cart);
-
-		createdOrder.setTotalAmount(totalPrice);
-		createdOrder.setRestaurant(restaurant.get());
-
+		createdOrder.setTotalAmount(total);
 		createdOrder.setItems(orderItems);
-		Order savedOrder = orderRepository.save(createdOrder);
 
-		restaurant.get().getOrders().add(savedOrder);
+		// order, items and join rows go out as one transaction with a fixed
+		// statement count; Restaurant.orders is never loaded
+		Order savedOrder = orderJdbcRepository.insertOrder(createdOrder);
+		claim.orderCreated(savedOrder.getId());
+		orderEventService.orderCreated(savedOrder);
+		revenueRollupService.orderCreated(savedOrder);
 
-		restaurantRepository.save(restaurant.get());
+		if (asyncPayment) {
+			// link is created on the payment executor, clients poll /api/order/{id}/payment
+			return paymentLinkService.requestPaymentLink(savedOrder);
+		}
 
 		// Stripe
 		PaymentResponse res = paymentSerive.generatePaymentLink(savedOrder);
+		res.setOrderId(savedOrder.getId());
+		res.setStatus(PaymentLinkStatus.READY);
 
 		// Razorpay gateway
 		// PaymentResponse res=paymentSerive.createRazorpayPaymentLink(savedOrder);
@@ -185,25 +267,79 @@ public class OrderServiceImplementation implements OrderService {
 	}
 
 	@Override
-	public List<Order> getUserOrders(Long userId) throws OrderException {
+	public List<Order> getUserOrders(Long userId, boolean includeArchived) throws OrderException {
 		List<Order> orders = orderRepository.findAllUserOrders(userId);
+		if (includeArchived) {
+			orders = withArchived(orders, archivedOrderRepository.findAllUserOrders(userId));
+		}
 		return orders;
 	}
 
 	@Override
-	public List<Order> getOrdersOfRestaurant(Long restaurantId, String orderStatus)
+	public List<Order> getOrdersOfRestaurant(Long restaurantId, String orderStatus, boolean includeArchived)
 			throws OrderException, RestaurantException {
 
-		List<Order> orders = orderRepository.findOrdersByRestaurantId(restaurantId);
-
-		if (orderStatus != null) {
-			orders = orders.stream()
-					.filter(order -> order.getOrderStatus().equals(orderStatus))
-					.collect(Collectors.toList());
+		OrderStatus status = parseStatusFilter(orderStatus);
+		List<Order> orders = orderRepository.findOrdersByRestaurantIdAndStatus(restaurantId, status);
+		if (!includeArchived) {
+			return orders;
 		}
 
+		return withArchived(orders, archivedOrderRepository.findOrdersByRestaurantIdAndStatus(restaurantId, status));
+	}
+
+	// unfinished orders stay hot however old they get, so the two lists overlap in time and are sorted together
+	static List<Order> withArchived(List<Order> hot, List<ArchivedOrder> archived) {
+		List<Order> orders = new ArrayList<>(hot);
+		for (ArchivedOrder archivedOrder : archived) {
+			orders.add(toOrder(archivedOrder));
+		}
+		orders.sort(NEWEST_FIRST);
 		return orders;
 	}
+
+	private static Order toOrder(ArchivedOrder archived) {
+		List<OrderItem> items = new ArrayList<>();
+		for (ArchivedOrderItem archivedItem : archived.getItems()) {
+			items.add(new OrderItem(archivedItem.getId(), archivedItem.getFood(), archivedItem.getQuantity(),
+					archivedItem.getTotalPrice(), archivedItem.getIngredients()));
+		}
+		return new Order(archived.getId(), archived.getCustomer(), archived.getRestaurant(),
+				archived.getTotalAmount(), archived.getOrderStatus(), archived.getCreatedAt(),
+				archived.getDeliveryAddress(), items, archived.getPayment(), archived.getTotalItem(),
+				archived.getTotalPrice());
+	}
+
+	@Override
+	public OrderPageResponse getOrdersOfRestaurant(Long restaurantId, String orderStatus, String cursor, int size)
+			throws OrderException {
+
+		OrderCursor position = OrderCursor.decode(cursor);
+
+		OrderStatus status = parseStatusFilter(orderStatus);
+		int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		PageRequest page = PageRequest.of(0, pageSize);
+		List<Order> orders;
+		if (status == null) {
+			orders = position.getId() == null
+					? orderRepository.findFirstOrdersPageByRestaurantId(restaurantId, page)
+					: orderRepository.findOrdersPageByRestaurantIdAfter(restaurantId, position.getCreatedAt(),
+							position.getId(), page);
+		} else {
+			orders = position.getId() == null
+					? orderRepository.findFirstOrdersPageByRestaurantIdAndStatus(restaurantId, status, page)
+					: orderRepository.findOrdersPageByRestaurantIdAndStatusAfter(restaurantId, status,
+							position.getCreatedAt(), position.getId(), page);
+		}
+
+		String nextCursor = null;
+		if (orders.size() == pageSize) {
+			Order last = orders.get(orders.size() - 1);
+			nextCursor = OrderCursor.encode(last.getCreatedAt(), last.getId());
+		}
+		return new OrderPageResponse(orders, nextCursor);
+	}
+
 	// private List<MenuItem> filterByVegetarian(List<MenuItem> menuItems, boolean
 	// isVegetarian) {
 	// return menuItems.stream()
@@ -212,19 +348,144 @@ public class OrderServiceImplementation implements OrderService {
 	// }
 
 	@Override
-	public Order updateOrder(Long orderId, String orderStatus) throws OrderException {
+	public Order updateOrder(Long orderId, String orderStatus, String expectedStatus) throws OrderException {
+		OrderStatus next = parseTarget(orderStatus);
+
+		// one conditional UPDATE; the row is only read afterwards to explain a rejection
+		int updated;
+		if (expectedStatus != null) {
+			OrderStatus expected = parseStatus(expectedStatus);
+			if (!expected.canTransitionTo(next)) {
+				throw new OrderException("Cannot move order " + orderId + " from " + expected + " to " + next);
+			}
+			updated = orderRepository.compareAndSetStatus(orderId, expected, next);
+		} else {
+			updated = orderRepository.transitionStatus(orderId, next, next.allowedPredecessors());
+		}
+
+		if (updated == 0) {
+			Optional<OrderStatus> current = orderRepository.findStatusById(orderId);
+			if (current.isEmpty()) {
+				throw new OrderException("Order not found with the id " + orderId);
+			}
+			throw new OrderException("Cannot move order " + orderId + " from " + current.get() + " to " + next);
+		}
+
 		Order order = findOrderById(orderId);
+		notificationService.sendOrderStatusNotification(order);
+		orderEventService.orderStatusChanged(order);
+		revenueRollupService.orderStatusChanged(order);
+		return order;
+	}
+
+	@Override
+	public BulkOrderStatusResponse updateOrders(List<Long> orderIds, String orderStatus) throws OrderException {
+		OrderStatus next = parseTarget(orderStatus);
+		if (orderIds == null || orderIds.isEmpty()) {
+			throw new OrderException("Please provide the orders to update");
+		}
+		List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+		if (ids.size() > MAX_BULK_UPDATE) {
+			throw new OrderException("At most " + MAX_BULK_UPDATE + " orders can be updated at once");
+		}
 
-		System.out.println("--------- " + orderStatus);
+		// one read of the current statuses, then one batch of conditional updates
+		Map<Long, Order> current = new HashMap<>();
+		for (Object[] row : orderRepository.findStatusRowsByIdIn(ids)) {
+			current.put((Long) row[0], statusRow(row));
+		}
+
+		Map<Long, BulkOrderStatusResult> results = new LinkedHashMap<>();
+		List<Long> candidates = new ArrayList<>();
+		List<OrderStatus> expected = new ArrayList<>();
+		for (Long id : ids) {
+			Order order = current.get(id);
+			if (order == null) {
+				results.put(id, new BulkOrderStatusResult(id, false, null, null, "Order not found with the id " + id));
+			} else if (!order.getOrderStatus().canTransitionTo(next)) {
+				results.put(id, new BulkOrderStatusResult(id, false, order.getOrderStatus(), order.getOrderStatus(),
+						"Cannot move order " + id + " from " + order.getOrderStatus() + " to " + next));
+			} else {
+				candidates.add(id);
+				expected.add(order.getOrderStatus());
+			}
+		}
 
-		if (orderStatus.equals("OUT_FOR_DELIVERY") || orderStatus.equals("DELIVERED")
-				|| orderStatus.equals("COMPLETED") || orderStatus.equals("PENDING")) {
-			order.setOrderStatus(orderStatus);
-			Notification notification = notificationService.sendOrderStatusNotification(order);
-			return orderRepository.save(order);
-		} else
+		List<Order> updated = new ArrayList<>();
+		if (!candidates.isEmpty()) {
+			int[] counts = orderJdbcRepository.compareAndSetStatuses(candidates, expected, next);
+			for (int i = 0; i < candidates.size(); i++) {
+				Long id = candidates.get(i);
+				if (counts[i] == 0) {
+					results.put(id, new BulkOrderStatusResult(id, false, expected.get(i), null,
+							"Order " + id + " was changed by someone else, reload and retry"));
+					continue;
+				}
+				Order order = current.get(id);
+				order.setOrderStatus(next);
+				updated.add(order);
+				results.put(id, new BulkOrderStatusResult(id, true, expected.get(i), next, null));
+			}
+		}
+
+		if (!updated.isEmpty()) {
+			notificationService.sendOrderStatusNotifications(updated);
+			for (Order order : updated) {
+				orderEventService.orderStatusChanged(order);
+				revenueRollupService.orderStatusChanged(order);
+			}
+		}
+
+		List<BulkOrderStatusResult> ordered = new ArrayList<>();
+		for (Long id : ids) {
+			ordered.add(results.get(id));
+		}
+		return new BulkOrderStatusResponse(updated.size(), ordered.size() - updated.size(), ordered);
+	}
+
+	// detached Order carrying just what notifications, events and rollups read
+	private static Order statusRow(Object[] row) {
+		Order order = new Order();
+		order.setId((Long) row[0]);
+		order.setOrderStatus((OrderStatus) row[1]);
+		if (row[2] != null) {
+			User customer = new User();
+			customer.setId((Long) row[2]);
+			order.setCustomer(customer);
+		}
+		if (row[3] != null) {
+			Restaurant restaurant = new Restaurant();
+			restaurant.setId((Long) row[3]);
+			order.setRestaurant(restaurant);
+		}
+		order.setCreatedAt((Date) row[4]);
+		order.setTotalAmount((Long) row[5]);
+		return order;
+	}
+
+	private OrderStatus parseStatus(String orderStatus) throws OrderException {
+		try {
+			return OrderStatus.valueOf(orderStatus);
+		} catch (IllegalArgumentException | NullPointerException e) {
 			throw new OrderException("Please Select A Valid Order Status");
+		}
+	}
 
+	// a status an update may move orders to; PENDING is only ever the first status, CANCELLED goes through cancelOrder
+	private OrderStatus parseTarget(String orderStatus) throws OrderException {
+		OrderStatus next = parseStatus(orderStatus);
+		if (next.allowedPredecessors().isEmpty()) {
+			throw new OrderException(next == OrderStatus.CANCELLED ? "Cancel the order instead of setting it to CANCELLED"
+					: "No order can be moved to " + next);
+		}
+		return next;
+	}
+
+	private OrderStatus parseStatusFilter(String orderStatus) throws OrderException {
+		if (orderStatus == null || orderStatus.isEmpty()) {
+			return null;
+		}
+		return parseStatus(orderStatus);
 	}
 
 }
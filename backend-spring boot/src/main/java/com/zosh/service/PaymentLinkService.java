@@ -0,0 +1,17 @@
+package com.zosh.service;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.zosh.Exception.OrderException;
+import com.zosh.model.Order;
+import com.zosh.model.PaymentResponse;
+
+public interface PaymentLinkService {
+
+	public PaymentResponse requestPaymentLink(Order order);
+
+	public PaymentResponse getPaymentLink(Long orderId, Long userId) throws OrderException;
+
+	public CompletableFuture<PaymentResponse> awaitPaymentLink(Long orderId, Long userId) throws OrderException;
+
+}
@@ -0,0 +1,197 @@
+package com.zosh.service;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.zosh.Exception.OrderException;
+import com.zosh.domain.PaymentLinkStatus;
+import com.zosh.model.Order;
+import com.zosh.model.Payment;
+import com.zosh.model.PaymentResponse;
+import com.zosh.repository.OrderRepository;
+import com.zosh.repository.PaymentRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Creates payment links off the request thread. Gateway calls run on a fixed
+ * size pool with a bounded queue; when the queue is full the link is created
+ * on the request thread instead, which slows callers down rather than piling
+ * up work or failing the link. Finished links are stored on the Payment row so
+ * they survive after the in-flight entry is dropped. A link is only handed out
+ * once it is stored: if the row cannot be written after save-attempts tries,
+ * waiting clients get FAILED and start again.
+ */
+@Service
+public class PaymentLinkServiceImplementation implements PaymentLinkService {
+
+	private static final Logger log = LoggerFactory.getLogger(PaymentLinkServiceImplementation.class);
+
+	private final PaymentService paymentService;
+	private final PaymentRepository paymentRepository;
+	private final OrderRepository orderRepository;
+
+	private final int saveAttempts;
+	private final long saveBackoffMs;
+
+	private final ThreadPoolExecutor executor;
+	private final Map<Long, CompletableFuture<PaymentResponse>> inFlight = new ConcurrentHashMap<>();
+
+	public PaymentLinkServiceImplementation(
+			PaymentService paymentService,
+			PaymentRepository paymentRepository,
+			OrderRepository orderRepository,
+			@Value("${payment.link.pool-size:8}") int poolSize,
+			@Value("${payment.link.queue-capacity:200}") int queueCapacity,
+			@Value("${payment.link.save-attempts:3}") int saveAttempts,
+			@Value("${payment.link.save-backoff-ms:100}") long saveBackoffMs) {
+		this.paymentService = paymentService;
+		this.paymentRepository = paymentRepository;
+		this.orderRepository = orderRepository;
+		this.saveAttempts = Math.max(1, saveAttempts);
+		this.saveBackoffMs = saveBackoffMs;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				r -> {
+					Thread t = new Thread(r, "payment-link-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				},
+				new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	@Override
+	public PaymentResponse requestPaymentLink(Order order) {
+		Long orderId = order.getId();
+		CompletableFuture<PaymentResponse> link = new CompletableFuture<>();
+		inFlight.put(orderId, link);
+
+		try {
+			executor.execute(() -> createLink(order, link));
+		} catch (RejectedExecutionException e) {
+			// queue full, fall back to the synchronous path
+			createLink(order, link);
+			return link.join();
+		}
+		return response(orderId, null, PaymentLinkStatus.PENDING);
+	}
+
+	private void createLink(Order order, CompletableFuture<PaymentResponse> link) {
+		PaymentResponse res;
+		try {
+			PaymentResponse gateway = paymentService.generatePaymentLink(order);
+			res = response(order.getId(), gateway.getPayment_url(), PaymentLinkStatus.READY);
+		} catch (Exception e) {
+			log.warn("payment link failed for order {}", order.getId(), e);
+			res = response(order.getId(), null, PaymentLinkStatus.FAILED);
+		}
+		finish(order, link, res);
+	}
+
+	// persist before leaving the in-flight map so a poll never falls in between
+	private void finish(Order order, CompletableFuture<PaymentResponse> link, PaymentResponse res) {
+		try {
+			if (!save(order, res)) {
+				// a link that is not stored would be lost to every later poll
+				res = response(order.getId(), null, PaymentLinkStatus.FAILED);
+			}
+		} finally {
+			inFlight.remove(order.getId());
+			link.complete(res);
+		}
+	}
+
+	private boolean save(Order order, PaymentResponse res) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				Payment payment = new Payment();
+				payment.setOrderId(order.getId());
+				payment.setPaymentMethod("STRIPE");
+				payment.setPaymentStatus(res.getStatus().name());
+				payment.setPaymentUrl(res.getPayment_url());
+				payment.setTotalAmount(order.getTotalAmount() == null ? 0 : order.getTotalAmount());
+				payment.setCreatedAt(new Date());
+				paymentRepository.save(payment);
+				return true;
+			} catch (RuntimeException e) {
+				if (attempt >= saveAttempts) {
+					log.error("could not store the payment link for order {} after {} attempts", order.getId(),
+							attempt, e);
+					return false;
+				}
+				log.warn("storing the payment link for order {} failed, retrying", order.getId(), e);
+				try {
+					Thread.sleep(saveBackoffMs * attempt);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+	}
+
+	@Override
+	public PaymentResponse getPaymentLink(Long orderId, Long userId) throws OrderException {
+		checkOwner(orderId, userId);
+
+		if (inFlight.containsKey(orderId)) {
+			return response(orderId, null, PaymentLinkStatus.PENDING);
+		}
+		return storedLink(orderId);
+	}
+
+	@Override
+	public CompletableFuture<PaymentResponse> awaitPaymentLink(Long orderId, Long userId) throws OrderException {
+		checkOwner(orderId, userId);
+
+		CompletableFuture<PaymentResponse> link = inFlight.get(orderId);
+		if (link != null) {
+			return link;
+		}
+		return CompletableFuture.completedFuture(storedLink(orderId));
+	}
+
+	private PaymentResponse storedLink(Long orderId) throws OrderException {
+		Optional<Payment> payment = paymentRepository.findFirstByOrderIdOrderByIdDesc(orderId);
+		if (payment.isEmpty()) {
+			throw new OrderException("No payment link requested for order " + orderId);
+		}
+		return response(orderId, payment.get().getPaymentUrl(),
+				PaymentLinkStatus.valueOf(payment.get().getPaymentStatus()));
+	}
+
+	private void checkOwner(Long orderId, Long userId) throws OrderException {
+		if (!orderRepository.existsByIdAndCustomerId(orderId, userId)) {
+			throw new OrderException("Order not found with the id " + orderId);
+		}
+	}
+
+	private PaymentResponse response(Long orderId, String url, PaymentLinkStatus status) {
+		PaymentResponse res = new PaymentResponse();
+		res.setOrderId(orderId);
+		res.setPayment_url(url);
+		res.setStatus(status);
+		return res;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+}
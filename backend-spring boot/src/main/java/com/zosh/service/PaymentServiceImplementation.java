@@ -8,10 +8,12 @@ import com.zosh.model.PaymentResponse;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.checkout.SessionCreateParams;
 import com.zosh.model.User;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
@@ -22,6 +24,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @Service
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "stripe", matchIfMissing = true)
 public class PaymentServiceImplementation implements PaymentService {
 
 	@Value("${stripe.api.key}")
@@ -55,7 +58,12 @@ public class PaymentServiceImplementation implements PaymentService {
 						.build())
 				.build();
 
-		Session session = Session.create(params);
+		// Stripe dedupes on this key, so a retried link request for the same order reuses the session
+		RequestOptions options = RequestOptions.builder()
+				.setIdempotencyKey("checkout-session-order-" + order.getId())
+				.build();
+
+		Session session = Session.create(params, options);
 
 		System.out.println("session _____ " + session);
 
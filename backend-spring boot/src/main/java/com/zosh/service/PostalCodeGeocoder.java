@@ -0,0 +1,91 @@
+package com.zosh.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import com.zosh.model.Address;
+
+/**
+ * Offline geocoding from a bundled table of postal code centroids. Good
+ * enough to place a restaurant in the right neighbourhood for nearby search;
+ * addresses with exact coordinates keep them.
+ */
+@Component
+class PostalCodeGeocoder {
+
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	public PostalCodeGeocoder(@Value("${geo.postal-codes:classpath:geo/postal-codes.csv}") Resource table) {
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(table.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank() || line.startsWith("#")) {
+					continue;
+				}
+				String[] columns = line.split(",");
+				entries.put(normalize(columns[2]), new Entry(columns[0].trim(), columns[1].trim(),
+						Double.parseDouble(columns[3].trim()), Double.parseDouble(columns[4].trim())));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("cannot read postal code table " + table, e);
+		}
+	}
+
+	/**
+	 * Sets the address's coordinates from its postal code if it has none.
+	 * Returns whether the address has coordinates afterwards.
+	 */
+	boolean locate(Address address) {
+		if (address == null) {
+			return false;
+		}
+		if (address.getLatitude() != null && address.getLongitude() != null) {
+			return true;
+		}
+		Entry entry = address.getPostalCode() == null ? null : entries.get(normalize(address.getPostalCode()));
+		if (entry == null || !entry.matches(address.getCountry())) {
+			return false;
+		}
+		address.setLatitude(entry.latitude);
+		address.setLongitude(entry.longitude);
+		return true;
+	}
+
+	private static String normalize(String postalCode) {
+		return postalCode.replaceAll("\\s+", "").toUpperCase(Locale.ROOT);
+	}
+
+	private static final class Entry {
+
+		private final String countryCode;
+		private final String country;
+		private final double latitude;
+		private final double longitude;
+
+		Entry(String countryCode, String country, double latitude, double longitude) {
+			this.countryCode = countryCode;
+			this.country = country;
+			this.latitude = latitude;
+			this.longitude = longitude;
+		}
+
+		// addresses without a country are taken to be in the table's country
+		boolean matches(String addressCountry) {
+			return addressCountry == null || addressCountry.isBlank()
+					|| addressCountry.trim().equalsIgnoreCase(countryCode)
+					|| addressCountry.trim().equalsIgnoreCase(country);
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.zosh.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.zosh.Exception.RestaurantException;
+import com.zosh.domain.RestaurantSort;
+
+/**
+ * Opaque keyset cursor for the restaurant listing: the sort it belongs to, the
+ * last row's sort key (name or rating, none for NEWEST) and its id.
+ */
+final class RestaurantCursor {
+
+	private final String key;
+	private final Long id;
+
+	private RestaurantCursor(String key, Long id) {
+		this.key = key;
+		this.id = id;
+	}
+
+	String getKey() {
+		return key;
+	}
+
+	Double getRating() {
+		return key == null ? null : Double.valueOf(key);
+	}
+
+	Long getId() {
+		return id;
+	}
+
+	// a null key (a restaurant without a name) is told apart from an empty one by the missing separator
+	static String encode(RestaurantSort sort, String key, Long id) {
+		String position = sort.name() + "_" + id + (key == null ? "" : "_" + key);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// null or empty means "start from the first restaurant"
+	static RestaurantCursor decode(RestaurantSort sort, String cursor) throws RestaurantException {
+		if (cursor == null || cursor.isEmpty()) {
+			return new RestaurantCursor(null, null);
+		}
+		try {
+			String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] parts = position.split("_", 3);
+			if (!parts[0].equals(sort.name())) {
+				throw new IllegalArgumentException("cursor of another sort");
+			}
+			RestaurantCursor decoded = new RestaurantCursor(parts.length > 2 ? parts[2] : null, Long.valueOf(parts[1]));
+			// the key must parse, and a rating cursor always has one
+			if (sort == RestaurantSort.RATING && decoded.getRating() == null) {
+				throw new IllegalArgumentException("missing rating");
+			}
+			return decoded;
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new RestaurantException("Invalid cursor " + cursor);
+		}
+	}
+
+}
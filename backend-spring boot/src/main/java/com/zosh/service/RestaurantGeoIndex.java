@@ -0,0 +1,180 @@
+package com.zosh.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zosh.model.Address;
+import com.zosh.model.Restaurant;
+import com.zosh.repository.RestaurantRepository;
+import com.zosh.response.NearbyRestaurantResponse;
+import com.zosh.response.RestaurantSummaryResponse;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Open restaurants by location, for nearby search. Restaurants whose address
+ * has no coordinates are placed by {@link PostalCodeGeocoder}, or left out.
+ *
+ * Built from the database once the application is ready and again every
+ * rebuild interval, which also picks up writes made by other instances.
+ * Restaurant writes on this instance update it as soon as they have
+ * committed. Until the first build is done, queries go to the database.
+ *
+ * Only the listing summary of each restaurant is indexed, the same fields
+ * the restaurant listing returns; owners, menus and images stay out of it.
+ */
+@Component
+class RestaurantGeoIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(RestaurantGeoIndex.class);
+
+	private static final int PAGE_SIZE = 500;
+
+	private final RestaurantRepository restaurantRepository;
+	private final PostalCodeGeocoder geocoder;
+	private final TransactionTemplate transactionTemplate;
+
+	private final double cellKm;
+	private final GeoIndex<RestaurantSummaryResponse> index;
+	private volatile boolean ready;
+
+	private final Timer queries;
+	private final Timer rebuilds;
+
+	public RestaurantGeoIndex(
+			RestaurantRepository restaurantRepository,
+			PostalCodeGeocoder geocoder,
+			PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry,
+			@Value("${geo.index.cell-km:2}") double cellKm) {
+		this.restaurantRepository = restaurantRepository;
+		this.geocoder = geocoder;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.transactionTemplate.setReadOnly(true);
+		this.cellKm = cellKm;
+		this.index = new GeoIndex<>(cellKm);
+
+		this.queries = Timer.builder("geo.index.queries")
+				.description("Time to find the restaurants near a point").register(meterRegistry);
+		this.rebuilds = Timer.builder("geo.index.rebuilds")
+				.description("Time to load open restaurants and rebuild the geo index").register(meterRegistry);
+		Gauge.builder("geo.index.size", index, GeoIndex::size)
+				.description("Open restaurants in the geo index").register(meterRegistry);
+	}
+
+	List<NearbyRestaurantResponse> nearest(double latitude, double longitude, double radiusKm, int limit) {
+		return queries.record(() -> {
+			if (!ready) {
+				return nearestFromDatabase(latitude, longitude, radiusKm, limit);
+			}
+			List<NearbyRestaurantResponse> nearby = new ArrayList<>();
+			for (GeoIndex.Hit<RestaurantSummaryResponse> hit : index.nearest(latitude, longitude, radiusKm, limit)) {
+				nearby.add(new NearbyRestaurantResponse(hit.getValue(), hit.getDistanceKm()));
+			}
+			return nearby;
+		});
+	}
+
+	// call once the write has committed
+	void restaurantChanged(Long restaurantId) {
+		transactionTemplate.executeWithoutResult(status -> {
+			Optional<Restaurant> restaurant = restaurantRepository.findById(restaurantId);
+			if (restaurant.isPresent()) {
+				index(index, restaurant.get());
+			} else {
+				index.remove(restaurantId);
+			}
+		});
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void build() {
+		try {
+			rebuild();
+			ready = true;
+		} catch (RuntimeException e) {
+			// queries keep going to the database until a scheduled rebuild succeeds
+			log.error("geo index build failed", e);
+		}
+	}
+
+	@Scheduled(initialDelayString = "${geo.index.rebuild-interval-ms:600000}",
+			fixedDelayString = "${geo.index.rebuild-interval-ms:600000}")
+	public void scheduledRebuild() {
+		build();
+	}
+
+	synchronized void rebuild() {
+		rebuilds.record(() -> {
+			index.beginRebuild();
+			GeoIndex<RestaurantSummaryResponse> load = new GeoIndex<>(cellKm);
+			for (int page = 0;; page++) {
+				PageRequest request = PageRequest.of(page, PAGE_SIZE, Sort.by("id"));
+				boolean hasNext = transactionTemplate.execute(status -> {
+					Page<Restaurant> loaded = restaurantRepository.findByOpenTrue(request);
+					loaded.forEach(restaurant -> index(load, restaurant));
+					return loaded.hasNext();
+				});
+				if (!hasNext) {
+					break;
+				}
+			}
+			index.finishRebuild(load);
+		});
+	}
+
+	// closed restaurants and ones that cannot be placed are left out
+	private void index(GeoIndex<RestaurantSummaryResponse> target, Restaurant restaurant) {
+		Address address = restaurant.getAddress();
+		if (restaurant.isOpen() && geocoder.locate(address)) {
+			target.put(restaurant.getId(), address.getLatitude(), address.getLongitude(), summary(restaurant));
+		} else {
+			target.remove(restaurant.getId());
+		}
+	}
+
+	private static RestaurantSummaryResponse summary(Restaurant restaurant) {
+		Address address = restaurant.getAddress();
+		return new RestaurantSummaryResponse(restaurant.getId(), restaurant.getName(), restaurant.getCuisineType(),
+				restaurant.getThumbnail(), restaurant.isOpen(), restaurant.getRating(), restaurant.getNumRating(),
+				address == null ? null : address.getCity());
+	}
+
+	// bounding box query, only used until the index is built; misses restaurants placed by postal code
+	private List<NearbyRestaurantResponse> nearestFromDatabase(double latitude, double longitude, double radiusKm,
+			int limit) {
+		double latitudeDelta = Math.toDegrees(radiusKm / GeoIndex.EARTH_RADIUS_KM);
+		double longitudeDelta = latitudeDelta / Math.max(0.01, Math.cos(Math.toRadians(Math.abs(latitude) + latitudeDelta)));
+		List<NearbyRestaurantResponse> nearby = new ArrayList<>();
+		for (Restaurant restaurant : restaurantRepository.findOpenWithin(latitude - latitudeDelta,
+				latitude + latitudeDelta, longitude - longitudeDelta, longitude + longitudeDelta)) {
+			Address address = restaurant.getAddress();
+			double distanceKm = GeoIndex.distanceKm(latitude, longitude, address.getLatitude(), address.getLongitude());
+			if (distanceKm <= radiusKm) {
+				nearby.add(new NearbyRestaurantResponse(summary(restaurant), distanceKm));
+			}
+		}
+		nearby.sort(Comparator.comparingDouble(NearbyRestaurantResponse::getDistanceKm));
+		return nearby.size() > limit ? new ArrayList<>(nearby.subList(0, limit)) : nearby;
+	}
+
+}
@@ -3,10 +3,13 @@ package com.zosh.service;
 import java.util.List;
 
 import com.zosh.Exception.RestaurantException;
+import com.zosh.domain.RestaurantSort;
 import com.zosh.dto.RestaurantDto;
 import com.zosh.model.Restaurant;
 import com.zosh.model.User;
 import com.zosh.request.CreateRestaurantRequest;
+import com.zosh.response.NearbyRestaurantResponse;
+import com.zosh.response.RestaurantSummaryPageResponse;
 
 public interface RestaurantService {
 
@@ -18,14 +21,22 @@ public interface RestaurantService {
 	public void deleteRestaurant(Long restaurantId) throws RestaurantException;
 
 	public List<Restaurant>getAllRestaurant();
+	
+	public RestaurantSummaryPageResponse getRestaurantSummaries(RestaurantSort sort, String cursor, int size)
+			throws RestaurantException;
 
 	public List<Restaurant>searchRestaurant(String keyword);
 	
 	public Restaurant findRestaurantById(Long id) throws RestaurantException;
+	
+	public String getRestaurantETag(Long id);
 
 	public Restaurant getRestaurantsByUserId(Long userId) throws RestaurantException;
 	
 	public RestaurantDto addToFavorites(Long restaurantId,User user) throws RestaurantException;
 
 	public Restaurant updateRestaurantStatus(Long id)throws RestaurantException;
+
+	public List<NearbyRestaurantResponse> findNearbyRestaurants(double latitude, double longitude,
+			double radiusKm, int limit) throws RestaurantException;
 }
@@ -1,12 +1,20 @@
 package com.zosh.service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import com.zosh.Exception.RestaurantException;
+import com.zosh.domain.RestaurantSort;
 import com.zosh.dto.RestaurantDto;
 import com.zosh.model.Address;
 import com.zosh.model.Restaurant;
@@ -15,9 +23,17 @@ import com.zosh.repository.AddressRepository;
 import com.zosh.repository.RestaurantRepository;
 import com.zosh.repository.UserRepository;
 import com.zosh.request.CreateRestaurantRequest;
+import com.zosh.response.NearbyRestaurantResponse;
+import com.zosh.response.RestaurantSummaryPageResponse;
+import com.zosh.response.RestaurantSummaryResponse;
 
 @Service
 public class RestaurantServiceImplementation implements RestaurantService {
+
+	private static final Logger log = LoggerFactory.getLogger(RestaurantServiceImplementation.class);
+	
+	private static final int MAX_PAGE_SIZE = 100;
+	
 	@Autowired
 	private RestaurantRepository restaurantRepository;
 	@Autowired
@@ -29,6 +45,27 @@ public class RestaurantServiceImplementation implements RestaurantService {
 	@Autowired
 	private UserRepository userRepository;
 	
+	@Autowired
+	private MenuCache menuCache;
+	
+	@Autowired
+	private SearchIndex searchIndex;
+	
+	@Autowired
+	private RestaurantGeoIndex geoIndex;
+	
+	@Autowired
+	private PostalCodeGeocoder geocoder;
+	
+	@Autowired
+	private CatalogVersions catalogVersions;
+	
+	@Value("${geo.nearby.max-radius-km:50}")
+	private double maxNearbyRadiusKm;
+	
+	@Value("${geo.nearby.max-results:50}")
+	private int maxNearbyResults;
+	
 
 	@Override
 	public Restaurant createRestaurant(CreateRestaurantRequest req,User user) {
@@ -39,6 +76,9 @@ public class RestaurantServiceImplementation implements RestaurantService {
 		address.setPostalCode(req.getAddress().getPostalCode());
 		address.setState(req.getAddress().getState());
 		address.setStreetAddress(req.getAddress().getStreetAddress());
+		address.setLatitude(req.getAddress().getLatitude());
+		address.setLongitude(req.getAddress().getLongitude());
+		geocoder.locate(address);
 		Address savedAddress = addressRepository.save(address);
 		
 		Restaurant restaurant = new Restaurant();
@@ -48,11 +88,17 @@ public class RestaurantServiceImplementation implements RestaurantService {
 		restaurant.setCuisineType(req.getCuisineType());
 		restaurant.setDescription(req.getDescription());
 		restaurant.setImages(req.getImages());
+		if (req.getImages() != null && !req.getImages().isEmpty()) {
+			restaurant.setThumbnail(req.getImages().get(0));
+		}
 		restaurant.setName(req.getName());
 		restaurant.setOpeningHours(req.getOpeningHours());
 		restaurant.setRegistrationDate(req.getRegistrationDate());
 		restaurant.setOwner(user);
 		Restaurant savedRestaurant = restaurantRepository.save(restaurant);
+		searchIndex.restaurantChanged(savedRestaurant.getId());
+		geoIndex.restaurantChanged(savedRestaurant.getId());
+		catalogVersions.bump(savedRestaurant.getId(), CatalogVersions.Aggregate.RESTAURANT);
 
 		return savedRestaurant;
 	}
@@ -67,7 +113,13 @@ public class RestaurantServiceImplementation implements RestaurantService {
 		if (restaurant.getDescription() != null) {
 			restaurant.setDescription(updatedReq.getDescription());
 		}
-		return restaurantRepository.save(restaurant);
+		Restaurant savedRestaurant = restaurantRepository.save(restaurant);
+		// menus and food search results embed their restaurant
+		menuCache.invalidate(restaurantId);
+		searchIndex.restaurantChanged(restaurantId);
+		geoIndex.restaurantChanged(restaurantId);
+		catalogVersions.bump(restaurantId, CatalogVersions.Aggregate.RESTAURANT);
+		return savedRestaurant;
 	}
 	
 	@Override
@@ -80,11 +132,20 @@ public class RestaurantServiceImplementation implements RestaurantService {
 		}
 	}
 
+	@Override
+	public String getRestaurantETag(Long id) {
+		return catalogVersions.tag(id, CatalogVersions.Aggregate.RESTAURANT);
+	}
+
 	@Override
 	public void deleteRestaurant(Long restaurantId) throws RestaurantException {
 		Restaurant restaurant = findRestaurantById(restaurantId);
 		if (restaurant != null) {
 			restaurantRepository.delete(restaurant);
+			menuCache.invalidate(restaurantId);
+			searchIndex.restaurantChanged(restaurantId);
+			geoIndex.restaurantChanged(restaurantId);
+			catalogVersions.bump(restaurantId, CatalogVersions.Aggregate.values());
 			return;
 		}
 		throw new RestaurantException("Restaurant with id " + restaurantId + " Not found");
@@ -96,6 +157,69 @@ public class RestaurantServiceImplementation implements RestaurantService {
 		return restaurantRepository.findAll();
 	}
 
+	@Override
+	public RestaurantSummaryPageResponse getRestaurantSummaries(RestaurantSort sort, String cursor, int size)
+			throws RestaurantException {
+		RestaurantCursor position = RestaurantCursor.decode(sort, cursor);
+
+		int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		PageRequest page = PageRequest.of(0, pageSize);
+		List<RestaurantSummaryResponse> restaurants;
+		switch (sort) {
+		case RATING:
+			restaurants = position.getId() == null ? restaurantRepository.findFirstSummariesByRating(page)
+					: restaurantRepository.findSummariesByRatingAfter(position.getRating(), position.getId(), page);
+			break;
+		case NEWEST:
+			restaurants = position.getId() == null ? restaurantRepository.findFirstSummariesByNewest(page)
+					: restaurantRepository.findSummariesByNewestAfter(position.getId(), page);
+			break;
+		default:
+			restaurants = summariesByName(position, pageSize);
+		}
+
+		String nextCursor = null;
+		if (restaurants.size() == pageSize) {
+			RestaurantSummaryResponse last = restaurants.get(restaurants.size() - 1);
+			String key = sort == RestaurantSort.RATING ? Double.toString(last.getRating())
+					: sort == RestaurantSort.NAME ? last.getName() : null;
+			nextCursor = RestaurantCursor.encode(sort, key, last.getId());
+		}
+		return new RestaurantSummaryPageResponse(restaurants, nextCursor);
+	}
+
+	private List<RestaurantSummaryResponse> summariesByName(RestaurantCursor position, int pageSize) {
+		PageRequest page = PageRequest.of(0, pageSize);
+		if (position.getId() == null) {
+			return restaurantRepository.findFirstSummariesByName(page);
+		}
+		if (position.getKey() != null) {
+			return restaurantRepository.findSummariesByNameAfter(position.getKey(), position.getId(), page);
+		}
+		// the cursor is among the unnamed restaurants; the named ones follow, all of them sort after ("", 0)
+		List<RestaurantSummaryResponse> restaurants = new ArrayList<>(
+				restaurantRepository.findUnnamedSummariesAfter(position.getId(), page));
+		if (restaurants.size() < pageSize) {
+			restaurants.addAll(restaurantRepository.findSummariesByNameAfter("", 0L,
+					PageRequest.of(0, pageSize - restaurants.size())));
+		}
+		return restaurants;
+	}
+
+	// restaurants stored before the listing's rating and thumbnail columns existed
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfillSummaryColumns() {
+		try {
+			int ratings = restaurantRepository.backfillRatings();
+			int thumbnails = restaurantRepository.backfillThumbnails();
+			if (ratings > 0 || thumbnails > 0) {
+				log.info("restaurant listing backfilled {} ratings, {} thumbnails", ratings, thumbnails);
+			}
+		} catch (RuntimeException e) {
+			log.error("restaurant listing backfill failed", e);
+		}
+	}
+
 
 	@Override
 	public Restaurant getRestaurantsByUserId(Long userId) throws RestaurantException {
@@ -107,7 +231,12 @@ public class RestaurantServiceImplementation implements RestaurantService {
 
 	@Override
 	public List<Restaurant> searchRestaurant(String keyword) {
-		return restaurantRepository.findBySearchQuery(keyword);
+		if (keyword == null || keyword.isBlank()) {
+			return new ArrayList<>();
+		}
+		List<Restaurant> restaurants = searchIndex.searchRestaurants(keyword);
+		// index not built yet
+		return restaurants != null ? restaurants : restaurantRepository.findBySearchQuery(keyword);
 	}
 
 	@Override
@@ -143,7 +272,27 @@ public class RestaurantServiceImplementation implements RestaurantService {
 	public Restaurant updateRestaurantStatus(Long id) throws RestaurantException {
 		Restaurant restaurant=findRestaurantById(id);
 		restaurant.setOpen(!restaurant.isOpen());
-		return restaurantRepository.save(restaurant);
+		Restaurant savedRestaurant = restaurantRepository.save(restaurant);
+		menuCache.invalidate(id);
+		searchIndex.restaurantChanged(id);
+		geoIndex.restaurantChanged(id);
+		catalogVersions.bump(id, CatalogVersions.Aggregate.RESTAURANT);
+		return savedRestaurant;
+	}
+
+	@Override
+	public List<NearbyRestaurantResponse> findNearbyRestaurants(double latitude, double longitude,
+			double radiusKm, int limit) throws RestaurantException {
+		if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+			throw new RestaurantException("Invalid coordinates");
+		}
+		if (radiusKm <= 0 || radiusKm > maxNearbyRadiusKm) {
+			throw new RestaurantException("Radius must be above 0 and at most " + maxNearbyRadiusKm + " km");
+		}
+		if (limit < 1 || limit > maxNearbyResults) {
+			throw new RestaurantException("Limit must be between 1 and " + maxNearbyResults);
+		}
+		return geoIndex.nearest(latitude, longitude, radiusKm, limit);
 	}
 
 }
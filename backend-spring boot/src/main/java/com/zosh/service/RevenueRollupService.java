@@ -0,0 +1,22 @@
+package com.zosh.service;
+
+import java.time.LocalDate;
+
+import com.zosh.Exception.RestaurantException;
+import com.zosh.domain.RollupGranularity;
+import com.zosh.model.Order;
+import com.zosh.response.RestaurantAnalyticsResponse;
+
+public interface RevenueRollupService {
+
+	public void orderCreated(Order order);
+
+	public void orderStatusChanged(Order order);
+
+	public RestaurantAnalyticsResponse getAnalytics(Long restaurantId, LocalDate from, LocalDate to,
+			RollupGranularity granularity) throws RestaurantException;
+
+	// recomputes every bucket in [from, to) from the order and archive tables
+	public void rebuild(LocalDate from, LocalDate to);
+
+}
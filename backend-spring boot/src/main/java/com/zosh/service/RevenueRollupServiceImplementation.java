@@ -0,0 +1,280 @@
+package com.zosh.service;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zosh.Exception.RestaurantException;
+import com.zosh.domain.OrderStatus;
+import com.zosh.domain.RollupGranularity;
+import com.zosh.model.Order;
+import com.zosh.model.RevenueRollup;
+import com.zosh.repository.RevenueRollupRepository;
+import com.zosh.response.RestaurantAnalyticsResponse;
+
+/**
+ * Hourly and daily revenue rollups per restaurant. Every order event adds a
+ * delta to its two buckets (the hour and the day the order was placed), so
+ * reading analytics only touches rollup rows for the requested range. Deltas
+ * are applied outside the order's own transaction; the nightly rebuild
+ * recomputes recent days from the order tables to wash out any drift.
+ *
+ * A rebuild locks the bucket rows of its range before it reads the orders,
+ * and replaces them in the same transaction, so a delta that arrives while it
+ * runs waits and is applied on top of the rebuilt row instead of being
+ * overwritten by it. Only a change committed in the instant between its
+ * order write and its delta can still be counted twice, until the next
+ * rebuild.
+ */
+@Service
+public class RevenueRollupServiceImplementation implements RevenueRollupService {
+
+	private static final Logger log = LoggerFactory.getLogger(RevenueRollupServiceImplementation.class);
+
+	private static final int MAX_DAYS = 366;
+	private static final int MAX_HOURLY_DAYS = 31;
+
+	private static final String ADD_DELTA = "UPDATE revenue_rollup SET orders_placed = orders_placed + ?, "
+			+ "orders_cancelled = orders_cancelled + ?, orders_completed = orders_completed + ?, revenue = revenue + ? "
+			+ "WHERE restaurant_id = ? AND granularity = ? AND bucket_start = ?";
+
+	private static final String INSERT_BUCKET = "INSERT INTO revenue_rollup "
+			+ "(restaurant_id, granularity, bucket_start, orders_placed, orders_cancelled, orders_completed, revenue) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String SELECT_ORDERS = "SELECT restaurant_id, created_at, total_amount, order_status FROM orders "
+			+ "WHERE created_at >= ? AND created_at < ? AND restaurant_id IS NOT NULL "
+			+ "UNION ALL SELECT restaurant_id, created_at, total_amount, order_status FROM orders_archive "
+			+ "WHERE created_at >= ? AND created_at < ? AND restaurant_id IS NOT NULL";
+
+	// with the bucket_start index InnoDB takes next-key locks, so new buckets in the range wait as well
+	private static final String LOCK_RANGE = "SELECT id FROM revenue_rollup WHERE bucket_start >= ? AND bucket_start < ? "
+			+ "FOR UPDATE";
+
+	private static final String DELETE_RANGE = "DELETE FROM revenue_rollup WHERE bucket_start >= ? AND bucket_start < ?";
+
+	private static final String DELETE_OLD_HOURS = "DELETE FROM revenue_rollup WHERE granularity = 'HOUR' AND bucket_start < ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final RevenueRollupRepository rollupRepository;
+
+	private final ZoneId zone;
+	private final int rebuildDays;
+	private final int hourlyRetentionDays;
+
+	public RevenueRollupServiceImplementation(
+			JdbcTemplate jdbcTemplate,
+			PlatformTransactionManager transactionManager,
+			RevenueRollupRepository rollupRepository,
+			@Value("${analytics.zone:}") String zone,
+			@Value("${analytics.rebuild-days:2}") int rebuildDays,
+			@Value("${analytics.hourly-retention-days:90}") int hourlyRetentionDays) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.rollupRepository = rollupRepository;
+		this.zone = zone == null || zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+		this.rebuildDays = rebuildDays;
+		this.hourlyRetentionDays = hourlyRetentionDays;
+	}
+
+	@Override
+	public void orderCreated(Order order) {
+		long amount = amount(order);
+		applyDelta(order, 1, 0, 0, amount);
+	}
+
+	@Override
+	public void orderStatusChanged(Order order) {
+		// transitions are forward-only, so each of these statuses is entered at most once per order
+		if (order.getOrderStatus() == OrderStatus.CANCELLED) {
+			applyDelta(order, 0, 1, 0, -amount(order));
+		} else if (order.getOrderStatus() == OrderStatus.COMPLETED) {
+			applyDelta(order, 0, 0, 1, 0);
+		}
+	}
+
+	private void applyDelta(Order order, long placed, long cancelled, long completed, long revenue) {
+		if (order.getRestaurant() == null || order.getCreatedAt() == null) {
+			return;
+		}
+		Long restaurantId = order.getRestaurant().getId();
+		try {
+			for (RollupGranularity granularity : RollupGranularity.values()) {
+				Timestamp bucket = bucketStart(order.getCreatedAt(), granularity);
+				addDelta(restaurantId, granularity, bucket, placed, cancelled, completed, revenue);
+			}
+		} catch (RuntimeException e) {
+			// analytics must never fail an order, the nightly rebuild repairs the bucket
+			log.warn("revenue rollup update failed for order {}", order.getId(), e);
+		}
+	}
+
+	private void addDelta(Long restaurantId, RollupGranularity granularity, Timestamp bucket,
+			long placed, long cancelled, long completed, long revenue) {
+		if (update(restaurantId, granularity, bucket, placed, cancelled, completed, revenue) > 0) {
+			return;
+		}
+		try {
+			jdbcTemplate.update(INSERT_BUCKET, restaurantId, granularity.name(), bucket,
+					placed, cancelled, completed, revenue);
+		} catch (DuplicateKeyException e) {
+			// another request created the bucket first
+			update(restaurantId, granularity, bucket, placed, cancelled, completed, revenue);
+		}
+	}
+
+	private int update(Long restaurantId, RollupGranularity granularity, Timestamp bucket,
+			long placed, long cancelled, long completed, long revenue) {
+		return jdbcTemplate.update(ADD_DELTA, placed, cancelled, completed, revenue,
+				restaurantId, granularity.name(), bucket);
+	}
+
+	@Override
+	public RestaurantAnalyticsResponse getAnalytics(Long restaurantId, LocalDate from, LocalDate to,
+			RollupGranularity granularity) throws RestaurantException {
+		if (from == null || to == null || !from.isBefore(to)) {
+			throw new RestaurantException("from must be before to");
+		}
+		long days = ChronoUnit.DAYS.between(from, to);
+		int maxDays = granularity == RollupGranularity.HOUR ? MAX_HOURLY_DAYS : MAX_DAYS;
+		if (days > maxDays) {
+			throw new RestaurantException("Range too large, at most " + maxDays + " days for " + granularity);
+		}
+
+		List<RevenueRollup> buckets = rollupRepository
+				.findByRestaurantIdAndGranularityAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(
+						restaurantId, granularity, startOf(from), startOf(to));
+
+		RestaurantAnalyticsResponse res = new RestaurantAnalyticsResponse();
+		res.setRestaurantId(restaurantId);
+		res.setGranularity(granularity);
+		res.setBuckets(buckets);
+		for (RevenueRollup bucket : buckets) {
+			res.setOrdersPlaced(res.getOrdersPlaced() + bucket.getOrdersPlaced());
+			res.setOrdersCancelled(res.getOrdersCancelled() + bucket.getOrdersCancelled());
+			res.setOrdersCompleted(res.getOrdersCompleted() + bucket.getOrdersCompleted());
+			res.setRevenue(res.getRevenue() + bucket.getRevenue());
+		}
+		long paidOrders = res.getOrdersPlaced() - res.getOrdersCancelled();
+		res.setAverageTicket(paidOrders > 0 ? (double) res.getRevenue() / paidOrders : 0);
+		return res;
+	}
+
+	@Scheduled(cron = "${analytics.rebuild-cron:0 30 3 * * *}")
+	public void nightlyRebuild() {
+		LocalDate today = LocalDate.now(zone);
+		try {
+			rebuild(today.minusDays(rebuildDays), today);
+			int compacted = jdbcTemplate.update(DELETE_OLD_HOURS, startOf(today.minusDays(hourlyRetentionDays)));
+			log.info("revenue rollups rebuilt, {} expired hourly buckets removed", compacted);
+		} catch (RuntimeException e) {
+			log.error("revenue rollup rebuild failed", e);
+		}
+	}
+
+	@Override
+	public void rebuild(LocalDate from, LocalDate to) {
+		Timestamp start = startOf(from);
+		Timestamp end = startOf(to);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			jdbcTemplate.query(LOCK_RANGE, rs -> {}, start, end);
+
+			List<Map.Entry<BucketKey, long[]>> rows = new ArrayList<>(aggregate(start, end).entrySet());
+			jdbcTemplate.update(DELETE_RANGE, start, end);
+			jdbcTemplate.batchUpdate(INSERT_BUCKET, rows, 500, (PreparedStatement ps, Map.Entry<BucketKey, long[]> row) -> {
+				ps.setLong(1, row.getKey().restaurantId);
+				ps.setString(2, row.getKey().granularity.name());
+				ps.setTimestamp(3, row.getKey().bucketStart);
+				ps.setLong(4, row.getValue()[0]);
+				ps.setLong(5, row.getValue()[1]);
+				ps.setLong(6, row.getValue()[2]);
+				ps.setLong(7, row.getValue()[3]);
+			});
+		});
+	}
+
+	private Map<BucketKey, long[]> aggregate(Timestamp start, Timestamp end) {
+		Map<BucketKey, long[]> totals = new HashMap<>();
+		jdbcTemplate.query(SELECT_ORDERS, rs -> {
+			long restaurantId = rs.getLong(1);
+			Timestamp createdAt = rs.getTimestamp(2);
+			long amount = rs.getLong(3);
+			String status = rs.getString(4);
+			boolean cancelled = OrderStatus.CANCELLED.name().equals(status);
+			boolean completed = OrderStatus.COMPLETED.name().equals(status);
+
+			for (RollupGranularity granularity : RollupGranularity.values()) {
+				long[] t = totals.computeIfAbsent(
+						new BucketKey(restaurantId, granularity, bucketStart(createdAt, granularity)),
+						k -> new long[4]);
+				t[0]++;
+				t[1] += cancelled ? 1 : 0;
+				t[2] += completed ? 1 : 0;
+				t[3] += cancelled ? 0 : amount;
+			}
+		}, start, end, start, end);
+		return totals;
+	}
+
+	private Timestamp bucketStart(Date createdAt, RollupGranularity granularity) {
+		ChronoUnit unit = granularity == RollupGranularity.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+		return Timestamp.from(createdAt.toInstant().atZone(zone).truncatedTo(unit).toInstant());
+	}
+
+	private Timestamp startOf(LocalDate day) {
+		return Timestamp.from(day.atStartOfDay(zone).toInstant());
+	}
+
+	private static long amount(Order order) {
+		return order.getTotalAmount() == null ? 0 : order.getTotalAmount();
+	}
+
+	private static final class BucketKey {
+
+		private final long restaurantId;
+		private final RollupGranularity granularity;
+		private final Timestamp bucketStart;
+
+		BucketKey(long restaurantId, RollupGranularity granularity, Timestamp bucketStart) {
+			this.restaurantId = restaurantId;
+			this.granularity = granularity;
+			this.bucketStart = bucketStart;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof BucketKey)) {
+				return false;
+			}
+			BucketKey other = (BucketKey) o;
+			return restaurantId == other.restaurantId && granularity == other.granularity
+					&& bucketStart.equals(other.bucketStart);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(restaurantId, granularity, bucketStart);
+		}
+	}
+
+}
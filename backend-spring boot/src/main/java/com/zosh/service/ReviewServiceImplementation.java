@@ -20,6 +20,14 @@ public class ReviewServiceImplementation implements ReviewSerive {
     private ReviewRepository reviewRepository;
     @Autowired
     private RestaurantRepository restaurantRepository;
+    @Autowired
+    private MenuCache menuCache;
+    @Autowired
+    private SearchIndex searchIndex;
+    @Autowired
+    private RestaurantGeoIndex geoIndex;
+    @Autowired
+    private CatalogVersions catalogVersions;
 
    @Override
     public Review submitReview(ReviewRequest reviewRequest, User user) {
@@ -36,7 +44,11 @@ public class ReviewServiceImplementation implements ReviewSerive {
         review.setRating(reviewRequest.getRating());
         review.setCreatedAt(LocalDateTime.now());
 
-        return reviewRepository.save(review);
+        Review savedReview = reviewRepository.save(review);
+        if (review.getRestaurant() != null) {
+            restaurantChanged(review.getRestaurant().getId());
+        }
+        return savedReview;
     }
 
     
@@ -46,11 +58,23 @@ public class ReviewServiceImplementation implements ReviewSerive {
 
         if (optionalReview.isPresent()) {
             reviewRepository.deleteById(reviewId);
+            if (optionalReview.get().getRestaurant() != null) {
+                restaurantChanged(optionalReview.get().getRestaurant().getId());
+            }
         } else {
             throw new ReviewException("Review with ID " + reviewId + " not found");
         }
     }
 
+    // the restaurant's rating shows in its details, listings, menus and search results
+    private void restaurantChanged(Long restaurantId) {
+        restaurantRepository.refreshRating(restaurantId);
+        menuCache.invalidate(restaurantId);
+        searchIndex.restaurantChanged(restaurantId);
+        geoIndex.restaurantChanged(restaurantId);
+        catalogVersions.bump(restaurantId, CatalogVersions.Aggregate.RESTAURANT);
+    }
+
     @Override
     public double calculateAverageRating(List<Review> reviews) {
     	 double totalRating = 0;
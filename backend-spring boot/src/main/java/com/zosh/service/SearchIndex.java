@@ -0,0 +1,213 @@
+package com.zosh.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zosh.model.Food;
+import com.zosh.model.Restaurant;
+import com.zosh.repository.RestaurantRepository;
+import com.zosh.repository.foodRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Text search over foods (name, then category) and restaurants (name, then
+ * cuisine type), answered from {@link TextIndex}es without a database query.
+ *
+ * Both indexes are built from the database once the application is ready and
+ * again every rebuild interval, which also picks up writes made by other
+ * instances. Catalog writes on this instance update them as soon as they have
+ * committed. Until the first build is done, searches go to the database.
+ *
+ * Indexed entities are loaded in their own transaction and are shared by all
+ * readers, so they must not be changed.
+ */
+@Component
+class SearchIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(SearchIndex.class);
+
+	private static final int PAGE_SIZE = 500;
+
+	private final foodRepository foodRepository;
+	private final RestaurantRepository restaurantRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final int maxResults;
+
+	private final TextIndex<Food> foods = new TextIndex<>();
+	private final TextIndex<Restaurant> restaurants = new TextIndex<>();
+	private volatile boolean ready;
+
+	private final Timer rebuilds;
+
+	public SearchIndex(
+			foodRepository foodRepository,
+			RestaurantRepository restaurantRepository,
+			PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry,
+			@Value("${search.max-results:50}") int maxResults) {
+		this.foodRepository = foodRepository;
+		this.restaurantRepository = restaurantRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.transactionTemplate.setReadOnly(true);
+		this.maxResults = maxResults;
+
+		this.rebuilds = Timer.builder("search.index.rebuilds")
+				.description("Time to load the catalog and rebuild the search indexes").register(meterRegistry);
+		Gauge.builder("search.index.size", foods, TextIndex::size).tag("index", "food")
+				.description("Documents in the search index").register(meterRegistry);
+		Gauge.builder("search.index.size", restaurants, TextIndex::size).tag("index", "restaurant")
+				.description("Documents in the search index").register(meterRegistry);
+	}
+
+	/** Returns null until the index has been built; the caller then queries the database. */
+	List<Food> searchFood(String query) {
+		return ready ? foods.search(query, maxResults) : null;
+	}
+
+	/** Returns null until the index has been built; the caller then queries the database. */
+	List<Restaurant> searchRestaurants(String query) {
+		return ready ? restaurants.search(query, maxResults) : null;
+	}
+
+	// call once the write has committed
+	void foodChanged(Long foodId) {
+		Optional<Food> food = transactionTemplate.execute(status -> {
+			Optional<Food> loaded = foodRepository.findById(foodId);
+			loaded.ifPresent(EntityGraphs::initialize);
+			return loaded;
+		});
+		if (food.isPresent()) {
+			index(foods, food.get());
+		} else {
+			foods.remove(foodId);
+		}
+	}
+
+	void foodRemoved(Long foodId) {
+		foods.remove(foodId);
+	}
+
+	/**
+	 * Reindexes the restaurant and its foods, whose results embed it. Call
+	 * once the write has committed.
+	 */
+	void restaurantChanged(Long restaurantId) {
+		Optional<Restaurant> restaurant = transactionTemplate.execute(status -> {
+			Optional<Restaurant> loaded = restaurantRepository.findById(restaurantId);
+			loaded.ifPresent(EntityGraphs::initialize);
+			return loaded;
+		});
+		if (restaurant.isPresent()) {
+			index(restaurants, restaurant.get());
+		} else {
+			restaurants.remove(restaurantId);
+		}
+		menuChanged(restaurantId);
+	}
+
+	/** Reindexes the restaurant's foods, e.g. after an ingredient's stock changed. */
+	void menuChanged(Long restaurantId) {
+		List<Food> menu = transactionTemplate.execute(status -> {
+			List<Food> loaded = foodRepository.findByRestaurantId(restaurantId);
+			loaded.forEach(EntityGraphs::initialize);
+			return loaded;
+		});
+		foods.removeIf(food -> food.getRestaurant() != null && restaurantId.equals(food.getRestaurant().getId()));
+		for (Food food : menu) {
+			index(foods, food);
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void build() {
+		try {
+			rebuild();
+			ready = true;
+		} catch (RuntimeException e) {
+			// searches keep going to the database until a scheduled rebuild succeeds
+			log.error("search index build failed", e);
+		}
+	}
+
+	@Scheduled(initialDelayString = "${search.index.rebuild-interval-ms:600000}",
+			fixedDelayString = "${search.index.rebuild-interval-ms:600000}")
+	public void scheduledRebuild() {
+		build();
+	}
+
+	synchronized void rebuild() {
+		rebuilds.record(() -> {
+			foods.beginRebuild();
+			restaurants.beginRebuild();
+			foods.finishRebuild(loadFoods());
+			restaurants.finishRebuild(loadRestaurants());
+		});
+	}
+
+	// one transaction per page, so the persistence context never holds the whole catalog
+	private TextIndex<Food> loadFoods() {
+		TextIndex<Food> index = new TextIndex<>();
+		for (int page = 0;; page++) {
+			PageRequest request = PageRequest.of(page, PAGE_SIZE, Sort.by("id"));
+			Page<Food> loaded = transactionTemplate.execute(status -> {
+				Page<Food> result = foodRepository.findAll(request);
+				result.forEach(EntityGraphs::initialize);
+				return result;
+			});
+			loaded.forEach(food -> index(index, food));
+			if (!loaded.hasNext()) {
+				return index;
+			}
+		}
+	}
+
+	private TextIndex<Restaurant> loadRestaurants() {
+		TextIndex<Restaurant> index = new TextIndex<>();
+		for (int page = 0;; page++) {
+			PageRequest request = PageRequest.of(page, PAGE_SIZE, Sort.by("id"));
+			Page<Restaurant> loaded = transactionTemplate.execute(status -> {
+				Page<Restaurant> result = restaurantRepository.findAll(request);
+				result.forEach(EntityGraphs::initialize);
+				return result;
+			});
+			loaded.forEach(restaurant -> index(index, restaurant));
+			if (!loaded.hasNext()) {
+				return index;
+			}
+		}
+	}
+
+	// foods without a restaurant are never shown in search
+	private static void index(TextIndex<Food> index, Food food) {
+		if (food.getRestaurant() == null) {
+			index.remove(food.getId());
+			return;
+		}
+		String category = food.getFoodCategory() == null ? null : food.getFoodCategory().getName();
+		index.put(food.getId(), food, food.getName(), food.getName(), category);
+	}
+
+	private static void index(TextIndex<Restaurant> index, Restaurant restaurant) {
+		index.put(restaurant.getId(), restaurant, restaurant.getName(), restaurant.getName(),
+				restaurant.getCuisineType());
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.zosh.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.zosh.model.Order;
+import com.zosh.model.PaymentResponse;
+
+/**
+ * Offline payment gateway for local runs and load tests. Enabled with
+ * payment.gateway=stub; sleeps for payment.stub.latency-ms to imitate a
+ * gateway round trip and hands back a local success URL.
+ */
+@Service
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "stub")
+public class StubPaymentServiceImplementation implements PaymentService {
+
+	@Value("${payment.stub.latency-ms:250}")
+	private long latencyMs;
+
+	@Override
+	public PaymentResponse generatePaymentLink(Order order) {
+		return stubLink(order);
+	}
+
+	@Override
+	public PaymentResponse createRazorpayPaymentLink(Order order) {
+		return stubLink(order);
+	}
+
+	private PaymentResponse stubLink(Order order) {
+		try {
+			Thread.sleep(latencyMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		PaymentResponse res = new PaymentResponse();
+		res.setPayment_url("http://localhost:3000/payment/success/" + order.getId());
+		return res;
+	}
+
+}
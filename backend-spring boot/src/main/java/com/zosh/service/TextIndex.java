@@ -0,0 +1,370 @@
+package com.zosh.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index over a few short text fields per document.
+ *
+ * Text is lowercased, stripped of accents and split on anything that is not
+ * a letter or digit. Each token is posted three ways: as a whole word, under
+ * each of its prefixes (for search-as-you-type) and under its trigrams (to
+ * find candidates for typo tolerant matches, which are then confirmed by edit
+ * distance). Every query token has to match some token of a document. A
+ * match scores 3 as a whole word, 2 as a prefix and 1 within the allowed edit
+ * distance, doubled in the document's first field; results are ordered by
+ * total score, then by sort key.
+ */
+final class TextIndex<T> {
+
+	private static final int MAX_PREFIX = 15;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Long, Doc<T>> docs = new HashMap<>();
+	private final Map<String, Set<Long>> words = new HashMap<>();
+	private final Map<String, Set<Long>> prefixes = new HashMap<>();
+	private final Map<String, Set<Long>> trigrams = new HashMap<>();
+
+	// ids written while a rebuild was loading; the rebuild keeps their current state
+	private Set<Long> touched;
+
+	void put(long id, T value, String sortKey, String... fields) {
+		Doc<T> doc = new Doc<>(id, value, sortKey == null ? "" : sortKey.toLowerCase(Locale.ROOT), tokenize(fields));
+		lock.writeLock().lock();
+		try {
+			unpost(docs.remove(id));
+			post(doc);
+			touch(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void remove(long id) {
+		lock.writeLock().lock();
+		try {
+			unpost(docs.remove(id));
+			touch(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void removeIf(Predicate<T> filter) {
+		lock.writeLock().lock();
+		try {
+			List<Long> ids = new ArrayList<>();
+			for (Doc<T> doc : docs.values()) {
+				if (filter.test(doc.value)) {
+					ids.add(doc.id);
+				}
+			}
+			for (Long id : ids) {
+				unpost(docs.remove(id));
+				touch(id);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Starts a full rebuild. Writes made from here on win over the data the
+	 * rebuild loaded, which may predate them.
+	 */
+	void beginRebuild() {
+		lock.writeLock().lock();
+		try {
+			touched = new HashSet<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/** Replaces the contents with what {@code load} put, keeping documents written since beginRebuild. */
+	void finishRebuild(TextIndex<T> load) {
+		lock.writeLock().lock();
+		try {
+			Map<Long, Doc<T>> kept = new HashMap<>();
+			for (Long id : touched) {
+				if (docs.containsKey(id)) {
+					kept.put(id, docs.get(id));
+				}
+			}
+			docs.clear();
+			words.clear();
+			prefixes.clear();
+			trigrams.clear();
+			for (Doc<T> doc : load.docs.values()) {
+				if (!touched.contains(doc.id)) {
+					post(doc);
+				}
+			}
+			kept.values().forEach(this::post);
+			touched = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	int size() {
+		lock.readLock().lock();
+		try {
+			return docs.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	List<T> search(String query, int limit) {
+		List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+		if (terms.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		lock.readLock().lock();
+		try {
+			Map<Long, Integer> scores = null;
+			for (String term : terms) {
+				Map<Long, Integer> termScores = new HashMap<>();
+				for (Long id : candidates(term)) {
+					int score = score(docs.get(id), term);
+					if (score > 0) {
+						termScores.put(id, score);
+					}
+				}
+				if (scores == null) {
+					scores = termScores;
+				} else {
+					scores.keySet().retainAll(termScores.keySet());
+					for (Map.Entry<Long, Integer> e : scores.entrySet()) {
+						e.setValue(e.getValue() + termScores.get(e.getKey()));
+					}
+				}
+				if (scores.isEmpty()) {
+					return new ArrayList<>();
+				}
+			}
+
+			List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+			ranked.sort(Comparator.<Map.Entry<Long, Integer>>comparingInt(e -> -e.getValue())
+					.thenComparing(e -> docs.get(e.getKey()).sortKey)
+					.thenComparing(Map.Entry::getKey));
+			List<T> result = new ArrayList<>(Math.min(limit, ranked.size()));
+			for (int i = 0; i < ranked.size() && i < limit; i++) {
+				result.add(docs.get(ranked.get(i).getKey()).value);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// caller holds a lock
+	private Set<Long> candidates(String term) {
+		Set<Long> found = new HashSet<>(prefixCandidates(term));
+		int maxEdits = maxEdits(term);
+		if (maxEdits > 0) {
+			// a single edit changes at most three of a word's padded trigrams
+			Set<String> grams = trigrams(term);
+			int needed = Math.max(1, grams.size() - 3 * maxEdits);
+			Map<Long, Integer> shared = new HashMap<>();
+			for (String gram : grams) {
+				for (Long id : postings(trigrams, gram)) {
+					shared.merge(id, 1, Integer::sum);
+				}
+			}
+			for (Map.Entry<Long, Integer> e : shared.entrySet()) {
+				if (e.getValue() >= needed) {
+					found.add(e.getKey());
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Documents with a token starting with {@code term}. Prefixes are posted up
+	 * to MAX_PREFIX characters, so a longer term is looked up by its first
+	 * MAX_PREFIX and confirmed by {@link #score}. Caller holds a lock.
+	 */
+	Set<Long> prefixCandidates(String term) {
+		return postings(prefixes, prefixKey(term));
+	}
+
+	private static int score(Doc<?> doc, String term) {
+		int maxEdits = maxEdits(term);
+		int best = 0;
+		for (int field = 0; field < doc.fields.size(); field++) {
+			int weight = field == 0 ? 2 : 1;
+			for (String token : doc.fields.get(field)) {
+				int match;
+				if (token.equals(term)) {
+					match = 3;
+				} else if (token.startsWith(term)) {
+					match = 2;
+				} else if (maxEdits > 0 && withinEdits(token, term, maxEdits)) {
+					match = 1;
+				} else {
+					continue;
+				}
+				best = Math.max(best, match * weight);
+			}
+		}
+		return best;
+	}
+
+	// caller holds the write lock
+	private void post(Doc<T> doc) {
+		docs.put(doc.id, doc);
+		for (String token : doc.tokens()) {
+			add(words, token, doc.id);
+			for (int i = 1; i <= Math.min(token.length(), MAX_PREFIX); i++) {
+				add(prefixes, token.substring(0, i), doc.id);
+			}
+			for (String gram : trigrams(token)) {
+				add(trigrams, gram, doc.id);
+			}
+		}
+	}
+
+	// caller holds the write lock
+	private void unpost(Doc<T> doc) {
+		if (doc == null) {
+			return;
+		}
+		for (String token : doc.tokens()) {
+			drop(words, token, doc.id);
+			for (int i = 1; i <= Math.min(token.length(), MAX_PREFIX); i++) {
+				drop(prefixes, token.substring(0, i), doc.id);
+			}
+			for (String gram : trigrams(token)) {
+				drop(trigrams, gram, doc.id);
+			}
+		}
+	}
+
+	private void touch(long id) {
+		if (touched != null) {
+			touched.add(id);
+		}
+	}
+
+	private static void add(Map<String, Set<Long>> postings, String key, long id) {
+		postings.computeIfAbsent(key, k -> new HashSet<>()).add(id);
+	}
+
+	private static void drop(Map<String, Set<Long>> postings, String key, long id) {
+		Set<Long> ids = postings.get(key);
+		if (ids != null && ids.remove(id) && ids.isEmpty()) {
+			postings.remove(key);
+		}
+	}
+
+	private static Set<Long> postings(Map<String, Set<Long>> postings, String key) {
+		Set<Long> ids = postings.get(key);
+		return ids == null ? Set.of() : ids;
+	}
+
+	private static String prefixKey(String term) {
+		return term.length() <= MAX_PREFIX ? term : term.substring(0, MAX_PREFIX);
+	}
+
+	// short words must match as typed, longer ones may carry one or two typos
+	static int maxEdits(String term) {
+		return term.length() < 4 ? 0 : term.length() < 8 ? 1 : 2;
+	}
+
+	static Set<String> trigrams(String token) {
+		String padded = " " + token + " ";
+		Set<String> grams = new HashSet<>();
+		for (int i = 0; i + 3 <= padded.length(); i++) {
+			grams.add(padded.substring(i, i + 3));
+		}
+		return grams;
+	}
+
+	// Levenshtein distance of at most max, with an early exit once every cell of a row exceeds it
+	static boolean withinEdits(String a, String b, int max) {
+		if (Math.abs(a.length() - b.length()) > max) {
+			return false;
+		}
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = current[0];
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if (rowMin > max) {
+				return false;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[b.length()] <= max;
+	}
+
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+		String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+				.replaceAll("\\p{M}+", "")
+				.toLowerCase(Locale.ROOT);
+		for (String token : folded.split("[^\\p{L}\\p{N}]+")) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+
+	private static List<List<String>> tokenize(String[] fields) {
+		List<List<String>> tokens = new ArrayList<>(fields.length);
+		for (String field : fields) {
+			tokens.add(tokenize(field));
+		}
+		return tokens;
+	}
+
+	private static final class Doc<T> {
+
+		private final long id;
+		private final T value;
+		private final String sortKey;
+		private final List<List<String>> fields;
+
+		Doc(long id, T value, String sortKey, List<List<String>> fields) {
+			this.id = id;
+			this.value = value;
+			this.sortKey = sortKey;
+			this.fields = fields;
+		}
+
+		Set<String> tokens() {
+			Set<String> all = new HashSet<>();
+			fields.forEach(all::addAll);
+			return all;
+		}
+	}
+
+}
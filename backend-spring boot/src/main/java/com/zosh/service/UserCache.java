@@ -0,0 +1,162 @@
+package com.zosh.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zosh.domain.UserSavedEvent;
+import com.zosh.model.Address;
+import com.zosh.model.User;
+import com.zosh.repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded, time limited cache of users by email for resolving the caller of a
+ * request. Every lookup returns a private copy, so a request can change and
+ * save its user without touching what other requests see. Every save through
+ * UserRepository publishes a {@link UserSavedEvent}, and the email is
+ * invalidated once that save commits; other instances see the change once the
+ * entry expires.
+ */
+@Component
+class UserCache {
+
+	private final UserRepository userRepository;
+	private final TransactionTemplate transactionTemplate;
+
+	private final int maxEntries;
+	private final long ttlMs;
+
+	// access ordered, so the eldest entry is the least recently used one
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	// bumped by every invalidation, so a load that raced with one is not cached
+	private long generation;
+
+	private final Counter hits;
+	private final Counter misses;
+
+	public UserCache(
+			UserRepository userRepository,
+			PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry,
+			@Value("${user.cache.max-entries:10000}") int maxEntries,
+			@Value("${user.cache.ttl-ms:60000}") long ttlMs) {
+		this.userRepository = userRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.maxEntries = maxEntries;
+		this.ttlMs = ttlMs;
+
+		this.hits = Counter.builder("user.cache.gets").tag("result", "hit")
+				.description("User lookups served from the cache").register(meterRegistry);
+		this.misses = Counter.builder("user.cache.gets").tag("result", "miss")
+				.description("User lookups that loaded the user from the database").register(meterRegistry);
+		Gauge.builder("user.cache.size", this, UserCache::size)
+				.description("Users held in the cache").register(meterRegistry);
+	}
+
+	/**
+	 * Returns a copy of the user with the given email, or null if there is none.
+	 */
+	User get(String email) {
+		long now = System.currentTimeMillis();
+		long loadGeneration;
+		synchronized (entries) {
+			Entry entry = entries.get(email);
+			if (entry != null && entry.expiresAt > now) {
+				hits.increment();
+				return copy(entry.user);
+			}
+			if (entry != null) {
+				entries.remove(email);
+			}
+			loadGeneration = generation;
+		}
+
+		misses.increment();
+		// the copy never belongs to a persistence context, so it can outlive this request
+		User user = transactionTemplate.execute(status -> {
+			User loaded = userRepository.findByEmail(email);
+			if (loaded == null) {
+				return null;
+			}
+			Hibernate.initialize(loaded.getFavorites());
+			Hibernate.initialize(loaded.getAddresses());
+			return copy(loaded);
+		});
+		if (user == null) {
+			return null;
+		}
+
+		synchronized (entries) {
+			if (generation == loadGeneration) {
+				entries.put(email, new Entry(user, now + ttlMs));
+				while (entries.size() > maxEntries) {
+					entries.remove(entries.keySet().iterator().next());
+				}
+			}
+		}
+		return copy(user);
+	}
+
+	void invalidate(String email) {
+		synchronized (entries) {
+			generation++;
+			entries.remove(email);
+		}
+	}
+
+	// after commit, so a load running before then is not cached with the old row
+	@TransactionalEventListener(fallbackExecution = true)
+	void userSaved(UserSavedEvent event) {
+		invalidate(event.getEmail());
+	}
+
+	// orders are left out, they are never read through the cached user
+	private static User copy(User user) {
+		User copy = new User();
+		copy.setId(user.getId());
+		copy.setFullName(user.getFullName());
+		copy.setEmail(user.getEmail());
+		copy.setPassword(user.getPassword());
+		copy.setRole(user.getRole());
+		copy.setStatus(user.getStatus());
+		copy.setFavorites(new ArrayList<>(user.getFavorites()));
+
+		List<Address> addresses = new ArrayList<>();
+		for (Address address : user.getAddresses()) {
+			addresses.add(new Address(address.getId(), address.getFullName(), address.getStreetAddress(),
+					address.getCity(), address.getState(), address.getPostalCode(), address.getCountry(),
+					address.getLatitude(), address.getLongitude()));
+		}
+		copy.setAddresses(addresses);
+		return copy;
+	}
+
+	private int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private static final class Entry {
+
+		private final User user;
+		private final long expiresAt;
+
+		Entry(User user, long expiresAt) {
+			this.user = user;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
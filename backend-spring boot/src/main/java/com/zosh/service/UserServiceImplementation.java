@@ -7,10 +7,11 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import com.zosh.Exception.UserException;
 import com.zosh.config.JwtProvider;
@@ -22,25 +23,30 @@ import com.zosh.repository.UserRepository;
 @Service
 public class UserServiceImplementation implements UserService {
 
+	// request attribute holding the caller, resolved once per request
+	private static final String CURRENT_USER = UserServiceImplementation.class.getName() + ".currentUser";
 
 	private UserRepository userRepository;
 	private JwtProvider jwtProvider;
 	private PasswordEncoder passwordEncoder;
 	private PasswordResetTokenRepository passwordResetTokenRepository;
-	private JavaMailSender javaMailSender;
+	private MailOutboxService mailOutboxService;
+	private UserCache userCache;
 	
 	public UserServiceImplementation(
 			UserRepository userRepository,
 			JwtProvider jwtProvider,
 			PasswordEncoder passwordEncoder,
 			PasswordResetTokenRepository passwordResetTokenRepository,
-			JavaMailSender javaMailSender) {
+			MailOutboxService mailOutboxService,
+			UserCache userCache) {
 		
 		this.userRepository=userRepository;
 		this.jwtProvider=jwtProvider;
 		this.passwordEncoder=passwordEncoder;
 		this.passwordResetTokenRepository=passwordResetTokenRepository;
-		this.javaMailSender=javaMailSender;
+		this.mailOutboxService=mailOutboxService;
+		this.userCache=userCache;
 		
 	}
 
@@ -48,13 +54,22 @@ public class UserServiceImplementation implements UserService {
 	public User findUserProfileByJwt(String jwt) throws UserException {
 		String email=jwtProvider.getEmailFromJwtToken(jwt);
 		
+		RequestAttributes request = RequestContextHolder.getRequestAttributes();
+		if(request!=null) {
+			Object current = request.getAttribute(CURRENT_USER, RequestAttributes.SCOPE_REQUEST);
+			if(current instanceof User && email.equals(((User) current).getEmail())) {
+				return (User) current;
+			}
+		}
 		
-		User user = userRepository.findByEmail(email);
+		User user = userCache.get(email);
 		
 		if(user==null) {
 			throw new UserException("user not exist with email "+email);
 		}
-//		System.out.println("email user "+user.get().getEmail());
+		if(request!=null) {
+			request.setAttribute(CURRENT_USER, user, RequestAttributes.SCOPE_REQUEST);
+		}
 		return user;
 	}
 
@@ -76,7 +91,9 @@ public class UserServiceImplementation implements UserService {
         userRepository.save(user);
     }
 
+	// the token and its email commit together, the outbox sends the email afterwards
 	@Override
+	@Transactional
 	public void sendPasswordResetEmail(User user) {
 		
 		// Generate a random token (you might want to use a library for this)
@@ -93,13 +110,7 @@ public class UserServiceImplementation implements UserService {
         sendEmail(user.getEmail(), "Password Reset", "Click the following link to reset your password: http://localhost:3000/account/reset-password?token=" + resetToken);
 	}
 	private void sendEmail(String to, String subject, String message) {
-	    SimpleMailMessage mailMessage = new SimpleMailMessage();
-
-	    mailMessage.setTo(to);
-	    mailMessage.setSubject(subject);
-	    mailMessage.setText(message);
-
-	    javaMailSender.send(mailMessage);
+	    mailOutboxService.enqueue(to, subject, message);
 	}
 	private String generateRandomToken() {
 	    return UUID.randomUUID().toString();
@@ -123,6 +123,12 @@ public class WorkerServiceImplementation implements WorkerService {
             throw new WorkerException("Worker account is not active");
         }
 
+        // stored with a different bcrypt cost, hash again with the configured one
+        if (passwordEncoder.upgradeEncoding(worker.getPassword())) {
+            worker.setPassword(passwordEncoder.encode(req.getPassword()));
+            workerRepository.save(worker);
+        }
+
         WorkerAuthResponse response = new WorkerAuthResponse();
         response.setMessage("Login successful");
         response.setWorkerId(worker.getId());
@@ -0,0 +1,62 @@
+package com.zosh.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Time for one bcrypt check at each cost, on the machine it runs on. Every
+ * step of cost doubles the time. Pick the highest cost whose check stays
+ * within the sign-in latency budget; the hashing pool then handles about
+ * (CPUs / check time) sign-ins per second before the queue fills and it
+ * answers 503. Set the result as password.bcrypt.cost.
+ *
+ * Run after mvn test-compile with the main method, or with
+ * org.openjdk.jmh.Main BCryptCost on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BCryptCostBenchmark {
+
+	private static final String PASSWORD = "correct horse battery staple";
+
+	@Param({ "8", "10", "11", "12", "13" })
+	private int cost;
+
+	private BCryptPasswordEncoder encoder;
+	private String hash;
+
+	@Setup
+	public void setUp() {
+		encoder = new BCryptPasswordEncoder(cost);
+		hash = encoder.encode(PASSWORD);
+	}
+
+	@Benchmark
+	public boolean matches() {
+		return encoder.matches(PASSWORD, hash);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(BCryptCostBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,151 @@
+package com.zosh.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.zosh.Exception.PasswordHashingBusyException;
+import com.zosh.controller.AuthController;
+import com.zosh.repository.CartRepository;
+import com.zosh.repository.UserRepository;
+import com.zosh.service.CustomeUserServiceImplementation;
+import com.zosh.service.PasswordResetTokenService;
+import com.zosh.service.UserService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BoundedPasswordEncoderTests {
+
+	private static final String HASH = new BCryptPasswordEncoder(4).encode("secret");
+
+	// released by the tests, holds back the hashes that wait on it
+	private final CountDownLatch hashesReleased = new CountDownLatch(1);
+
+	private final ExecutorService callers = Executors.newFixedThreadPool(2);
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private BoundedPasswordEncoder encoder;
+
+	@AfterEach
+	void tearDown() {
+		hashesReleased.countDown();
+		callers.shutdownNow();
+		if (encoder != null) {
+			encoder.shutdown();
+		}
+	}
+
+	@Test
+	void aHashWithAnotherCostNeedsAnUpgrade() {
+		encoder = new BoundedPasswordEncoder(5, 1, 4, meterRegistry);
+
+		assertThat(encoder.upgradeEncoding(HASH)).isTrue();
+		assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(12).encode("secret"))).isTrue();
+		assertThat(encoder.upgradeEncoding(encoder.encode("secret"))).isFalse();
+		assertThat(encoder.upgradeEncoding("not a bcrypt hash")).isTrue();
+		assertThat(encoder.upgradeEncoding(null)).isFalse();
+		assertThat(encoder.matches("secret", HASH)).isTrue();
+	}
+
+	@Test
+	void aFullQueueIsRefusedAtOnce() throws Exception {
+		encoder = new BoundedPasswordEncoder(4, 1, 1, meterRegistry);
+		List<Future<Boolean>> held = fillQueue();
+
+		assertThatThrownBy(() -> encoder.matches("secret", HASH)).isInstanceOf(PasswordHashingBusyException.class);
+		assertThat(meterRegistry.get("password.hashing.rejected").counter().count()).isEqualTo(1);
+
+		hashesReleased.countDown();
+		for (Future<Boolean> hash : held) {
+			assertThat(hash.get(10, TimeUnit.SECONDS)).isTrue();
+		}
+		assertThat(encoder.matches("secret", HASH)).isTrue();
+	}
+
+	@Test
+	void aSignInRefusedForAFullQueueAnswers503() throws Exception {
+		encoder = new BoundedPasswordEncoder(4, 1, 1, meterRegistry);
+		CustomeUserServiceImplementation users = mock(CustomeUserServiceImplementation.class);
+		when(users.loadUserByUsername(anyString()))
+				.thenReturn(new User("busy@test.com", HASH, List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"))));
+		AuthController controller = new AuthController(mock(UserRepository.class), encoder, mock(JwtProvider.class),
+				users, mock(CartRepository.class), mock(PasswordResetTokenService.class), mock(UserService.class));
+		MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+		fillQueue();
+
+		mvc.perform(post("/auth/signin").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"email\":\"busy@test.com\",\"password\":\"secret\"}"))
+				.andExpect(status().isServiceUnavailable());
+	}
+
+	// one hash running on the only thread and one in the only queue slot, both held until released
+	private List<Future<Boolean>> fillQueue() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		Future<Boolean> running = callers.submit(() -> encoder.matches(new HeldPassword(started), HASH));
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		Future<Boolean> queued = callers.submit(() -> encoder.matches(new HeldPassword(new CountDownLatch(1)), HASH));
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (meterRegistry.get("password.hashing.queue").gauge().value() < 1
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		return List.of(running, queued);
+	}
+
+	// bcrypt reads the raw password through toString(), which waits for hashesReleased
+	private final class HeldPassword implements CharSequence {
+
+		private final CountDownLatch started;
+
+		HeldPassword(CountDownLatch started) {
+			this.started = started;
+		}
+
+		@Override
+		public String toString() {
+			started.countDown();
+			try {
+				hashesReleased.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "secret";
+		}
+
+		@Override
+		public int length() {
+			return toString().length();
+		}
+
+		@Override
+		public char charAt(int index) {
+			return toString().charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().subSequence(start, end);
+		}
+	}
+
+}
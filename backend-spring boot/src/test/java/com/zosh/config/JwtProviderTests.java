@@ -0,0 +1,101 @@
+package com.zosh.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+class JwtProviderTests {
+
+	private static final SecretKey KEY = Keys.hmacShaKeyFor(JwtConstant.SECRET_KEY.getBytes());
+
+	@Test
+	void cachedClaimsAreServedUntilTheTokenExpires() throws Exception {
+		JwtProvider provider = new JwtProvider(10);
+		// exp has whole-second precision, so this token expires within two seconds
+		long exp = (System.currentTimeMillis() / 1000 + 2) * 1000;
+		String token = token("soon@test.com", exp);
+
+		Claims claims = provider.verify(token);
+		assertThat(provider.verify(token)).isSameAs(claims);
+		assertThat(provider.cachedTokens()).isEqualTo(1);
+
+		Thread.sleep(exp - System.currentTimeMillis() + 50);
+		assertThatThrownBy(() -> provider.verify(token)).isInstanceOf(ExpiredJwtException.class);
+	}
+
+	@Test
+	void theLeastRecentlyUsedTokenIsDroppedAtTheBound() {
+		JwtProvider provider = new JwtProvider(4);
+		List<String> tokens = new ArrayList<>();
+		List<Claims> claims = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			tokens.add(token("user" + i + "@test.com", System.currentTimeMillis() + 60_000));
+			claims.add(provider.verify(tokens.get(i)));
+		}
+		provider.verify(tokens.get(0));
+
+		provider.verify(token("user4@test.com", System.currentTimeMillis() + 60_000));
+
+		assertThat(provider.cachedTokens()).isEqualTo(4);
+		assertThat(provider.verify(tokens.get(0))).isSameAs(claims.get(0));
+		assertThat(provider.verify(tokens.get(2))).isSameAs(claims.get(2));
+		assertThat(provider.verify(tokens.get(3))).isSameAs(claims.get(3));
+		// verified again, not served from the cache
+		assertThat(provider.verify(tokens.get(1))).isNotSameAs(claims.get(1)).isEqualTo(claims.get(1));
+	}
+
+	@Test
+	void theCacheNeverGrowsPastItsBound() {
+		JwtProvider provider = new JwtProvider(10);
+		for (int i = 0; i < 100; i++) {
+			provider.verify(token("user" + i + "@test.com", System.currentTimeMillis() + 60_000));
+			assertThat(provider.cachedTokens()).isLessThanOrEqualTo(10);
+		}
+	}
+
+	@Test
+	void aTamperedTokenIsNeverServedFromTheCache() {
+		JwtProvider provider = new JwtProvider(10);
+		String token = token("owner@test.com", System.currentTimeMillis() + 60_000);
+		String other = token("admin@test.com", System.currentTimeMillis() + 60_000);
+		provider.verify(token);
+
+		String[] parts = token.split("\\.");
+		String[] otherParts = other.split("\\.");
+		char last = parts[2].charAt(parts[2].length() - 1);
+		String badSignature = parts[0] + "." + parts[1] + "."
+				+ parts[2].substring(0, parts[2].length() - 1) + (last == 'A' ? 'B' : 'A');
+		String swappedClaims = parts[0] + "." + otherParts[1] + "." + parts[2];
+
+		for (int i = 0; i < 2; i++) {
+			assertThatThrownBy(() -> provider.verify(badSignature)).isInstanceOf(JwtException.class);
+			assertThatThrownBy(() -> provider.verify(swappedClaims)).isInstanceOf(JwtException.class);
+		}
+		assertThat(provider.cachedTokens()).isEqualTo(1);
+		assertThat(provider.verify(token).get("email")).isEqualTo("owner@test.com");
+	}
+
+	private static String token(String email, long expiresAt) {
+		return Jwts.builder()
+				.setIssuedAt(new Date())
+				.setExpiration(new Date(expiresAt))
+				.claim("email", email)
+				.claim("authorities", "ROLE_CUSTOMER")
+				.signWith(KEY)
+				.compact();
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.zosh.config;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Cost of turning a request's token into claims: the old filter rebuilt the
+ * key and parser per request, the shared parser only verifies, and the
+ * provider returns cached claims for a token it has verified before.
+ *
+ * Run after mvn test-compile with the main method, or with
+ * org.openjdk.jmh.Main JwtVerification on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+	private String token;
+	private JwtParser parser;
+	private JwtProvider provider;
+
+	@Setup
+	public void setUp() {
+		SecretKey key = Keys.hmacShaKeyFor(JwtConstant.SECRET_KEY.getBytes());
+		token = Jwts.builder()
+				.setIssuedAt(new Date())
+				.setExpiration(new Date(System.currentTimeMillis() + 86400000))
+				.claim("email", "benchmark@test.com")
+				.claim("authorities", "ROLE_CUSTOMER")
+				.signWith(key)
+				.compact();
+		parser = Jwts.parserBuilder().setSigningKey(key).build();
+		provider = new JwtProvider(10000);
+		provider.verify(token);
+	}
+
+	@Benchmark
+	public Claims rebuildKeyAndParser() {
+		SecretKey key = Keys.hmacShaKeyFor(JwtConstant.SECRET_KEY.getBytes());
+		return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+	}
+
+	@Benchmark
+	public Claims sharedParser() {
+		return parser.parseClaimsJws(token).getBody();
+	}
+
+	@Benchmark
+	public Claims cachedClaims() {
+		return provider.verify(token);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(JwtVerificationBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.zosh.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.zosh.config.RateLimiter.Group;
+
+class RateLimitFilterTests {
+
+	@Test
+	void routesMapToTheirGroups() {
+		assertThat(RateLimitFilter.group("/api/admin/restaurants")).isEqualTo(Group.ADMIN);
+		assertThat(RateLimitFilter.group("/api/admin/order/restaurant/1")).isEqualTo(Group.ADMIN);
+		assertThat(RateLimitFilter.group("/api/food/search")).isEqualTo(Group.SEARCH);
+		assertThat(RateLimitFilter.group("/api/restaurants/search")).isEqualTo(Group.SEARCH);
+		assertThat(RateLimitFilter.group("/api/restaurants/nearby")).isEqualTo(Group.SEARCH);
+		assertThat(RateLimitFilter.group("/api/cart/add")).isEqualTo(Group.CART);
+		assertThat(RateLimitFilter.group("/api/cart-item/update")).isEqualTo(Group.CART);
+		assertThat(RateLimitFilter.group("/api/order")).isEqualTo(Group.ORDER);
+		assertThat(RateLimitFilter.group("/api/order/user")).isEqualTo(Group.ORDER);
+		assertThat(RateLimitFilter.group("/api/restaurants/1")).isEqualTo(Group.DEFAULT);
+		assertThat(RateLimitFilter.group("/api/users/profile")).isEqualTo(Group.DEFAULT);
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.zosh.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zosh.config.RateLimiter.Group;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RateLimiterTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+	private static final long T0 = 1_000 * SECOND;
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final HikariPoolMXBean poolBean = mock(HikariPoolMXBean.class);
+
+	// the limiter's clock when it was built; its overflow buckets start full then
+	private long t0;
+
+	@Test
+	void aNewBucketAllowsABurstOfCapacity() {
+		RateLimiter.Limit limit = new RateLimiter.Limit(3, 1, false);
+		RateLimiter.TokenBucket bucket = new RateLimiter.TokenBucket(T0);
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(bucket.tryAcquire(T0, limit)).isZero();
+		}
+		assertThat(bucket.tryAcquire(T0, limit)).isEqualTo(SECOND);
+	}
+
+	@Test
+	void tokensComeBackAtTheRefillRate() {
+		RateLimiter.Limit limit = new RateLimiter.Limit(2, 4, false);
+		RateLimiter.TokenBucket bucket = new RateLimiter.TokenBucket(T0);
+		bucket.tryAcquire(T0, limit);
+		bucket.tryAcquire(T0, limit);
+
+		long quarter = SECOND / 4;
+		assertThat(bucket.tryAcquire(T0 + quarter / 2, limit)).isEqualTo(quarter / 2);
+		assertThat(bucket.tryAcquire(T0 + quarter, limit)).isZero();
+		assertThat(bucket.tryAcquire(T0 + quarter, limit)).isEqualTo(quarter);
+
+		// a long pause refills the bucket, but never beyond capacity
+		long later = T0 + 10 * SECOND;
+		assertThat(bucket.tryAcquire(later, limit)).isZero();
+		assertThat(bucket.tryAcquire(later, limit)).isZero();
+		assertThat(bucket.tryAcquire(later, limit)).isEqualTo(quarter);
+	}
+
+	@Test
+	void retryAfterRoundsUpToWholeSeconds() {
+		assertThat(RateLimiter.retryAfterSeconds(1)).isEqualTo(1);
+		assertThat(RateLimiter.retryAfterSeconds(SECOND / 2)).isEqualTo(1);
+		assertThat(RateLimiter.retryAfterSeconds(SECOND)).isEqualTo(1);
+		assertThat(RateLimiter.retryAfterSeconds(SECOND + 1)).isEqualTo(2);
+		assertThat(RateLimiter.retryAfterSeconds(5 * SECOND)).isEqualTo(5);
+	}
+
+	@Test
+	void callersAndGroupsHaveTheirOwnBuckets() {
+		RateLimiter limiter = limiter(100, "rate-limit.order.capacity", "1");
+
+		assertThat(limiter.acquire(Group.ORDER, "user:a", t0)).isZero();
+		assertThat(limiter.acquire(Group.ORDER, "user:a", t0)).isPositive();
+		assertThat(limiter.acquire(Group.ORDER, "user:b", t0)).isZero();
+		assertThat(limiter.acquire(Group.CART, "user:a", t0)).isZero();
+		assertThat(requests(Group.ORDER, "allowed")).isEqualTo(2);
+		assertThat(requests(Group.ORDER, "limited")).isEqualTo(1);
+	}
+
+	@Test
+	void onlyRefilledBucketsAreEvicted() {
+		RateLimiter limiter = limiter(100, "rate-limit.order.capacity", "2", "rate-limit.order.refill-per-second", "1");
+		limiter.acquire(Group.ORDER, "user:a", t0);
+		limiter.acquire(Group.ORDER, "user:b", t0);
+		limiter.acquire(Group.ORDER, "user:b", t0);
+
+		limiter.evictIdle(t0 + SECOND);
+		assertThat(buckets()).isEqualTo(1);
+		limiter.evictIdle(t0 + 2 * SECOND);
+		assertThat(buckets()).isZero();
+
+		// a caller coming back gets a full bucket again
+		assertThat(limiter.acquire(Group.ORDER, "user:b", t0 + 2 * SECOND)).isZero();
+		assertThat(limiter.acquire(Group.ORDER, "user:b", t0 + 2 * SECOND)).isZero();
+	}
+
+	@Test
+	void newCallersShareAnOverflowBucketOnceTheMapIsFull() {
+		RateLimiter limiter = limiter(2, "rate-limit.order.capacity", "2");
+		limiter.acquire(Group.ORDER, "user:a", t0);
+		limiter.acquire(Group.ORDER, "user:b", t0);
+
+		assertThat(limiter.acquire(Group.ORDER, "user:c", t0)).isZero();
+		assertThat(limiter.acquire(Group.ORDER, "user:d", t0)).isZero();
+		assertThat(limiter.acquire(Group.ORDER, "user:e", t0)).isPositive();
+		assertThat(buckets()).isEqualTo(2);
+
+		// refilled buckets stay until the scheduled sweep, requests never sweep
+		assertThat(limiter.acquire(Group.ORDER, "user:f", t0 + 60 * SECOND)).isZero();
+		assertThat(buckets()).isEqualTo(2);
+
+		// once the sweep has dropped the refilled buckets there is room again
+		limiter.evictIdle(t0 + 60 * SECOND);
+		assertThat(limiter.acquire(Group.ORDER, "user:e", t0 + 60 * SECOND)).isZero();
+		assertThat(limiter.acquire(Group.ORDER, "user:e", t0 + 60 * SECOND)).isZero();
+		assertThat(limiter.acquire(Group.ORDER, "user:e", t0 + 60 * SECOND)).isPositive();
+	}
+
+	@Test
+	void loadIsShedOnlyWhileTheWaitQueueStaysLong() {
+		// pool of 10, queue ratio 1, sustain 1s
+		RateLimiter limiter = limiter(100);
+		long ms = TimeUnit.MILLISECONDS.toNanos(1);
+
+		when(poolBean.getThreadsAwaitingConnection()).thenReturn(3);
+		assertThat(limiter.acquire(Group.SEARCH, "user:a", t0)).isZero();
+
+		when(poolBean.getThreadsAwaitingConnection()).thenReturn(10);
+		assertThat(limiter.acquire(Group.SEARCH, "user:a", t0)).isZero();
+		assertThat(limiter.acquire(Group.SEARCH, "user:a", t0 + 999 * ms)).isZero();
+		assertThat(limiter.acquire(Group.SEARCH, "user:a", t0 + 1000 * ms)).isEqualTo(RateLimiter.SHED);
+		// groups that do not shed are still served
+		assertThat(limiter.acquire(Group.ORDER, "user:a", t0 + 1000 * ms)).isZero();
+
+		// the queue drained: the next long queue has to last the full period again
+		when(poolBean.getThreadsAwaitingConnection()).thenReturn(0);
+		assertThat(limiter.acquire(Group.SEARCH, "user:a", t0 + 1001 * ms)).isZero();
+		when(poolBean.getThreadsAwaitingConnection()).thenReturn(12);
+		assertThat(limiter.acquire(Group.SEARCH, "user:a", t0 + 1002 * ms)).isZero();
+		assertThat(limiter.acquire(Group.SEARCH, "user:a", t0 + 2002 * ms)).isEqualTo(RateLimiter.SHED);
+		assertThat(requests(Group.SEARCH, "shed")).isEqualTo(2);
+	}
+
+	private RateLimiter limiter(int maxBuckets, String... properties) {
+		MockEnvironment environment = new MockEnvironment();
+		for (int i = 0; i < properties.length; i += 2) {
+			environment.setProperty(properties[i], properties[i + 1]);
+		}
+		RateLimiter limiter = new RateLimiter(dataSource(), environment, meterRegistry, maxBuckets, 1.0, 1000);
+		t0 = System.nanoTime();
+		return limiter;
+	}
+
+	private DataSource dataSource() {
+		HikariDataSource hikari = mock(HikariDataSource.class);
+		when(hikari.getHikariPoolMXBean()).thenReturn(poolBean);
+		when(hikari.getMaximumPoolSize()).thenReturn(10);
+		DataSource dataSource = mock(DataSource.class);
+		try {
+			when(dataSource.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+			when(dataSource.unwrap(HikariDataSource.class)).thenReturn(hikari);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		return dataSource;
+	}
+
+	private double requests(Group group, String result) {
+		return meterRegistry.get("rate.limit.requests").tag("group", group.name().toLowerCase()).tag("result", result)
+				.counter().count();
+	}
+
+	private double buckets() {
+		return meterRegistry.get("rate.limit.buckets").gauge().value();
+	}
+
+}
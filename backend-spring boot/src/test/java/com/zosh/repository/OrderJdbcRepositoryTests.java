@@ -0,0 +1,131 @@
+package com.zosh.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.zosh.domain.OrderStatus;
+import com.zosh.model.Address;
+import com.zosh.model.Food;
+import com.zosh.model.Order;
+import com.zosh.model.OrderItem;
+import com.zosh.model.Restaurant;
+import com.zosh.model.User;
+
+class OrderJdbcRepositoryTests {
+
+	private final AtomicLong executed = new AtomicLong();
+
+	@Test
+	void statementCountIsConstantRegardlessOfCartSize() throws Exception {
+		long single = countRoundTrips(1);
+		long large = countRoundTrips(40);
+
+		assertThat(single).isEqualTo(3);
+		assertThat(large).isEqualTo(single);
+	}
+
+	@Test
+	void assignsGeneratedIdsToOrderAndItems() throws Exception {
+		Connection con = mockConnection();
+		Order order = newOrder(3);
+
+		new OrderJdbcRepository(new JdbcTemplate(dataSource(con))).insertOrder(order);
+
+		assertThat(order.getId()).isNotNull();
+		assertThat(order.getItems()).allSatisfy(item -> assertThat(item.getId()).isNotNull());
+	}
+
+	// prepared statements actually sent to the server: executeUpdate + executeBatch
+	private long countRoundTrips(int itemCount) throws Exception {
+		Connection con = mockConnection();
+		new OrderJdbcRepository(new JdbcTemplate(dataSource(con))).insertOrder(newOrder(itemCount));
+
+		long prepared = mockingDetails(con).getInvocations().stream()
+				.filter(i -> i.getMethod().getName().equals("prepareStatement"))
+				.count();
+		assertThat(prepared).isEqualTo(3);
+		return executed.get();
+	}
+
+	private Connection mockConnection() throws Exception {
+		executed.set(0);
+		AtomicLong ids = new AtomicLong(100);
+
+		ResultSet keys = mock(ResultSet.class);
+		when(keys.next()).thenReturn(true);
+		when(keys.getLong(1)).thenAnswer(inv -> ids.incrementAndGet());
+
+		PreparedStatement ps = mock(PreparedStatement.class);
+		when(ps.getGeneratedKeys()).thenReturn(keys);
+		when(ps.executeUpdate()).thenAnswer(inv -> {
+			executed.incrementAndGet();
+			return 1;
+		});
+		when(ps.executeBatch()).thenAnswer(inv -> {
+			executed.incrementAndGet();
+			return new int[0];
+		});
+
+		Connection con = mock(Connection.class);
+		when(con.prepareStatement(anyString())).thenReturn(ps);
+		when(con.prepareStatement(anyString(), anyInt())).thenReturn(ps);
+		return con;
+	}
+
+	private DataSource dataSource(Connection con) throws Exception {
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.getConnection()).thenReturn(con);
+		return dataSource;
+	}
+
+	private Order newOrder(int itemCount) {
+		User customer = new User();
+		customer.setId(1L);
+		Restaurant restaurant = new Restaurant();
+		restaurant.setId(2L);
+		Address address = new Address();
+		address.setId(3L);
+
+		List<OrderItem> items = new ArrayList<>();
+		for (int i = 0; i < itemCount; i++) {
+			Food food = new Food();
+			food.setId((long) i + 10);
+			food.setPrice(5L);
+
+			OrderItem item = new OrderItem();
+			item.setFood(food);
+			item.setQuantity(2);
+			item.setTotalPrice(10L);
+			item.setIngredients(List.of("cheese"));
+			items.add(item);
+		}
+
+		Order order = new Order();
+		order.setCustomer(customer);
+		order.setRestaurant(restaurant);
+		order.setDeliveryAddress(address);
+		order.setCreatedAt(new Date());
+		order.setOrderStatus(OrderStatus.PENDING);
+		order.setTotalAmount(10L * itemCount);
+		order.setItems(items);
+		return order;
+	}
+
+}
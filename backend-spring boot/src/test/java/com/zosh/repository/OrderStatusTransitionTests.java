@@ -0,0 +1,151 @@
+package com.zosh.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.domain.OrderStatus;
+import com.zosh.model.Order;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderStatusTransitionTests {
+
+	private static final int THREADS = 16;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	private final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdownNow();
+		orderRepository.deleteAll();
+	}
+
+	@Test
+	void onlyOneOfManyConcurrentIdenticalTransitionsWins() throws Exception {
+		Long orderId = newPendingOrder();
+
+		List<Integer> results = hammer(() -> orderRepository.transitionStatus(orderId,
+				OrderStatus.OUT_FOR_DELIVERY, OrderStatus.OUT_FOR_DELIVERY.allowedPredecessors()));
+
+		assertThat(results.stream().mapToInt(Integer::intValue).sum()).isEqualTo(1);
+		assertThat(orderRepository.findStatusById(orderId)).contains(OrderStatus.OUT_FOR_DELIVERY);
+	}
+
+	@Test
+	void compareAndSetNeverLosesAnUpdate() throws Exception {
+		Long orderId = newPendingOrder();
+		Map<OrderStatus, OrderStatus> applied = new ConcurrentHashMap<>();
+		List<OrderStatus> duplicates = new ArrayList<>();
+
+		// every thread reads a (possibly stale) status and tries to move it one step on
+		hammer(() -> {
+			int wins = 0;
+			for (int i = 0; i < 20; i++) {
+				OrderStatus from = orderRepository.findStatusById(orderId).orElseThrow();
+				List<OrderStatus> targets = new ArrayList<>(from.nextStatuses());
+				if (targets.isEmpty()) {
+					break;
+				}
+				OrderStatus to = targets.get(ThreadLocalRandom.current().nextInt(targets.size()));
+				if (orderRepository.compareAndSetStatus(orderId, from, to) == 1) {
+					wins++;
+					if (applied.putIfAbsent(from, to) != null) {
+						synchronized (duplicates) {
+							duplicates.add(from);
+						}
+					}
+				}
+			}
+			return wins;
+		});
+
+		// the winning moves must form one legal chain from PENDING to the stored status
+		assertThat(duplicates).isEmpty();
+		OrderStatus status = OrderStatus.PENDING;
+		Set<OrderStatus> visited = new HashSet<>();
+		while (applied.containsKey(status)) {
+			assertThat(visited.add(status)).isTrue();
+			OrderStatus next = applied.get(status);
+			assertThat(status.canTransitionTo(next)).isTrue();
+			status = next;
+		}
+		assertThat(visited).hasSize(applied.size());
+		assertThat(orderRepository.findStatusById(orderId)).contains(status);
+	}
+
+	@Test
+	void rejectsIllegalAndStaleTransitions() {
+		Long orderId = newPendingOrder();
+
+		assertThat(orderRepository.compareAndSetStatus(orderId, OrderStatus.PENDING, OrderStatus.READY_FOR_PICKUP))
+				.isEqualTo(1);
+		assertThat(orderRepository.compareAndSetStatus(orderId, OrderStatus.PENDING, OrderStatus.OUT_FOR_DELIVERY)).isZero();
+		assertThat(orderRepository.transitionStatus(orderId, OrderStatus.DELIVERED,
+				OrderStatus.DELIVERED.allowedPredecessors())).isZero();
+		assertThat(orderRepository.findStatusById(orderId)).contains(OrderStatus.READY_FOR_PICKUP);
+	}
+
+	@Test
+	void statusesFollowTheDeliverySequence() {
+		assertThat(OrderStatus.PENDING.nextStatuses()).containsExactlyInAnyOrder(OrderStatus.RECEIVED,
+				OrderStatus.READY_FOR_PICKUP, OrderStatus.OUT_FOR_DELIVERY);
+		assertThat(OrderStatus.READY_FOR_PICKUP.nextStatuses()).containsExactlyInAnyOrder(OrderStatus.OUT_FOR_DELIVERY,
+				OrderStatus.COMPLETED);
+		assertThat(OrderStatus.OUT_FOR_DELIVERY.nextStatuses()).containsExactly(OrderStatus.DELIVERED);
+		assertThat(OrderStatus.DELIVERED.nextStatuses()).containsExactly(OrderStatus.COMPLETED);
+		assertThat(OrderStatus.COMPLETED.allowedPredecessors()).containsExactlyInAnyOrder(OrderStatus.READY_FOR_PICKUP,
+				OrderStatus.DELIVERED);
+		// only the cancel endpoint cancels, and nothing moves an order back to PENDING
+		assertThat(OrderStatus.CANCELLED.allowedPredecessors()).isEmpty();
+		assertThat(OrderStatus.PENDING.allowedPredecessors()).isEmpty();
+	}
+
+	private List<Integer> hammer(Callable<Integer> task) throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			futures.add(pool.submit(() -> {
+				start.await();
+				return task.call();
+			}));
+		}
+		start.countDown();
+
+		List<Integer> results = new ArrayList<>();
+		for (Future<Integer> future : futures) {
+			results.add(future.get());
+		}
+		return results;
+	}
+
+	private Long newPendingOrder() {
+		Order order = new Order();
+		order.setOrderStatus(OrderStatus.PENDING);
+		order.setCreatedAt(new Date());
+		return orderRepository.save(order).getId();
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.zosh.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.zosh.domain.RestaurantSort;
+import com.zosh.model.Address;
+import com.zosh.model.Restaurant;
+import com.zosh.model.Review;
+import com.zosh.response.RestaurantSummaryPageResponse;
+import com.zosh.response.RestaurantSummaryResponse;
+import com.zosh.service.RestaurantServiceImplementation;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics=true" })
+class RestaurantSummaryQueryTests {
+
+	private static final int PAGE = 3;
+
+	@Autowired
+	private RestaurantRepository restaurantRepository;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private final List<Restaurant> restaurants = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		String[] names = { "Biryani House", null, "Dosa Corner", "Biryani House", "Amritsari Dhaba", null, "Chaat Street",
+				"Momo Point" };
+		double[] ratings = { 4.5, 3.0, 4.5, 2.0, 5.0, 0, 4.5, 3.5 };
+		for (int i = 0; i < names.length; i++) {
+			Address address = new Address();
+			address.setCity("Pune");
+			entityManager.persist(address);
+
+			Restaurant restaurant = new Restaurant();
+			restaurant.setName(names[i]);
+			restaurant.setCuisineType("Indian");
+			restaurant.setAddress(address);
+			restaurant.setRating(ratings[i]);
+			restaurant.setThumbnail("img-" + i + ".png");
+			restaurant.setImages(List.of("img-" + i + ".png", "other.png"));
+			entityManager.persist(restaurant);
+			restaurants.add(restaurant);
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void pagesByNameWithUnnamedRestaurantsFirst() throws Exception {
+		List<Restaurant> expected = new ArrayList<>(restaurants);
+		expected.sort(Comparator.comparing(Restaurant::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+				.thenComparing(Restaurant::getId));
+
+		// every page size, so that some page starts inside, at the end of and after the unnamed ones
+		for (int size = 1; size <= restaurants.size(); size++) {
+			List<RestaurantSummaryResponse> all = pageThrough(RestaurantSort.NAME, size);
+
+			assertThat(all).as("pages of %d", size).extracting(RestaurantSummaryResponse::getId)
+					.containsExactlyElementsOf(expected.stream().map(Restaurant::getId).toList());
+			assertThat(all.get(all.size() - 1).getCity()).isEqualTo("Pune");
+		}
+	}
+
+	@Test
+	void pagesByRatingAndNewest() throws Exception {
+		List<Restaurant> expected = new ArrayList<>(restaurants);
+		expected.sort(Comparator.comparing(Restaurant::getRating).thenComparing(Restaurant::getId).reversed());
+		assertThat(pageThrough(RestaurantSort.RATING, PAGE)).extracting(RestaurantSummaryResponse::getId)
+				.containsExactlyElementsOf(expected.stream().map(Restaurant::getId).toList());
+
+		assertThat(pageThrough(RestaurantSort.NEWEST, PAGE)).extracting(RestaurantSummaryResponse::getId)
+				.isSortedAccordingTo(Comparator.reverseOrder()).hasSize(restaurants.size());
+	}
+
+	@Test
+	void aNextPageIsASingleSeek() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		List<RestaurantSummaryResponse> page = restaurantRepository.findSummariesByNameAfter("Biryani House",
+				restaurants.get(0).getId(), PageRequest.of(0, PAGE));
+
+		assertThat(page).extracting(RestaurantSummaryResponse::getName).containsExactly("Biryani House", "Chaat Street",
+				"Dosa Corner");
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void readsAPageInOneStatement() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		List<RestaurantSummaryResponse> page = restaurantRepository.findFirstSummariesByRating(PageRequest.of(0, 5));
+
+		assertThat(page).hasSize(5);
+		assertThat(page.get(0).getThumbnail()).isEqualTo("img-4.png");
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void refreshRatingRecountsReviews() {
+		Restaurant restaurant = restaurants.get(5);
+		for (double rating : new double[] { 4, 5, 3 }) {
+			Review review = new Review();
+			review.setRestaurant(entityManager.find(Restaurant.class, restaurant.getId()));
+			review.setRating(rating);
+			entityManager.persist(review);
+		}
+		entityManager.flush();
+
+		restaurantRepository.refreshRating(restaurant.getId());
+		entityManager.clear();
+
+		Restaurant refreshed = entityManager.find(Restaurant.class, restaurant.getId());
+		assertThat(refreshed.getNumRating()).isEqualTo(3);
+		assertThat(refreshed.getRating()).isEqualTo(4.0);
+	}
+
+	private List<RestaurantSummaryResponse> pageThrough(RestaurantSort sort, int size) throws Exception {
+		RestaurantServiceImplementation service = new RestaurantServiceImplementation();
+		ReflectionTestUtils.setField(service, "restaurantRepository", restaurantRepository);
+		List<RestaurantSummaryResponse> all = new ArrayList<>();
+		String cursor = null;
+		do {
+			RestaurantSummaryPageResponse page = service.getRestaurantSummaries(sort, cursor, size);
+			all.addAll(page.getRestaurants());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return all;
+	}
+
+}
@@ -0,0 +1,307 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.model.Cart;
+import com.zosh.model.User;
+import com.zosh.repository.CartRepository;
+import com.zosh.repository.UserRepository;
+import com.zosh.repository.foodRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartCacheTests {
+
+	private static final int USERS = 6;
+	private static final int THREADS = 8;
+	private static final int EDITS_PER_THREAD = 100;
+
+	@Autowired
+	private CartRepository cartRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private foodRepository foodRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+
+	// makes every cart write fail while set
+	private final AtomicBoolean databaseDown = new AtomicBoolean();
+
+	private final List<Long> userIds = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < USERS; i++) {
+			User user = new User();
+			user.setEmail("cart" + i + "@test.com");
+			user = userRepository.save(user);
+			Cart cart = new Cart();
+			cart.setCustomer(user);
+			cart.setTotal(0L);
+			cartRepository.save(cart);
+			userIds.add(user.getId());
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdownNow();
+		cartRepository.deleteAll();
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void editsRacingWithEvictionAreNeverLost() throws Exception {
+		// room for two of the six carts, so most lookups evict someone
+		CartCache cache = newCache(2, 5, 0);
+		int[] expected = new int[USERS];
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<int[]>> editors = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			editors.add(pool.submit(() -> {
+				int[] edits = new int[USERS];
+				start.await();
+				for (int i = 0; i < EDITS_PER_THREAD; i++) {
+					int user = ThreadLocalRandom.current().nextInt(USERS);
+					CartCache.Entry entry = cache.lock(userIds.get(user));
+					try {
+						entry.getCart().setTotal(entry.getCart().getTotal() + 1);
+						cache.markDirty(entry);
+					} finally {
+						entry.unlock();
+					}
+					edits[user]++;
+				}
+				return edits;
+			}));
+		}
+		AtomicBoolean editing = new AtomicBoolean(true);
+		Future<?> flusher = pool.submit(() -> {
+			while (editing.get()) {
+				cache.flushDue();
+			}
+		});
+
+		start.countDown();
+		for (Future<int[]> editor : editors) {
+			int[] edits = editor.get(60, TimeUnit.SECONDS);
+			for (int user = 0; user < USERS; user++) {
+				expected[user] += edits[user];
+			}
+		}
+		editing.set(false);
+		flusher.get(10, TimeUnit.SECONDS);
+		cache.flushAll();
+
+		for (int user = 0; user < USERS; user++) {
+			assertThat(storedTotal(userIds.get(user))).as("cart of user %d", user).isEqualTo(expected[user]);
+		}
+		assertThat(meterRegistry.get("cart.cache.flush.failures").counter().count()).isZero();
+	}
+
+	@Test
+	void evictionSkipsACartBeingEdited() throws Exception {
+		CartCache cache = newCache(1, 5, 0);
+		Long userId = userIds.get(0);
+		CartCache.Entry entry = cache.lock(userId);
+		try {
+			// would evict the locked, still clean cart
+			cache.get(userIds.get(1));
+			Future<?> other = pool.submit(() -> edit(cache, userId, 10));
+			Thread.sleep(200);
+			assertThat(other.isDone()).isFalse();
+
+			entry.getCart().setTotal(entry.getCart().getTotal() + 1);
+			cache.markDirty(entry);
+		} finally {
+			entry.unlock();
+		}
+		waitForEdits();
+		cache.flushAll();
+
+		assertThat(storedTotal(userId)).isEqualTo(11);
+	}
+
+	@Test
+	void aLockWaitingOnAnInvalidatedCartMovesToTheReloadedOne() throws Exception {
+		CartCache cache = newCache(10, 5, 0);
+		Long userId = userIds.get(0);
+		CartCache.Entry entry = cache.lock(userId);
+		try {
+			Future<?> other = pool.submit(() -> edit(cache, userId, 10));
+			Thread.sleep(200);
+			assertThat(other.isDone()).isFalse();
+
+			// like a failed batch write: the next request reloads and edits a new copy
+			cache.invalidate(entry);
+			edit(cache, userId, 1);
+		} finally {
+			entry.unlock();
+		}
+		waitForEdits();
+		cache.flushAll();
+
+		assertThat(storedTotal(userId)).isEqualTo(11);
+	}
+
+	@Test
+	void aFailedWriteStaysPendingAndIsRetried() throws Exception {
+		CartCache cache = newCache(10, 3, 0);
+		Long userId = userIds.get(0);
+		edit(cache, userId, 5);
+
+		databaseDown.set(true);
+		cache.flushDue();
+		cache.flushDue();
+		assertThat(meterRegistry.get("cart.cache.flush.failures").counter().count()).isEqualTo(2);
+		assertThat(meterRegistry.get("cart.cache.pending").gauge().value()).isEqualTo(1);
+		assertThat(cache.get(userId).getCart().getTotal()).isEqualTo(5);
+
+		databaseDown.set(false);
+		cache.flushDue();
+		assertThat(storedTotal(userId)).isEqualTo(5);
+		assertThat(meterRegistry.get("cart.cache.pending").gauge().value()).isZero();
+		assertThat(meterRegistry.get("cart.cache.flush.discarded").counter().count()).isZero();
+	}
+
+	@Test
+	void aFailedWriteWaitsOutItsBackoff() throws Exception {
+		CartCache cache = newCache(10, 3, 60_000);
+		edit(cache, userIds.get(0), 5);
+
+		databaseDown.set(true);
+		cache.flushDue();
+		cache.flushDue();
+
+		assertThat(meterRegistry.get("cart.cache.flush.failures").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("cart.cache.pending").gauge().value()).isEqualTo(1);
+	}
+
+	@Test
+	void editsAreDroppedAfterMaxFlushAttempts() throws Exception {
+		CartCache cache = newCache(10, 3, 0);
+		Long userId = userIds.get(0);
+		edit(cache, userId, 5);
+
+		databaseDown.set(true);
+		for (int i = 0; i < 3; i++) {
+			cache.flushDue();
+		}
+		databaseDown.set(false);
+
+		assertThat(meterRegistry.get("cart.cache.flush.failures").counter().count()).isEqualTo(2);
+		assertThat(meterRegistry.get("cart.cache.flush.discarded").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("cart.cache.pending").gauge().value()).isZero();
+		// the next request reloads what is stored
+		assertThat(cache.get(userId).getCart().getTotal()).isZero();
+	}
+
+	@Test
+	void metersTrackHitsAndFlushLag() throws Exception {
+		CartCache cache = newCache(10, 3, 0);
+		Long userId = userIds.get(0);
+
+		cache.get(userId);
+		for (int i = 0; i < 3; i++) {
+			cache.get(userId);
+		}
+		assertThat(meterRegistry.get("cart.cache.hit.ratio").gauge().value()).isEqualTo(0.75);
+		assertThat(meterRegistry.get("cart.cache.size").gauge().value()).isEqualTo(1);
+
+		edit(cache, userId, 1);
+		Thread.sleep(50);
+		cache.flushDue();
+
+		assertThat(meterRegistry.get("cart.cache.flush.lag").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("cart.cache.flush.lag").timer().totalTime(TimeUnit.MILLISECONDS))
+				.isGreaterThanOrEqualTo(50);
+		assertThat(storedTotal(userId)).isEqualTo(1);
+	}
+
+	@Test
+	void markDirtyNeedsTheEntryLock() throws Exception {
+		CartCache cache = newCache(10, 3, 0);
+		CartCache.Entry entry = cache.get(userIds.get(0));
+
+		assertThatThrownBy(() -> cache.markDirty(entry)).isInstanceOf(IllegalStateException.class);
+	}
+
+	private CartCache newCache(int maxEntries, int maxFlushAttempts, long flushBackoffMs) {
+		CartRepository failing = mock(CartRepository.class);
+		doAnswer(invocation -> {
+			if (databaseDown.get()) {
+				throw new IllegalStateException("database down");
+			}
+			return cartRepository.save(invocation.getArgument(0));
+		}).when(failing).save(any(Cart.class));
+		doAnswer(invocation -> cartRepository.findByCustomer_Id(invocation.getArgument(0)))
+				.when(failing).findByCustomer_Id(any());
+
+		// coalesce window 0: every pending cart is due on the next tick
+		CartCache cache = new CartCache(failing, foodRepository, transactionManager, meterRegistry, maxEntries, 0,
+				60_000, maxFlushAttempts, flushBackoffMs, flushBackoffMs);
+		ReflectionTestUtils.setField(cache, "entityManager", entityManager);
+		return cache;
+	}
+
+	private void waitForEdits() throws Exception {
+		pool.shutdown();
+		assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	private static Void edit(CartCache cache, Long userId, long amount) throws Exception {
+		CartCache.Entry entry = cache.lock(userId);
+		try {
+			entry.getCart().setTotal(entry.getCart().getTotal() + amount);
+			cache.markDirty(entry);
+		} finally {
+			entry.unlock();
+		}
+		return null;
+	}
+
+	private long storedTotal(Long userId) {
+		return cartRepository.findByCustomer_Id(userId).get().getTotal();
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.zosh.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.zosh.model.Cart;
+import com.zosh.model.CartItem;
+import com.zosh.model.Food;
+import com.zosh.model.IngredientsItem;
+import com.zosh.model.Restaurant;
+
+/**
+ * Finding the cart line for an added food: the old scan compared Lombok's
+ * Food.equals against every line, the new one compares food id and
+ * ingredient-set hash. The added food is an equal copy of the last line's
+ * food, as it is when the food and the cart come from different sessions.
+ *
+ * idAndIngredientsHash includes hashing the request's ingredients, which
+ * addItemToCart does once per add; idLookup is the scan alone.
+ *
+ * Run after mvn test-compile with the main method, or with
+ * org.openjdk.jmh.Main CartLineLookup on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartLineLookupBenchmark {
+
+	@Param({ "5", "50" })
+	private int lines;
+
+	private Cart cart;
+	private Food added;
+	private List<String> addedIngredients;
+	private String addedHash;
+
+	@Setup
+	public void setUp() {
+		Restaurant restaurant = new Restaurant();
+		restaurant.setId(1L);
+		restaurant.setName("Test Kitchen");
+		restaurant.setImages(List.of("restaurant-a", "restaurant-b"));
+
+		cart = new Cart();
+		cart.setId(1L);
+		for (long i = 1; i <= lines; i++) {
+			List<String> ingredients = List.of("cheese", "onion", "sauce " + i);
+			CartItem item = new CartItem();
+			item.setId(i);
+			item.setCart(cart);
+			item.setFood(food(i, restaurant));
+			item.setIngredients(ingredients);
+			item.setIngredientsHash(CartLines.ingredientsHash(ingredients));
+			cart.getItems().add(item);
+		}
+
+		added = food(lines, restaurant);
+		addedIngredients = List.of("sauce " + lines, "cheese", "onion");
+		addedHash = CartLines.ingredientsHash(addedIngredients);
+	}
+
+	private static Food food(long id, Restaurant restaurant) {
+		Food food = new Food();
+		food.setId(id);
+		food.setName("food " + id);
+		food.setDescription("description of food " + id);
+		food.setPrice(100 + id);
+		food.setRestaurant(restaurant);
+		food.setImages(List.of("food-" + id + "-a", "food-" + id + "-b"));
+		List<IngredientsItem> ingredients = new ArrayList<>();
+		for (long j = 0; j < 5; j++) {
+			IngredientsItem ingredient = new IngredientsItem();
+			ingredient.setId(id * 10 + j);
+			ingredient.setName("ingredient " + j);
+			ingredients.add(ingredient);
+		}
+		food.setIngredients(ingredients);
+		return food;
+	}
+
+	@Benchmark
+	public CartItem entityEquality() {
+		for (CartItem cartItem : cart.getItems()) {
+			if (cartItem.getFood().equals(added)) {
+				return cartItem;
+			}
+		}
+		return null;
+	}
+
+	@Benchmark
+	public CartItem idAndIngredientsHash() {
+		return CartLines.find(cart, added.getId(), CartLines.ingredientsHash(addedIngredients));
+	}
+
+	@Benchmark
+	public CartItem idLookup() {
+		return CartLines.find(cart, added.getId(), addedHash);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(CartLineLookupBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,368 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.Exception.CheckoutValidationException;
+import com.zosh.domain.CartOperationType;
+import com.zosh.domain.CheckoutFailureReason;
+import com.zosh.model.Cart;
+import com.zosh.model.CartItem;
+import com.zosh.model.Food;
+import com.zosh.model.IngredientsItem;
+import com.zosh.model.OrderItem;
+import com.zosh.model.Restaurant;
+import com.zosh.model.User;
+import com.zosh.repository.CartItemJdbcRepository;
+import com.zosh.repository.CartItemRepository;
+import com.zosh.repository.CartRepository;
+import com.zosh.repository.IngredientsItemRepository;
+import com.zosh.repository.RestaurantRepository;
+import com.zosh.repository.UserRepository;
+import com.zosh.repository.foodRepository;
+import com.zosh.request.AddCartItemRequest;
+import com.zosh.request.CartOperation;
+import com.zosh.response.CheckoutFailure;
+import com.zosh.response.CheckoutValidationResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// MySQL mode for the INSERT ... ON DUPLICATE KEY UPDATE line upserts
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.datasource.url=jdbc:h2:mem:carts;MODE=MySQL",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ CartServiceImplementation.class, CartCache.class, CartItemJdbcRepository.class, CartServiceTests.Metrics.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartServiceTests {
+
+	private static final String JWT = "jwt";
+
+	@TestConfiguration
+	static class Metrics {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@MockBean
+	private UserService userService;
+
+	@Autowired
+	private CartSerive cartService;
+
+	@Autowired
+	private CartRepository cartRepository;
+
+	@Autowired
+	private CartItemRepository cartItemRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	// pauses checkout validation in checkoutItemsAreCopiedUnderTheValidationLock
+	@SpyBean
+	private foodRepository foodRepository;
+
+	@Autowired
+	private RestaurantRepository restaurantRepository;
+
+	@Autowired
+	private IngredientsItemRepository ingredientsItemRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final ExecutorService pool = Executors.newFixedThreadPool(2);
+
+	private User user;
+	private Restaurant open;
+	private Food food;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		user = new User();
+		user.setEmail("cart@test.com");
+		user = userRepository.save(user);
+		Cart cart = new Cart();
+		cart.setCustomer(user);
+		cart.setTotal(0L);
+		cartRepository.save(cart);
+		when(userService.findUserProfileByJwt(JWT)).thenReturn(user);
+
+		open = restaurant(true);
+		food = food("Dosa", open, 120L, true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdownNow();
+		cartItemRepository.deleteAll();
+		cartRepository.deleteAll();
+		foodRepository.deleteAll();
+		ingredientsItemRepository.deleteAll();
+		restaurantRepository.deleteAll();
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void aRemovedLineAddedAgainStartsFromTheNewQuantity() throws Exception {
+		CartItem line = cartService.addItemToCart(add(2), JWT);
+		cartService.flushCart(user.getId());
+
+		// the removal is only cached when the line is added again
+		cartService.removeItemFromCart(line.getId(), JWT);
+		CartItem again = cartService.addItemToCart(add(1), JWT);
+
+		assertThat(again.getQuantity()).isEqualTo(1);
+		assertStored(1);
+	}
+
+	@Test
+	void removeThenAddInOneBatchStartsFromTheNewQuantity() throws Exception {
+		CartItem line = cartService.addItemToCart(add(2), JWT);
+		cartService.flushCart(user.getId());
+
+		CartOperation remove = new CartOperation();
+		remove.setType(CartOperationType.REMOVE);
+		remove.setCartItemId(line.getId());
+		CartOperation add = new CartOperation();
+		add.setType(CartOperationType.ADD);
+		add.setMenuItemId(food.getId());
+		add.setQuantity(1);
+		add.setIngredients(List.of("chutney"));
+
+		Cart cart = cartService.updateCart(List.of(remove, add), JWT).getCart();
+
+		assertThat(cart.getItems()).extracting(CartItem::getQuantity).containsExactly(1);
+		assertThat(cart.getTotal()).isEqualTo(120);
+		assertStored(1);
+	}
+
+	@Test
+	void aLineAddedAndClearedBeforeTheCartIsWrittenIsRemoved() throws Exception {
+		cartService.addItemToCart(add(food, 1, List.of()), JWT);
+		// upserted straight away, while the cart holding the first line is still unwritten
+		cartService.addItemToCart(add(1), JWT);
+		cartService.clearCart(user.getId());
+		cartService.flushCart(user.getId());
+
+		assertThat(cartItemRepository.count()).isZero();
+		assertThat(cartRepository.findByCustomer_Id(user.getId()).get().getTotal()).isZero();
+	}
+
+	@Test
+	void validationReportsEachFailureWithoutChangingTheCart() throws Exception {
+		Food unavailable = food("Idli", open, 80L, false);
+		Food closed = food("Vada", restaurant(false), 60L, true);
+		Food outOfStock = food("Uttapam", open, 150L, true);
+		IngredientsItem cheese = new IngredientsItem();
+		cheese.setName("cheese");
+		cheese.setInStoke(false);
+		outOfStock.getIngredients().add(ingredientsItemRepository.save(cheese));
+		foodRepository.save(outOfStock);
+
+		Long unavailableLine = cartService.addItemToCart(add(unavailable, 1, List.of()), JWT).getId();
+		Long closedLine = cartService.addItemToCart(add(closed, 1, List.of()), JWT).getId();
+		Long outOfStockLine = cartService.addItemToCart(add(outOfStock, 1, List.of("cheese")), JWT).getId();
+		Long repricedLine = cartService.addItemToCart(add(food, 2, List.of()), JWT).getId();
+		food.setPrice(140L);
+		foodRepository.save(food);
+
+		CheckoutValidationResponse res = cartService.validateCart(user.getId());
+
+		assertThat(res.getValid()).isFalse();
+		assertThat(res.getFailures()).extracting(CheckoutFailure::getCartItemId, CheckoutFailure::getReason)
+				.containsExactlyInAnyOrder(
+						tuple(unavailableLine, CheckoutFailureReason.FOOD_UNAVAILABLE),
+						tuple(closedLine, CheckoutFailureReason.RESTAURANT_CLOSED),
+						tuple(outOfStockLine, CheckoutFailureReason.INGREDIENT_OUT_OF_STOCK),
+						tuple(repricedLine, CheckoutFailureReason.PRICE_CHANGED));
+		// at the new price
+		assertThat(res.getTotal()).isEqualTo(80 + 60 + 150 + 2 * 140);
+
+		Cart cart = cartService.findCartByUserId(user.getId());
+		assertThat(cart.getTotal()).isEqualTo(80 + 60 + 150 + 2 * 120);
+		assertThat(line(cart, repricedLine).getUnitPrice()).isEqualTo(120);
+	}
+
+	@Test
+	void repricingTakesTheNewPriceAndPassesValidation() throws Exception {
+		Long line = cartService.addItemToCart(add(food, 2, List.of()), JWT).getId();
+		food.setPrice(140L);
+		foodRepository.save(food);
+
+		Cart cart = cartService.repriceCart(user.getId());
+
+		assertThat(line(cart, line).getUnitPrice()).isEqualTo(140);
+		assertThat(line(cart, line).getTotalPrice()).isEqualTo(280);
+		assertThat(cart.getTotal()).isEqualTo(280);
+		CheckoutValidationResponse res = cartService.validateCart(user.getId());
+		assertThat(res.getValid()).isTrue();
+		assertThat(res.getTotal()).isEqualTo(280);
+	}
+
+	@Test
+	void aDriftedTotalIsCountedNotCorrected() throws Exception {
+		cartService.addItemToCart(add(food, 1, List.of()), JWT);
+		cartService.findCartByUserId(user.getId()).setTotal(999L);
+		double before = driftCount();
+
+		CheckoutValidationResponse res = cartService.validateCart(user.getId());
+
+		assertThat(res.getValid()).isTrue();
+		assertThat(res.getTotal()).isEqualTo(120);
+		assertThat(driftCount() - before).isEqualTo(1);
+		assertThat(cartService.findCartByUserId(user.getId()).getTotal()).isEqualTo(999);
+		assertThat(cartService.repriceCart(user.getId()).getTotal()).isEqualTo(120);
+	}
+
+	@Test
+	void checkoutItemsAreCopiedUnderTheValidationLock() throws Exception {
+		cartService.addItemToCart(add(food, 2, List.of()), JWT);
+		List<Object[]> rows = foodRepository.findCheckoutRowsByFoodIds(List.of(food.getId()));
+		CountDownLatch validating = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			validating.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return rows;
+		}).when(foodRepository).findCheckoutRowsByFoodIds(any());
+
+		Future<List<OrderItem>> checkout = pool.submit(() -> cartService.checkoutItems(user.getId()));
+		assertThat(validating.await(10, TimeUnit.SECONDS)).isTrue();
+		// the same user empties the cart while checkout validates it
+		Future<Cart> clear = pool.submit(() -> cartService.clearCart(user.getId()));
+		Thread.sleep(200);
+		assertThat(clear.isDone()).isFalse();
+
+		release.countDown();
+		assertThat(checkout.get(10, TimeUnit.SECONDS)).extracting(OrderItem::getQuantity, OrderItem::getTotalPrice)
+				.containsExactly(tuple(2, 240L));
+		assertThat(clear.get(10, TimeUnit.SECONDS).getItems()).isEmpty();
+	}
+
+	@Test
+	void checkoutRacingWithEditsSeesAWholeCart() throws Exception {
+		AtomicBoolean editing = new AtomicBoolean(true);
+		Future<?> editor = pool.submit(() -> {
+			while (editing.get()) {
+				cartService.addItemToCart(add(food, 1, List.of()), JWT);
+				cartService.addItemToCart(add(food, 1, List.of("chutney")), JWT);
+				cartService.clearCart(user.getId());
+			}
+			return null;
+		});
+
+		List<Long> totals = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			try {
+				long total = 0;
+				for (OrderItem item : cartService.checkoutItems(user.getId())) {
+					total += item.getTotalPrice();
+				}
+				totals.add(total);
+			} catch (CheckoutValidationException e) {
+				assertThat(e.getValidation().getFailures()).extracting(CheckoutFailure::getReason)
+						.containsExactly(CheckoutFailureReason.EMPTY_CART);
+			}
+		}
+		editing.set(false);
+		editor.get(10, TimeUnit.SECONDS);
+
+		// one or both lines, never an empty order
+		assertThat(totals).allMatch(total -> total == 120 || total == 240);
+	}
+
+	@Test
+	void anInvalidCartIsNotCheckedOut() throws Exception {
+		cartService.addItemToCart(add(food, 1, List.of()), JWT);
+		food.setPrice(140L);
+		foodRepository.save(food);
+
+		assertThatThrownBy(() -> cartService.checkoutItems(user.getId()))
+				.isInstanceOf(CheckoutValidationException.class);
+		// repriced, so the next checkout goes through at the new price
+		assertThat(cartService.checkoutItems(user.getId())).extracting(OrderItem::getTotalPrice).containsExactly(140L);
+	}
+
+	private void assertStored(int quantity) throws Exception {
+		cartService.flushCart(user.getId());
+		Cart stored = cartRepository.findByCustomer_Id(user.getId()).get();
+		assertThat(stored.getTotal()).isEqualTo(120L * quantity);
+		assertThat(cartItemRepository.findAll()).extracting(CartItem::getQuantity).containsExactly(quantity);
+	}
+
+	private AddCartItemRequest add(int quantity) {
+		return add(food, quantity, List.of("chutney"));
+	}
+
+	private static AddCartItemRequest add(Food food, int quantity, List<String> ingredients) {
+		AddCartItemRequest req = new AddCartItemRequest();
+		req.setMenuItemId(food.getId());
+		req.setQuantity(quantity);
+		req.setIngredients(ingredients);
+		return req;
+	}
+
+	private Restaurant restaurant(boolean isOpen) {
+		Restaurant restaurant = new Restaurant();
+		restaurant.setName(isOpen ? "Open Kitchen" : "Closed Kitchen");
+		restaurant.setOpen(isOpen);
+		return restaurantRepository.save(restaurant);
+	}
+
+	private Food food(String name, Restaurant restaurant, long price, boolean available) {
+		Food food = new Food();
+		food.setName(name);
+		food.setRestaurant(restaurant);
+		food.setPrice(price);
+		food.setAvailable(available);
+		return foodRepository.save(food);
+	}
+
+	// registered with the first drift
+	private double driftCount() {
+		Counter drift = meterRegistry.find("cart.total.drift").counter();
+		return drift == null ? 0 : drift.count();
+	}
+
+	private static CartItem line(Cart cart, Long cartItemId) {
+		return cart.getItems().stream().filter(item -> item.getId().equals(cartItemId)).findFirst().orElseThrow();
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.zosh.service.CatalogVersions.Aggregate;
+
+class CatalogVersionsTests {
+
+	@Test
+	void bumpChangesOnlyTheTagsOfWhatWasWritten() {
+		CatalogVersions versions = new CatalogVersions();
+		String restaurant = versions.tag(1L, Aggregate.RESTAURANT);
+		String menu = versions.tag(1L, Aggregate.RESTAURANT, Aggregate.MENU);
+		String ingredients = versions.tag(1L, Aggregate.INGREDIENTS);
+		String otherMenu = versions.tag(2L, Aggregate.RESTAURANT, Aggregate.MENU);
+
+		versions.bump(1L, Aggregate.MENU);
+
+		assertThat(versions.tag(1L, Aggregate.RESTAURANT)).isEqualTo(restaurant);
+		assertThat(versions.tag(1L, Aggregate.RESTAURANT, Aggregate.MENU)).isNotEqualTo(menu);
+		assertThat(versions.tag(1L, Aggregate.INGREDIENTS)).isEqualTo(ingredients);
+		assertThat(versions.tag(2L, Aggregate.RESTAURANT, Aggregate.MENU)).isEqualTo(otherMenu);
+
+		// the menu embeds its restaurant
+		menu = versions.tag(1L, Aggregate.RESTAURANT, Aggregate.MENU);
+		versions.bump(1L, Aggregate.RESTAURANT);
+		assertThat(versions.tag(1L, Aggregate.RESTAURANT, Aggregate.MENU)).isNotEqualTo(menu);
+	}
+
+	@Test
+	void tagsFromBeforeARotationNeverMatchAgain() {
+		CatalogVersions versions = new CatalogVersions();
+		versions.bump(1L, Aggregate.CATEGORIES);
+		String before = versions.tag(1L, Aggregate.CATEGORIES);
+
+		versions.rotate();
+		versions.bump(1L, Aggregate.CATEGORIES);
+
+		assertThat(versions.tag(1L, Aggregate.CATEGORIES)).isNotEqualTo(before);
+		assertThat(new CatalogVersions().tag(1L, Aggregate.CATEGORIES)).isNotEqualTo(versions.tag(1L, Aggregate.CATEGORIES));
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class GeoIndexTests {
+
+	@Test
+	void findsTheNearestPointsWithinTheRadius() {
+		GeoIndex<String> index = new GeoIndex<>(2);
+		index.put(1, 18.9388, 72.8354, "Fort");
+		index.put(2, 19.0596, 72.8295, "Bandra");
+		index.put(3, 19.1197, 72.9051, "Powai");
+		index.put(4, 18.5204, 73.8567, "Pune");
+
+		assertThat(values(index.nearest(19.0600, 72.8300, 25, 10))).containsExactly("Bandra", "Powai", "Fort");
+		assertThat(values(index.nearest(19.0600, 72.8300, 25, 2))).containsExactly("Bandra", "Powai");
+		assertThat(values(index.nearest(19.0600, 72.8300, 1, 10))).containsExactly("Bandra");
+		assertThat(index.nearest(19.0600, 72.8300, 25, 1).get(0).getDistanceKm()).isLessThan(0.1);
+	}
+
+	@Test
+	void movesAndRemovesPoints() {
+		GeoIndex<String> index = new GeoIndex<>(2);
+		index.put(1, 18.9388, 72.8354, "Fort");
+		index.put(1, 18.5204, 73.8567, "Pune");
+		assertThat(index.nearest(18.9388, 72.8354, 10, 10)).isEmpty();
+		assertThat(values(index.nearest(18.5204, 73.8567, 10, 10))).containsExactly("Pune");
+
+		index.remove(1);
+		assertThat(index.size()).isZero();
+		assertThat(index.nearest(18.5204, 73.8567, 10, 10)).isEmpty();
+	}
+
+	@Test
+	void agreesWithAFullScan() {
+		Random random = new Random(42);
+		GeoIndex<Integer> index = new GeoIndex<>(2);
+		double[][] points = new double[5000][];
+		for (int i = 0; i < points.length; i++) {
+			// spread over a city sized area, and a few across the antimeridian
+			points[i] = i % 100 == 0
+					? new double[] { -16 + random.nextDouble(), 179.5 + random.nextDouble() - (i % 200 == 0 ? 0 : 359) }
+					: new double[] { 12.8 + random.nextDouble() * 0.4, 77.4 + random.nextDouble() * 0.4 };
+			index.put(i, points[i][0], points[i][1], i);
+		}
+
+		for (int q = 0; q < 200; q++) {
+			double latitude = q % 10 == 0 ? -15.5 : 12.8 + random.nextDouble() * 0.4;
+			double longitude = q % 10 == 0 ? 180 - random.nextDouble() : 77.4 + random.nextDouble() * 0.4;
+			double radiusKm = 1 + random.nextDouble() * 30;
+			int limit = 1 + random.nextInt(20);
+
+			List<double[]> expected = new ArrayList<>();
+			for (int i = 0; i < points.length; i++) {
+				double distanceKm = GeoIndex.distanceKm(latitude, longitude, points[i][0], points[i][1]);
+				if (distanceKm <= radiusKm) {
+					expected.add(new double[] { i, distanceKm });
+				}
+			}
+			expected.sort(Comparator.comparingDouble(e -> e[1]));
+
+			List<GeoIndex.Hit<Integer>> hits = index.nearest(latitude, longitude, radiusKm, limit);
+			assertThat(hits).hasSize(Math.min(limit, expected.size()));
+			for (int i = 0; i < hits.size(); i++) {
+				assertThat(hits.get(i).getDistanceKm()).isEqualTo(expected.get(i)[1]);
+			}
+		}
+	}
+
+	private static <T> List<T> values(List<GeoIndex.Hit<T>> hits) {
+		List<T> values = new ArrayList<>();
+		hits.forEach(hit -> values.add(hit.getValue()));
+		return values;
+	}
+
+}
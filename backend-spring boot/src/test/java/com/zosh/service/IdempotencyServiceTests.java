@@ -0,0 +1,239 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zosh.Exception.OrderException;
+import com.zosh.domain.IdempotencyStatus;
+import com.zosh.domain.OrderStatus;
+import com.zosh.domain.PaymentLinkStatus;
+import com.zosh.model.IdempotencyRecord;
+import com.zosh.model.Order;
+import com.zosh.model.PaymentResponse;
+import com.zosh.repository.IdempotencyRecordRepository;
+import com.zosh.repository.OrderRepository;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTests {
+
+	private static final int THREADS = 16;
+	private static final long LEASE_MS = 60_000;
+
+	@Autowired
+	private IdempotencyRecordRepository recordRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	private final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+	private final AtomicInteger runs = new AtomicInteger();
+	private final AtomicInteger resumes = new AtomicInteger();
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdownNow();
+		recordRepository.deleteAll();
+		orderRepository.deleteAll();
+	}
+
+	@Test
+	void concurrentDuplicatesCoalesceIntoOneOrder() throws Exception {
+		// two instances sharing the table, each with its own in-memory map
+		List<IdempotencyService> instances = List.of(newService(), newService());
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<PaymentResponse>> futures = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			IdempotencyService service = instances.get(i % 2);
+			futures.add(pool.submit(() -> {
+				start.await();
+				try {
+					return service.execute(1L, "key-1", "hash", checkout(false));
+				} catch (OrderException e) {
+					// the other instance's claim was still running
+					return null;
+				}
+			}));
+		}
+		start.countDown();
+
+		List<Long> orderIds = new ArrayList<>();
+		for (Future<PaymentResponse> future : futures) {
+			PaymentResponse res = future.get();
+			if (res != null) {
+				orderIds.add(res.getOrderId());
+			}
+		}
+
+		assertThat(runs).hasValue(1);
+		assertThat(orderRepository.count()).isEqualTo(1);
+		assertThat(orderIds).isNotEmpty().containsOnly(orderRepository.findAll().get(0).getId());
+		// a later retry gets the stored response
+		assertThat(newService().execute(1L, "key-1", "hash", checkout(false)).getOrderId()).isEqualTo(orderIds.get(0));
+		assertThat(runs).hasValue(1);
+	}
+
+	@Test
+	void aFailureAfterTheOrderExistsResumesInsteadOfOrderingAgain() throws Exception {
+		IdempotencyService service = newService();
+
+		PaymentResponse first = service.execute(1L, "key-2", "hash", checkout(true));
+		PaymentResponse retry = newService().execute(1L, "key-2", "hash", checkout(true));
+
+		assertThat(runs).hasValue(1);
+		assertThat(resumes).hasValue(1);
+		assertThat(orderRepository.count()).isEqualTo(1);
+		assertThat(first.getStatus()).isEqualTo(PaymentLinkStatus.PENDING);
+		assertThat(retry.getOrderId()).isEqualTo(first.getOrderId());
+	}
+
+	@Test
+	void aFailureBeforeTheOrderExistsForgetsTheKey() throws Exception {
+		IdempotencyService service = newService();
+
+		assertThatThrownBy(() -> service.execute(1L, "key-3", "hash", failingCheckout())).isInstanceOf(OrderException.class);
+		PaymentResponse retry = service.execute(1L, "key-3", "hash", checkout(false));
+
+		assertThat(runs).hasValue(1);
+		assertThat(retry.getStatus()).isEqualTo(PaymentLinkStatus.READY);
+	}
+
+	@Test
+	void aClaimWhoseLeaseRanOutIsTakenOver() throws Exception {
+		claim("key-4", null, new Date(System.currentTimeMillis() - 1000));
+		assertThatThrownBy(() -> newService().execute(1L, "key-4", "hash", checkout(false)))
+				.isInstanceOf(OrderException.class).hasMessageContaining("still in progress");
+
+		claim("key-5", null, new Date(System.currentTimeMillis() - 2 * LEASE_MS));
+		assertThat(newService().execute(1L, "key-5", "hash", checkout(false)).getStatus())
+				.isEqualTo(PaymentLinkStatus.READY);
+		assertThat(runs).hasValue(1);
+
+		// the crashed checkout had already created its order
+		Long orderId = newOrder();
+		claim("key-6", orderId, new Date(System.currentTimeMillis() - 2 * LEASE_MS));
+		assertThat(newService().execute(1L, "key-6", "hash", checkout(false)).getOrderId()).isEqualTo(orderId);
+		assertThat(runs).hasValue(1);
+		assertThat(resumes).hasValue(1);
+		assertThat(recordRepository.findByUserIdAndIdempotencyKey(1L, "key-6").get().getStatus())
+				.isEqualTo(IdempotencyStatus.COMPLETED);
+	}
+
+	@Test
+	void aClaimHoldsItsLeaseFromTheMomentItIsCreated() throws Exception {
+		Date before = new Date();
+		newService().execute(1L, "key-7", "hash", new IdempotencyService.Checkout() {
+
+			@Override
+			public PaymentResponse run(IdempotencyService.Claim claim) {
+				IdempotencyRecord record = recordRepository.findByUserIdAndIdempotencyKey(1L, "key-7").get();
+				assertThat(record.getClaimedAt()).isEqualTo(record.getCreatedAt()).isAfterOrEqualTo(before);
+				return response(null, PaymentLinkStatus.READY);
+			}
+
+			@Override
+			public PaymentResponse resume(Long orderId) {
+				throw new AssertionError("nothing to resume");
+			}
+		});
+
+		IdempotencyRecord unclaimed = new IdempotencyRecord();
+		unclaimed.setUserId(1L);
+		unclaimed.setIdempotencyKey("key-8");
+		unclaimed.setStatus(IdempotencyStatus.IN_PROGRESS);
+		unclaimed.setCreatedAt(before);
+		assertThatThrownBy(() -> recordRepository.saveAndFlush(unclaimed))
+				.isInstanceOf(DataIntegrityViolationException.class);
+	}
+
+	private IdempotencyService newService() {
+		return new IdempotencyServiceImplementation(recordRepository, new ObjectMapper(), 86_400_000, 100, 30_000,
+				LEASE_MS);
+	}
+
+	// creates an order; optionally fails afterwards, like a payment gateway error would
+	private IdempotencyService.Checkout checkout(boolean failAfterOrder) {
+		return new IdempotencyService.Checkout() {
+
+			@Override
+			public PaymentResponse run(IdempotencyService.Claim claim) throws Exception {
+				runs.incrementAndGet();
+				Long orderId = newOrder();
+				claim.orderCreated(orderId);
+				Thread.sleep(50);
+				if (failAfterOrder) {
+					throw new IllegalStateException("gateway down");
+				}
+				return response(orderId, PaymentLinkStatus.READY);
+			}
+
+			@Override
+			public PaymentResponse resume(Long orderId) {
+				resumes.incrementAndGet();
+				return response(orderId, PaymentLinkStatus.PENDING);
+			}
+		};
+	}
+
+	private IdempotencyService.Checkout failingCheckout() {
+		return new IdempotencyService.Checkout() {
+
+			@Override
+			public PaymentResponse run(IdempotencyService.Claim claim) throws Exception {
+				throw new OrderException("cart is empty");
+			}
+
+			@Override
+			public PaymentResponse resume(Long orderId) {
+				throw new AssertionError("nothing to resume");
+			}
+		};
+	}
+
+	private void claim(String key, Long orderId, Date claimedAt) {
+		IdempotencyRecord record = new IdempotencyRecord();
+		record.setUserId(1L);
+		record.setIdempotencyKey(key);
+		record.setRequestHash("hash");
+		record.setStatus(IdempotencyStatus.IN_PROGRESS);
+		record.setCreatedAt(claimedAt);
+		record.setClaimedAt(claimedAt);
+		record.setExpiresAt(new Date(claimedAt.getTime() + 86_400_000));
+		record.setOrderId(orderId);
+		recordRepository.save(record);
+	}
+
+	private Long newOrder() {
+		Order order = new Order();
+		order.setOrderStatus(OrderStatus.PENDING);
+		order.setCreatedAt(new Date());
+		return orderRepository.save(order).getId();
+	}
+
+	private static PaymentResponse response(Long orderId, PaymentLinkStatus status) {
+		PaymentResponse res = new PaymentResponse();
+		res.setOrderId(orderId);
+		res.setStatus(status);
+		return res;
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.zosh.domain.MailStatus;
+import com.zosh.model.MailOutbox;
+import com.zosh.repository.MailOutboxRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"mail.outbox.backoff-ms=0",
+		"mail.outbox.max-attempts=2" })
+@Import({ MailOutboxServiceImplementation.class, MailOutboxServiceTests.Smtp.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MailOutboxServiceTests {
+
+	@RegisterExtension
+	static final GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP);
+
+	@TestConfiguration
+	static class Smtp {
+
+		@Bean
+		JavaMailSenderImpl mailSender() {
+			JavaMailSenderImpl sender = new JavaMailSenderImpl();
+			sender.setHost("localhost");
+			sender.setPort(ServerSetupTest.SMTP.getPort());
+			return sender;
+		}
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	private MailOutboxService mailOutboxService;
+
+	@Autowired
+	private MailOutboxRepository outboxRepository;
+
+	@Autowired
+	private JavaMailSenderImpl mailSender;
+
+	@BeforeEach
+	void setUp() {
+		outboxRepository.deleteAll();
+	}
+
+	@Test
+	void sendsQueuedEmailsInOneBatch() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			mailOutboxService.enqueue("user" + i + "@test.com", "Password Reset", "token " + i);
+		}
+
+		assertThat(mailOutboxService.dispatch()).isEqualTo(3);
+		assertThat(mailOutboxService.dispatch()).isZero();
+
+		MimeMessage[] received = smtp.getReceivedMessages();
+		assertThat(received).hasSize(3);
+		assertThat(received[0].getSubject()).isEqualTo("Password Reset");
+		assertThat(outboxRepository.findAll()).allSatisfy(mail -> {
+			assertThat(mail.getStatus()).isEqualTo(MailStatus.SENT);
+			assertThat(mail.getAttempts()).isEqualTo(1);
+			assertThat(mail.getSentAt()).isNotNull();
+		});
+	}
+
+	@Test
+	void retriesUntilMaxAttemptsWhenSmtpIsDown() {
+		mailOutboxService.enqueue("user@test.com", "Password Reset", "token");
+		int port = mailSender.getPort();
+		mailSender.setPort(1);
+		try {
+			assertThat(mailOutboxService.dispatch()).isEqualTo(1);
+			MailOutbox mail = outboxRepository.findAll().get(0);
+			assertThat(mail.getStatus()).isEqualTo(MailStatus.PENDING);
+			assertThat(mail.getLastError()).isNotNull();
+
+			assertThat(mailOutboxService.dispatch()).isEqualTo(1);
+			List<MailOutbox> mails = outboxRepository.findAll();
+			assertThat(mails.get(0).getStatus()).isEqualTo(MailStatus.FAILED);
+			assertThat(mails.get(0).getAttempts()).isEqualTo(2);
+			assertThat(mailOutboxService.dispatch()).isZero();
+		} finally {
+			mailSender.setPort(port);
+		}
+		assertThat(smtp.getReceivedMessages()).isEmpty();
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.model.Category;
+import com.zosh.model.Food;
+import com.zosh.model.Restaurant;
+import com.zosh.repository.CategoryRepository;
+import com.zosh.repository.RestaurantRepository;
+import com.zosh.repository.foodRepository;
+import com.zosh.request.CreateFoodRequest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MenuCacheTests {
+
+	@Autowired
+	private foodRepository foodRepository;
+
+	@Autowired
+	private RestaurantRepository restaurantRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	// counts menu loads and lets a test change the menu while one is running
+	private foodRepository menuLoads;
+	private Runnable duringLoad = () -> {};
+
+	private MenuCache menuCache;
+	private FoodServiceImplementation foodService;
+	private Restaurant restaurant;
+	private Category mains;
+
+	@BeforeEach
+	void setUp() {
+		menuLoads = mock(foodRepository.class);
+		doAnswer(invocation -> {
+			List<Food> menu = foodRepository.findByRestaurantId(invocation.getArgument(0));
+			Runnable write = duringLoad;
+			duringLoad = () -> {};
+			// on another thread, so it commits in its own transaction like a concurrent request
+			CompletableFuture.runAsync(write).join();
+			return menu;
+		}).when(menuLoads).findByRestaurantId(anyLong());
+		menuCache = new MenuCache(menuLoads, transactionManager, new SimpleMeterRegistry());
+
+		foodService = new FoodServiceImplementation();
+		ReflectionTestUtils.setField(foodService, "foodRepository", foodRepository);
+		ReflectionTestUtils.setField(foodService, "menuCache", menuCache);
+		ReflectionTestUtils.setField(foodService, "searchIndex", mock(SearchIndex.class));
+		ReflectionTestUtils.setField(foodService, "catalogVersions", mock(CatalogVersions.class));
+
+		restaurant = new Restaurant();
+		restaurant.setName("Menu Kitchen");
+		restaurant = restaurantRepository.save(restaurant);
+		mains = new Category();
+		mains.setName("Mains");
+		mains.setRestaurant(restaurant);
+		mains = categoryRepository.save(mains);
+	}
+
+	@AfterEach
+	void tearDown() {
+		foodRepository.deleteAll();
+		categoryRepository.deleteAll();
+		restaurantRepository.deleteAll();
+	}
+
+	@Test
+	void aNewFoodIsOnTheMenuRightAway() throws Exception {
+		Food dosa = foodService.createFood(request("Dosa", true), mains, restaurant);
+		assertThat(names(false, null)).containsExactly("Dosa");
+
+		foodService.createFood(request("Biryani", false), mains, restaurant);
+
+		assertThat(names(false, null)).containsExactly("Dosa", "Biryani");
+		assertThat(names(false, "Mains")).containsExactly("Dosa", "Biryani");
+		assertThat(foodService.getRestaurantsFood(restaurant.getId(), true, false, false, false, null))
+				.extracting(Food::getId).containsExactly(dosa.getId());
+	}
+
+	@Test
+	void aDeletedFoodLeavesTheMenu() throws Exception {
+		Food dosa = foodService.createFood(request("Dosa", true), mains, restaurant);
+		foodService.createFood(request("Biryani", false), mains, restaurant);
+		assertThat(names(false, null)).containsExactly("Dosa", "Biryani");
+
+		foodService.deleteFood(dosa.getId());
+
+		assertThat(names(false, null)).containsExactly("Biryani");
+	}
+
+	@Test
+	void anAvailabilityChangeIsSeenByTheAvailableFilter() throws Exception {
+		Food dosa = foodService.createFood(request("Dosa", true), mains, restaurant);
+		assertThat(names(true, null)).isEmpty();
+
+		foodService.updateAvailibilityStatus(dosa.getId());
+		assertThat(names(true, null)).containsExactly("Dosa");
+
+		foodService.updateAvailibilityStatus(dosa.getId());
+		assertThat(names(true, null)).isEmpty();
+	}
+
+	@Test
+	void aMenuLoadedBeforeAnInvalidationIsNotKept() throws Exception {
+		Food dosa = foodService.createFood(request("Dosa", true), mains, restaurant);
+		menuCache.invalidate(restaurant.getId());
+		AtomicBoolean written = new AtomicBoolean();
+		// a write commits and invalidates after the load has read the old menu
+		duringLoad = () -> {
+			Food stored = foodRepository.findById(dosa.getId()).orElseThrow();
+			stored.setAvailable(true);
+			foodRepository.save(stored);
+			menuCache.invalidate(restaurant.getId());
+			written.set(true);
+		};
+
+		// the racing read answers from what it loaded, but does not cache it
+		assertThat(names(true, null)).isEmpty();
+		assertThat(written).isTrue();
+
+		assertThat(names(true, null)).containsExactly("Dosa");
+		assertThat(names(true, null)).containsExactly("Dosa");
+		// createFood's rebuild, the stale load, and the one rebuild after it
+		verify(menuLoads, times(3)).findByRestaurantId(restaurant.getId());
+	}
+
+	@Test
+	void anUnknownRestaurantIsNotCached() throws Exception {
+		assertThat(foodService.getRestaurantsFood(-1L, false, false, false, false, null)).isEmpty();
+		assertThat(foodService.getRestaurantsFood(-1L, false, false, false, false, null)).isEmpty();
+
+		verify(menuLoads, times(2)).findByRestaurantId(-1L);
+	}
+
+	private List<String> names(boolean availableOnly, String category) throws Exception {
+		return foodService.getRestaurantsFood(restaurant.getId(), false, false, false, availableOnly, category)
+				.stream().map(Food::getName).toList();
+	}
+
+	private static CreateFoodRequest request(String name, boolean vegetarian) {
+		CreateFoodRequest req = new CreateFoodRequest();
+		req.setName(name);
+		req.setPrice(100L);
+		req.setVegetarian(vegetarian);
+		return req;
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.zosh.model.Category;
+import com.zosh.model.Food;
+
+class MenuSnapshotTests {
+
+	private static final List<String> CATEGORY_FILTERS = Arrays.asList(null, "", "Starters", "Mains", "Desserts");
+
+	@Test
+	void everyFilterCombinationMatchesTheStreamFilter() {
+		List<Food> menu = menu();
+		MenuSnapshot snapshot = new MenuSnapshot(menu);
+
+		for (int flags = 0; flags < 16; flags++) {
+			boolean vegetarian = (flags & 1) != 0;
+			boolean nonVegetarian = (flags & 2) != 0;
+			boolean seasonal = (flags & 4) != 0;
+			boolean available = (flags & 8) != 0;
+			for (String category : CATEGORY_FILTERS) {
+				assertThat(snapshot.select(vegetarian, nonVegetarian, seasonal, available, category))
+						.as("veg=%s nonveg=%s seasonal=%s available=%s category=%s", vegetarian, nonVegetarian,
+								seasonal, available, category)
+						.containsExactlyElementsOf(
+								streamFilter(menu, vegetarian, nonVegetarian, seasonal, available, category));
+			}
+		}
+	}
+
+	@Test
+	void anEmptyMenuSelectsNothing() {
+		MenuSnapshot snapshot = new MenuSnapshot(new ArrayList<>());
+
+		assertThat(snapshot.size()).isZero();
+		assertThat(snapshot.select(false, false, false, false, null)).isEmpty();
+		assertThat(snapshot.select(true, false, true, true, "Mains")).isEmpty();
+	}
+
+	// every combination of the flags in each category, plus uncategorised foods
+	private static List<Food> menu() {
+		List<Category> categories = Arrays.asList(category("Starters"), category("Mains"), null, category(null));
+		List<Food> menu = new ArrayList<>();
+		long id = 1;
+		for (Category category : categories) {
+			for (int flags = 0; flags < 8; flags++) {
+				Food food = new Food();
+				food.setId(id++);
+				food.setName("food " + food.getId());
+				food.setVegetarian((flags & 1) != 0);
+				food.setSeasonal((flags & 2) != 0);
+				food.setAvailable((flags & 4) != 0);
+				food.setFoodCategory(category);
+				menu.add(food);
+			}
+		}
+		return menu;
+	}
+
+	private static Category category(String name) {
+		Category category = new Category();
+		category.setName(name);
+		return category;
+	}
+
+	// the filters getRestaurantsFood applied before menus were snapshotted
+	private static List<Food> streamFilter(List<Food> foods, boolean vegetarian, boolean nonVegetarian,
+			boolean seasonal, boolean available, String category) {
+		return foods.stream()
+				.filter(food -> !vegetarian || food.isVegetarian())
+				.filter(food -> !nonVegetarian || !food.isVegetarian())
+				.filter(food -> !seasonal || food.isSeasonal())
+				.filter(food -> !available || food.isAvailable())
+				.filter(food -> category == null || category.isEmpty()
+						|| (food.getFoodCategory() != null && category.equals(food.getFoodCategory().getName())))
+				.collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,167 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.domain.OrderStatus;
+import com.zosh.model.ArchivedOrder;
+import com.zosh.model.Order;
+import com.zosh.model.OrderItem;
+import com.zosh.model.Restaurant;
+import com.zosh.repository.ArchivedOrderRepository;
+import com.zosh.repository.OrderItemRepository;
+import com.zosh.repository.OrderRepository;
+import com.zosh.repository.RestaurantRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"order.archive.age-days=30",
+		"order.archive.chunk-size=2",
+		"order.archive.max-chunks-per-run=100" })
+@Import({ OrderArchiveServiceImplementation.class, OrderArchiveServiceTests.Metrics.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderArchiveServiceTests {
+
+	@TestConfiguration
+	static class Metrics {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	private OrderArchiveServiceImplementation archiveService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private ArchivedOrderRepository archivedOrderRepository;
+
+	@Autowired
+	private RestaurantRepository restaurantRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Restaurant restaurant;
+
+	@BeforeEach
+	void setUp() {
+		restaurant = new Restaurant();
+		restaurant.setName("Archive Kitchen");
+		restaurant = restaurantRepository.save(restaurant);
+	}
+
+	@AfterEach
+	void tearDown() {
+		archivedOrderRepository.deleteAll();
+		orderRepository.deleteAll();
+		orderItemRepository.deleteAll();
+		restaurantRepository.deleteAll();
+	}
+
+	@Test
+	void movesOldFinishedOrdersWithTheirItemsInChunks() {
+		List<Long> old = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			old.add(save(i % 2 == 0 ? OrderStatus.COMPLETED : OrderStatus.DELIVERED, 40 + i, 2).getId());
+		}
+		Long oldPending = save(OrderStatus.PENDING, 60, 1).getId();
+		Long recent = save(OrderStatus.COMPLETED, 5, 1).getId();
+		double ordersBefore = meterRegistry.get("orders.archive.orders").counter().count();
+		double itemsBefore = meterRegistry.get("orders.archive.items").counter().count();
+
+		// five orders in chunks of two: the last chunk is short and ends the run
+		assertThat(archiveService.archiveOrders()).isEqualTo(5);
+
+		assertThat(orderRepository.findAll()).extracting(Order::getId).containsExactlyInAnyOrder(oldPending, recent);
+		assertThat(orderItemRepository.count()).isEqualTo(2);
+		List<ArchivedOrder> archived = archivedOrderRepository.findOrdersByRestaurantIdAndStatus(restaurant.getId(), null);
+		assertThat(archived).extracting(ArchivedOrder::getId).containsExactlyInAnyOrderElementsOf(old);
+		assertThat(archived).allSatisfy(order -> {
+			assertThat(order.getItems()).hasSize(2);
+			assertThat(order.getArchivedAt()).isNotNull();
+		});
+		assertThat(meterRegistry.get("orders.archive.orders").counter().count() - ordersBefore).isEqualTo(5);
+		assertThat(meterRegistry.get("orders.archive.items").counter().count() - itemsBefore).isEqualTo(10);
+
+		// nothing left to move
+		assertThat(archiveService.archiveOrders()).isZero();
+	}
+
+	@Test
+	void stopsAtAChunkBoundary() {
+		for (int i = 0; i < 4; i++) {
+			save(OrderStatus.COMPLETED, 40 + i, 1);
+		}
+
+		// a full last chunk needs one more, empty, chunk to find out it is done
+		assertThat(archiveService.archiveOrders()).isEqualTo(4);
+		assertThat(orderRepository.count()).isZero();
+		assertThat(archivedOrderRepository.count()).isEqualTo(4);
+	}
+
+	@Test
+	void mergedHistoryStaysNewestFirst() {
+		save(OrderStatus.COMPLETED, 45, 1);
+		save(OrderStatus.DELIVERED, 35, 1);
+		// unfinished orders are never archived, however old
+		save(OrderStatus.PENDING, 50, 1);
+		save(OrderStatus.OUT_FOR_DELIVERY, 40, 1);
+		save(OrderStatus.COMPLETED, 1, 1);
+		archiveService.archiveOrders();
+
+		List<Order> merged = OrderServiceImplementation.withArchived(
+				orderRepository.findOrdersByRestaurantIdAndStatus(restaurant.getId(), null),
+				archivedOrderRepository.findOrdersByRestaurantIdAndStatus(restaurant.getId(), null));
+
+		assertThat(merged).hasSize(5);
+		assertThat(merged).extracting(Order::getCreatedAt)
+				.isSortedAccordingTo(Comparator.comparing(Date::getTime, Comparator.reverseOrder()));
+		assertThat(merged).extracting(Order::getOrderStatus).containsExactly(OrderStatus.COMPLETED,
+				OrderStatus.DELIVERED, OrderStatus.OUT_FOR_DELIVERY, OrderStatus.COMPLETED, OrderStatus.PENDING);
+	}
+
+	private Order save(OrderStatus status, int ageDays, int itemCount) {
+		List<OrderItem> items = new ArrayList<>();
+		for (int i = 0; i < itemCount; i++) {
+			OrderItem item = new OrderItem();
+			item.setQuantity(i + 1);
+			item.setTotalPrice(100L * (i + 1));
+			item.setIngredients(List.of("onion"));
+			items.add(orderItemRepository.save(item));
+		}
+		Order order = new Order();
+		order.setRestaurant(restaurant);
+		order.setOrderStatus(status);
+		order.setCreatedAt(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ageDays)));
+		order.setItems(items);
+		return orderRepository.save(order);
+	}
+
+}
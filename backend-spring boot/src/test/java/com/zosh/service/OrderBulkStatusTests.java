@@ -0,0 +1,239 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.Exception.OrderException;
+import com.zosh.domain.OrderStatus;
+import com.zosh.model.Notification;
+import com.zosh.model.Order;
+import com.zosh.model.Restaurant;
+import com.zosh.model.User;
+import com.zosh.repository.NotificationJdbcRepository;
+import com.zosh.repository.NotificationRepository;
+import com.zosh.repository.OrderJdbcRepository;
+import com.zosh.repository.OrderRepository;
+import com.zosh.repository.RestaurantRepository;
+import com.zosh.repository.UserRepository;
+import com.zosh.response.BulkOrderStatusResponse;
+import com.zosh.response.BulkOrderStatusResult;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderBulkStatusTests {
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private NotificationRepository notificationRepository;
+
+	@Autowired
+	private RestaurantRepository restaurantRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private DataSource dataSource;
+
+	private OrderJdbcRepository orderJdbcRepository;
+	private NotificationJdbcRepository notificationJdbcRepository;
+	private OrderEventService orderEventService;
+	private RevenueRollupService revenueRollupService;
+	private OrderServiceImplementation orderService;
+
+	private User customer;
+	private Restaurant restaurant;
+
+	@BeforeEach
+	void setUp() {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		orderJdbcRepository = spy(new OrderJdbcRepository(jdbcTemplate));
+		notificationJdbcRepository = spy(new NotificationJdbcRepository(jdbcTemplate));
+		orderEventService = mock(OrderEventService.class);
+		revenueRollupService = mock(RevenueRollupService.class);
+
+		NotificationServiceImplementation notificationService = new NotificationServiceImplementation();
+		ReflectionTestUtils.setField(notificationService, "notificationRepository", notificationRepository);
+		ReflectionTestUtils.setField(notificationService, "notificationJdbcRepository", notificationJdbcRepository);
+
+		orderService = new OrderServiceImplementation();
+		ReflectionTestUtils.setField(orderService, "orderRepository", orderRepository);
+		ReflectionTestUtils.setField(orderService, "orderJdbcRepository", orderJdbcRepository);
+		ReflectionTestUtils.setField(orderService, "notificationService", notificationService);
+		ReflectionTestUtils.setField(orderService, "orderEventService", orderEventService);
+		ReflectionTestUtils.setField(orderService, "revenueRollupService", revenueRollupService);
+
+		customer = new User();
+		customer.setEmail("bulk@test.com");
+		customer = userRepository.save(customer);
+		restaurant = new Restaurant();
+		restaurant.setName("Bulk Kitchen");
+		restaurant = restaurantRepository.save(restaurant);
+	}
+
+	@AfterEach
+	void tearDown() {
+		notificationRepository.deleteAll();
+		orderRepository.deleteAll();
+		restaurantRepository.deleteAll();
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void reportsEveryOrderAndMovesOnlyTheLegalOnesInOneBatch() throws Exception {
+		Long pending = newOrder(OrderStatus.PENDING);
+		Long received = newOrder(OrderStatus.RECEIVED);
+		Long delivered = newOrder(OrderStatus.DELIVERED);
+		Long stale = newOrder(OrderStatus.PENDING);
+		Long unknown = stale + 1000;
+		// someone else moves the stale order between the status read and the batch
+		doAnswer(invocation -> {
+			orderRepository.compareAndSetStatus(stale, OrderStatus.PENDING, OrderStatus.RECEIVED);
+			return invocation.callRealMethod();
+		}).when(orderJdbcRepository).compareAndSetStatuses(anyList(), anyList(), any());
+
+		BulkOrderStatusResponse res = orderService.updateOrders(
+				List.of(pending, received, delivered, stale, unknown, pending), "OUT_FOR_DELIVERY");
+
+		assertThat(res.getUpdated()).isEqualTo(2);
+		assertThat(res.getFailed()).isEqualTo(3);
+		assertThat(res.getResults()).extracting(BulkOrderStatusResult::getOrderId)
+				.containsExactly(pending, received, delivered, stale, unknown);
+		Map<Long, BulkOrderStatusResult> results = res.getResults().stream()
+				.collect(Collectors.toMap(BulkOrderStatusResult::getOrderId, result -> result));
+		assertResult(results.get(pending), true, OrderStatus.PENDING, OrderStatus.OUT_FOR_DELIVERY);
+		assertResult(results.get(received), true, OrderStatus.RECEIVED, OrderStatus.OUT_FOR_DELIVERY);
+		assertResult(results.get(delivered), false, OrderStatus.DELIVERED, OrderStatus.DELIVERED);
+		assertResult(results.get(stale), false, OrderStatus.PENDING, null);
+		assertResult(results.get(unknown), false, null, null);
+		assertThat(results.get(stale).getMessage()).contains("changed by someone else");
+		assertThat(results.get(unknown).getMessage()).contains("not found");
+
+		// the illegal and unknown orders never reach the batch
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<Long>> batched = ArgumentCaptor.forClass(List.class);
+		verify(orderJdbcRepository, times(1)).compareAndSetStatuses(batched.capture(), anyList(), any());
+		assertThat(batched.getValue()).containsExactly(pending, received, stale);
+
+		assertThat(orderRepository.findStatusById(pending)).contains(OrderStatus.OUT_FOR_DELIVERY);
+		assertThat(orderRepository.findStatusById(received)).contains(OrderStatus.OUT_FOR_DELIVERY);
+		assertThat(orderRepository.findStatusById(delivered)).contains(OrderStatus.DELIVERED);
+		assertThat(orderRepository.findStatusById(stale)).contains(OrderStatus.RECEIVED);
+		// the stale order lost its race, so only the two that moved are announced
+		assertThat(notificationRepository.count()).isEqualTo(2);
+		verify(orderEventService, times(2)).orderStatusChanged(any(Order.class));
+	}
+
+	@Test
+	void notifiesOnlyTheOrdersThatMoved() throws Exception {
+		Long pending = newOrder(OrderStatus.PENDING);
+		Long received = newOrder(OrderStatus.RECEIVED);
+		Long delivered = newOrder(OrderStatus.DELIVERED);
+
+		orderService.updateOrders(List.of(pending, received, delivered), "OUT_FOR_DELIVERY");
+
+		verify(notificationJdbcRepository, times(1)).insertAll(anyList());
+		List<Notification> notifications = notificationRepository.findByCustomerId(customer.getId());
+		assertThat(notifications).extracting(Notification::getMessage).containsExactlyInAnyOrder(
+				"your order is OUT_FOR_DELIVERY order id is - " + pending,
+				"your order is OUT_FOR_DELIVERY order id is - " + received);
+
+		ArgumentCaptor<Order> events = ArgumentCaptor.forClass(Order.class);
+		verify(orderEventService, times(2)).orderStatusChanged(events.capture());
+		assertThat(events.getAllValues()).extracting(Order::getId).containsExactlyInAnyOrder(pending, received);
+		verify(revenueRollupService, times(2)).orderStatusChanged(any(Order.class));
+	}
+
+	@Test
+	void nothingIsWrittenWhenNoOrderCanMove() throws Exception {
+		Long delivered = newOrder(OrderStatus.DELIVERED);
+
+		BulkOrderStatusResponse res = orderService.updateOrders(List.of(delivered, delivered + 1000),
+				"OUT_FOR_DELIVERY");
+
+		assertThat(res.getUpdated()).isZero();
+		assertThat(res.getFailed()).isEqualTo(2);
+		verify(orderJdbcRepository, never()).compareAndSetStatuses(anyList(), anyList(), any());
+		verify(notificationJdbcRepository, never()).insertAll(anyList());
+		assertThat(notificationRepository.count()).isZero();
+	}
+
+	@Test
+	void cancellingIsNotABulkUpdate() {
+		Long pending = newOrder(OrderStatus.PENDING);
+
+		assertThatThrownBy(() -> orderService.updateOrders(List.of(pending), "CANCELLED"))
+				.isInstanceOf(OrderException.class);
+		verify(orderJdbcRepository, never()).compareAndSetStatuses(anyList(), anyList(), any());
+		assertThat(orderRepository.findStatusById(pending)).contains(OrderStatus.PENDING);
+	}
+
+	@Test
+	void insertsNotificationsWithAndWithoutRecipientInOneBatch() {
+		List<Notification> notifications = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			Notification notification = new Notification();
+			notification.setCustomer(i == 2 ? null : customer);
+			notification.setRestaurant(i == 1 ? restaurant : null);
+			notification.setMessage("message " + i);
+			notification.setSentAt(new Date());
+			notifications.add(notification);
+		}
+
+		notificationJdbcRepository.insertAll(notifications);
+		notificationJdbcRepository.insertAll(List.of());
+
+		assertThat(notificationRepository.count()).isEqualTo(3);
+		assertThat(notificationRepository.findByCustomerId(customer.getId())).extracting(Notification::getMessage)
+				.containsExactlyInAnyOrder("message 0", "message 1");
+		assertThat(notificationRepository.findByRestaurantId(restaurant.getId())).extracting(Notification::getMessage)
+				.containsExactly("message 1");
+	}
+
+	private static void assertResult(BulkOrderStatusResult result, boolean success, OrderStatus previous,
+			OrderStatus current) {
+		assertThat(result.getSuccess()).isEqualTo(success);
+		assertThat(result.getPreviousStatus()).isEqualTo(previous);
+		assertThat(result.getOrderStatus()).isEqualTo(current);
+	}
+
+	private Long newOrder(OrderStatus status) {
+		Order order = new Order();
+		order.setCustomer(customer);
+		order.setRestaurant(restaurant);
+		order.setOrderStatus(status);
+		order.setTotalAmount(100L);
+		order.setCreatedAt(new Date());
+		return orderRepository.save(order).getId();
+	}
+
+}
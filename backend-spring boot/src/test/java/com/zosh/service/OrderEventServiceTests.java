@@ -0,0 +1,199 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.zosh.domain.OrderEventType;
+import com.zosh.domain.OrderStatus;
+import com.zosh.model.Order;
+import com.zosh.model.Restaurant;
+import com.zosh.response.OrderEvent;
+
+class OrderEventServiceTests {
+
+	private static final long RESTAURANT_ID = 7L;
+	private static final long IDLE_MS = 60_000;
+
+	// released by the tests, holds back sends to blocked clients
+	private final CountDownLatch clientsUnblocked = new CountDownLatch(1);
+
+	private boolean nextClientBlocks;
+	private OrderEventServiceImplementation service;
+
+	@AfterEach
+	void tearDown() {
+		clientsUnblocked.countDown();
+		if (service != null) {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	void replaysEverythingAfterTheLastEventId() throws Exception {
+		service = newService(16, 16);
+		publish(5);
+
+		RecordingEmitter client = subscribe("3");
+		publish(1);
+
+		awaitUntil(() -> client.events.size() == 3);
+		assertThat(client.events).extracting(OrderEvent::getId).containsExactly(4L, 5L, 6L);
+		assertThat(client.events).extracting(OrderEvent::getType).containsOnly(OrderEventType.ORDER_CREATED);
+	}
+
+	@Test
+	void anIdThatFellOutOfTheBufferGetsAResync() throws Exception {
+		service = newService(4, 16);
+		publish(10);
+
+		RecordingEmitter behind = subscribe("2");
+		RecordingEmitter ahead = subscribe("99");
+		RecordingEmitter caughtUp = subscribe("6");
+
+		awaitUntil(() -> behind.events.size() == 1 && ahead.events.size() == 1 && caughtUp.events.size() == 4);
+		assertThat(behind.events.get(0).getType()).isEqualTo(OrderEventType.RESYNC);
+		assertThat(behind.events.get(0).getId()).isEqualTo(10L);
+		assertThat(ahead.events.get(0).getType()).isEqualTo(OrderEventType.RESYNC);
+		assertThat(caughtUp.events).extracting(OrderEvent::getId).containsExactly(7L, 8L, 9L, 10L);
+	}
+
+	@Test
+	void aClientThatCannotKeepUpIsDropped() throws Exception {
+		service = newService(16, 4);
+		nextClientBlocks = true;
+		RecordingEmitter slow = subscribe(null);
+		nextClientBlocks = false;
+		RecordingEmitter fast = subscribe(null);
+
+		// paced so only the blocked client falls behind
+		for (int i = 1; i <= 10; i++) {
+			publish(1);
+			int sent = i;
+			awaitUntil(() -> fast.events.size() == sent);
+		}
+
+		assertThat(slow.completed).isTrue();
+		clientsUnblocked.countDown();
+		publish(1);
+		awaitUntil(() -> fast.events.size() == 11);
+		assertThat(slow.events).isEmpty();
+		assertThat(fast.completed).isFalse();
+	}
+
+	@Test
+	void aChannelWithoutListenersIsDroppedOnceItsBufferExpires() throws Exception {
+		service = newService(16, 16);
+		RecordingEmitter client = subscribe(null);
+		publish(3);
+		long now = System.currentTimeMillis();
+
+		service.evictIdleChannels(now + IDLE_MS + 1);
+		assertThat(service.channelCount()).isEqualTo(1);
+
+		client.disconnect();
+		service.evictIdleChannels(now + IDLE_MS / 2);
+		assertThat(service.channelCount()).isEqualTo(1);
+		service.evictIdleChannels(System.currentTimeMillis() + IDLE_MS + 1);
+		assertThat(service.channelCount()).isZero();
+
+		// the next channel carries on from the old ids instead of reusing them
+		publish(5);
+		RecordingEmitter caughtUp = subscribe("3");
+		RecordingEmitter behind = subscribe("2");
+		awaitUntil(() -> caughtUp.events.size() == 5 && behind.events.size() == 1);
+		assertThat(caughtUp.events).extracting(OrderEvent::getId).containsExactly(4L, 5L, 6L, 7L, 8L);
+		assertThat(behind.events.get(0).getType()).isEqualTo(OrderEventType.RESYNC);
+		assertThat(behind.events.get(0).getId()).isEqualTo(8L);
+	}
+
+	private OrderEventServiceImplementation newService(int replaySize, int clientQueueCapacity) {
+		return new OrderEventServiceImplementation(60_000, replaySize, clientQueueCapacity, 2, IDLE_MS) {
+			@Override
+			SseEmitter createEmitter() {
+				return new RecordingEmitter(nextClientBlocks);
+			}
+		};
+	}
+
+	private RecordingEmitter subscribe(String lastEventId) {
+		return (RecordingEmitter) service.subscribe(RESTAURANT_ID, lastEventId);
+	}
+
+	private void publish(int count) {
+		Restaurant restaurant = new Restaurant();
+		restaurant.setId(RESTAURANT_ID);
+		for (int i = 0; i < count; i++) {
+			Order order = new Order();
+			order.setId((long) i);
+			order.setRestaurant(restaurant);
+			order.setOrderStatus(OrderStatus.PENDING);
+			service.orderCreated(order);
+		}
+	}
+
+	private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(condition.getAsBoolean()).isTrue();
+	}
+
+	// keeps the order events it was sent; a blocking one holds every send until clientsUnblocked opens
+	private final class RecordingEmitter extends SseEmitter {
+
+		private final boolean blocks;
+		private final List<OrderEvent> events = new CopyOnWriteArrayList<>();
+		private final List<Runnable> completionCallbacks = new ArrayList<>();
+		private volatile boolean completed;
+
+		RecordingEmitter(boolean blocks) {
+			this.blocks = blocks;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (blocks) {
+				try {
+					clientsUnblocked.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return;
+			}
+			for (DataWithMediaType part : builder.build()) {
+				if (part.getData() instanceof OrderEvent event) {
+					events.add(event);
+				}
+			}
+		}
+
+		@Override
+		public synchronized void complete() {
+			completed = true;
+		}
+
+		@Override
+		public synchronized void onCompletion(Runnable callback) {
+			completionCallbacks.add(callback);
+		}
+
+		// what the container does when the client goes away
+		void disconnect() {
+			completionCallbacks.forEach(Runnable::run);
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import com.zosh.domain.OrderStatus;
+import com.zosh.model.Food;
+import com.zosh.model.Order;
+import com.zosh.model.OrderItem;
+import com.zosh.model.Restaurant;
+import com.zosh.model.User;
+import com.zosh.response.OrderHistoryPageResponse;
+import com.zosh.response.OrderHistoryResponse;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics=true" })
+@Import(OrderHistoryServiceImplementation.class)
+class OrderHistoryServiceTests {
+
+	private static final int ORDERS = 25;
+	private static final int ITEMS_PER_ORDER = 3;
+
+	@Autowired
+	private OrderHistoryService orderHistoryService;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Long customerId;
+
+	@BeforeEach
+	void setUp() {
+		User customer = new User();
+		customer.setEmail("history@test.com");
+		entityManager.persist(customer);
+		customerId = customer.getId();
+
+		Restaurant restaurant = new Restaurant();
+		restaurant.setName("Test Kitchen");
+		entityManager.persist(restaurant);
+
+		List<Food> foods = new ArrayList<>();
+		for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+			Food food = new Food();
+			food.setName("food " + i);
+			food.setPrice(10L + i);
+			food.setRestaurant(restaurant);
+			food.setImages(List.of("img-" + i + "-a", "img-" + i + "-b"));
+			entityManager.persist(food);
+			foods.add(food);
+		}
+
+		long now = System.currentTimeMillis();
+		for (int o = 0; o < ORDERS; o++) {
+			List<OrderItem> items = new ArrayList<>();
+			for (Food food : foods) {
+				OrderItem item = new OrderItem();
+				item.setFood(food);
+				item.setQuantity(2);
+				item.setTotalPrice(food.getPrice() * 2);
+				item.setIngredients(List.of("cheese"));
+				entityManager.persist(item);
+				items.add(item);
+			}
+
+			Order order = new Order();
+			order.setCustomer(customer);
+			order.setRestaurant(restaurant);
+			order.setOrderStatus(OrderStatus.PENDING);
+			order.setCreatedAt(new Date(now - o * 1000L));
+			order.setItems(items);
+			entityManager.persist(order);
+		}
+
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void pageLoadsWithConstantQueryCount() throws Exception {
+		assertThat(queriesFor(null, 5)).isEqualTo(3);
+		assertThat(queriesFor(null, 20)).isEqualTo(3);
+		assertThat(queriesFor(cursorAfter(5), 5)).isEqualTo(3);
+	}
+
+	@Test
+	void walksAllOrdersNewestFirstThroughTheCursor() throws Exception {
+		List<Long> seen = new ArrayList<>();
+		Date previous = null;
+		String cursor = null;
+		do {
+			OrderHistoryPageResponse page = orderHistoryService.getUserOrderHistory(customerId, cursor, 10);
+			for (OrderHistoryResponse order : page.getOrders()) {
+				if (previous != null) {
+					assertThat(order.getCreatedAt()).isBefore(previous);
+				}
+				previous = order.getCreatedAt();
+				seen.add(order.getId());
+
+				assertThat(order.getRestaurantName()).isEqualTo("Test Kitchen");
+				assertThat(order.getItems()).hasSize(ITEMS_PER_ORDER);
+				assertThat(order.getItems()).allSatisfy(item -> {
+					assertThat(item.getFoodImage()).startsWith("img-");
+					assertThat(item.getIngredients()).containsExactly("cheese");
+				});
+			}
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertThat(seen).hasSize(ORDERS).doesNotHaveDuplicates();
+	}
+
+	@Test
+	void ordersTiedOnCreatedAtAreWalkedOnce() throws Exception {
+		User customer = entityManager.find(User.class, customerId);
+		Date tie = orderHistoryService.getUserOrderHistory(customerId, null, 3).getOrders().get(2).getCreatedAt();
+		for (int i = 0; i < 4; i++) {
+			Order order = new Order();
+			order.setCustomer(customer);
+			order.setOrderStatus(OrderStatus.PENDING);
+			order.setCreatedAt(tie);
+			entityManager.persist(order);
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		List<Long> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			OrderHistoryPageResponse page = orderHistoryService.getUserOrderHistory(customerId, cursor, 2);
+			page.getOrders().forEach(order -> seen.add(order.getId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertThat(seen).hasSize(ORDERS + 4).doesNotHaveDuplicates();
+	}
+
+	private String cursorAfter(int orders) throws Exception {
+		return orderHistoryService.getUserOrderHistory(customerId, null, orders).getNextCursor();
+	}
+
+	private long queriesFor(String cursor, int size) throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		OrderHistoryPageResponse page = orderHistoryService.getUserOrderHistory(customerId, cursor, size);
+		assertThat(page.getOrders()).hasSize(size);
+		entityManager.clear();
+
+		return statistics.getPrepareStatementCount();
+	}
+
+}
@@ -0,0 +1,132 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.config.BoundedPasswordEncoder;
+import com.zosh.config.JwtProvider;
+import com.zosh.controller.AuthController;
+import com.zosh.domain.USER_ROLE;
+import com.zosh.model.Restaurant;
+import com.zosh.model.User;
+import com.zosh.model.Worker;
+import com.zosh.repository.CartRepository;
+import com.zosh.repository.RestaurantRepository;
+import com.zosh.repository.UserRepository;
+import com.zosh.repository.WorkerRepository;
+import com.zosh.request.LoginRequest;
+import com.zosh.request.WorkerLoginRequest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PasswordRehashTests {
+
+	private static final int COST = 5;
+	private static final String PASSWORD = "secret";
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private WorkerRepository workerRepository;
+
+	@Autowired
+	private RestaurantRepository restaurantRepository;
+
+	private BoundedPasswordEncoder encoder;
+	private AuthController authController;
+	private WorkerServiceImplementation workerService;
+
+	@BeforeEach
+	void setUp() {
+		encoder = new BoundedPasswordEncoder(COST, 1, 8, new SimpleMeterRegistry());
+		UserService userService = new UserServiceImplementation(userRepository, null, encoder, null, null, null);
+		authController = new AuthController(userRepository, encoder, mock(JwtProvider.class),
+				new CustomeUserServiceImplementation(userRepository), mock(CartRepository.class),
+				mock(PasswordResetTokenService.class), userService);
+
+		workerService = new WorkerServiceImplementation();
+		ReflectionTestUtils.setField(workerService, "workerRepository", workerRepository);
+		ReflectionTestUtils.setField(workerService, "passwordEncoder", encoder);
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+		encoder.shutdown();
+		workerRepository.deleteAll();
+		restaurantRepository.deleteAll();
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void aUserSigningInWithAnOldCostHashIsRehashed() {
+		User user = new User();
+		user.setEmail("old@test.com");
+		user.setRole(USER_ROLE.ROLE_CUSTOMER);
+		user.setPassword(new BCryptPasswordEncoder(4).encode(PASSWORD));
+		userRepository.save(user);
+
+		authController.signin(login("old@test.com"));
+
+		String stored = userRepository.findByEmail("old@test.com").getPassword();
+		assertThat(stored).startsWith("$2a$05$");
+		assertThat(encoder.matches(PASSWORD, stored)).isTrue();
+	}
+
+	@Test
+	void aUserWithTheCurrentCostIsNotRehashed() {
+		String hash = encoder.encode(PASSWORD);
+		User user = new User();
+		user.setEmail("current@test.com");
+		user.setRole(USER_ROLE.ROLE_CUSTOMER);
+		user.setPassword(hash);
+		userRepository.save(user);
+
+		authController.signin(login("current@test.com"));
+
+		assertThat(userRepository.findByEmail("current@test.com").getPassword()).isEqualTo(hash);
+	}
+
+	@Test
+	void aWorkerLoggingInWithAnOldCostHashIsRehashed() throws Exception {
+		Restaurant restaurant = new Restaurant();
+		restaurant.setName("Rehash Kitchen");
+		restaurant = restaurantRepository.save(restaurant);
+		Worker worker = new Worker();
+		worker.setEmail("worker@test.com");
+		worker.setPassword(new BCryptPasswordEncoder(6).encode(PASSWORD));
+		worker.setRestaurant(restaurant);
+		workerRepository.save(worker);
+
+		WorkerLoginRequest req = new WorkerLoginRequest();
+		req.setEmail("worker@test.com");
+		req.setPassword(PASSWORD);
+		workerService.workerLogin(req);
+
+		String stored = workerRepository.findByEmail("worker@test.com").getPassword();
+		assertThat(stored).startsWith("$2a$05$");
+		assertThat(encoder.matches(PASSWORD, stored)).isTrue();
+	}
+
+	private static LoginRequest login(String email) {
+		LoginRequest req = new LoginRequest();
+		req.setEmail(email);
+		req.setPassword(PASSWORD);
+		return req;
+	}
+
+}
@@ -0,0 +1,209 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.zosh.controller.OrderController;
+import com.zosh.domain.OrderStatus;
+import com.zosh.domain.PaymentLinkStatus;
+import com.zosh.model.Order;
+import com.zosh.model.Payment;
+import com.zosh.model.PaymentResponse;
+import com.zosh.model.User;
+import com.zosh.repository.OrderRepository;
+import com.zosh.repository.PaymentRepository;
+import com.zosh.repository.UserRepository;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentLinkServiceTests {
+
+	@Autowired
+	private PaymentRepository paymentRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	// released by the tests, holds back gateway calls for the orders that wait on it
+	private final CountDownLatch gatewayOpen = new CountDownLatch(1);
+
+	// makes that many Payment writes fail
+	private final AtomicInteger failingSaves = new AtomicInteger();
+
+	private PaymentLinkServiceImplementation service;
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		user = new User();
+		user.setEmail("payer@test.com");
+		user = userRepository.save(user);
+	}
+
+	@AfterEach
+	void tearDown() {
+		gatewayOpen.countDown();
+		if (service != null) {
+			service.shutdown();
+		}
+		paymentRepository.deleteAll();
+		orderRepository.deleteAll();
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void aLinkIsPendingUntilTheGatewayAnswersThenStored() throws Exception {
+		StubPaymentServiceImplementation stub = new StubPaymentServiceImplementation();
+		ReflectionTestUtils.setField(stub, "latencyMs", 200L);
+		service = newService(stub, 2, 10);
+		Order order = newOrder();
+
+		assertThat(service.requestPaymentLink(order).getStatus()).isEqualTo(PaymentLinkStatus.PENDING);
+		assertThat(service.getPaymentLink(order.getId(), user.getId()).getStatus()).isEqualTo(PaymentLinkStatus.PENDING);
+
+		PaymentResponse ready = service.awaitPaymentLink(order.getId(), user.getId()).get(10, TimeUnit.SECONDS);
+		assertThat(ready.getStatus()).isEqualTo(PaymentLinkStatus.READY);
+		assertThat(ready.getPayment_url()).endsWith("/payment/success/" + order.getId());
+		// from the stored row once the in-flight entry is gone
+		assertThat(service.getPaymentLink(order.getId(), user.getId())).isEqualTo(ready);
+	}
+
+	@Test
+	void aFullQueueCreatesTheLinkOnTheCallersThread() throws Exception {
+		service = newService(gateway(), 1, 1);
+		Order running = newOrder();
+		Order queued = newOrder();
+		// one link on the pool's only thread, one waiting in its queue
+		service.requestPaymentLink(running);
+		service.requestPaymentLink(queued);
+
+		Order overflow = newOrder();
+		overflow.setTotalAmount(-1L);
+		PaymentResponse res = service.requestPaymentLink(overflow);
+
+		assertThat(res.getStatus()).isEqualTo(PaymentLinkStatus.READY);
+		assertThat(res.getPayment_url()).isEqualTo("https://pay/" + Thread.currentThread().getName());
+		assertThat(paymentRepository.findFirstByOrderIdOrderByIdDesc(overflow.getId())).isPresent();
+		assertThat(service.getPaymentLink(running.getId(), user.getId()).getStatus())
+				.isEqualTo(PaymentLinkStatus.PENDING);
+	}
+
+	@Test
+	void aLongPollIsAnsweredWhenTheLinkIsReady() throws Exception {
+		service = newService(gateway(), 1, 1);
+		OrderController controller = new OrderController();
+		ReflectionTestUtils.setField(controller, "paymentLinkService", service);
+		Order order = newOrder();
+		service.requestPaymentLink(order);
+
+		assertThat(controller.getPaymentLink(order.getId(), 0, user).getResult())
+				.extracting(result -> ((ResponseEntity<?>) result).getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+		DeferredResult<ResponseEntity<PaymentResponse>> poll = controller.getPaymentLink(order.getId(), 10, user);
+		assertThat(poll.hasResult()).isFalse();
+
+		gatewayOpen.countDown();
+		ResponseEntity<PaymentResponse> answer = awaitResult(poll);
+		assertThat(answer.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(answer.getBody().getStatus()).isEqualTo(PaymentLinkStatus.READY);
+	}
+
+	@Test
+	void aFailedWriteIsRetriedBeforeTheLinkIsHandedOut() throws Exception {
+		service = newService(gateway(), 1, 1);
+		gatewayOpen.countDown();
+		failingSaves.set(2);
+		Order order = newOrder();
+
+		service.requestPaymentLink(order);
+		PaymentResponse res = service.awaitPaymentLink(order.getId(), user.getId()).get(10, TimeUnit.SECONDS);
+
+		assertThat(res.getStatus()).isEqualTo(PaymentLinkStatus.READY);
+		assertThat(service.getPaymentLink(order.getId(), user.getId())).isEqualTo(res);
+	}
+
+	@Test
+	void aLinkThatCannotBeStoredIsReportedAsFailed() throws Exception {
+		service = newService(gateway(), 1, 1);
+		gatewayOpen.countDown();
+		failingSaves.set(3);
+		Order order = newOrder();
+
+		service.requestPaymentLink(order);
+		PaymentResponse res = service.awaitPaymentLink(order.getId(), user.getId()).get(10, TimeUnit.SECONDS);
+
+		assertThat(res.getStatus()).isEqualTo(PaymentLinkStatus.FAILED);
+		assertThat(res.getPayment_url()).isNull();
+		assertThat(paymentRepository.findFirstByOrderIdOrderByIdDesc(order.getId())).isEmpty();
+	}
+
+	// answers with a URL naming the thread it ran on; orders with a positive total wait for gatewayOpen
+	private PaymentService gateway() throws Exception {
+		PaymentService gateway = mock(PaymentService.class);
+		doAnswer(invocation -> {
+			Order order = invocation.getArgument(0);
+			if (order.getTotalAmount() > 0) {
+				gatewayOpen.await(10, TimeUnit.SECONDS);
+			}
+			PaymentResponse res = new PaymentResponse();
+			res.setPayment_url("https://pay/" + Thread.currentThread().getName());
+			return res;
+		}).when(gateway).generatePaymentLink(any(Order.class));
+		return gateway;
+	}
+
+	private PaymentLinkServiceImplementation newService(PaymentService gateway, int poolSize, int queueCapacity) {
+		PaymentRepository failing = mock(PaymentRepository.class);
+		doAnswer(invocation -> {
+			if (failingSaves.getAndDecrement() > 0) {
+				throw new IllegalStateException("database down");
+			}
+			return paymentRepository.save(invocation.getArgument(0));
+		}).when(failing).save(any(Payment.class));
+		doAnswer(invocation -> paymentRepository.findFirstByOrderIdOrderByIdDesc(invocation.getArgument(0)))
+				.when(failing).findFirstByOrderIdOrderByIdDesc(any());
+		return new PaymentLinkServiceImplementation(gateway, failing, orderRepository, poolSize, queueCapacity, 3, 10);
+	}
+
+	private Order newOrder() {
+		Order order = new Order();
+		order.setCustomer(user);
+		order.setOrderStatus(OrderStatus.PENDING);
+		order.setTotalAmount(500L);
+		order.setCreatedAt(new Date());
+		return orderRepository.save(order);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T awaitResult(DeferredResult<T> result) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!result.hasResult() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(result.hasResult()).isTrue();
+		return (T) result.getResult();
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zosh.model.Address;
+import com.zosh.model.Restaurant;
+import com.zosh.model.User;
+import com.zosh.repository.AddressRepository;
+import com.zosh.repository.RestaurantRepository;
+import com.zosh.repository.UserRepository;
+import com.zosh.response.NearbyRestaurantResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({ RestaurantGeoIndex.class, PostalCodeGeocoder.class, RestaurantGeoIndexTests.Metrics.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RestaurantGeoIndexTests {
+
+	// Koramangala, Bengaluru
+	private static final double LATITUDE = 12.9352;
+	private static final double LONGITUDE = 77.6245;
+
+	@TestConfiguration
+	static class Metrics {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	private RestaurantGeoIndex geoIndex;
+
+	@Autowired
+	private RestaurantRepository restaurantRepository;
+
+	@Autowired
+	private AddressRepository addressRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@BeforeEach
+	void setUp() {
+		restaurantRepository.deleteAll();
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void placesRestaurantsByPostalCode() {
+		Restaurant koramangala = save("Koramangala Kitchen", "560034", true);
+		Restaurant mgRoad = save("MG Road Diner", "560001", true);
+		save("Whitefield Grill", "560066", true);
+		save("Closed Cafe", "560034", false);
+		save("Unknown Place", "999999", true);
+		save("Chennai Mess", "600017", true);
+		geoIndex.rebuild();
+
+		assertThat(names(geoIndex.nearest(LATITUDE, LONGITUDE, 10, 10)))
+				.containsExactly("Koramangala Kitchen", "MG Road Diner");
+		assertThat(names(geoIndex.nearest(LATITUDE, LONGITUDE, 20, 10)))
+				.containsExactly("Koramangala Kitchen", "MG Road Diner", "Whitefield Grill");
+		assertThat(names(geoIndex.nearest(LATITUDE, LONGITUDE, 20, 1))).containsExactly("Koramangala Kitchen");
+
+		koramangala.setOpen(false);
+		restaurantRepository.save(koramangala);
+		geoIndex.restaurantChanged(koramangala.getId());
+		restaurantRepository.delete(mgRoad);
+		geoIndex.restaurantChanged(mgRoad.getId());
+		assertThat(names(geoIndex.nearest(LATITUDE, LONGITUDE, 20, 10))).containsExactly("Whitefield Grill");
+	}
+
+	@Test
+	void answersWithListingSummariesOnly() throws Exception {
+		User owner = new User();
+		owner.setEmail("owner@test.com");
+		owner.setPassword("stored-hash");
+		Restaurant restaurant = save("Koramangala Kitchen", "560034", true);
+		restaurant.setOwner(userRepository.save(owner));
+		restaurant.setRating(4.5);
+		restaurantRepository.save(restaurant);
+		geoIndex.rebuild();
+
+		List<NearbyRestaurantResponse> nearby = geoIndex.nearest(LATITUDE, LONGITUDE, 10, 10);
+
+		assertThat(nearby).extracting(n -> n.getRestaurant().getId(), n -> n.getRestaurant().getRating())
+				.containsExactly(tuple(restaurant.getId(), 4.5));
+		String json = new ObjectMapper().writeValueAsString(nearby);
+		assertThat(json).doesNotContain("owner", "stored-hash", "owner@test.com");
+	}
+
+	private Restaurant save(String name, String postalCode, boolean open) {
+		Address address = new Address();
+		address.setPostalCode(postalCode);
+		address.setCountry("India");
+		Restaurant restaurant = new Restaurant();
+		restaurant.setName(name);
+		restaurant.setAddress(addressRepository.save(address));
+		restaurant.setOpen(open);
+		return restaurantRepository.save(restaurant);
+	}
+
+	private static List<String> names(List<NearbyRestaurantResponse> nearby) {
+		List<String> names = new ArrayList<>();
+		nearby.forEach(n -> names.add(n.getRestaurant().getName()));
+		return names;
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.domain.OrderStatus;
+import com.zosh.model.Order;
+import com.zosh.model.Restaurant;
+import com.zosh.repository.OrderRepository;
+import com.zosh.repository.RestaurantRepository;
+import com.zosh.response.OrderPageResponse;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RestaurantOrderPageTests {
+
+	private static final long T0 = 1_700_000_000_000L;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private RestaurantRepository restaurantRepository;
+
+	private OrderServiceImplementation orderService;
+	private Restaurant restaurant;
+	private Restaurant other;
+
+	@BeforeEach
+	void setUp() {
+		orderService = new OrderServiceImplementation();
+		ReflectionTestUtils.setField(orderService, "orderRepository", orderRepository);
+
+		restaurant = new Restaurant();
+		restaurant.setName("Paged Kitchen");
+		restaurant = restaurantRepository.save(restaurant);
+		other = new Restaurant();
+		other.setName("Other Kitchen");
+		other = restaurantRepository.save(other);
+	}
+
+	@AfterEach
+	void tearDown() {
+		orderRepository.deleteAll();
+		restaurantRepository.deleteAll();
+	}
+
+	@Test
+	void walksEveryOrderNewestFirstAcrossPageBoundaries() throws Exception {
+		List<Long> expected = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			expected.add(0, newOrder(restaurant, T0 + i * 1000L, OrderStatus.PENDING));
+		}
+		newOrder(other, T0 + 500, OrderStatus.PENDING);
+
+		// 10 orders in pages of 5 end exactly on a boundary, so a third empty page closes the walk
+		List<List<Long>> pages = walk(null, 5);
+
+		assertThat(pages).hasSize(3);
+		assertThat(pages.get(0)).hasSize(5);
+		assertThat(pages.get(2)).isEmpty();
+		assertThat(flatten(pages)).containsExactlyElementsOf(expected);
+		assertThat(flatten(walk(null, 3))).containsExactlyElementsOf(expected);
+		assertThat(flatten(walk(null, 100))).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	void ordersPlacedInTheSameInstantAreNeitherSkippedNorRepeated() throws Exception {
+		List<Long> tied = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			tied.add(0, newOrder(restaurant, T0, OrderStatus.PENDING));
+		}
+		Long newer = newOrder(restaurant, T0 + 1000, OrderStatus.PENDING);
+		Long older = newOrder(restaurant, T0 - 1000, OrderStatus.PENDING);
+
+		List<Long> expected = new ArrayList<>();
+		expected.add(newer);
+		expected.addAll(tied);
+		expected.add(older);
+		// a page of 2 splits the tie twice, the tie breaks on id
+		assertThat(flatten(walk(null, 2))).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	void theStatusFilterHoldsOnEveryPage() throws Exception {
+		List<Long> delivered = new ArrayList<>();
+		for (int i = 0; i < 9; i++) {
+			OrderStatus status = i % 3 == 0 ? OrderStatus.DELIVERED : OrderStatus.PENDING;
+			Long id = newOrder(restaurant, T0 + (i / 2) * 1000L, status);
+			if (status == OrderStatus.DELIVERED) {
+				delivered.add(0, id);
+			}
+		}
+		newOrder(other, T0, OrderStatus.DELIVERED);
+
+		List<List<Long>> pages = walk("DELIVERED", 2);
+
+		assertThat(pages).hasSize(2);
+		assertThat(flatten(pages)).containsExactlyElementsOf(delivered);
+		assertThat(flatten(walk("COMPLETED", 2))).isEmpty();
+		assertThat(flatten(walk("", 4))).hasSize(9);
+	}
+
+	// every page's ids, following nextCursor until it runs out
+	private List<List<Long>> walk(String status, int size) throws Exception {
+		List<List<Long>> pages = new ArrayList<>();
+		String cursor = null;
+		do {
+			OrderPageResponse page = orderService.getOrdersOfRestaurant(restaurant.getId(), status, cursor, size);
+			pages.add(page.getOrders().stream().map(Order::getId).toList());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return pages;
+	}
+
+	private static List<Long> flatten(List<List<Long>> pages) {
+		return pages.stream().flatMap(List::stream).toList();
+	}
+
+	private Long newOrder(Restaurant at, long createdAt, OrderStatus status) {
+		Order order = new Order();
+		order.setRestaurant(at);
+		order.setOrderStatus(status);
+		order.setCreatedAt(new Date(createdAt));
+		return orderRepository.save(order).getId();
+	}
+
+}
@@ -0,0 +1,185 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.zosh.domain.OrderStatus;
+import com.zosh.domain.RollupGranularity;
+import com.zosh.model.Order;
+import com.zosh.model.Restaurant;
+import com.zosh.model.RevenueRollup;
+import com.zosh.repository.OrderRepository;
+import com.zosh.repository.RestaurantRepository;
+import com.zosh.repository.RevenueRollupRepository;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.datasource.url=jdbc:h2:mem:rollups;LOCK_TIMEOUT=10000",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"analytics.zone=UTC" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(RevenueRollupServiceImplementation.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RevenueRollupServiceTests {
+
+	private static final LocalDate YESTERDAY = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+
+	@Autowired
+	private RevenueRollupService rollupService;
+
+	@Autowired
+	private RevenueRollupRepository rollupRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private RestaurantRepository restaurantRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private DataSource dataSource;
+
+	private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+	private Restaurant restaurant;
+
+	@BeforeEach
+	void setUp() {
+		restaurant = new Restaurant();
+		restaurant.setName("Rollup Kitchen");
+		restaurant = restaurantRepository.save(restaurant);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdownNow();
+		rollupRepository.deleteAll();
+		orderRepository.deleteAll();
+		restaurantRepository.deleteAll();
+	}
+
+	@Test
+	void incrementalDeltasAgreeWithARebuild() {
+		Order kept = place(9, 500);
+		Order cancelled = place(9, 300);
+		Order completed = place(14, 200);
+		changeStatus(cancelled, OrderStatus.CANCELLED);
+		changeStatus(completed, OrderStatus.COMPLETED);
+		// outside the rebuilt range
+		place(-20, 100);
+
+		List<String> incremental = buckets();
+		rollupService.rebuild(YESTERDAY, YESTERDAY.plusDays(1));
+
+		assertThat(buckets()).containsExactlyInAnyOrderElementsOf(incremental);
+		RevenueRollup day = day();
+		assertThat(day.getOrdersPlaced()).isEqualTo(3);
+		assertThat(day.getOrdersCancelled()).isEqualTo(1);
+		assertThat(day.getOrdersCompleted()).isEqualTo(1);
+		assertThat(day.getRevenue()).isEqualTo(kept.getTotalAmount() + completed.getTotalAmount());
+	}
+
+	@Test
+	void aDeltaArrivingWhileARebuildAggregatesIsAppliedAfterIt() throws Exception {
+		Order order = place(9, 500);
+
+		// a rebuild that stops right after it has read the orders
+		CountDownLatch read = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		JdbcTemplate pausing = new JdbcTemplate(dataSource) {
+			@Override
+			public void query(String sql, RowCallbackHandler rch, @Nullable Object... args) {
+				super.query(sql, rch, args);
+				if (sql.contains("UNION ALL")) {
+					read.countDown();
+					await(release);
+				}
+			}
+		};
+		RevenueRollupService rebuilding = new RevenueRollupServiceImplementation(pausing, transactionManager,
+				rollupRepository, "UTC", 2, 90);
+		Future<?> rebuild = pool.submit(() -> rebuilding.rebuild(YESTERDAY, YESTERDAY.plusDays(1)));
+		assertThat(read.await(10, TimeUnit.SECONDS)).isTrue();
+
+		// the order completes after the rebuild has read it as pending
+		Future<?> delta = Executors.newSingleThreadExecutor().submit(() -> changeStatus(order, OrderStatus.COMPLETED));
+		Thread.sleep(300);
+		assertThat(delta.isDone()).isFalse();
+
+		release.countDown();
+		rebuild.get(10, TimeUnit.SECONDS);
+		delta.get(10, TimeUnit.SECONDS);
+
+		assertThat(day().getOrdersCompleted()).isEqualTo(1);
+	}
+
+	private Order place(int hour, long amount) {
+		Order order = new Order();
+		order.setRestaurant(restaurant);
+		order.setOrderStatus(OrderStatus.PENDING);
+		order.setTotalAmount(amount);
+		order.setCreatedAt(Date.from(YESTERDAY.atStartOfDay(ZoneOffset.UTC).plusHours(hour).toInstant()));
+		order = orderRepository.save(order);
+		rollupService.orderCreated(order);
+		return order;
+	}
+
+	private void changeStatus(Order order, OrderStatus status) {
+		order.setOrderStatus(status);
+		orderRepository.save(order);
+		rollupService.orderStatusChanged(order);
+	}
+
+	private RevenueRollup day() {
+		return rollupRepository.findAll().stream()
+				.filter(r -> r.getGranularity() == RollupGranularity.DAY
+						&& r.getBucketStart().toInstant().equals(YESTERDAY.atStartOfDay(ZoneOffset.UTC).toInstant()))
+				.findFirst().orElseThrow();
+	}
+
+	private List<String> buckets() {
+		return rollupRepository.findAll().stream()
+				.map(r -> r.getGranularity() + " " + r.getBucketStart().toInstant() + " " + r.getOrdersPlaced() + "/"
+						+ r.getOrdersCancelled() + "/" + r.getOrdersCompleted() + "/" + r.getRevenue())
+				.toList();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
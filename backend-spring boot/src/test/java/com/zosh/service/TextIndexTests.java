@@ -0,0 +1,82 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TextIndexTests {
+
+	private TextIndex<String> index;
+
+	@BeforeEach
+	void setUp() {
+		index = new TextIndex<>();
+		index.put(1, "Margherita Pizza", "Margherita Pizza", "Margherita Pizza", "Pizza");
+		index.put(2, "Paneer Tikka", "Paneer Tikka", "Paneer Tikka", "Starters");
+		index.put(3, "Pizza Hut", "Pizza Hut", "Pizza Hut", "Italian");
+		index.put(4, "Crème Brûlée", "Crème Brûlée", "Crème Brûlée", "Desserts");
+	}
+
+	@Test
+	void ranksWholeWordsInTheFirstFieldFirst() {
+		assertThat(index.search("pizza", 10)).containsExactly("Margherita Pizza", "Pizza Hut");
+		assertThat(index.search("italian", 10)).containsExactly("Pizza Hut");
+	}
+
+	@Test
+	void matchesPrefixesTyposAndAccents() {
+		assertThat(index.search("marg", 10)).containsExactly("Margherita Pizza");
+		assertThat(index.search("panir tika", 10)).isEmpty();
+		assertThat(index.search("paner tikka", 10)).containsExactly("Paneer Tikka");
+		assertThat(index.search("margarita", 10)).containsExactly("Margherita Pizza");
+		assertThat(index.search("creme brulee", 10)).containsExactly("Crème Brûlée");
+	}
+
+	@Test
+	void findsWordsLongerThanThePostedPrefixes() {
+		index.put(5, "Hyderabadidumbiryani Special", "Hyderabadidumbiryani Special", "Hyderabadidumbiryani Special",
+				"Rice");
+
+		assertThat(index.prefixCandidates("hyderabadidumb")).containsExactly(5L);
+		assertThat(index.prefixCandidates("hyderabadidumbir")).containsExactly(5L);
+		assertThat(index.prefixCandidates("hyderabadidumbiryani")).containsExactly(5L);
+		assertThat(index.search("hyderabadidumbir", 10)).containsExactly("Hyderabadidumbiryani Special");
+		assertThat(index.search("hyderabadidumbiryani", 10)).containsExactly("Hyderabadidumbiryani Special");
+	}
+
+	@Test
+	void requiresEveryQueryWord() {
+		assertThat(index.search("pizza hut", 10)).containsExactly("Pizza Hut");
+		assertThat(index.search("pizza tikka", 10)).isEmpty();
+		assertThat(index.search("  ", 10)).isEmpty();
+	}
+
+	@Test
+	void updatesIncrementally() {
+		index.put(3, "Dosa Hut", "Dosa Hut", "Dosa Hut", "South Indian");
+		assertThat(index.search("pizza", 10)).containsExactly("Margherita Pizza");
+		assertThat(index.search("dosa", 10)).containsExactly("Dosa Hut");
+
+		index.remove(1);
+		assertThat(index.search("pizza", 10)).isEmpty();
+		assertThat(index.search("marg", 10)).isEmpty();
+	}
+
+	@Test
+	void rebuildKeepsWritesMadeWhileLoading() {
+		index.beginRebuild();
+		TextIndex<String> load = new TextIndex<>();
+		load.put(1, "Margherita Pizza", "Margherita Pizza", "Margherita Pizza", "Pizza");
+		load.put(2, "Paneer Tikka", "Paneer Tikka", "Paneer Tikka", "Starters");
+		index.put(5, "Veg Biryani", "Veg Biryani", "Veg Biryani", "Rice");
+		index.remove(2);
+		index.finishRebuild(load);
+
+		assertThat(index.size()).isEqualTo(2);
+		assertThat(index.search("biryani", 10)).containsExactly("Veg Biryani");
+		assertThat(index.search("tikka", 10)).isEmpty();
+		assertThat(index.search("hut", 10)).isEmpty();
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.zosh.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.zosh.config.JwtProvider;
+import com.zosh.model.Address;
+import com.zosh.model.User;
+import com.zosh.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({ UserCache.class, UserCacheTests.Metrics.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserCacheTests {
+
+	private static final String EMAIL = "cached@test.com";
+
+	@TestConfiguration
+	static class Metrics {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+	@BeforeEach
+	void setUp() {
+		User user = new User();
+		user.setEmail(EMAIL);
+		user.setFullName("Asha");
+		userRepository.save(user);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdownNow();
+		RequestContextHolder.resetRequestAttributes();
+		userRepository.deleteAll();
+		userCache.invalidate(EMAIL);
+	}
+
+	@Test
+	void everyLookupGetsItsOwnCopy() {
+		User first = userCache.get(EMAIL);
+		first.setFullName("Changed");
+		first.getAddresses().add(new Address());
+
+		User second = userCache.get(EMAIL);
+
+		assertThat(second).isNotSameAs(first);
+		assertThat(second.getFullName()).isEqualTo("Asha");
+		assertThat(second.getAddresses()).isEmpty();
+	}
+
+	@Test
+	void savingAUserDropsTheCachedCopy() {
+		User user = userCache.get(EMAIL);
+		user.setFullName("Renamed");
+		userRepository.save(user);
+
+		assertThat(userCache.get(EMAIL).getFullName()).isEqualTo("Renamed");
+	}
+
+	@Test
+	void aSaveDropsTheCachedCopyOnlyOnceItCommits() {
+		userCache.get(EMAIL);
+		double misses = misses();
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			User user = userRepository.findByEmail(EMAIL);
+			user.setFullName("Renamed");
+			userRepository.save(user);
+			// still cached, the new name is not committed yet
+			assertThat(userCache.get(EMAIL).getFullName()).isEqualTo("Asha");
+		});
+
+		assertThat(userCache.get(EMAIL).getFullName()).isEqualTo("Renamed");
+		assertThat(misses() - misses).isEqualTo(1);
+	}
+
+	@Test
+	void aLoadRacingWithAnInvalidationIsNotCached() throws Exception {
+		// a second cache whose database read stops after reading the row
+		CountDownLatch read = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		UserRepository pausing = mock(UserRepository.class);
+		doAnswer(invocation -> {
+			User user = userRepository.findByEmail(invocation.getArgument(0));
+			read.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return user;
+		}).when(pausing).findByEmail(anyString());
+		MeterRegistry registry = new SimpleMeterRegistry();
+		UserCache cache = new UserCache(pausing, transactionManager, registry, 100, 60_000);
+
+		Future<User> load = pool.submit(() -> cache.get(EMAIL));
+		assertThat(read.await(10, TimeUnit.SECONDS)).isTrue();
+		cache.invalidate(EMAIL);
+		release.countDown();
+		assertThat(load.get(10, TimeUnit.SECONDS).getFullName()).isEqualTo("Asha");
+
+		// the stale read was not kept, the next lookup goes to the database again
+		cache.get(EMAIL);
+		assertThat(registry.get("user.cache.gets").tag("result", "miss").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void theCallerIsResolvedOncePerRequest() throws Exception {
+		JwtProvider jwtProvider = mock(JwtProvider.class);
+		when(jwtProvider.getEmailFromJwtToken("jwt")).thenReturn(EMAIL);
+		UserServiceImplementation userService = new UserServiceImplementation(userRepository, jwtProvider, null, null,
+				null, userCache);
+		double hits = hits();
+		double misses = misses();
+
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		User first = userService.findUserProfileByJwt("jwt");
+		assertThat(userService.findUserProfileByJwt("jwt")).isSameAs(first);
+		assertThat(misses() - misses).isEqualTo(1);
+		assertThat(hits() - hits).isZero();
+
+		// the next request gets its own copy, from the cache
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		User next = userService.findUserProfileByJwt("jwt");
+		assertThat(next).isNotSameAs(first);
+		assertThat(hits() - hits).isEqualTo(1);
+	}
+
+	private double hits() {
+		return meterRegistry.get("user.cache.gets").tag("result", "hit").counter().count();
+	}
+
+	private double misses() {
+		return meterRegistry.get("user.cache.gets").tag("result", "miss").counter().count();
+	}
+
+}
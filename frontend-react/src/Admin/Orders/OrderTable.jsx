@@ -35,11 +35,12 @@ import {
 //   shipOrder,
 // } from "../../state/Admin/Order/Action";
 
+// the moves the server accepts, in delivery order; cancelling goes through its own endpoint
 const orderStatus = [
-  { label: "Pending", value: "PENDING" },
-  { label: "Completed", value: "COMPLETED" },
+  { label: "Ready For Pickup", value: "READY_FOR_PICKUP" },
   { label: "Out For Delivery", value: "OUT_FOR_DELIVERY" },
   { label: "Delivered", value: "DELIVERED" },
+  { label: "Completed", value: "COMPLETED" },
 ];
 
 const OrdersTable = ({ isDashboard, name }) => {
@@ -47,7 +48,7 @@ const OrdersTable = ({ isDashboard, name }) => {
   const [formData, setFormData] = useState({ status: "", sort: "" });
   const dispatch = useDispatch();
   const jwt = localStorage.getItem("jwt");
-  const { restaurantsOrder } = useSelector((store) => store);
+  const { restaurantsOrder, restaurant, auth } = useSelector((store) => store);
   const [anchorElArray, setAnchorElArray] = useState([]);
   const { id } = useParams();
 
@@ -68,6 +69,17 @@ const OrdersTable = ({ isDashboard, name }) => {
     dispatch(updateOrderStatus({ orderId, orderStatus, jwt }));
   };
 
+  const handleLoadMore = () => {
+    dispatch(
+      fetchRestaurantsOrder({
+        restaurantId: restaurant.usersRestaurant?.id,
+        orderStatus: restaurantsOrder.orderStatus,
+        cursor: restaurantsOrder.nextCursor,
+        jwt: auth.jwt || jwt,
+      })
+    );
+  };
+
   // console.log("restaurants orders store ", restaurantsOrder)
 
   return (
@@ -224,6 +236,17 @@ const OrdersTable = ({ isDashboard, name }) => {
             </TableBody>
           </Table>
         </TableContainer>
+        {!isDashboard && restaurantsOrder.nextCursor && (
+          <Box sx={{ display: "flex", justifyContent: "center", py: 2 }}>
+            <Button
+              variant="outlined"
+              disabled={restaurantsOrder.loading}
+              onClick={handleLoadMore}
+            >
+              Load more
+            </Button>
+          </Box>
+        )}
       </Card>
 
       <Backdrop
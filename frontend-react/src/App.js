@@ -8,7 +8,6 @@ import { useEffect } from "react";
 import { getUser } from "./State/Authentication/Action";
 import { findCart } from "./State/Customers/Cart/cart.action";
 import {
-  getAllRestaurantsAction,
   getRestaurantById,
   getRestaurantByUserId,
 } from "./State/Customers/Restaurant/restaurant.action";
@@ -23,7 +22,6 @@ function App() {
     if (jwt) {
       dispatch(getUser(jwt));
       dispatch(findCart(jwt));
-      dispatch(getAllRestaurantsAction(jwt));
     }
   }, [auth.jwt]);
 
@@ -38,25 +38,30 @@ export const updateOrderStatus = ({orderId,orderStatus,jwt}) => {
   };
 };
 
-export const fetchRestaurantsOrder = ({restaurantId,orderStatus,jwt}) => {
+// one page of the restaurant's orders, newest first; pass the previous page's
+// nextCursor to append the following page
+export const fetchRestaurantsOrder = ({restaurantId,orderStatus,cursor,jwt}) => {
   return async (dispatch) => {
     try {
       dispatch({ type: GET_RESTAURANTS_ORDER_REQUEST });
 
       const { data } = await api.get(
-        `/api/admin/order/restaurant/${restaurantId}`,{
-          params: { order_status:orderStatus},
+        `/api/admin/order/restaurant/${restaurantId}/page`,{
+          params: { order_status:orderStatus, cursor, size:20 },
           headers: {
             Authorization: `Bearer ${jwt}`,
           },
         }
       );
 
-      const orders = data;
-      console.log("restaurants order ------ ", orders);
       dispatch({
         type: GET_RESTAURANTS_ORDER_SUCCESS,
-        payload: orders,
+        payload: {
+          orders: data.orders,
+          nextCursor: data.nextCursor,
+          orderStatus,
+          append: Boolean(cursor),
+        },
       });
     } catch (error) {
       dispatch({ type: GET_RESTAURANTS_ORDER_FAILURE, error });
@@ -11,7 +11,10 @@ import {
 const initialState = {
   loading: false,
   error: null,
-  orders:[]
+  orders:[],
+  // cursor of the next page, null once the last page is loaded
+  nextCursor:null,
+  orderStatus:null
 };
 
 const restaurantsOrderReducer = (state = initialState, action) => {
@@ -20,7 +23,15 @@ const restaurantsOrderReducer = (state = initialState, action) => {
     case UPDATE_ORDER_STATUS_REQUEST:
       return { ...state, loading: true, error: null };
     case GET_RESTAURANTS_ORDER_SUCCESS:
-      return { ...state, loading: false, orders: action.payload };
+      return {
+        ...state,
+        loading: false,
+        orders: action.payload.append
+          ? [...state.orders, ...action.payload.orders]
+          : action.payload.orders,
+        nextCursor: action.payload.nextCursor,
+        orderStatus: action.payload.orderStatus,
+      };
     case UPDATE_ORDER_STATUS_SUCCESS:
       const updatedOrders = state.orders.map((order) => 
         order.id === action.payload.id?action.payload:order
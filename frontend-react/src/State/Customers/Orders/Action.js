@@ -25,17 +25,19 @@ export const createOrder = (reqData) => {
 };
 
 
-export const getUsersOrders = (jwt) => {
+// one page of the order history, newest first; pass the previous page's
+// nextCursor to append the following page
+export const getUsersOrders = (jwt, cursor) => {
   return async (dispatch) => {
     dispatch(getUsersOrdersRequest());
     try {
-      const {data} = await api.get(`/api/order/user`,{
+      const {data} = await api.get(`/api/order/user/history`,{
+        params: { cursor, size: 20 },
         headers: {
             Authorization: `Bearer ${jwt}`,
           },
       });
-      console.log("users order ",data)
-      dispatch(getUsersOrdersSuccess(data));
+      dispatch(getUsersOrdersSuccess({ ...data, append: Boolean(cursor) }));
     } catch (error) {
       dispatch(getUsersOrdersFailure(error));
     }
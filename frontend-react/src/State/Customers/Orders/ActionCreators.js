@@ -20,9 +20,10 @@ export const getUsersOrdersRequest = () => ({
     type: actionTypes.GET_USERS_ORDERS_REQUEST,
   });
   
-  export const getUsersOrdersSuccess = (orders) => ({
+  // page: { orders, nextCursor, append }
+  export const getUsersOrdersSuccess = (page) => ({
     type: actionTypes.GET_USERS_ORDERS_SUCCESS,
-    payload: orders,
+    payload: page,
   });
   
   export const getUsersOrdersFailure = (error) => ({
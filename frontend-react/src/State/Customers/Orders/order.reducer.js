@@ -9,6 +9,8 @@ import {
 const initialState = {
   loading: false,
   orders: [],
+  // cursor of the next history page, null once the last page is loaded
+  nextCursor: null,
   error: null,
   notifications:[]
 };
@@ -17,7 +19,13 @@ export const orderReducer = (state = initialState, { type, payload }) => {
     case GET_USERS_ORDERS_REQUEST:
       return { ...state, error: null, loading: true };
     case GET_USERS_ORDERS_SUCCESS:
-      return { ...state, error: null, loading: false, orders: payload };
+      return {
+        ...state,
+        error: null,
+        loading: false,
+        orders: payload.append ? [...state.orders, ...payload.orders] : payload.orders,
+        nextCursor: payload.nextCursor,
+      };
     case GET_USERS_NOTIFICATION_SUCCESS:
         return { ...state,notifications:payload, error: null, loading: false };
   
@@ -28,6 +28,21 @@ export const getAllRestaurantsRequest = () => ({
     type: actionTypes.GET_ALL_RESTAURANTS_FAILURE,
     payload: error,
   });
+
+  // Super admin table, full restaurant details kept apart from the paged listing
+export const getAllRestaurantsAdminRequest = () => ({
+    type: actionTypes.GET_ALL_RESTAURANTS_ADMIN_REQUEST,
+  });
+  
+  export const getAllRestaurantsAdminSuccess = (restaurants) => ({
+    type: actionTypes.GET_ALL_RESTAURANTS_ADMIN_SUCCESS,
+    payload: restaurants,
+  });
+  
+  export const getAllRestaurantsAdminFailure = (error) => ({
+    type: actionTypes.GET_ALL_RESTAURANTS_ADMIN_FAILURE,
+    payload: error,
+  });
   
 
   // Delete Restaurant Actions
@@ -8,6 +8,10 @@ export const GET_ALL_RESTAURANTS_REQUEST = "GET_ALL_RESTAURANTS_REQUEST";
 export const GET_ALL_RESTAURANTS_SUCCESS = "GET_ALL_RESTAURANTS_SUCCESS";
 export const GET_ALL_RESTAURANTS_FAILURE = "GET_ALL_RESTAURANTS_FAILURE";
 
+export const GET_ALL_RESTAURANTS_ADMIN_REQUEST = "GET_ALL_RESTAURANTS_ADMIN_REQUEST";
+export const GET_ALL_RESTAURANTS_ADMIN_SUCCESS = "GET_ALL_RESTAURANTS_ADMIN_SUCCESS";
+export const GET_ALL_RESTAURANTS_ADMIN_FAILURE = "GET_ALL_RESTAURANTS_ADMIN_FAILURE";
+
 export const DELETE_RESTAURANT_REQUEST = "DELETE_RESTAURANT_REQUEST";
 export const DELETE_RESTAURANT_SUCCESS = "DELETE_RESTAURANT_SUCCESS";
 export const DELETE_RESTAURANT_FAILURE = "DELETE_RESTAURANT_FAILURE";
@@ -3,6 +3,8 @@ import * as actionTypes from "./ActionTypes";
 
 const initialState = {
   restaurants: [],
+  nextCursor: null,
+  adminRestaurants: [],
   usersRestaurant: null,
   restaurant: null,
   loading: false,
@@ -16,6 +18,7 @@ const restaurantReducer = (state = initialState, action) => {
   switch (action.type) {
     case actionTypes.CREATE_RESTAURANT_REQUEST:
     case actionTypes.GET_ALL_RESTAURANTS_REQUEST:
+    case actionTypes.GET_ALL_RESTAURANTS_ADMIN_REQUEST:
     case actionTypes.DELETE_RESTAURANT_REQUEST:
     case actionTypes.UPDATE_RESTAURANT_REQUEST:
     case actionTypes.GET_RESTAURANT_BY_ID_REQUEST:
@@ -36,7 +39,16 @@ const restaurantReducer = (state = initialState, action) => {
       return {
         ...state,
         loading: false,
-        restaurants: action.payload,
+        restaurants: action.payload.append
+          ? [...state.restaurants, ...action.payload.restaurants]
+          : action.payload.restaurants,
+        nextCursor: action.payload.nextCursor,
+      };
+    case actionTypes.GET_ALL_RESTAURANTS_ADMIN_SUCCESS:
+      return {
+        ...state,
+        loading: false,
+        adminRestaurants: action.payload,
       };
     case actionTypes.GET_RESTAURANT_BY_ID_SUCCESS:
       return {
@@ -61,6 +73,9 @@ const restaurantReducer = (state = initialState, action) => {
         restaurants: state.restaurants.filter(
           (item) => item.id !== action.payload
         ),
+        adminRestaurants: state.adminRestaurants.filter(
+          (item) => item.id !== action.payload
+        ),
         usersRestaurant: state.usersRestaurant.filter(
           (item) => item.id !== action.payload
         ),
@@ -108,6 +123,7 @@ const restaurantReducer = (state = initialState, action) => {
       };
     case actionTypes.CREATE_RESTAURANT_FAILURE:
     case actionTypes.GET_ALL_RESTAURANTS_FAILURE:
+    case actionTypes.GET_ALL_RESTAURANTS_ADMIN_FAILURE:
     case actionTypes.DELETE_RESTAURANT_FAILURE:
     case actionTypes.UPDATE_RESTAURANT_FAILURE:
     case actionTypes.GET_RESTAURANT_BY_ID_FAILURE:
@@ -8,6 +8,9 @@ import {
   deleteRestaurantFailure,
   deleteRestaurantRequest,
   deleteRestaurantSuccess,
+  getAllRestaurantsAdminFailure,
+  getAllRestaurantsAdminRequest,
+  getAllRestaurantsAdminSuccess,
   getAllRestaurantsFailure,
   getAllRestaurantsRequest,
   getAllRestaurantsSuccess,
@@ -46,16 +49,24 @@ import {
   UPDATE_RESTAURANT_STATUS_SUCCESS,
 } from "./ActionTypes";
 
-export const getAllRestaurantsAction = (token) => {
+// one page of restaurant summaries; pass the previous page's nextCursor to append the next one
+export const getAllRestaurantsAction = (token, cursor) => {
   return async (dispatch) => {
     dispatch(getAllRestaurantsRequest());
     try {
       const { data } = await api.get("/api/restaurants", {
+        params: { cursor },
         headers: {
           Authorization: `Bearer ${token}`,
         },
       });
-      dispatch(getAllRestaurantsSuccess(data));
+      dispatch(
+        getAllRestaurantsSuccess({
+          restaurants: data.restaurants,
+          nextCursor: data.nextCursor,
+          append: Boolean(cursor),
+        })
+      );
       console.log("all restaurant ", data);
     } catch (error) {
       dispatch(getAllRestaurantsFailure(error));
@@ -63,6 +74,23 @@ export const getAllRestaurantsAction = (token) => {
   };
 };
 
+// full restaurant details for the super admin table
+export const getAllRestaurantsAdminAction = (token) => {
+  return async (dispatch) => {
+    dispatch(getAllRestaurantsAdminRequest());
+    try {
+      const { data } = await api.get("/api/admin/restaurants", {
+        headers: {
+          Authorization: `Bearer ${token}`,
+        },
+      });
+      dispatch(getAllRestaurantsAdminSuccess(data));
+    } catch (error) {
+      dispatch(getAllRestaurantsAdminFailure(error));
+    }
+  };
+};
+
 export const getRestaurantById = (reqData) => {
   return async (dispatch) => {
     dispatch(getRestaurantByIdRequest());
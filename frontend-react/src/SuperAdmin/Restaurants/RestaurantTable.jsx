@@ -20,6 +20,7 @@ import {
   
   import { useDispatch, useSelector } from "react-redux";
   import { getMenuItemsByRestaurantId } from "../../State/Customers/Menu/menu.action";
+  import { getAllRestaurantsAdminAction } from "../../State/Customers/Restaurant/restaurant.action";
   
   const RestaurantTable = ({ isDashboard, name }) => {
     const dispatch = useDispatch();
@@ -27,7 +28,7 @@ import {
     // const { id } = useParams();
   
     useEffect(() => {
-      
+      dispatch(getAllRestaurantsAdminAction(localStorage.getItem("jwt")));
     }, []);
   
     const handleDeleteProduct = (productId) => {
@@ -58,7 +59,7 @@ import {
                 </TableRow>
               </TableHead>
               <TableBody>
-                {restaurant.restaurants.slice(0,isDashboard?7:restaurant.restaurants.length).map((item) => (
+                {restaurant.adminRestaurants.slice(0,isDashboard?7:restaurant.adminRestaurants.length).map((item) => (
                   <TableRow
                     hover
                     key={item.name}
@@ -85,17 +86,17 @@ import {
                       </Box>
                     </TableCell>
                     <TableCell sx={{ textAlign: "center" }}>
-                      {item.owner.fullName}
+                      {item.owner?.fullName}
                     </TableCell>
                     <TableCell sx={{ textAlign: "center" }}>
                       {item.cuisineType}
                     </TableCell>
                     <TableCell sx={{ textAlign: "center" }}>
-                      {item.address.city}
+                      {item.address?.city || item.city}
                     </TableCell>
   
                     {!isDashboard && <TableCell sx={{ textAlign: "center" }}>
-                      {item.contactInformation.email}
+                      {item.contactInformation?.email}
                     </TableCell>}
                   </TableRow>
                 ))}
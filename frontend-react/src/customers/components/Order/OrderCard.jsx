@@ -5,10 +5,10 @@ const OrderCard = ({ order, status }) => {
   return (
     <Card className="flex justify-between items-center p-5 ">
       <div className="flex items-center space-x-5">
-        <img className="h-16 w-16" src={order.food.images[0]} alt="" />
+        <img className="h-16 w-16" src={order.foodImage} alt="" />
         <div>
-          <p>{order.food.name}</p>
-          <p className="text-gray-400">${order.food.price}</p>
+          <p>{order.foodName}</p>
+          <p className="text-gray-400">${order.foodPrice}</p>
         </div>
       </div>
       <div>
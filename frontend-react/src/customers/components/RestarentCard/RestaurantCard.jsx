@@ -21,7 +21,7 @@ const RestaurantCard = ({ data, index }) => {
 
   const navigateToRestaurant = () => {
     if(data.open)
-    navigate(`/restaurant/${data.address.city}/${data.name}/${data.id}`);
+    navigate(`/restaurant/${data.city || data.address?.city}/${data.name}/${data.id}`);
   };
 
   return (
@@ -29,7 +29,7 @@ const RestaurantCard = ({ data, index }) => {
       <div onClick={navigateToRestaurant} className={`${data.open?"cursor-pointer":"cursor-not-allowed"}  relative`}>
         <img
           className="w-full h-[10rem] rounded-t-md object-cover "
-          src={data.images[0]}
+          src={data.thumbnail || data.images?.[0]}
           alt=""
         />
         <Chip
@@ -47,9 +47,10 @@ const RestaurantCard = ({ data, index }) => {
           <span>{data.rating}</span>
         </div> */}
           <p className="text-gray-500 text-sm">
-            {data.description.length > 40
-              ? data.description.substring(0, 40) + "..."
-              : data.description}
+            {data.cuisineType ||
+              (data.description?.length > 40
+                ? data.description.substring(0, 40) + "..."
+                : data.description)}
           </p>
         </div>
 
@@ -93,6 +93,24 @@ const HomePage = () => {
               <RestaurantCard key={i} data={item} index={i} />
             ))}
           </div>
+          {restaurant.nextCursor && (
+            <div className="flex justify-center py-5">
+              <Button
+                variant="outlined"
+                disabled={restaurant.loading}
+                onClick={() =>
+                  dispatch(
+                    getAllRestaurantsAction(
+                      localStorage.getItem("jwt"),
+                      restaurant.nextCursor
+                    )
+                  )
+                }
+              >
+                Load more
+              </Button>
+            </div>
+          )}
         </div>
       </section>
     </div>
@@ -1,4 +1,5 @@
 import React, { useEffect } from 'react'
+import { Button } from '@mui/material'
 import OrderCard from '../../components/Order/OrderCard'
 import { useDispatch, useSelector } from 'react-redux'
 import { getUsersOrders } from '../../../State/Customers/Orders/Action';
@@ -15,7 +16,15 @@ const Orders = () => {
     <div className='flex items-center flex-col'>
       <h1 className='text-xl text-center py-7 font-semibold'>My Orders</h1>
       <div className='space-y-5 w-full lg:w-1/2'>
-     { order.orders.map((order)=>order.items.map((item)=><OrderCard status={order.orderStatus} order={item}/>))}
+     { order.orders.map((order)=>order.items.map((item)=><OrderCard key={item.id} status={order.orderStatus} order={item}/>))}
+     {order.nextCursor && (
+       <div className='flex justify-center py-5'>
+         <Button variant='outlined' disabled={order.loading}
+           onClick={()=>dispatch(getUsersOrders(jwt,order.nextCursor))}>
+           Load more
+         </Button>
+       </div>
+     )}
     </div>
     </div>
   )